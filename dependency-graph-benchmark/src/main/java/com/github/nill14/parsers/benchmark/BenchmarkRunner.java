@@ -0,0 +1,31 @@
+package com.github.nill14.parsers.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the standard JMH command line options,
+ * the results are written as JSON into target/jmh-result.json unless specified otherwise.
+ */
+public final class BenchmarkRunner {
+
+	private BenchmarkRunner() {
+	}
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+		CommandLineOptions commandLine = new CommandLineOptions(args);
+		ChainedOptionsBuilder builder = new OptionsBuilder().parent(commandLine);
+		if (!commandLine.getResultFormat().hasValue()) {
+			builder.resultFormat(ResultFormatType.JSON);
+		}
+		if (!commandLine.getResult().hasValue()) {
+			builder.result("target/jmh-result.json");
+		}
+		new Runner(builder.build()).run();
+	}
+}
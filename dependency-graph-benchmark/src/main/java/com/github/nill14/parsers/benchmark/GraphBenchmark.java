@@ -0,0 +1,119 @@
+package com.github.nill14.parsers.benchmark;
+
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.nill14.parsers.dependency.IDependencyDescriptor;
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.github.nill14.parsers.graph.CyclicGraphException;
+import com.github.nill14.parsers.graph.utils.GraphCycleDetector;
+import com.github.nill14.parsers.graph.utils.LongestPathTopoSorter;
+import com.github.nill14.parsers.graph.utils.TransitiveClosureIndex;
+import com.google.common.base.Functions;
+
+/**
+ * The graph construction and the graph algorithms
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class PoolState {
+
+		public ForkJoinPool pool;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			pool = new ForkJoinPool();
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * A fresh dependency graph per invocation, its closure index is not computed yet.
+	 * The graph construction takes long enough to hide the overhead of the invocation level setup.
+	 */
+	@State(Scope.Thread)
+	public static class ColdGraphState {
+
+		public IDependencyGraph<IDependencyDescriptor<String>> dependencyGraph;
+
+		@Setup(Level.Invocation)
+		public void setUp(GraphState state) throws UnsatisfiedDependencyException, CyclicGraphException {
+			dependencyGraph = DependencyGraphFactory.newInstance(state.modules);
+		}
+	}
+
+	@Benchmark
+	public IDependencyGraph<IDependencyDescriptor<String>> newInstance(GraphState state)
+			throws UnsatisfiedDependencyException, CyclicGraphException {
+		return DependencyGraphFactory.newInstance(state.modules);
+	}
+
+	@Benchmark
+	public IDependencyGraph<IDependencyDescriptor<String>> newInstanceParallel(GraphState state, PoolState poolState)
+			throws UnsatisfiedDependencyException, CyclicGraphException {
+		return DependencyGraphFactory.newInstance(state.modules,
+				Functions.<IDependencyDescriptor<String>>identity(), poolState.pool);
+	}
+
+	@Benchmark
+	public LinkedHashMap<IDependencyDescriptor<String>, Integer> longestPathTopoSort(GraphState state) throws CyclicGraphException {
+		return new LongestPathTopoSorter<>(state.graph).getLongestPathMap();
+	}
+
+	@Benchmark
+	public Collection<Deque<IDependencyDescriptor<String>>> cycleDetection(GraphState state) {
+		return new GraphCycleDetector<>(state.graph).getNontrivialCycles();
+	}
+
+	@Benchmark
+	public TransitiveClosureIndex<IDependencyDescriptor<String>> transitiveClosureIndex(GraphState state) {
+		return new TransitiveClosureIndex<>(state.graph, state.topologicalOrder);
+	}
+
+	/**
+	 * The first query of a fresh graph, it includes the computation of the closure index.
+	 */
+	@Benchmark
+	public int getAllDependencies(GraphState state, ColdGraphState coldState) {
+		Set<IDependencyDescriptor<String>> dependencies = coldState.dependencyGraph.getAllDependencies(state.lastModule);
+		return dependencies.size();
+	}
+
+	/**
+	 * The closure index is built by the first invocation, the rest measures a cached query.
+	 */
+	@Benchmark
+	public int getAllDependenciesCached(GraphState state) {
+		Set<IDependencyDescriptor<String>> dependencies = state.dependencyGraph.getAllDependencies(state.lastModule);
+		return dependencies.size();
+	}
+}
@@ -0,0 +1,90 @@
+package com.github.nill14.parsers.benchmark;
+
+import java.util.Random;
+import java.util.Set;
+
+import com.github.nill14.parsers.dependency.IDependencyDescriptor;
+import com.github.nill14.parsers.dependency.IDependencyDescriptorBuilder;
+import com.github.nill14.parsers.dependency.impl.DependencyDescriptor;
+import com.google.common.collect.Sets;
+
+/**
+ * The shapes of benchmarked graphs, the module i is named "m" + i
+ * and it depends only on modules of lower numbers.
+ */
+public enum GraphShape {
+
+	/**
+	 * Each module depends on the previous one
+	 */
+	CHAIN {
+		@Override
+		void dependencies(IDependencyDescriptorBuilder<String> builder, int i, int size, Random random) {
+			if (i > 0) {
+				builder.uses(moduleName(i - 1));
+			}
+		}
+	},
+
+	/**
+	 * All modules depend on the first one
+	 */
+	FAN_OUT {
+		@Override
+		void dependencies(IDependencyDescriptorBuilder<String> builder, int i, int size, Random random) {
+			if (i > 0) {
+				builder.uses(moduleName(0));
+			}
+		}
+	},
+
+	/**
+	 * Each module depends on up to 3 random preceding modules
+	 */
+	RANDOM {
+		@Override
+		void dependencies(IDependencyDescriptorBuilder<String> builder, int i, int size, Random random) {
+			for (int k = random.nextInt(4); k > 0 && i > 0; k--) {
+				builder.uses(moduleName(random.nextInt(i)));
+			}
+		}
+	},
+
+	/**
+	 * sqrt(size) layers of sqrt(size) modules, each module depends on up to 3 modules of the previous layer
+	 */
+	LAYERED {
+		@Override
+		void dependencies(IDependencyDescriptorBuilder<String> builder, int i, int size, Random random) {
+			int width = Math.max(1, (int) Math.sqrt(size));
+			int layer = i / width;
+			if (layer > 0) {
+				for (int k = 1 + random.nextInt(3); k > 0; k--) {
+					builder.uses(moduleName((layer - 1) * width + random.nextInt(width)));
+				}
+			}
+		}
+	};
+
+	abstract void dependencies(IDependencyDescriptorBuilder<String> builder, int i, int size, Random random);
+
+	private static String moduleName(int i) {
+		return "m" + i;
+	}
+
+	/**
+	 * @param size The count of modules
+	 * @param seed The seed of random dependencies
+	 * @return The modules in the order of numbers
+	 */
+	public Set<IDependencyDescriptor<String>> modules(int size, long seed) {
+		Random random = new Random(seed);
+		Set<IDependencyDescriptor<String>> modules = Sets.newLinkedHashSet();
+		for (int i = 0; i < size; i++) {
+			IDependencyDescriptorBuilder<String> builder = DependencyDescriptor.builder(moduleName(i));
+			dependencies(builder, i, size, random);
+			modules.add(builder.build());
+		}
+		return modules;
+	}
+}
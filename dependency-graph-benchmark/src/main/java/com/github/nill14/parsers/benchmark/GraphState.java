@@ -0,0 +1,52 @@
+package com.github.nill14.parsers.benchmark;
+
+import java.util.Map;
+import java.util.Set;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.github.nill14.parsers.dependency.IDependencyDescriptor;
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.github.nill14.parsers.graph.CyclicGraphException;
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.google.common.collect.ImmutableList;
+
+/**
+ * The benchmarked graph, built once per trial
+ */
+@State(Scope.Benchmark)
+public class GraphState {
+
+	@Param({"CHAIN", "FAN_OUT", "RANDOM", "LAYERED"})
+	public GraphShape shape;
+
+	@Param({"1000", "10000"})
+	public int size;
+
+	public Set<IDependencyDescriptor<String>> modules;
+	public IDependencyGraph<IDependencyDescriptor<String>> dependencyGraph;
+	public DirectedGraph<IDependencyDescriptor<String>, GraphEdge<IDependencyDescriptor<String>>> graph;
+	public ImmutableList<IDependencyDescriptor<String>> topologicalOrder;
+	public Map<IDependencyDescriptor<String>, Integer> moduleRankings;
+	/**
+	 * The last module in the topological order, i.e. the one with the most dependencies
+	 */
+	public IDependencyDescriptor<String> lastModule;
+
+	@Setup(Level.Trial)
+	public void setUp() throws UnsatisfiedDependencyException, CyclicGraphException {
+		modules = shape.modules(size, 7);
+		dependencyGraph = DependencyGraphFactory.newInstance(modules);
+		graph = dependencyGraph.getGraph();
+		topologicalOrder = ImmutableList.copyOf(dependencyGraph.getTopologicalOrder());
+		moduleRankings = dependencyGraph.getModuleRankings();
+		lastModule = topologicalOrder.get(topologicalOrder.size() - 1);
+	}
+}
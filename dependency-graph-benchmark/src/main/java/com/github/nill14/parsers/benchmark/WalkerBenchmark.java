@@ -0,0 +1,122 @@
+package com.github.nill14.parsers.benchmark;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.github.nill14.parsers.dependency.IConsumer;
+import com.github.nill14.parsers.dependency.IDependencyDescriptor;
+import com.github.nill14.parsers.dependency.WalkOptions;
+import com.github.nill14.parsers.dependency.WalkResult;
+import com.github.nill14.parsers.graph.GraphWalker;
+import com.github.nill14.parsers.graph.utils.ForkJoinGraphWalker;
+import com.github.nill14.parsers.graph.utils.GraphWalker1;
+import com.github.nill14.parsers.graph.utils.GraphWalker2;
+import com.github.nill14.parsers.graph.utils.GraphWalker3;
+import com.github.nill14.parsers.graph.utils.GraphWalker4;
+import com.github.nill14.parsers.graph.utils.RankedGraphWalker;
+
+/**
+ * The scheduling overhead of the walkers, the consumer does no work.
+ * A walker is created per invocation, because the GraphWalker1-4 are single use.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WalkerBenchmark {
+
+	private static final int PARALLELISM = 4;
+
+	private static final IConsumer<IDependencyDescriptor<String>> NOOP = new IConsumer<IDependencyDescriptor<String>>() {
+		@Override
+		public void process(IDependencyDescriptor<String> module) throws Exception {
+		}
+	};
+
+	@State(Scope.Benchmark)
+	public static class ExecutorState {
+
+		public ExecutorService executor;
+		public ForkJoinPool pool;
+
+		@Setup(Level.Trial)
+		public void setUp() {
+			executor = Executors.newFixedThreadPool(PARALLELISM);
+			pool = new ForkJoinPool(PARALLELISM);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			executor.shutdown();
+			pool.shutdown();
+		}
+	}
+
+	@Benchmark
+	public void graphWalker1(GraphState state, ExecutorState executorState) throws ExecutionException {
+		walk(executorState.executor, new GraphWalker1<>(state.graph, state.topologicalOrder, PARALLELISM));
+	}
+
+	@Benchmark
+	public void graphWalker2(GraphState state, ExecutorState executorState) throws ExecutionException {
+		walk(executorState.executor, new GraphWalker2<>(state.graph, state.topologicalOrder, state.moduleRankings, PARALLELISM));
+	}
+
+	@Benchmark
+	public void graphWalker3(GraphState state, ExecutorState executorState) throws ExecutionException {
+		walk(executorState.executor, new GraphWalker3<>(state.graph, state.topologicalOrder, PARALLELISM));
+	}
+
+	@Benchmark
+	public void graphWalker4(GraphState state, ExecutorState executorState) throws ExecutionException {
+		walk(executorState.executor, new GraphWalker4<>(state.graph, state.topologicalOrder, state.moduleRankings, PARALLELISM));
+	}
+
+	@Benchmark
+	public void forkJoinWalker(GraphState state, ExecutorState executorState) throws ExecutionException {
+		new ForkJoinGraphWalker<>(state.graph, state.moduleRankings).walk(executorState.pool, NOOP);
+	}
+
+	@Benchmark
+	public WalkResult<IDependencyDescriptor<String>> rankedWalker(GraphState state, ExecutorState executorState) throws ExecutionException {
+		return new RankedGraphWalker<>(state.graph, state.moduleRankings).walk(executorState.executor, NOOP,
+				WalkOptions.<IDependencyDescriptor<String>>builder().parallelism(PARALLELISM).build());
+	}
+
+	private static void walk(ExecutorService executor, final GraphWalker<IDependencyDescriptor<String>> graphWalker)
+			throws ExecutionException {
+
+		for (int i = 0; i < graphWalker.size(); i++) {
+			final IDependencyDescriptor<String> module = graphWalker.releaseNext();
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						NOOP.process(module);
+						graphWalker.onComplete(module);
+					} catch (Exception e) {
+						graphWalker.onFailure(module, e);
+					}
+				}
+			});
+		}
+		graphWalker.awaitCompletion();
+	}
+}
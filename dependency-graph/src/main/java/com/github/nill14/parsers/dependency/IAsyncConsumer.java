@@ -0,0 +1,17 @@
+package com.github.nill14.parsers.dependency;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+public interface IAsyncConsumer<T> {
+
+	/**
+	 * Start an arbitrary asynchronous code with the module.
+	 * The method is invoked when the futures of all dependencies are completed.
+	 * The method should not block, the dependants are released when the returned future completes.
+	 * @param module The module to process
+	 * @return a future of the processing or null when the processing is already completed
+	 * @throws Exception any processing exception
+	 */
+	ListenableFuture<?> process(T module) throws Exception;
+	
+}
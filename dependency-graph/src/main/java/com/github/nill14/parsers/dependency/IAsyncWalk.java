@@ -0,0 +1,28 @@
+package com.github.nill14.parsers.dependency;
+
+import java.util.Map;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A running asynchronous walk of the graph.
+ *
+ * @param <M> The modules
+ */
+public interface IAsyncWalk<M> {
+
+	/**
+	 * The future is completed when all modules are completed 
+	 * or it fails with the exception of the first failed module.
+	 * The remaining modules are skipped after a failure.
+	 * @return a future of the whole walk
+	 */
+	ListenableFuture<Void> getCompletion();
+	
+	/**
+	 * The future of a module fails when the module or any of its dependencies fails. 
+	 * @return the futures of the modules in topological order
+	 */
+	Map<M, ListenableFuture<Void>> getModuleFutures();
+	
+}
@@ -0,0 +1,40 @@
+package com.github.nill14.parsers.dependency;
+
+import java.util.Map;
+
+/**
+ * A deterministic processing closure, the output of a module depends only on
+ * the module inputs (given by the fingerprint) and on the outputs of its dependencies.
+ *
+ * @param <T> The modules
+ */
+public interface ICacheableConsumer<T> {
+
+	/**
+	 * The fingerprint must change whenever the module inputs change, e.g. a hash of the sources.
+	 * The outputs of dependencies are not part of the fingerprint, they are combined automatically.
+	 * @param module The module
+	 * @return The fingerprint of the module inputs
+	 * @throws Exception any processing exception
+	 */
+	String fingerprint(T module) throws Exception;
+
+	/**
+	 * Perform the processing of the module, it is invoked only when the output is not cached.
+	 * Execution is guaranteed to be performed in topological order.
+	 * @param module The module to process
+	 * @param dependencyOutputs The outputs of the direct dependencies
+	 * @return The module output
+	 * @throws Exception any processing exception
+	 */
+	byte[] process(T module, Map<T, byte[]> dependencyOutputs) throws Exception;
+
+	/**
+	 * Invoked instead of {@link #process(Object, Map)} when the output is found in the cache.
+	 * @param module The module
+	 * @param output The cached output
+	 * @throws Exception any processing exception
+	 */
+	void restore(T module, byte[] output) throws Exception;
+
+}
@@ -4,11 +4,15 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import com.github.nill14.parsers.graph.DirectedGraph;
 import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.utils.ThreadPerVertexWalker;
 
 public interface IDependencyGraph<M> {
 
@@ -40,6 +44,38 @@ public interface IDependencyGraph<M> {
 	 */
 	Set<M> getAllDependencies(M module);
 	
+	/**
+	 * 
+	 * @param module The module being depended on
+	 * @return A set of modules directly depending on M, not considering transitive.
+	 */
+	Set<M> getDirectDependants(M module);
+	
+	/**
+	 * 
+	 * @param module The module being depended on
+	 * @return A set of all modules depending on M, including transitive.
+	 */
+	Set<M> getAllDependants(M module);
+	
+	/**
+	 * Computes the union in a single pass over the graph.
+	 * 
+	 * @param modules The modules being depended on
+	 * @return A set of all modules depending on any of the modules, including transitive.
+	 */
+	Set<M> getAllDependants(Set<M> modules);
+	
+	/**
+	 * Answers in nearly constant time without materializing {@link #getAllDependencies(Object)}.
+	 * 
+	 * @param module The module having dependencies
+	 * @param dependency The possible dependency
+	 * @return whether the module depends on the dependency, including transitive. 
+	 * A module doesn't depend on itself. 
+	 */
+	boolean dependsOn(M module, M dependency);
+	
 	/**
 	 * 
 	 * @return a topologically sorted list of modules
@@ -76,6 +112,94 @@ public interface IDependencyGraph<M> {
 	void walkGraph(ExecutorService executor, IConsumer<M> moduleConsumer, int parallelism)
 			throws ExecutionException;
 
+	/**
+	 * Walks the graph, the ready modules are started in the order of the rankings.
+	 * With {@link WalkOptions.FailurePolicy#CONTINUE} a failure skips only the modules 
+	 * depending on the failed module and the independent branches keep running. 
+	 * 
+	 * @param executor an executor to be used for executing the closure
+	 * @param moduleConsumer a processing closure
+	 * @param options the parallelism and the failure policy
+	 * @return the completed, failed and skipped modules
+	 * @throws ExecutionException when the closure throws an exception with {@link WalkOptions.FailurePolicy#FAIL_FAST}
+	 */
+	WalkResult<M> walkGraph(ExecutorService executor, IConsumer<M> moduleConsumer, WalkOptions<M> options)
+			throws ExecutionException;
+
+	/**
+	 * Walks the graph using a lock-free work-stealing scheduler. 
+	 * A completed module forks its ready dependants directly into the pool.
+	 * The rankings are respected only approximately, i.e. ready modules are forked in ranking order.
+	 * 
+	 * @param pool a pool to be used for executing the closure, the parallelism is given by the pool 
+	 * @param moduleConsumer a processing closure
+	 * @throws ExecutionException when the closure throws an exception
+	 */
+	void walkGraph(ForkJoinPool pool, IConsumer<M> moduleConsumer) throws ExecutionException;
+
+	/**
+	 * Walks the graph starting a new thread for each ready module. 
+	 * It is intended for IO-bound modules, the threads are supposed to be cheap, e.g. virtual threads 
+	 * (see {@link ThreadPerVertexWalker#newVirtualThreadFactory()}).
+	 * A failure interrupts the running modules and the method returns after all of them have terminated.
+	 * 
+	 * @param threadFactory a factory of threads to be used for executing the closure
+	 * @param moduleConsumer a processing closure
+	 * @param permits the maximum amount of concurrently running modules 
+	 * @throws ExecutionException when the closure throws an exception
+	 */
+	void walkGraph(ThreadFactory threadFactory, IConsumer<M> moduleConsumer, int permits) throws ExecutionException;
+
+	/**
+	 * Walks the graph asynchronously, the method does not block. 
+	 * A module is released when the futures of all its dependencies are completed.
+	 * No thread is waiting for the dependencies, 
+	 * therefore a huge amount of asynchronous modules can be in progress on a few threads.
+	 * 
+	 * @param executor an executor to be used for invoking the closure
+	 * @param moduleConsumer an asynchronous processing closure
+	 * @return the future of the whole walk along with the futures of the modules
+	 */
+	IAsyncWalk<M> walkGraphAsync(Executor executor, IAsyncConsumer<M> moduleConsumer);
+
+	/**
+	 * Walks only the changed modules and all modules depending on them, 
+	 * the rest of the graph is assumed to be up to date.
+	 * The affected modules are walked as {@link #walkGraph(ExecutorService, IConsumer, int)} would walk them.
+	 * 
+	 * @param changed the modules to be processed again
+	 * @param executor an executor to be used for executing the closure
+	 * @param moduleConsumer a processing closure
+	 * @param parallelism the maximum amount of concurrently scheduled tasks 
+	 * @throws ExecutionException when the closure throws an exception
+	 * @throws IllegalArgumentException when a changed module is not part of the graph
+	 */
+	void walkAffected(Set<M> changed, ExecutorService executor, IConsumer<M> moduleConsumer, int parallelism) 
+			throws ExecutionException;
+
+	/**
+	 * Walks only the changed modules and all modules depending on them 
+	 * as {@link #walkGraph(ForkJoinPool, IConsumer)} would walk them.
+	 * 
+	 * @param changed the modules to be processed again
+	 * @param pool a pool to be used for executing the closure, the parallelism is given by the pool 
+	 * @param moduleConsumer a processing closure
+	 * @throws ExecutionException when the closure throws an exception
+	 * @throws IllegalArgumentException when a changed module is not part of the graph
+	 */
+	void walkAffected(Set<M> changed, ForkJoinPool pool, IConsumer<M> moduleConsumer) throws ExecutionException;
+
+	/**
+	 * The subgraph contains the roots and all their dependencies, that is,
+	 * the modules required to start the roots.
+	 * The rankings are computed again within the subgraph, the module priorities are kept.
+	 *
+	 * @param roots the modules to be started
+	 * @return A new ranked dependency graph of the required modules
+	 * @throws IllegalArgumentException when a root is not part of the graph
+	 */
+	IDependencyGraph<M> subgraphFor(Set<M> roots);
+
 	/**
 	 * Synchronous version of {@link #walkGraph(ExecutorService, IConsumer)}
 	 * The order is guaranteed to be the same as {@link #getTopologicalOrder()}
@@ -0,0 +1,36 @@
+package com.github.nill14.parsers.dependency;
+
+/**
+ * Identifies the modules and the keys across the runs, e.g. by the class names.
+ * The encoding must be stable and unique.
+ *
+ * @param <M> The modules
+ * @param <K> The keys used to establish connection between modules.
+ */
+public interface IGraphCodec<M, K> {
+
+	/**
+	 * @param module The module
+	 * @return The code identifying the module
+	 */
+	String encodeModule(M module);
+
+	/**
+	 * @param code The code of a module
+	 * @return The module or null when the module is not known anymore
+	 */
+	M decodeModule(String code);
+
+	/**
+	 * @param key The key
+	 * @return The code identifying the key
+	 */
+	String encodeKey(K key);
+
+	/**
+	 * @param code The code of a key
+	 * @return The key
+	 */
+	K decodeKey(String code);
+
+}
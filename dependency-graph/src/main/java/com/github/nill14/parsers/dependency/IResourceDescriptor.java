@@ -0,0 +1,19 @@
+package com.github.nill14.parsers.dependency;
+
+import java.util.Map;
+
+/**
+ * An optional extension of {@link IDependencyDescriptor} declaring the resources of the module,
+ * the descriptors not implementing it hold no resources.
+ */
+public interface IResourceDescriptor {
+
+	/**
+	 * The module holds the given amount of permits of each resource class while it is executed,
+	 * e.g. db=1 or cpu=2. The capacities of the classes are given by {@link WalkOptions}.
+	 * 
+	 * @return the weights of resource classes
+	 */
+	Map<String, Integer> getResources();
+
+}
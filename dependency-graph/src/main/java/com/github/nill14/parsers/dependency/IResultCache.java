@@ -0,0 +1,26 @@
+package com.github.nill14.parsers.dependency;
+
+import java.io.IOException;
+
+/**
+ * A content-addressed store of module outputs.
+ * The implementations must be thread-safe.
+ */
+public interface IResultCache {
+
+	/**
+	 * @param key The content key (a hex digest)
+	 * @return The cached output or null when it is not present
+	 * @throws IOException when the store cannot be read
+	 */
+	byte[] get(String key) throws IOException;
+
+	/**
+	 * An existing entry of the same key is replaced.
+	 * @param key The content key (a hex digest)
+	 * @param output The module output
+	 * @throws IOException when the store cannot be written
+	 */
+	void put(String key, byte[] output) throws IOException;
+
+}
@@ -0,0 +1,59 @@
+package com.github.nill14.parsers.dependency;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Receives the scheduling events of {@link IDependencyGraph#walkGraph(ExecutorService, IConsumer, WalkOptions)}.
+ * The timestamps are given by {@link System#nanoTime()}.
+ *
+ * The listener is invoked concurrently, it must be thread-safe and it should return quickly.
+ * The module events are invoked on the thread executing the module,
+ * except of {@link #ready(Object, long)} invoked by the scheduler.
+ *
+ * @param <M> The modules
+ */
+public interface IWalkListener<M> {
+
+	/**
+	 * Invoked once before any module is ready
+	 * @param moduleCount The count of walked modules
+	 * @param parallelism The maximum amount of concurrently scheduled modules
+	 * @param nanoTime The timestamp
+	 */
+	void walkStarted(int moduleCount, int parallelism, long nanoTime);
+
+	/**
+	 * The module has all dependencies completed and waits for a permit
+	 * @param module The module
+	 * @param nanoTime The timestamp
+	 */
+	void ready(M module, long nanoTime);
+
+	/**
+	 * The module is being processed by the current thread
+	 * @param module The module
+	 * @param nanoTime The timestamp
+	 */
+	void started(M module, long nanoTime);
+
+	/**
+	 * The module was processed successfully by the current thread
+	 * @param module The module
+	 * @param nanoTime The timestamp
+	 */
+	void completed(M module, long nanoTime);
+
+	/**
+	 * The processing of the module has thrown an exception
+	 * @param module The module
+	 * @param exception The failure
+	 * @param nanoTime The timestamp
+	 */
+	void failed(M module, Exception exception, long nanoTime);
+
+	/**
+	 * Invoked once when no module is running anymore
+	 * @param nanoTime The timestamp
+	 */
+	void walkFinished(long nanoTime);
+}
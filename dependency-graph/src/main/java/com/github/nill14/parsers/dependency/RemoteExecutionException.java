@@ -0,0 +1,29 @@
+package com.github.nill14.parsers.dependency;
+
+/**
+ * The processing of a module has failed in a worker process,
+ * the original exception is known only by its description.
+ */
+public class RemoteExecutionException extends Exception {
+
+
+	private static final long serialVersionUID = 4250866432437614961L;
+
+	private final String moduleKey;
+	private final int worker;
+
+	public RemoteExecutionException(String moduleKey, int worker, String failure) {
+		super(String.format("%s has failed on worker %d: %s", moduleKey, worker, failure));
+		this.moduleKey = moduleKey;
+		this.worker = worker;
+	}
+
+	public String getModuleKey() {
+		return moduleKey;
+	}
+
+	public int getWorker() {
+		return worker;
+	}
+
+}
@@ -0,0 +1,245 @@
+package com.github.nill14.parsers.dependency;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+
+/**
+ * The options of {@link IDependencyGraph#walkGraph(ExecutorService, IConsumer, WalkOptions)}.
+ *
+ * @param <M> The modules
+ */
+public final class WalkOptions<M> {
+
+	public enum FailurePolicy {
+		/**
+		 * No module is started after the first failure, the walk throws the failures.
+		 */
+		FAIL_FAST,
+		/**
+		 * Only the modules depending on a failed module are skipped, the others are walked.
+		 * The failures are reported by the {@link WalkResult}.
+		 */
+		CONTINUE
+	}
+
+	private final int parallelism;
+	private final FailurePolicy failurePolicy;
+	private final boolean contractChains;
+	private final Predicate<? super M> cheapModules;
+	private final IWalkListener<? super M> listener;
+	private final ImmutableMap<String, Integer> resourceLimits;
+	private final Function<? super M, ? extends IDependencyDescriptor<?>> descriptorFunction;
+
+	private WalkOptions(Builder<M> builder) {
+		parallelism = builder.parallelism;
+		failurePolicy = builder.failurePolicy;
+		contractChains = builder.contractChains;
+		cheapModules = builder.cheapModules;
+		listener = builder.listener;
+		resourceLimits = ImmutableMap.copyOf(builder.resourceLimits);
+		descriptorFunction = builder.descriptorFunction;
+	}
+
+	/**
+	 *
+	 * @return the maximum amount of concurrently scheduled modules
+	 */
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	public FailurePolicy getFailurePolicy() {
+		return failurePolicy;
+	}
+
+	/**
+	 *
+	 * @return whether a module with a single predecessor having a single successor
+	 * is executed on the thread of the predecessor
+	 */
+	public boolean isContractChains() {
+		return contractChains;
+	}
+
+	/**
+	 *
+	 * @return the modules executed on the thread of the last completed predecessor
+	 */
+	public Predicate<? super M> getCheapModules() {
+		return cheapModules;
+	}
+
+	/**
+	 *
+	 * @return the listener of scheduling events or null when the walk is not observed
+	 */
+	public IWalkListener<? super M> getListener() {
+		return listener;
+	}
+
+	/**
+	 *
+	 * @return the capacities of the resource classes
+	 */
+	public Map<String, Integer> getResourceLimits() {
+		return resourceLimits;
+	}
+
+	/**
+	 *
+	 * @return the function module -&gt; {@link IDependencyDescriptor} declaring the resources
+	 * or null when the resources are not limited
+	 */
+	public Function<? super M, ? extends IDependencyDescriptor<?>> getDescriptorFunction() {
+		return descriptorFunction;
+	}
+
+	/**
+	 * @param parallelism the maximum amount of concurrently scheduled modules
+	 * @return the copy of the options with the given parallelism
+	 */
+	public WalkOptions<M> withParallelism(int parallelism) {
+		Builder<M> builder = new Builder<>();
+		builder.parallelism(parallelism);
+		builder.failurePolicy = failurePolicy;
+		builder.contractChains = contractChains;
+		builder.cheapModules = cheapModules;
+		builder.listener = listener;
+		builder.resourceLimits.putAll(resourceLimits);
+		builder.descriptorFunction = descriptorFunction;
+		return new WalkOptions<>(builder);
+	}
+
+	/**
+	 * The default options are the parallelism of processor cores and {@link FailurePolicy#FAIL_FAST}.
+	 * @param <M> The modules
+	 * @return a new builder
+	 */
+	public static <M> Builder<M> builder() {
+		return new Builder<>();
+	}
+
+	public static final class Builder<M> {
+
+		private int parallelism = Runtime.getRuntime().availableProcessors();
+		private FailurePolicy failurePolicy = FailurePolicy.FAIL_FAST;
+		private boolean contractChains = false;
+		private Predicate<? super M> cheapModules = Predicates.alwaysFalse();
+		private IWalkListener<? super M> listener = null;
+		private final Map<String, Integer> resourceLimits = Maps.newLinkedHashMap();
+		private Function<? super M, ? extends IDependencyDescriptor<?>> descriptorFunction = null;
+
+		private Builder() {
+		}
+
+		/**
+		 * @param parallelism the maximum amount of concurrently scheduled modules
+		 * @return self
+		 */
+		public Builder<M> parallelism(int parallelism) {
+			if (parallelism < 1) {
+				throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+			}
+			this.parallelism = parallelism;
+			return this;
+		}
+
+		/**
+		 * @param failurePolicy the handling of failed modules
+		 * @return self
+		 */
+		public Builder<M> failurePolicy(FailurePolicy failurePolicy) {
+			if (failurePolicy == null) {
+				throw new NullPointerException();
+			}
+			this.failurePolicy = failurePolicy;
+			return this;
+		}
+
+		/**
+		 * A maximal chain of modules (each having a single predecessor and a single successor) 
+		 * is executed as a single task on one thread, the consumer is still invoked per module. 
+		 * It saves the scheduling overhead when the modules are tiny, no parallelism is lost.
+		 * @param contractChains whether the chains are contracted
+		 * @return self
+		 */
+		public Builder<M> contractChains(boolean contractChains) {
+			this.contractChains = contractChains;
+			return this;
+		}
+
+		/**
+		 * A cheap module is executed on the thread of its last completed predecessor 
+		 * without being scheduled, i.e. a cluster of cheap modules runs as a single task.
+		 * The cheap modules can be given by the execution durations, 
+		 * e.g. {@link com.github.nill14.parsers.dependency.impl.ExecutionProfile#fasterThan(double)}.
+		 * @param cheapModules the predicate of cheap modules
+		 * @return self
+		 */
+		public Builder<M> cheapModules(Predicate<? super M> cheapModules) {
+			if (cheapModules == null) {
+				throw new NullPointerException();
+			}
+			this.cheapModules = cheapModules;
+			return this;
+		}
+
+		/**
+		 * Without a listener the walk does not take any timestamps.
+		 * @param listener the listener of scheduling events, 
+		 * e.g. {@link com.github.nill14.parsers.dependency.impl.WalkMetrics}
+		 * @return self
+		 */
+		public Builder<M> listener(IWalkListener<? super M> listener) {
+			if (listener == null) {
+				throw new NullPointerException();
+			}
+			this.listener = listener;
+			return this;
+		}
+
+		/**
+		 * Limits the concurrently executed modules by the permits of the resource class
+		 * declared by {@link IResourceDescriptor#getResources()}, e.g. resourceLimit("db", 2).
+		 * The classes without a limit are not restricted. 
+		 * The overall parallelism applies in addition to the limits.
+		 * @param resourceClass the resource class
+		 * @param capacity the amount of permits of the class
+		 * @return self
+		 */
+		public Builder<M> resourceLimit(String resourceClass, int capacity) {
+			if (capacity < 1) {
+				throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+			}
+			resourceLimits.put(resourceClass, capacity);
+			return this;
+		}
+
+		/**
+		 * The resources of the modules are declared by the descriptors implementing {@link IResourceDescriptor},
+		 * typically the adapter function the graph was created with. 
+		 * @param descriptorFunction the function module -&gt; {@link IDependencyDescriptor}
+		 * @return self
+		 */
+		public Builder<M> descriptors(Function<? super M, ? extends IDependencyDescriptor<?>> descriptorFunction) {
+			if (descriptorFunction == null) {
+				throw new NullPointerException();
+			}
+			this.descriptorFunction = descriptorFunction;
+			return this;
+		}
+
+		public WalkOptions<M> build() {
+			if (!resourceLimits.isEmpty() && descriptorFunction == null) {
+				throw new IllegalStateException("The resource limits require the descriptors");
+			}
+			return new WalkOptions<>(this);
+		}
+	}
+}
@@ -0,0 +1,87 @@
+package com.github.nill14.parsers.dependency;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The outcome of a walk, each module of the walked graph is either completed, failed or skipped.
+ *
+ * @param <M> The modules
+ */
+public final class WalkResult<M> {
+
+	private final ImmutableSet<M> completed;
+	private final ImmutableMap<M, Exception> failed;
+	private final ImmutableSet<M> skipped;
+
+	/**
+	 *
+	 * @param completed The successfully processed modules
+	 * @param failed The failed modules along with their exceptions
+	 * @param skipped The modules not processed because of a failed dependency
+	 */
+	public WalkResult(Set<M> completed, Map<M, Exception> failed, Set<M> skipped) {
+		this.completed = ImmutableSet.copyOf(completed);
+		this.failed = ImmutableMap.copyOf(failed);
+		this.skipped = ImmutableSet.copyOf(skipped);
+	}
+
+	/**
+	 *
+	 * @return The successfully processed modules in the order of completion
+	 */
+	public Set<M> getCompleted() {
+		return completed;
+	}
+
+	/**
+	 *
+	 * @return The failed modules along with their exceptions in the order of failure
+	 */
+	public Map<M, Exception> getFailed() {
+		return failed;
+	}
+
+	/**
+	 *
+	 * @return The modules depending (transitively) on a failed module
+	 */
+	public Set<M> getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 *
+	 * @return whether no module has failed
+	 */
+	public boolean isSuccessful() {
+		return failed.isEmpty();
+	}
+
+	/**
+	 * The exceptions are collected within an {@link ExecutionException} as in the other walks.
+	 * @throws ExecutionException when any module has failed
+	 */
+	public void checkFailures() throws ExecutionException {
+		ExecutionException exception = null;
+		for (Exception e : failed.values()) {
+			if (exception == null) {
+				exception = new ExecutionException(e);
+			} else {
+				exception.addSuppressed(e);
+			}
+		}
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("WalkResult [completed=%d, failed=%s, skipped=%d]", completed.size(), failed.keySet(), skipped.size());
+	}
+}
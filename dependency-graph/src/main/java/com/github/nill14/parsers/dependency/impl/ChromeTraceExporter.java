@@ -0,0 +1,167 @@
+package com.github.nill14.parsers.dependency.impl;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.nill14.parsers.dependency.impl.WalkMetrics.ModuleTiming;
+import com.github.nill14.parsers.dependency.impl.WalkMetrics.Sample;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Writes a walk recorded by {@link WalkMetrics} in the Chrome trace event format,
+ * the file can be loaded into chrome://tracing or https://ui.perfetto.dev.
+ *
+ * Each executing thread is a lane with the spans of the executed modules,
+ * the ready queue depth and the running modules are written as counters.
+ * When a {@link CriticalPathReport} is given, the spans carry the slack
+ * and the critical modules are marked.
+ *
+ * @param <M> The modules
+ */
+public final class ChromeTraceExporter<M> {
+
+	private static final String SCHEDULER_THREAD = "scheduler";
+
+	private final WalkMetrics<M> metrics;
+	private final Set<M> criticalPath;
+	private final CriticalPathReport<M> report;
+
+	/**
+	 *
+	 * @param metrics The metrics of a finished walk
+	 */
+	public ChromeTraceExporter(WalkMetrics<M> metrics) {
+		this.metrics = metrics;
+		this.report = null;
+		this.criticalPath = ImmutableSet.of();
+	}
+
+	/**
+	 *
+	 * @param metrics The metrics of a finished walk
+	 * @param report The analysis of the same walk
+	 */
+	public ChromeTraceExporter(WalkMetrics<M> metrics, CriticalPathReport<M> report) {
+		this.metrics = metrics;
+		this.report = report;
+		this.criticalPath = ImmutableSet.copyOf(report.getCriticalPath());
+	}
+
+	/**
+	 * @param file The trace file, it is overwritten
+	 * @throws IOException when the file cannot be written
+	 */
+	public void write(File file) throws IOException {
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			write(writer);
+		}
+	}
+
+	/**
+	 * @param writer The output of the trace, it is not closed
+	 * @throws IOException when the output cannot be written
+	 */
+	public void write(Writer writer) throws IOException {
+		long startNanos = metrics.getStartNanos();
+		Map<M, ModuleTiming> timings = metrics.getTimings();
+
+		// the lanes are numbered in the order of the first execution
+		Map<String, Integer> threads = new LinkedHashMap<>();
+		threads.put(SCHEDULER_THREAD, 0);
+		for (ModuleTiming timing : timings.values()) {
+			String thread = threadName(timing);
+			if (!threads.containsKey(thread)) {
+				threads.put(thread, threads.size());
+			}
+		}
+
+		writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+		writer.write("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,\"args\":{\"name\":\"walk\"}}");
+		for (Map.Entry<String, Integer> entry : threads.entrySet()) {
+			writer.write(",\n{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":");
+			writer.write(Integer.toString(entry.getValue()));
+			writer.write(",\"args\":{\"name\":");
+			writeString(writer, entry.getKey());
+			writer.write("}}");
+		}
+
+		for (Map.Entry<M, ModuleTiming> entry : timings.entrySet()) {
+			ModuleTiming timing = entry.getValue();
+			if (!timing.isFinished()) {
+				continue;
+			}
+			writer.write(",\n{\"name\":");
+			writeString(writer, entry.getKey().toString());
+			writer.write(",\"cat\":\"module\",\"ph\":\"X\",\"pid\":1,\"tid\":");
+			writer.write(Integer.toString(threads.get(threadName(timing))));
+			writer.write(",\"ts\":");
+			writer.write(micros(timing.getStartedNanos() - startNanos));
+			writer.write(",\"dur\":");
+			writer.write(micros(timing.getExecutionNanos()));
+			writer.write(",\"args\":{\"wait_us\":");
+			writer.write(micros(timing.getWaitNanos()));
+			if (timing.isFailed()) {
+				writer.write(",\"failed\":true");
+			}
+			if (report != null) {
+				writer.write(",\"slack_us\":");
+				writer.write(micros(report.getSlackNanos(entry.getKey())));
+				writer.write(",\"critical\":");
+				writer.write(Boolean.toString(criticalPath.contains(entry.getKey())));
+			}
+			writer.write("}}");
+		}
+
+		for (Sample sample : metrics.getSamples()) {
+			writer.write(",\n{\"name\":\"scheduler\",\"ph\":\"C\",\"pid\":1,\"tid\":0,\"ts\":");
+			writer.write(micros(sample.getOffsetNanos()));
+			writer.write(",\"args\":{\"ready\":");
+			writer.write(Integer.toString(sample.getReadyDepth()));
+			writer.write(",\"running\":");
+			writer.write(Integer.toString(sample.getRunning()));
+			writer.write("}}");
+		}
+		writer.write("\n]}\n");
+		writer.flush();
+	}
+
+	private static String threadName(ModuleTiming timing) {
+		String thread = timing.getThreadName();
+		return thread != null ? thread : SCHEDULER_THREAD;
+	}
+
+	private static String micros(long nanos) {
+		return String.format(Locale.ROOT, "%d.%03d", nanos / 1000, Math.abs(nanos % 1000));
+	}
+
+	private static void writeString(Writer writer, String value) throws IOException {
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+			case '"':
+				writer.write("\\\"");
+				break;
+			case '\\':
+				writer.write("\\\\");
+				break;
+			default:
+				if (c < 0x20) {
+					writer.write(String.format("\\u%04x", (int) c));
+				} else {
+					writer.write(c);
+				}
+			}
+		}
+		writer.write('"');
+	}
+}
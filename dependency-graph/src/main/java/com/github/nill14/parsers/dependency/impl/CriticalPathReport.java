@@ -0,0 +1,206 @@
+package com.github.nill14.parsers.dependency.impl;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.impl.WalkMetrics.ModuleTiming;
+import com.github.nill14.parsers.graph.CyclicGraphException;
+import com.github.nill14.parsers.graph.utils.LongestPathTopoSorter;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+/**
+ * The post-mortem analysis of a walk recorded by {@link WalkMetrics}.
+ *
+ * The critical path is the chain of modules that actually bounded the makespan:
+ * it starts with the last finished module and it continues with the dependency finished last,
+ * i.e. the one which made the module ready.
+ *
+ * The slack of a module is the time its finish could have been delayed
+ * without delaying the end of the walk, provided the dependants executed as long as they did
+ * and started as soon as they were ready. The modules on the critical path have the slack
+ * equal to the time the following critical modules waited for a permit.
+ *
+ * The ideal rankings are computed by {@link LongestPathTopoSorter} with the measured
+ * execution times as the node weights, they order the modules for the next walk.
+ * The ideal makespan is the longest path of the measured execution times,
+ * no walk of the same execution times finishes sooner, whatever the parallelism.
+ *
+ * @param <M> The modules
+ */
+public final class CriticalPathReport<M> {
+
+	private final ImmutableList<M> criticalPath;
+	private final ImmutableMap<M, Long> slacks;
+	private final LinkedHashMap<M, Integer> idealRankings;
+	private final long makespanNanos;
+	private final long idealMakespanNanos;
+
+	/**
+	 *
+	 * @param dependencyGraph The walked graph
+	 * @param metrics The metrics of a finished walk
+	 * @throws CyclicGraphException never for a valid dependency graph
+	 */
+	public CriticalPathReport(IDependencyGraph<M> dependencyGraph, WalkMetrics<M> metrics) throws CyclicGraphException {
+		final Map<M, ModuleTiming> timings = metrics.getTimings();
+		makespanNanos = metrics.getMakespanNanos();
+
+		idealRankings = new LongestPathTopoSorter<>(dependencyGraph.getGraph()).getLongestPathMap(new Function<M, Integer>() {
+			@Override
+			public Integer apply(M module) {
+				ModuleTiming timing = timings.get(module);
+				return timing != null ? (int) TimeUnit.NANOSECONDS.toMillis(timing.getExecutionNanos()) : 0;
+			}
+		});
+
+		idealMakespanNanos = idealMakespanNanos(dependencyGraph, timings);
+		criticalPath = criticalPath(dependencyGraph, timings);
+		slacks = slacks(dependencyGraph, timings, metrics.getStartNanos() + makespanNanos);
+	}
+
+	/**
+	 * The rankings are topologically sorted, so the dependencies are evaluated first
+	 */
+	private long idealMakespanNanos(IDependencyGraph<M> dependencyGraph, Map<M, ModuleTiming> timings) {
+		Map<M, Long> finish = new HashMap<>();
+		long result = 0;
+		for (M module : idealRankings.keySet()) {
+			long start = 0;
+			for (M dependency : dependencyGraph.getDirectDependencies(module)) {
+				start = Math.max(start, finish.get(dependency));
+			}
+			ModuleTiming timing = timings.get(module);
+			long end = start + (timing != null ? timing.getExecutionNanos() : 0);
+			finish.put(module, end);
+			result = Math.max(result, end);
+		}
+		return result;
+	}
+
+	private ImmutableList<M> criticalPath(IDependencyGraph<M> dependencyGraph, Map<M, ModuleTiming> timings) {
+		M last = latestFinished(timings.keySet(), timings);
+		List<M> path = Lists.newArrayList();
+		while (last != null) {
+			path.add(last);
+			last = latestFinished(dependencyGraph.getDirectDependencies(last), timings);
+		}
+		return ImmutableList.copyOf(Lists.reverse(path));
+	}
+
+	private M latestFinished(Iterable<M> modules, Map<M, ModuleTiming> timings) {
+		M result = null;
+		long finished = Long.MIN_VALUE;
+		for (M module : modules) {
+			ModuleTiming timing = timings.get(module);
+			if (timing != null && timing.isFinished() && (result == null || timing.getFinishedNanos() > finished)) {
+				result = module;
+				finished = timing.getFinishedNanos();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The latest finish of a module is the minimum of the latest starts of its dependants,
+	 * the rankings are topologically sorted, so the dependants are evaluated first in the reversed order.
+	 */
+	private ImmutableMap<M, Long> slacks(IDependencyGraph<M> dependencyGraph, Map<M, ModuleTiming> timings, long endNanos) {
+		Map<M, Long> latestFinish = new LinkedHashMap<>();
+		for (M module : Lists.reverse(Lists.newArrayList(idealRankings.keySet()))) {
+			ModuleTiming timing = timings.get(module);
+			if (timing == null || !timing.isFinished()) {
+				continue;
+			}
+			long latest = endNanos;
+			for (M dependant : dependencyGraph.getDirectDependants(module)) {
+				Long dependantFinish = latestFinish.get(dependant);
+				if (dependantFinish != null) {
+					latest = Math.min(latest, dependantFinish - timings.get(dependant).getExecutionNanos());
+				}
+			}
+			latestFinish.put(module, latest);
+		}
+
+		ImmutableMap.Builder<M, Long> builder = ImmutableMap.builder();
+		for (M module : idealRankings.keySet()) {
+			Long latest = latestFinish.get(module);
+			if (latest != null) {
+				builder.put(module, Math.max(0, latest - timings.get(module).getFinishedNanos()));
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 *
+	 * @return The chain of modules that bounded the makespan in the order of execution
+	 */
+	public List<M> getCriticalPath() {
+		return criticalPath;
+	}
+
+	/**
+	 *
+	 * @return The slack of the finished modules in nanoseconds, in the topological order
+	 */
+	public Map<M, Long> getSlacks() {
+		return slacks;
+	}
+
+	/**
+	 *
+	 * @param module The module
+	 * @return The slack in nanoseconds or -1 when the module has not finished
+	 */
+	public long getSlackNanos(M module) {
+		Long slack = slacks.get(module);
+		return slack != null ? slack : -1;
+	}
+
+	/**
+	 *
+	 * @return The rankings weighted by the measured execution times (in milliseconds, each dependency adds 1)
+	 */
+	public Map<M, Integer> getIdealRankings() {
+		return idealRankings;
+	}
+
+	/**
+	 *
+	 * @return The lower bound of the makespan for the measured execution times, in nanoseconds
+	 */
+	public long getIdealMakespanNanos() {
+		return idealMakespanNanos;
+	}
+
+	/**
+	 *
+	 * @return The actual duration of the walk in nanoseconds
+	 */
+	public long getMakespanNanos() {
+		return makespanNanos;
+	}
+
+	/**
+	 * Outputs the critical path to {@link Logger#info(String)}
+	 * @param log The logger
+	 */
+	public void toInfoLog(Logger log) {
+		if (log.isInfoEnabled()) {
+			log.info("Critical path of {} modules, makespan {} ms, ideal makespan {} ms",
+					criticalPath.size(), TimeUnit.NANOSECONDS.toMillis(makespanNanos), TimeUnit.NANOSECONDS.toMillis(idealMakespanNanos));
+			for (M module : criticalPath) {
+				log.info("* {} (slack {} ms)", module, TimeUnit.NANOSECONDS.toMillis(getSlackNanos(module)));
+			}
+		}
+	}
+}
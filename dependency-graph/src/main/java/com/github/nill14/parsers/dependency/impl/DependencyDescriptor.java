@@ -1,12 +1,17 @@
 package com.github.nill14.parsers.dependency.impl;
 
+import java.util.Map;
 import java.util.Set;
 
 import com.github.nill14.parsers.dependency.IDependencyDescriptor;
 import com.github.nill14.parsers.dependency.IDependencyDescriptorBuilder;
+import com.github.nill14.parsers.dependency.IResourceDescriptor;
+import com.github.nill14.parsers.dependency.WalkOptions;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 
-public final class DependencyDescriptor<K> implements IDependencyDescriptor<K> {
+public final class DependencyDescriptor<K> implements IDependencyDescriptor<K>, IResourceDescriptor {
 	
 	
 	private final ImmutableSet<K> dependencies;
@@ -14,6 +19,7 @@ public final class DependencyDescriptor<K> implements IDependencyDescriptor<K> {
 	private final ImmutableSet<K> optProviders;
 	private final K self;
 	private final int priority;
+	private final ImmutableMap<String, Integer> resources;
 
 	private DependencyDescriptor(Builder<K> builder) {
 		dependencies = builder.dependencies.build();
@@ -21,6 +27,7 @@ public final class DependencyDescriptor<K> implements IDependencyDescriptor<K> {
 		optProviders = builder.providers.build();
 		self = builder.self;
 		priority = builder.priority;
+		resources = ImmutableMap.copyOf(builder.resources);
 		
 		if (priority < 0 || priority > 100000) {
 			throw new IllegalArgumentException("Priority not in range 0..100000: "+ priority);
@@ -47,6 +54,11 @@ public final class DependencyDescriptor<K> implements IDependencyDescriptor<K> {
 		return priority;
 	}
 	
+	@Override
+	public Map<String, Integer> getResources() {
+		return resources;
+	}
+	
 	public static <K> IDependencyDescriptorBuilder<K> builder(K self) {
 		return new Builder<>(self);
 	}
@@ -64,6 +76,7 @@ public final class DependencyDescriptor<K> implements IDependencyDescriptor<K> {
 		private final ImmutableSet.Builder<K> providers = ImmutableSet.builder();
 		private final K self;
 		private int priority = 0;
+		private final Map<String, Integer> resources = Maps.newLinkedHashMap();
 		
 		public Builder(K name) {
 			this.self = name;
@@ -93,6 +106,26 @@ public final class DependencyDescriptor<K> implements IDependencyDescriptor<K> {
 			this.priority = priority;
 			return this;
 		}
+		
+		/**
+		 * The module holds the permits of the resource class while executed, 
+		 * e.g. resource("db", 1) or resource("cpu", 2).
+		 * The capacity of the class is given by {@link WalkOptions.Builder#resourceLimit(String, int)}.
+		 * 
+		 * @param resourceClass the resource class, declared at most once
+		 * @param weight the amount of permits (1..)
+		 * @return self
+		 */
+		public Builder<K> resource(String resourceClass, int weight) {
+			if (weight < 1) {
+				throw new IllegalArgumentException("Resource weight must be positive: "+ resourceClass + "=" + weight);
+			}
+			if (resources.containsKey(resourceClass)) {
+				throw new IllegalArgumentException("Resource class is already declared: "+ resourceClass);
+			}
+			resources.put(resourceClass, weight);
+			return this;
+		}
 
 		
 		@Override
@@ -1,45 +1,108 @@
 package com.github.nill14.parsers.dependency.impl;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.nill14.parsers.dependency.IAsyncConsumer;
+import com.github.nill14.parsers.dependency.IAsyncWalk;
 import com.github.nill14.parsers.dependency.IConsumer;
 import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.WalkOptions;
+import com.github.nill14.parsers.dependency.WalkResult;
 import com.github.nill14.parsers.graph.CyclicGraphException;
 import com.github.nill14.parsers.graph.DirectedGraph;
 import com.github.nill14.parsers.graph.GraphEdge;
 import com.github.nill14.parsers.graph.GraphWalker;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.github.nill14.parsers.graph.utils.AsyncGraphWalker;
+import com.github.nill14.parsers.graph.utils.ForkJoinGraphWalker;
 import com.github.nill14.parsers.graph.utils.GraphWalker3;
 import com.github.nill14.parsers.graph.utils.LongestPathTopoSorter;
+import com.github.nill14.parsers.graph.utils.RankedGraphWalker;
+import com.github.nill14.parsers.graph.utils.ReachabilityIndex;
+import com.github.nill14.parsers.graph.utils.ThreadPerVertexWalker;
+import com.github.nill14.parsers.graph.utils.TransitiveClosureIndex;
 import com.google.common.base.Function;
+import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 class DependencyGraph<M> implements IDependencyGraph<M> {
 	
+	private static final Logger log = LoggerFactory.getLogger(DependencyGraph.class);
+	
 	private final Set<M> modules;
 	private final DirectedGraph<M, GraphEdge<M>> graph;
 	private final LinkedHashMap<M, Integer> moduleRankings;
+	private final ExecutionProfile<M> profile;
 	
 	private final ImmutableList<M> topologicalOrdering;
-	private final Map<M, DependencySet<M>> dependencySets = new ConcurrentHashMap<>();
+	private final Object closureLock = new Object();
+	private volatile TransitiveClosureIndex<M> closureIndex;
+	private volatile ReachabilityIndex<M> reachabilityIndex;
+	private volatile ImmutableMap<M, Integer> topoPositions;
+	private final ConcurrentMap<M, Set<M>> dependantSets = new ConcurrentHashMap<>();
+	private volatile ForkJoinGraphWalker<M> forkJoinWalker;
+	private volatile RankedGraphWalker<M> rankedWalker;
+	private volatile ThreadPerVertexWalker<M> threadPerVertexWalker;
+	private volatile AsyncGraphWalker<M> asyncWalker;
 	
 	public DependencyGraph(DirectedGraph<M, GraphEdge<M>> graph) throws CyclicGraphException {
 		this.graph = graph;
 		this.modules = graph.nodes();
+		this.profile = null;
 		moduleRankings = new LongestPathTopoSorter<>(graph).getLongestPathMap();
 		topologicalOrdering = ImmutableList.copyOf(moduleRankings.keySet());
 	}
 	
 	public DependencyGraph(DirectedGraph<M, GraphEdge<M>> graph, Function<M, Integer> priorityFunction) throws CyclicGraphException {
+		this(graph, priorityFunction, null);
+	}
+
+	/**
+	 * Creates the graph from already calculated rankings 
+	 * @param moduleRankings The rankings, sorted topologically
+	 * @param profile The profile recording the durations of walked modules, possibly null
+	 */
+	DependencyGraph(DirectedGraph<M, GraphEdge<M>> graph, LinkedHashMap<M, Integer> moduleRankings, 
+			ExecutionProfile<M> profile) {
 		this.graph = graph;
 		this.modules = graph.nodes();
+		this.profile = profile;
+		this.moduleRankings = moduleRankings;
+		topologicalOrdering = ImmutableList.copyOf(moduleRankings.keySet());
+	}
+
+	/**
+	 * @param profile The profile recording the durations of walked modules, possibly null
+	 */
+	public DependencyGraph(DirectedGraph<M, GraphEdge<M>> graph, Function<M, Integer> priorityFunction, 
+			ExecutionProfile<M> profile) throws CyclicGraphException {
+		this.graph = graph;
+		this.modules = graph.nodes();
+		this.profile = profile;
 		moduleRankings = new LongestPathTopoSorter<>(graph).getLongestPathMap(priorityFunction);
 		topologicalOrdering = ImmutableList.copyOf(moduleRankings.keySet());
 		
@@ -67,21 +130,119 @@ class DependencyGraph<M> implements IDependencyGraph<M> {
 			throw new NullPointerException();
 		}
 		
-		DependencySet<M> dependencySet = dependencySets.get(module);
-		if (dependencySet == null) {
-			/*
-			 * I don't like sync over exposed object
-			 * but this is the fastest alternative.
-			 */			
-			synchronized (module) {
-				dependencySet = dependencySets.get(module);
-				if (dependencySet == null) {
-					dependencySet = new DependencySet<M>(this, module);
-					dependencySets.put(module, dependencySet);
+		return getClosureIndex().getAllPredecessors(module);
+	}
+	
+	private TransitiveClosureIndex<M> getClosureIndex() {
+		TransitiveClosureIndex<M> index = closureIndex;
+		if (index == null) {
+			// the index is computed at once for all modules
+			synchronized (closureLock) {
+				index = closureIndex;
+				if (index == null) {
+					closureIndex = index = new TransitiveClosureIndex<>(graph, topologicalOrdering);
+				}
+			}
+		}
+		return index;
+	}
+	
+	@Override
+	public Set<M> getDirectDependants(M module) {
+		return graph.successors(module);
+	}
+	
+	@Override
+	public Set<M> getAllDependants(M module) {
+		if (module == null) {
+			throw new NullPointerException();
+		}
+		
+		Set<M> dependants = dependantSets.get(module);
+		if (dependants == null) {
+			// racing threads compute equal sets, the first one is kept
+			dependants = collectDependants(Collections.singleton(module));
+			Set<M> previous = dependantSets.putIfAbsent(module, dependants);
+			if (previous != null) {
+				dependants = previous;
+			}
+		}
+		return dependants;
+	}
+	
+	@Override
+	public Set<M> getAllDependants(Set<M> modules) {
+		if (modules.size() == 1) {
+			return getAllDependants(modules.iterator().next());
+		}
+		return collectDependants(modules);
+	}
+	
+	/**
+	 * A single traversal from all the modules, the cached sets are not traversed again
+	 */
+	private Set<M> collectDependants(Set<M> modules) {
+		Set<M> visited = Sets.newHashSet();
+		Deque<M> stack = new ArrayDeque<>(modules);
+		while (!stack.isEmpty()) {
+			for (M successor : graph.successors(stack.pop())) {
+				if (visited.add(successor)) {
+					Set<M> dependants = dependantSets.get(successor);
+					if (dependants != null) {
+						visited.addAll(dependants);
+					} else {
+						stack.push(successor);
+					}
+				}
+			}
+		}
+		return inTopologicalOrder(visited);
+	}
+	
+	/**
+	 * The set is sorted by the positions, the closure index is not needed.
+	 * @return The modules in the topological order
+	 */
+	private ImmutableSet<M> inTopologicalOrder(Set<M> modules) {
+		ImmutableMap<M, Integer> positions = topoPositions;
+		if (positions == null) {
+			synchronized (closureLock) {
+				positions = topoPositions;
+				if (positions == null) {
+					ImmutableMap.Builder<M, Integer> builder = ImmutableMap.builder();
+					for (int i = 0; i < topologicalOrdering.size(); i++) {
+						builder.put(topologicalOrdering.get(i), i);
+					}
+					topoPositions = positions = builder.build();
+				}
+			}
+		}
+		
+		int[] ids = new int[modules.size()];
+		int i = 0;
+		for (M module : modules) {
+			ids[i++] = positions.get(module);
+		}
+		Arrays.sort(ids);
+		ImmutableSet.Builder<M> builder = ImmutableSet.builder();
+		for (int id : ids) {
+			builder.add(topologicalOrdering.get(id));
+		}
+		return builder.build();
+	}
+	
+	@Override
+	public boolean dependsOn(M module, M dependency) {
+		ReachabilityIndex<M> index = reachabilityIndex;
+		if (index == null) {
+			synchronized (closureLock) {
+				index = reachabilityIndex;
+				if (index == null) {
+					reachabilityIndex = index = new ReachabilityIndex<>(graph, topologicalOrdering);
 				}
 			}
 		}
-		return dependencySet;
+		return index.reaches(dependency, module);
 	}
 	
 	@Override
@@ -124,10 +285,11 @@ class DependencyGraph<M> implements IDependencyGraph<M> {
 
 	@Override
 	public void walkGraph(final ExecutorService executor,
-			final IConsumer<M> moduleConsumer, int parallelism)
+			final IConsumer<M> consumer, int parallelism)
 			throws ExecutionException {
 		
 		final GraphWalker<M> graphWalker = new GraphWalker3<>(graph, topologicalOrdering, parallelism);
+		final IConsumer<M> moduleConsumer = profiled(consumer);
 		
 		for (int i = 0; i < graphWalker.size(); i++) {
 			final M module = graphWalker.releaseNext();
@@ -143,6 +305,148 @@ class DependencyGraph<M> implements IDependencyGraph<M> {
 				}
 			});
 		}
-		graphWalker.awaitCompletion();
+		try {
+			graphWalker.awaitCompletion();
+		} finally {
+			saveProfile();
+		}
+	}
+	
+	@Override
+	public WalkResult<M> walkGraph(ExecutorService executor, IConsumer<M> moduleConsumer, WalkOptions<M> options)
+			throws ExecutionException {
+		RankedGraphWalker<M> graphWalker = rankedWalker;
+		if (graphWalker == null) {
+			rankedWalker = graphWalker = new RankedGraphWalker<>(graph, moduleRankings);
+		}
+		try {
+			return graphWalker.walk(executor, profiled(moduleConsumer), options);
+		} finally {
+			saveProfile();
+		}
+	}
+	
+	@Override
+	public void walkGraph(ForkJoinPool pool, IConsumer<M> moduleConsumer) throws ExecutionException {
+		ForkJoinGraphWalker<M> graphWalker = forkJoinWalker;
+		if (graphWalker == null) {
+			// the walker is stateless, racing threads would create equal instances
+			forkJoinWalker = graphWalker = new ForkJoinGraphWalker<>(graph, moduleRankings);
+		}
+		try {
+			graphWalker.walk(pool, profiled(moduleConsumer));
+		} finally {
+			saveProfile();
+		}
+	}
+	
+	@Override
+	public void walkGraph(ThreadFactory threadFactory, IConsumer<M> moduleConsumer, int permits) throws ExecutionException {
+		ThreadPerVertexWalker<M> graphWalker = threadPerVertexWalker;
+		if (graphWalker == null) {
+			threadPerVertexWalker = graphWalker = new ThreadPerVertexWalker<>(graph, moduleRankings);
+		}
+		try {
+			graphWalker.walk(threadFactory, profiled(moduleConsumer), permits);
+		} finally {
+			saveProfile();
+		}
+	}
+	
+	@Override
+	public IAsyncWalk<M> walkGraphAsync(Executor executor, IAsyncConsumer<M> moduleConsumer) {
+		AsyncGraphWalker<M> graphWalker = asyncWalker;
+		if (graphWalker == null) {
+			asyncWalker = graphWalker = new AsyncGraphWalker<>(graph, topologicalOrdering);
+		}
+		return graphWalker.walk(executor, moduleConsumer);
+	}
+	
+	@Override
+	public void walkAffected(Set<M> changed, ExecutorService executor, IConsumer<M> moduleConsumer, int parallelism) 
+			throws ExecutionException {
+		affectedGraph(changed).walkGraph(executor, moduleConsumer, parallelism);
+	}
+	
+	@Override
+	public void walkAffected(Set<M> changed, ForkJoinPool pool, IConsumer<M> moduleConsumer) throws ExecutionException {
+		affectedGraph(changed).walkGraph(pool, moduleConsumer);
+	}
+	
+	/**
+	 * The subgraph induced by the changed modules and their dependants keeps the original rankings.
+	 */
+	private DependencyGraph<M> affectedGraph(Set<M> changed) {
+		for (M module : changed) {
+			if (!modules.contains(module)) {
+				throw new IllegalArgumentException("Unknown module: " + module);
+			}
+		}
+		
+		Set<M> affected = Sets.union(changed, getAllDependants(changed));
+		LinkedHashMap<M, Integer> rankings = new LinkedHashMap<>();
+		// the rankings iterate in topological order
+		for (Entry<M, Integer> entry : moduleRankings.entrySet()) {
+			if (affected.contains(entry.getKey())) {
+				rankings.put(entry.getKey(), entry.getValue());
+			}
+		}
+		log.debug("Walking {} affected modules of {}", rankings.size(), modules.size());
+		return new DependencyGraph<>(CompactDirectedGraph.subgraphOf(graph, rankings.keySet()), rankings, profile);
+	}
+	
+	/**
+	 * Only the dependencies of the roots are traversed, the closure index is not computed.
+	 */
+	@Override
+	public IDependencyGraph<M> subgraphFor(Set<M> roots) {
+		Set<M> required = Sets.newLinkedHashSet();
+		Deque<M> stack = new ArrayDeque<>();
+		for (M root : roots) {
+			if (!modules.contains(root)) {
+				throw new IllegalArgumentException("Unknown module: " + root);
+			}
+			if (required.add(root)) {
+				stack.push(root);
+			}
+		}
+		while (!stack.isEmpty()) {
+			for (M predecessor : graph.predecessors(stack.pop())) {
+				if (required.add(predecessor)) {
+					stack.push(predecessor);
+				}
+			}
+		}
+
+		// the priority is the part of the ranking not given by the dependants
+		ImmutableMap.Builder<M, Integer> priorities = ImmutableMap.builder();
+		for (M module : required) {
+			int dependants = 0;
+			for (M successor : graph.successors(module)) {
+				dependants = Math.max(dependants, moduleRankings.get(successor) + 1);
+			}
+			priorities.put(module, moduleRankings.get(module) - dependants);
+		}
+		log.debug("Required {} modules of {}", required.size(), modules.size());
+		try {
+			return new DependencyGraph<>(CompactDirectedGraph.subgraphOf(graph, required),
+					Functions.forMap(priorities.build()), profile);
+		} catch (CyclicGraphException e) {
+			throw new IllegalStateException("A subgraph of an acyclic graph is acyclic", e);
+		}
+	}
+
+	private IConsumer<M> profiled(IConsumer<M> moduleConsumer) {
+		return profile != null ? profile.profiling(moduleConsumer) : moduleConsumer;
+	}
+	
+	private void saveProfile() {
+		if (profile != null) {
+			try {
+				profile.save();
+			} catch (IOException e) {
+				log.warn("Cannot save the execution profile", e);
+			}
+		}
 	}
 }
@@ -1,19 +1,32 @@
 package com.github.nill14.parsers.dependency.impl;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.nill14.parsers.dependency.IDependencyGraph;
 import com.github.nill14.parsers.dependency.IDependencyDescriptor;
+import com.github.nill14.parsers.dependency.IGraphCodec;
 import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
 import com.github.nill14.parsers.graph.CyclicGraphException;
 import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.DirectedGraphBuilder;
 import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
 import com.github.nill14.parsers.graph.impl.DefaultDirectedGraph;
 import com.github.nill14.parsers.graph.impl.EvaluatedGraphEdge;
+import com.github.nill14.parsers.graph.utils.GraphNormalizer;
+import com.github.nill14.parsers.graph.utils.LongestPathTopoSorter;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
 import com.google.common.collect.ImmutableMap;
@@ -73,13 +86,218 @@ public class DependencyGraphFactory<K, M>  {
 			Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction) 
 					throws UnsatisfiedDependencyException, CyclicGraphException {
 		
+		return newInstance(modules, adapterFunction, DefaultDirectedGraph.<M, GraphEdge<M>>builder());
+	}
+
+	/**
+	 * Create new DependencyGraph based on modules
+	 * @param <K> The keys used to establish connection between modules.
+	 * @param <M> The modules
+	 * @param modules The dependency units
+	 * @param adapterFunction The function module -&gt; {@link IDependencyDescriptor}
+	 * @param graphBuilder The builder of the graph implementation, e.g. {@link CompactDirectedGraph#builder()}
+	 * @return A new IDependencyGraph
+	 * @throws UnsatisfiedDependencyException when a mandatory dependency is missing
+	 * @throws CyclicGraphException when graph is not acyclic
+	 */
+	public static <K, M> IDependencyGraph<M> newInstance(
+			Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction, 
+			DirectedGraphBuilder<M, GraphEdge<M>> graphBuilder) 
+					throws UnsatisfiedDependencyException, CyclicGraphException {
+		
 		Function<M, IDependencyDescriptor<K>> f = newCachedAdapterFunction(modules, adapterFunction);
 		Function<M, Integer> priorityFunction = newPriorityFunction(modules, f);
-		DirectedGraph<M, GraphEdge<M>> graph = newGraph(modules, f);
+		DirectedGraph<M, GraphEdge<M>> graph = newGraph(modules, f, graphBuilder);
 		
 		return new DependencyGraph<>(graph, priorityFunction);
 	}
 
+	/**
+	 * Create new DependencyGraph based on modules with a normalized graph.
+	 * The parallel edges are merged into one edge of the set of keys,
+	 * see {@link GraphNormalizer#mergeParallelEdges(DirectedGraph, DirectedGraphBuilder)}.
+	 * The transitive reduction removes the edges implied by other dependencies,
+	 * so {@link IDependencyGraph#getDirectDependencies(Object)} returns only the nearest dependencies.
+	 * The topological constraints and the module rankings are the same as of the full graph.
+	 *
+	 * @param <K> The keys used to establish connection between modules.
+	 * @param <M> The modules
+	 * @param modules The dependency units
+	 * @param adapterFunction The function module -&gt; {@link IDependencyDescriptor}
+	 * @param graphBuilder The builder of the graph implementation, e.g. {@link CompactDirectedGraph#builder()}
+	 * @param transitiveReduction Whether to remove the transitive edges
+	 * @return A new IDependencyGraph
+	 * @throws UnsatisfiedDependencyException when a mandatory dependency is missing
+	 * @throws CyclicGraphException when graph is not acyclic
+	 */
+	public static <K, M> IDependencyGraph<M> newNormalizedInstance(
+			Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction,
+			DirectedGraphBuilder<M, GraphEdge<M>> graphBuilder, boolean transitiveReduction)
+					throws UnsatisfiedDependencyException, CyclicGraphException {
+
+		Function<M, IDependencyDescriptor<K>> f = newCachedAdapterFunction(modules, adapterFunction);
+		Function<M, Integer> priorityFunction = newPriorityFunction(modules, f);
+		DirectedGraph<M, GraphEdge<M>> graph = GraphNormalizer.mergeParallelEdges(
+				newGraph(modules, f, graphBuilder), graphBuilder);
+		DependencyGraph<M> dependencyGraph = new DependencyGraph<>(graph, priorityFunction);
+		if (!transitiveReduction) {
+			return dependencyGraph;
+		}
+
+		// the longest paths are kept, so are the rankings
+		DirectedGraph<M, GraphEdge<M>> reduced = GraphNormalizer.transitiveReduction(
+				graph, dependencyGraph.getTopologicalOrder(), graphBuilder);
+		return new DependencyGraph<>(reduced, new LinkedHashMap<>(dependencyGraph.getModuleRankings()), null);
+	}
+
+	/**
+	 * Create new DependencyGraph of the roots and all their dependencies.
+	 * The descriptors are resolved lazily starting from the roots,
+	 * the providers of a dependency are found by the lookup,
+	 * so only the required modules are ever adapted.
+	 * The graph is the same as {@link IDependencyGraph#subgraphFor(Set)} of the graph of all modules.
+	 *
+	 * @param <K> The keys used to establish connection between modules.
+	 * @param <M> The modules
+	 * @param roots The modules to be started
+	 * @param adapterFunction The function module -&gt; {@link IDependencyDescriptor}
+	 * @param providerLookup The function key -&gt; all modules providing the key, possibly empty
+	 * @return A new IDependencyGraph
+	 * @throws UnsatisfiedDependencyException when a mandatory dependency is missing
+	 * @throws CyclicGraphException when graph is not acyclic
+	 */
+	public static <K, M> IDependencyGraph<M> newInstanceFor(
+			Set<M> roots, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction,
+			Function<K, ? extends Collection<? extends M>> providerLookup)
+					throws UnsatisfiedDependencyException, CyclicGraphException {
+
+		Set<M> required = Sets.newLinkedHashSet(roots);
+		Map<M, IDependencyDescriptor<K>> descriptors = new HashMap<>();
+		Deque<M> stack = new ArrayDeque<>(required);
+		while (!stack.isEmpty()) {
+			M module = stack.pop();
+			IDependencyDescriptor<K> descriptor = adapterFunction.apply(module);
+			descriptors.put(module, descriptor);
+			for (K key : descriptor.getRequiredDependencies()) {
+				Collection<? extends M> providers = providerLookup.apply(key);
+				if (providers.isEmpty()) {
+					throw new UnsatisfiedDependencyException(module, key);
+				}
+				for (M provider : providers) {
+					if (required.add(provider)) {
+						stack.push(provider);
+					}
+				}
+			}
+			for (K key : descriptor.getOptionalDependencies()) {
+				for (M provider : providerLookup.apply(key)) {
+					if (required.add(provider)) {
+						stack.push(provider);
+					}
+				}
+			}
+		}
+		log.debug("Required {} modules for {} roots", required.size(), roots.size());
+
+		return newInstance(required, Functions.forMap(descriptors), CompactDirectedGraph.<M, GraphEdge<M>>builder());
+	}
+
+	/**
+	 * Create new DependencyGraph based on modules, the built graph is kept in a snapshot file.
+	 * When the fingerprint of the module descriptors matches the snapshot, the graph is loaded
+	 * from the snapshot instead of being built, see {@link GraphSnapshot}.
+	 * Otherwise the graph is built and the snapshot is replaced.
+	 *
+	 * @param <K> The keys used to establish connection between modules.
+	 * @param <M> The modules
+	 * @param modules The dependency units
+	 * @param adapterFunction The function module -&gt; {@link IDependencyDescriptor}
+	 * @param snapshot The snapshot file, it does not need to exist
+	 * @param codec The codec of modules and keys, it resolves the codes to the given modules
+	 * @return A new IDependencyGraph
+	 * @throws UnsatisfiedDependencyException when a mandatory dependency is missing
+	 * @throws CyclicGraphException when graph is not acyclic
+	 */
+	public static <K, M> IDependencyGraph<M> newInstance(
+			Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction,
+			File snapshot, IGraphCodec<M, K> codec)
+					throws UnsatisfiedDependencyException, CyclicGraphException {
+
+		Function<M, IDependencyDescriptor<K>> f = newCachedAdapterFunction(modules, adapterFunction);
+		String fingerprint = GraphSnapshot.fingerprint(modules, f, codec);
+		try {
+			IDependencyGraph<M> dependencyGraph = GraphSnapshot.read(snapshot, fingerprint, codec);
+			if (dependencyGraph != null) {
+				return dependencyGraph;
+			}
+		} catch (IOException e) {
+			log.warn("Cannot read the snapshot {}", snapshot, e);
+		}
+
+		IDependencyGraph<M> dependencyGraph = newInstance(modules, f, CompactDirectedGraph.<M, GraphEdge<M>>builder());
+		try {
+			GraphSnapshot.write(dependencyGraph, fingerprint, codec, snapshot);
+		} catch (IOException e) {
+			log.warn("Cannot write the snapshot {}", snapshot, e);
+		}
+		return dependencyGraph;
+	}
+
+
+	/**
+	 * Create new DependencyGraph based on modules. 
+	 * The measured durations of modules from previous walks are used for the module rankings 
+	 * so that the critical path is started first. 
+	 * The durations are recorded during the walks of the new graph and saved to the profile.
+	 * 
+	 * @param <K> The keys used to establish connection between modules.
+	 * @param <M> The modules
+	 * @param modules The dependency units
+	 * @param adapterFunction The function module -&gt; {@link IDependencyDescriptor}
+	 * @param profile The execution profile
+	 * @return A new IDependencyGraph
+	 * @throws UnsatisfiedDependencyException when a mandatory dependency is missing
+	 * @throws CyclicGraphException when graph is not acyclic
+	 */
+	public static <K, M> IDependencyGraph<M> newInstance(
+			Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction, 
+			ExecutionProfile<M> profile) 
+					throws UnsatisfiedDependencyException, CyclicGraphException {
+		
+		Function<M, IDependencyDescriptor<K>> f = newCachedAdapterFunction(modules, adapterFunction);
+		Function<M, Integer> priorityFunction = newPriorityFunction(modules, f, profile);
+		DirectedGraph<M, GraphEdge<M>> graph = newGraph(modules, f);
+		
+		return new DependencyGraph<>(graph, priorityFunction, profile);
+	}
+	
+	/**
+	 * Create new DependencyGraph based on modules, the graph is built in parallel. 
+	 * Each module is adapted exactly once, the adapter function must be thread-safe.
+	 * The graph and the module rankings, including the order of equal rankings, 
+	 * are the same as of the sequential build.
+	 * 
+	 * @param <K> The keys used to establish connection between modules.
+	 * @param <M> The modules
+	 * @param modules The dependency units
+	 * @param adapterFunction The function module -&gt; {@link IDependencyDescriptor}
+	 * @param pool The pool building the graph and evaluating the rankings
+	 * @return A new IDependencyGraph
+	 * @throws UnsatisfiedDependencyException when a mandatory dependency is missing
+	 * @throws CyclicGraphException when graph is not acyclic
+	 */
+	public static <K, M> IDependencyGraph<M> newInstance(
+			Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction, 
+			ForkJoinPool pool) 
+					throws UnsatisfiedDependencyException, CyclicGraphException {
+		
+		ParallelGraphBuilder<K, M> builder = new ParallelGraphBuilder<>(modules, adapterFunction, pool);
+		CompactDirectedGraph<M, GraphEdge<M>> graph = builder.build();
+		LinkedHashMap<M, Integer> rankings = new LongestPathTopoSorter<>(graph)
+				.getLongestPathMap(builder.priorityFunction(graph), pool);
+		
+		return new DependencyGraph<>(graph, rankings, null);
+	}
 	
 	private static <K, M> Function<M, IDependencyDescriptor<K>> newCachedAdapterFunction(Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction) {
 		ImmutableMap.Builder<M, IDependencyDescriptor<K>> builder = ImmutableMap.builder();
@@ -91,10 +309,22 @@ public class DependencyGraphFactory<K, M>  {
 	}
 	
 	private static <K, M> Function<M, Integer> newPriorityFunction(Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction) throws UnsatisfiedDependencyException {
+		return newPriorityFunction(modules, adapterFunction, null);
+	}
+	
+	/**
+	 * The profiled duration is added to the module priority
+	 */
+	private static <K, M> Function<M, Integer> newPriorityFunction(Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction, 
+			ExecutionProfile<M> profile) throws UnsatisfiedDependencyException {
 		ImmutableMap.Builder<M, Integer> priorityMapBuilder = ImmutableMap.builder();
 		for (M module : modules) {
 			IDependencyDescriptor<K> node = adapterFunction.apply(module);
-			priorityMapBuilder.put(module, node.getExecutionPriority());
+			int priority = node.getExecutionPriority();
+			if (profile != null) {
+				priority += profile.getWeight(module);
+			}
+			priorityMapBuilder.put(module, priority);
 		}
 		return Functions.forMap(priorityMapBuilder.build(), 0);
 	}
@@ -112,6 +342,42 @@ public class DependencyGraphFactory<K, M>  {
 			Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction) 
 					throws UnsatisfiedDependencyException {
 		
+		return newGraph(modules, adapterFunction, DefaultDirectedGraph.<M, GraphEdge<M>>builder());
+	}
+
+	/**
+	 * Create a new Directed graph in parallel. The graph can possibly contain cycles.
+	 * @param <K> The keys used to establish connection between modules.
+	 * @param <M> The modules
+	 * @param modules The dependency units
+	 * @param adapterFunction The thread-safe function module -&gt; {@link IDependencyDescriptor}
+	 * @param pool The pool building the graph
+	 * @return A new IDependencyGraph
+	 * @throws UnsatisfiedDependencyException when a mandatory dependency is missing
+	 */
+	public static <K, M> DirectedGraph<M, GraphEdge<M>> newGraph(
+			Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction, 
+			ForkJoinPool pool) 
+					throws UnsatisfiedDependencyException {
+		
+		return new ParallelGraphBuilder<>(modules, adapterFunction, pool).build();
+	}
+
+	/**
+	 * Create a new Directed graph. The graph can possibly contain cycles.
+	 * @param <K> The keys used to establish connection between modules.
+	 * @param <M> The modules
+	 * @param modules The dependency units
+	 * @param adapterFunction The function module -&gt; {@link IDependencyDescriptor}
+	 * @param graphBuilder The builder of the graph implementation, e.g. {@link CompactDirectedGraph#builder()}
+	 * @return A new IDependencyGraph
+	 * @throws UnsatisfiedDependencyException when a mandatory dependency is missing
+	 */
+	public static <K, M> DirectedGraph<M, GraphEdge<M>> newGraph(
+			Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction, 
+			DirectedGraphBuilder<M, GraphEdge<M>> graphBuilder) 
+					throws UnsatisfiedDependencyException {
+		
 		ImmutableSetMultimap.Builder<K, M> consumersBuilder = ImmutableSetMultimap.builder();
 		ImmutableSetMultimap.Builder<K, M> consumersOptBuilder = ImmutableSetMultimap.builder();
 		ImmutableSetMultimap.Builder<K, M> producersBuilder = ImmutableSetMultimap.builder();
@@ -171,7 +437,7 @@ public class DependencyGraphFactory<K, M>  {
 			}
 		}
 		
-		return DefaultDirectedGraph.<M, GraphEdge<M>>builder()
+		return graphBuilder
 			.nodes(modules)
 			.edges(edges.build())
 			.build();
@@ -0,0 +1,204 @@
+package com.github.nill14.parsers.dependency.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.nill14.parsers.dependency.IConsumer;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Predicate;
+
+/**
+ * Measured execution durations of modules persisted in a local file.
+ * The durations are smoothed with an exponential moving average
+ * and they are used as node weights for the module rankings,
+ * so the modules on the critical path are started first.
+ *
+ * The modules are identified by the key function across the runs,
+ * by default by {@link Object#toString()}.
+ *
+ * @param <M> The modules
+ */
+public final class ExecutionProfile<M> {
+
+	private static final Logger log = LoggerFactory.getLogger(ExecutionProfile.class);
+
+	/**
+	 * The weight is limited by the range of the module priority
+	 */
+	private static final int MAX_WEIGHT = 100000;
+
+	private final File file;
+	private final Function<? super M, String> keyFunction;
+	private final double alpha;
+	private final ConcurrentMap<String, Double> durations = new ConcurrentHashMap<>();
+	private final Object saveLock = new Object();
+
+	/**
+	 *
+	 * @param file The profile file, it does not need to exist
+	 * @throws IOException when an existing file cannot be read
+	 */
+	public ExecutionProfile(File file) throws IOException {
+		this(file, Functions.toStringFunction(), 0.3);
+	}
+
+	/**
+	 *
+	 * @param file The profile file, it does not need to exist
+	 * @param keyFunction The function module -&gt; key identifying the module across runs
+	 * @param alpha The smoothing factor of the exponential moving average (0..1], the weight of the latest measurement
+	 * @throws IOException when an existing file cannot be read
+	 */
+	public ExecutionProfile(File file, Function<? super M, String> keyFunction, double alpha) throws IOException {
+		if (alpha <= 0 || alpha > 1) {
+			throw new IllegalArgumentException("Alpha not in range (0..1]: " + alpha);
+		}
+		this.file = file;
+		this.keyFunction = keyFunction;
+		this.alpha = alpha;
+		load();
+	}
+
+	private void load() throws IOException {
+		if (!file.exists()) {
+			return;
+		}
+
+		Properties properties = new Properties();
+		try (InputStream stream = new FileInputStream(file)) {
+			properties.load(stream);
+		}
+		for (String key : properties.stringPropertyNames()) {
+			try {
+				durations.put(key, Double.valueOf(properties.getProperty(key)));
+			} catch (NumberFormatException e) {
+				log.warn("Ignoring invalid duration of {} in {}", key, file);
+			}
+		}
+	}
+
+	/**
+	 * Writes the profile into the file.
+	 * The file is replaced by an atomic move, so a concurrent reader never reads a partial profile.
+	 * The concurrent saves are serialized.
+	 * @throws IOException when the file cannot be written
+	 */
+	public void save() throws IOException {
+		synchronized (saveLock) {
+			Properties properties = new Properties();
+			for (Map.Entry<String, Double> entry : durations.entrySet()) {
+				properties.setProperty(entry.getKey(), entry.getValue().toString());
+			}
+
+			File parent = file.getAbsoluteFile().getParentFile();
+			File tempFile = File.createTempFile(file.getName(), ".tmp", parent);
+			try {
+				try (OutputStream stream = new FileOutputStream(tempFile)) {
+					properties.store(stream, "Module execution durations in milliseconds");
+				}
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				tempFile.delete();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Records a measured duration, the value is smoothed with the previous ones.
+	 * @param module The module
+	 * @param duration The execution duration
+	 * @param unit The unit of the duration
+	 */
+	public void record(M module, long duration, TimeUnit unit) {
+		String key = keyFunction.apply(module);
+		double millis = unit.toNanos(duration) / 1000000.0;
+
+		while (true) {
+			Double previous = durations.putIfAbsent(key, millis);
+			if (previous == null) {
+				return;
+			}
+			double average = alpha * millis + (1 - alpha) * previous;
+			if (durations.replace(key, previous, average)) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @param module The module
+	 * @return The smoothed duration in milliseconds or -1 when the module was not executed yet
+	 */
+	public double getDurationMillis(M module) {
+		Double duration = durations.get(keyFunction.apply(module));
+		return duration != null ? duration : -1;
+	}
+
+	/**
+	 * The weight of an unknown module is zero.
+	 *
+	 * @param module The module
+	 * @return The node weight in range 0..100000 (rounded milliseconds)
+	 */
+	public int getWeight(M module) {
+		double duration = getDurationMillis(module);
+		if (duration <= 0) {
+			return 0;
+		}
+		return (int) Math.min(MAX_WEIGHT, Math.round(duration));
+	}
+
+	/**
+	 * The modules not executed yet are not considered fast.
+	 *
+	 * @param millis The duration in milliseconds
+	 * @return The predicate of modules whose smoothed duration is below the given duration
+	 */
+	public Predicate<M> fasterThan(final double millis) {
+		return new Predicate<M>() {
+			@Override
+			public boolean apply(M module) {
+				double duration = getDurationMillis(module);
+				return duration >= 0 && duration < millis;
+			}
+		};
+	}
+
+	/**
+	 *
+	 * @param moduleConsumer a processing closure
+	 * @return a closure recording the duration of each successful execution
+	 */
+	public IConsumer<M> profiling(final IConsumer<M> moduleConsumer) {
+		return new IConsumer<M>() {
+			@Override
+			public void process(M module) throws Exception {
+				long start = System.nanoTime();
+				moduleConsumer.process(module);
+				record(module, System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ExecutionProfile [file=%s, modules=%d]", file, durations.size());
+	}
+}
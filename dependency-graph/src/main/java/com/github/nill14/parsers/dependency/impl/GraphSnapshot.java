@@ -0,0 +1,450 @@
+package com.github.nill14.parsers.dependency.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.nill14.parsers.dependency.IDependencyDescriptor;
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.IGraphCodec;
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.github.nill14.parsers.graph.impl.EvaluatedGraphEdge;
+import com.github.nill14.parsers.graph.utils.GraphNormalizer;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.primitives.Ints;
+
+/**
+ * A compact binary snapshot of a built dependency graph,
+ * so the graph is not built again while the module descriptors do not change.
+ *
+ * The vertex ids are the positions in the topological order, the successors are stored
+ * in compressed sparse row (CSR) format along with the rankings and the edge keys.
+ * The modules and the keys are stored by the codes of {@link IGraphCodec}.
+ * The file is memory-mapped and the arrays are read in bulk, neither the key maps
+ * nor the rankings are computed again.
+ *
+ * The snapshot is labelled by the fingerprint of the module descriptors
+ * and it is validated by a CRC32 checksum of the content.
+ *
+ * <pre>
+ * magic version fingerprint
+ * moduleCount edgeCount keyCount
+ * moduleOffsets[moduleCount + 1] moduleCodes
+ * keyOffsets[keyCount + 1] keyCodes
+ * rankings[moduleCount]
+ * successorOffsets[moduleCount + 1] targets[edgeCount]
+ * edgeKeyOffsets[edgeCount + 1] edgeKeys edgeKinds[edgeCount]
+ * checksum
+ * </pre>
+ * The codes are UTF-8, the sections are padded to 4 bytes, the numbers are big-endian.
+ */
+public final class GraphSnapshot {
+
+	private static final Logger log = LoggerFactory.getLogger(GraphSnapshot.class);
+
+	/**
+	 * DGS1
+	 */
+	private static final int MAGIC = 0x44475331;
+	private static final int VERSION = 1;
+	/**
+	 * magic, version and the offsets of the fingerprint
+	 */
+	private static final int HEADER_SIZE = 16;
+	private static final int CHECKSUM_SIZE = 8;
+
+	/**
+	 * The edge kinds: without a key, of a single key and of the set of keys of merged edges
+	 */
+	private static final byte NO_KEY = 0;
+	private static final byte SINGLE_KEY = 1;
+	private static final byte KEY_SET = 2;
+
+	private GraphSnapshot() {
+	}
+
+	/**
+	 * The fingerprint does not depend on the order of modules and keys.
+	 *
+	 * @param <K> The keys used to establish connection between modules.
+	 * @param <M> The modules
+	 * @param modules The dependency units
+	 * @param adapterFunction The function module -&gt; {@link IDependencyDescriptor}
+	 * @param codec The codec of modules and keys
+	 * @return The SHA-256 digest of the module codes and their descriptors
+	 */
+	public static <K, M> String fingerprint(Set<M> modules,
+			Function<M, ? extends IDependencyDescriptor<K>> adapterFunction, IGraphCodec<M, K> codec) {
+
+		SortedMap<String, M> sorted = new TreeMap<>();
+		for (M module : modules) {
+			M previous = sorted.put(codec.encodeModule(module), module);
+			if (previous != null) {
+				throw new IllegalArgumentException(String.format("Modules %s and %s have the same code", previous, module));
+			}
+		}
+
+		Hasher hasher = Hashing.sha256().newHasher().putInt(sorted.size());
+		for (Map.Entry<String, M> entry : sorted.entrySet()) {
+			IDependencyDescriptor<K> descriptor = adapterFunction.apply(entry.getValue());
+			putString(hasher, entry.getKey());
+			hasher.putInt(descriptor.getExecutionPriority());
+			putKeys(hasher, descriptor.getRequiredDependencies(), codec);
+			putKeys(hasher, descriptor.getOptionalDependencies(), codec);
+			putKeys(hasher, descriptor.getOptionalProviders(), codec);
+		}
+		return hasher.hash().toString();
+	}
+
+	private static <K> void putKeys(Hasher hasher, Set<K> keys, IGraphCodec<?, K> codec) {
+		List<String> codes = new ArrayList<>(keys.size());
+		for (K key : keys) {
+			codes.add(codec.encodeKey(key));
+		}
+		Collections.sort(codes);
+		hasher.putInt(codes.size());
+		for (String code : codes) {
+			putString(hasher, code);
+		}
+	}
+
+	private static void putString(Hasher hasher, String value) {
+		hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The snapshot is written to a temporary file moved atomically over the file,
+	 * so a concurrent reader never reads a partial snapshot.
+	 * The value of an edge is written as a key, a set value as the merged keys of
+	 * {@link GraphNormalizer#mergeParallelEdges}.
+	 *
+	 * @param <K> The keys used to establish connection between modules.
+	 * @param <M> The modules
+	 * @param dependencyGraph The built graph
+	 * @param fingerprint The fingerprint of the module descriptors
+	 * @param codec The codec of modules and keys
+	 * @param file The snapshot file
+	 * @throws IOException when the file cannot be written
+	 */
+	public static <K, M> void write(IDependencyGraph<M> dependencyGraph, String fingerprint,
+			IGraphCodec<M, K> codec, File file) throws IOException {
+
+		List<M> order = dependencyGraph.getTopologicalOrder();
+		Map<M, Integer> rankings = dependencyGraph.getModuleRankings();
+		DirectedGraph<M, GraphEdge<M>> graph = dependencyGraph.getGraph();
+		int size = order.size();
+
+		Map<M, Integer> ids = new HashMap<>();
+		List<String> moduleCodes = new ArrayList<>(size);
+		for (M module : order) {
+			ids.put(module, ids.size());
+			moduleCodes.add(codec.encodeModule(module));
+		}
+
+		Map<String, Integer> keyIds = new LinkedHashMap<>();
+		int[] rankingArray = new int[size];
+		int[] successorOffsets = new int[size + 1];
+		List<Integer> targets = new ArrayList<>();
+		List<Integer> edgeKeyOffsets = new ArrayList<>();
+		List<Integer> edgeKeys = new ArrayList<>();
+		ByteArrayOutputStream edgeKinds = new ByteArrayOutputStream();
+		for (int id = 0; id < size; id++) {
+			M module = order.get(id);
+			rankingArray[id] = rankings.get(module);
+			successorOffsets[id] = targets.size();
+			for (GraphEdge<M> edge : graph.successorEdges(module)) {
+				targets.add(ids.get(edge.target()));
+				edgeKeyOffsets.add(edgeKeys.size());
+				Object value = edge instanceof EvaluatedGraphEdge ? ((EvaluatedGraphEdge<?, ?>) edge).value() : null;
+				if (value == null) {
+					edgeKinds.write(NO_KEY);
+				} else if (value instanceof Set) {
+					edgeKinds.write(KEY_SET);
+					for (Object key : (Set<?>) value) {
+						edgeKeys.add(keyId(keyIds, codec, key));
+					}
+				} else {
+					edgeKinds.write(SINGLE_KEY);
+					edgeKeys.add(keyId(keyIds, codec, value));
+				}
+			}
+		}
+		successorOffsets[size] = targets.size();
+		edgeKeyOffsets.add(edgeKeys.size());
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		writeStrings(out, Collections.singletonList(fingerprint));
+		out.writeInt(size);
+		out.writeInt(targets.size());
+		out.writeInt(keyIds.size());
+		writeStrings(out, moduleCodes);
+		writeStrings(out, new ArrayList<>(keyIds.keySet()));
+		writeInts(out, rankingArray);
+		writeInts(out, successorOffsets);
+		writeInts(out, Ints.toArray(targets));
+		writeInts(out, Ints.toArray(edgeKeyOffsets));
+		writeInts(out, Ints.toArray(edgeKeys));
+		edgeKinds.writeTo(out);
+		pad(out);
+		out.flush();
+
+		CRC32 checksum = new CRC32();
+		checksum.update(bytes.toByteArray());
+		out.writeLong(checksum.getValue());
+		out.flush();
+
+		File parent = file.getAbsoluteFile().getParentFile();
+		File tempFile = File.createTempFile(file.getName(), ".tmp", parent);
+		try {
+			try (OutputStream stream = new FileOutputStream(tempFile)) {
+				bytes.writeTo(stream);
+			}
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			tempFile.delete();
+			throw e;
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K> int keyId(Map<String, Integer> keyIds, IGraphCodec<?, K> codec, Object key) {
+		String code = codec.encodeKey((K) key);
+		Integer id = keyIds.get(code);
+		if (id == null) {
+			id = keyIds.size();
+			keyIds.put(code, id);
+		}
+		return id;
+	}
+
+	private static void writeStrings(DataOutputStream out, List<String> strings) throws IOException {
+		List<byte[]> encoded = new ArrayList<>(strings.size());
+		int offset = 0;
+		out.writeInt(offset);
+		for (String string : strings) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			encoded.add(bytes);
+			offset += bytes.length;
+			out.writeInt(offset);
+		}
+		for (byte[] bytes : encoded) {
+			out.write(bytes);
+		}
+		pad(out);
+	}
+
+	private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		for (int value : values) {
+			out.writeInt(value);
+		}
+	}
+
+	private static void pad(DataOutputStream out) throws IOException {
+		while (out.size() % 4 != 0) {
+			out.writeByte(0);
+		}
+	}
+
+	/**
+	 * The modules are resolved by the codec.
+	 * The lengths are checked against the file size before anything is allocated,
+	 * a corrupted length fails without reading the whole file.
+	 *
+	 * @param <K> The keys used to establish connection between modules.
+	 * @param <M> The modules
+	 * @param file The snapshot file
+	 * @param fingerprint The fingerprint of the current module descriptors
+	 * @param codec The codec of modules and keys
+	 * @return The loaded graph or null when the file does not exist, the fingerprint differs or a module is not known
+	 * @throws IOException when the file cannot be read or it is corrupted
+	 */
+	public static <K, M> IDependencyGraph<M> read(File file, String fingerprint, IGraphCodec<M, K> codec) throws IOException {
+		if (!file.exists()) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long fileSize = channel.size();
+			if (fileSize > Integer.MAX_VALUE) {
+				throw new IOException("The snapshot is too large: " + file);
+			}
+			if (fileSize < HEADER_SIZE + CHECKSUM_SIZE) {
+				throw new IOException("The snapshot is truncated: " + file);
+			}
+			ByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, fileSize);
+			// the checksum is not a part of the content
+			buffer.limit((int) fileSize - CHECKSUM_SIZE);
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+				log.info("Ignoring the snapshot of another format {}", file);
+				return null;
+			}
+			if (!readStrings(buffer, 1)[0].equals(fingerprint)) {
+				log.debug("The snapshot {} is outdated", file);
+				return null;
+			}
+			verifyChecksum(buffer, (int) fileSize);
+			return read(buffer, codec);
+
+		} catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+			throw new IOException("The snapshot is corrupted: " + file, e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <K, M> IDependencyGraph<M> read(ByteBuffer buffer, IGraphCodec<M, K> codec) throws IOException {
+		int size = readCount(buffer);
+		int edgeCount = readCount(buffer);
+		int keyCount = readCount(buffer);
+		String[] moduleCodes = readStrings(buffer, size);
+		String[] keyCodes = readStrings(buffer, keyCount);
+		int[] rankingArray = readInts(buffer, size);
+		int[] successorOffsets = readInts(buffer, size + 1);
+		int[] targets = readInts(buffer, edgeCount);
+		int[] edgeKeyOffsets = readInts(buffer, edgeCount + 1);
+		int[] edgeKeys = readInts(buffer, edgeKeyOffsets[edgeCount]);
+		if (edgeCount > buffer.remaining()) {
+			throw new IOException("Invalid edge count: " + edgeCount);
+		}
+		byte[] edgeKinds = new byte[edgeCount];
+		buffer.get(edgeKinds);
+
+		Object[] vertices = new Object[size];
+		for (int id = 0; id < size; id++) {
+			vertices[id] = codec.decodeModule(moduleCodes[id]);
+			if (vertices[id] == null) {
+				log.info("The module {} of the snapshot is not known", moduleCodes[id]);
+				return null;
+			}
+		}
+		Object[] keys = new Object[keyCount];
+		for (int i = 0; i < keyCount; i++) {
+			keys[i] = codec.decodeKey(keyCodes[i]);
+		}
+
+		int[] sources = new int[edgeCount];
+		Object[] edges = new Object[edgeCount];
+		for (int id = 0; id < size; id++) {
+			for (int e = successorOffsets[id]; e < successorOffsets[id + 1]; e++) {
+				int target = targets[e];
+				if (target <= id || target >= size) {
+					throw new IOException("The edge is not topological: " + id + " -> " + target);
+				}
+				sources[e] = id;
+				edges[e] = EvaluatedGraphEdge.edge(vertices[id], vertices[target],
+						edgeValue(edgeKinds[e], keys, edgeKeys, edgeKeyOffsets[e], edgeKeyOffsets[e + 1]));
+			}
+		}
+
+		CompactDirectedGraph<M, GraphEdge<M>> graph = CompactDirectedGraph.fromIds(vertices, sources, targets, edges);
+		LinkedHashMap<M, Integer> rankings = new LinkedHashMap<>();
+		for (int id = 0; id < size; id++) {
+			rankings.put((M) vertices[id], rankingArray[id]);
+		}
+		return new DependencyGraph<>(graph, rankings, null);
+	}
+
+	private static Object edgeValue(byte kind, Object[] keys, int[] edgeKeys, int from, int to) throws IOException {
+		switch (kind) {
+			case NO_KEY:
+				return null;
+			case SINGLE_KEY:
+				return keys[edgeKeys[from]];
+			case KEY_SET:
+				ImmutableSet.Builder<Object> builder = ImmutableSet.builder();
+				for (int i = from; i < to; i++) {
+					builder.add(keys[edgeKeys[i]]);
+				}
+				return builder.build();
+			default:
+				throw new IOException("Invalid edge kind: " + kind);
+		}
+	}
+
+	private static void verifyChecksum(ByteBuffer buffer, int fileSize) throws IOException {
+		ByteBuffer content = buffer.duplicate();
+		content.position(0);
+		content.limit(fileSize - CHECKSUM_SIZE);
+		CRC32 checksum = new CRC32();
+		byte[] chunk = new byte[8192];
+		while (content.hasRemaining()) {
+			int length = Math.min(chunk.length, content.remaining());
+			content.get(chunk, 0, length);
+			checksum.update(chunk, 0, length);
+		}
+		ByteBuffer trailer = buffer.duplicate();
+		trailer.limit(fileSize);
+		if (checksum.getValue() != trailer.getLong(fileSize - CHECKSUM_SIZE)) {
+			throw new IOException("The checksum does not match");
+		}
+	}
+
+	private static int readCount(ByteBuffer buffer) throws IOException {
+		int count = buffer.getInt();
+		if (count < 0) {
+			throw new IOException("Invalid count: " + count);
+		}
+		return count;
+	}
+
+	private static String[] readStrings(ByteBuffer buffer, int count) throws IOException {
+		int[] offsets = readInts(buffer, count + 1);
+		if (offsets[count] < 0 || offsets[count] > buffer.remaining()) {
+			throw new IOException("Invalid string length: " + offsets[count]);
+		}
+		byte[] bytes = new byte[offsets[count]];
+		buffer.get(bytes);
+		align(buffer);
+
+		String[] strings = new String[count];
+		for (int i = 0; i < count; i++) {
+			strings[i] = new String(bytes, offsets[i], offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+		}
+		return strings;
+	}
+
+	private static int[] readInts(ByteBuffer buffer, int count) throws IOException {
+		if (count < 0 || count > buffer.remaining() / 4) {
+			throw new IOException("Invalid count: " + count);
+		}
+		int[] values = new int[count];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + count * 4);
+		return values;
+	}
+
+	private static void align(ByteBuffer buffer) {
+		buffer.position((buffer.position() + 3) & ~3);
+	}
+}
@@ -0,0 +1,777 @@
+package com.github.nill14.parsers.dependency.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.github.nill14.parsers.dependency.IAsyncConsumer;
+import com.github.nill14.parsers.dependency.IAsyncWalk;
+import com.github.nill14.parsers.dependency.IConsumer;
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.WalkOptions;
+import com.github.nill14.parsers.dependency.WalkResult;
+import com.github.nill14.parsers.graph.CyclicGraphException;
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.github.nill14.parsers.graph.impl.DefaultDirectedGraph;
+import com.github.nill14.parsers.graph.impl.EvaluatedGraphEdge;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+/**
+ * A mutable dependency graph maintaining the topological order and the module rankings incrementally.
+ *
+ * The topological order is maintained by the Pearce-Kelly algorithm,
+ * only the vertices between the endpoints of an inserted edge are visited and reordered.
+ * A cycle is detected online, the offending edge is rejected and the graph remains unchanged.
+ * The rankings are propagated upwards from the changed vertex as long as they change.
+ * Only the cached dependencies of the modules downstream of a change
+ * and the cached dependants of the modules upstream of a change are invalidated.
+ *
+ * The topological order and the rankings are served from the maintained state,
+ * the topological order is the maintained one, it is not sorted by the rankings.
+ * The walks are executed on an immutable snapshot, see {@link #snapshot()}.
+ * Parallel edges between two modules are merged into a single dependency.
+ *
+ * @param <M> The modules
+ */
+public class IncrementalDependencyGraph<M> implements IDependencyGraph<M> {
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final ExecutionProfile<M> profile;
+
+	private final Map<M, Node<M>> nodes = new LinkedHashMap<>();
+	/**
+	 * The topological order, the removed vertices leave a gap (null)
+	 */
+	private final List<Node<M>> order = new ArrayList<>();
+	private final ConcurrentMap<M, Set<M>> closures = new ConcurrentHashMap<>();
+	private final ConcurrentMap<M, Set<M>> dependantClosures = new ConcurrentHashMap<>();
+	private int removedCount = 0;
+	private int epoch = 0;
+	/**
+	 * The rankings in the topological order, cached until the next modification
+	 */
+	private volatile ImmutableMap<M, Integer> rankings;
+	private volatile DependencyGraph<M> snapshot;
+
+	public IncrementalDependencyGraph() {
+		this(null);
+	}
+
+	/**
+	 * @param profile The profile recording the durations of walked modules, possibly null.
+	 * The profiled duration is added to the module priority.
+	 */
+	public IncrementalDependencyGraph(ExecutionProfile<M> profile) {
+		this.profile = profile;
+	}
+
+	/**
+	 * Creates a mutable copy of the graph. The priorities of modules are derived from the rankings.
+	 * @param <M> The modules
+	 * @param dependencyGraph The graph to be copied
+	 * @return A new IncrementalDependencyGraph
+	 */
+	public static <M> IncrementalDependencyGraph<M> copyOf(IDependencyGraph<M> dependencyGraph) {
+		IncrementalDependencyGraph<M> result = new IncrementalDependencyGraph<>();
+		DirectedGraph<M, GraphEdge<M>> graph = dependencyGraph.getGraph();
+		Map<M, Integer> rankings = dependencyGraph.getModuleRankings();
+
+		for (M module : dependencyGraph.getTopologicalOrder()) {
+			int max = -1;
+			for (M successor : graph.successors(module)) {
+				max = Math.max(max, rankings.get(successor));
+			}
+			result.insertNode(module, rankings.get(module) - max - 1);
+		}
+
+		// the topological order is copied, hence no reordering is needed
+		for (GraphEdge<M> edge : graph.edges()) {
+			Node<M> source = result.nodes.get(edge.source());
+			Node<M> target = result.nodes.get(edge.target());
+			if (!source.successors.containsKey(target)) {
+				source.successors.put(target, edge);
+				target.predecessors.put(source, edge);
+			}
+		}
+		for (Node<M> node : result.order) {
+			node.ranking = rankings.get(node.module);
+		}
+		return result;
+	}
+
+	/**
+	 * Adds a module with the default priority
+	 * @param module The module
+	 * @return false when the module is already present
+	 */
+	public boolean addModule(M module) {
+		return addModule(module, 0);
+	}
+
+	/**
+	 *
+	 * @param module The module
+	 * @param priority The priority of the module, a positive number or zero
+	 * @return false when the module is already present
+	 */
+	public boolean addModule(M module, int priority) {
+		if (priority < 0) {
+			throw new IllegalArgumentException(String.format("Node %s priority must be bigger or equal to zero: %s", module, priority));
+		}
+
+		try {
+			lock.writeLock().lock();
+			if (nodes.containsKey(module)) {
+				return false;
+			}
+			if (profile != null) {
+				priority += profile.getWeight(module);
+			}
+			Node<M> node = insertNode(module, priority);
+			node.ranking = priority;
+			modified();
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private Node<M> insertNode(M module, int priority) {
+		Node<M> node = new Node<>(module, priority, order.size());
+		nodes.put(module, node);
+		order.add(node);
+		return node;
+	}
+
+	/**
+	 * Removes the module along with all its edges.
+	 * @param module The module
+	 * @return false when the module is not present
+	 */
+	public boolean removeModule(M module) {
+		try {
+			lock.writeLock().lock();
+			Node<M> node = nodes.get(module);
+			if (node == null) {
+				return false;
+			}
+
+			invalidate(node, closures, true);
+			invalidate(node, dependantClosures, false);
+			for (Node<M> successor : node.successors.keySet()) {
+				successor.predecessors.remove(node);
+			}
+			for (Node<M> predecessor : node.predecessors.keySet()) {
+				predecessor.successors.remove(node);
+			}
+
+			nodes.remove(module);
+			order.set(node.ord, null);
+			removedCount++;
+			updateRankings(node.predecessors.keySet());
+
+			if (removedCount > nodes.size()) {
+				compactOrder();
+			}
+			modified();
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Adds a dependency of the target on the source.
+	 *
+	 * @param source The dependency
+	 * @param target The module depending on the source
+	 * @return false when the dependency is already present
+	 * @throws CyclicGraphException when the edge would close a cycle, the graph remains unchanged
+	 */
+	public boolean addEdge(M source, M target) throws CyclicGraphException {
+		return addEdge(EvaluatedGraphEdge.<M, Object>edge(source, target));
+	}
+
+	/**
+	 * Adds a dependency of the edge target on the edge source.
+	 *
+	 * @param edge The edge
+	 * @return false when a dependency between the modules is already present
+	 * @throws CyclicGraphException when the edge would close a cycle, the graph remains unchanged
+	 */
+	public boolean addEdge(GraphEdge<M> edge) throws CyclicGraphException {
+		try {
+			lock.writeLock().lock();
+			Node<M> source = getNode(edge.source());
+			Node<M> target = getNode(edge.target());
+			if (source.successors.containsKey(target)) {
+				return false;
+			}
+
+			if (source == target) {
+				throw newCyclicGraphException(edge);
+			} else if (source.ord > target.ord) {
+				reorder(source, target, edge);
+			}
+
+			source.successors.put(target, edge);
+			target.predecessors.put(source, edge);
+			invalidate(target, closures, true);
+			invalidate(source, dependantClosures, false);
+			updateRankings(Collections.singleton(source));
+			modified();
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Removes the dependency of the target on the source.
+	 *
+	 * @param source The dependency
+	 * @param target The module depending on the source
+	 * @return false when the dependency is not present
+	 */
+	public boolean removeEdge(M source, M target) {
+		try {
+			lock.writeLock().lock();
+			Node<M> sourceNode = getNode(source);
+			Node<M> targetNode = getNode(target);
+			if (sourceNode.successors.remove(targetNode) == null) {
+				return false;
+			}
+			targetNode.predecessors.remove(sourceNode);
+
+			// the topological order remains valid
+			invalidate(targetNode, closures, true);
+			invalidate(sourceNode, dependantClosures, false);
+			updateRankings(Collections.singleton(sourceNode));
+			modified();
+			return true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * The snapshot is cached until the next modification.
+	 *
+	 * @return An immutable dependency graph reflecting the current state
+	 */
+	public IDependencyGraph<M> snapshot() {
+		DependencyGraph<M> result = snapshot;
+		if (result == null) {
+			try {
+				// a single reader builds the snapshot
+				lock.writeLock().lock();
+				result = snapshot;
+				if (result == null) {
+					snapshot = result = newSnapshot();
+				}
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+		return result;
+	}
+
+	private void modified() {
+		rankings = null;
+		snapshot = null;
+	}
+
+	/**
+	 * The caller holds the lock
+	 */
+	private ImmutableMap<M, Integer> currentRankings() {
+		ImmutableMap<M, Integer> result = rankings;
+		if (result == null) {
+			ImmutableMap.Builder<M, Integer> builder = ImmutableMap.builder();
+			for (Node<M> node : order) {
+				if (node != null) {
+					builder.put(node.module, node.ranking);
+				}
+			}
+			rankings = result = builder.build();
+		}
+		return result;
+	}
+
+	/**
+	 * The graph is assembled from the vertex ids, the edges are not hashed.
+	 */
+	private DependencyGraph<M> newSnapshot() {
+		Object[] vertices = new Object[nodes.size()];
+		int[] ids = new int[order.size()];
+		int edgeCount = 0;
+		int id = 0;
+		for (Node<M> node : order) {
+			if (node != null) {
+				vertices[id] = node.module;
+				ids[node.ord] = id++;
+				edgeCount += node.successors.size();
+			}
+		}
+
+		int[] sources = new int[edgeCount];
+		int[] targets = new int[edgeCount];
+		Object[] edges = new Object[edgeCount];
+		int i = 0;
+		for (Node<M> node : order) {
+			if (node != null) {
+				for (Map.Entry<Node<M>, GraphEdge<M>> entry : node.successors.entrySet()) {
+					sources[i] = ids[node.ord];
+					targets[i] = ids[entry.getKey().ord];
+					edges[i++] = entry.getValue();
+				}
+			}
+		}
+
+		DirectedGraph<M, GraphEdge<M>> graph = CompactDirectedGraph.fromIds(vertices, sources, targets, edges);
+		return new DependencyGraph<>(graph, new LinkedHashMap<>(currentRankings()), profile);
+	}
+
+	/**
+	 * Pearce-Kelly: the source must precede the target.
+	 * The vertices reachable from the target and the vertices reaching the source
+	 * within the affected region are reordered, the rest of the order is kept.
+	 */
+	private void reorder(Node<M> source, Node<M> target, GraphEdge<M> edge) throws CyclicGraphException {
+		int lowerBound = target.ord;
+		int upperBound = source.ord;
+		int mark = ++epoch;
+
+		List<Node<M>> forward = Lists.newArrayList();
+		Deque<Node<M>> stack = new ArrayDeque<>();
+		target.mark = mark;
+		stack.push(target);
+		while (!stack.isEmpty()) {
+			Node<M> node = stack.pop();
+			forward.add(node);
+			for (Node<M> successor : node.successors.keySet()) {
+				if (successor == source) {
+					throw newCyclicGraphException(edge);
+				} else if (successor.mark != mark && successor.ord < upperBound) {
+					successor.mark = mark;
+					stack.push(successor);
+				}
+			}
+		}
+
+		List<Node<M>> backward = Lists.newArrayList();
+		source.mark = mark;
+		stack.push(source);
+		while (!stack.isEmpty()) {
+			Node<M> node = stack.pop();
+			backward.add(node);
+			for (Node<M> predecessor : node.predecessors.keySet()) {
+				if (predecessor.mark != mark && predecessor.ord > lowerBound) {
+					predecessor.mark = mark;
+					stack.push(predecessor);
+				}
+			}
+		}
+
+		Comparator<Node<M>> byOrder = new Comparator<Node<M>>() {
+			@Override
+			public int compare(Node<M> o1, Node<M> o2) {
+				return Integer.compare(o1.ord, o2.ord);
+			}
+		};
+		Collections.sort(forward, byOrder);
+		Collections.sort(backward, byOrder);
+
+		int[] slots = new int[forward.size() + backward.size()];
+		int i = 0;
+		for (Node<M> node : backward) {
+			slots[i++] = node.ord;
+		}
+		for (Node<M> node : forward) {
+			slots[i++] = node.ord;
+		}
+		Arrays.sort(slots);
+
+		i = 0;
+		for (Node<M> node : backward) {
+			node.ord = slots[i++];
+			order.set(node.ord, node);
+		}
+		for (Node<M> node : forward) {
+			node.ord = slots[i++];
+			order.set(node.ord, node);
+		}
+	}
+
+	/**
+	 * The ranking of a vertex depends on its successors only.
+	 * The vertices are updated from the bottom of the topological order,
+	 * so each one is evaluated after all its changed successors.
+	 */
+	private void updateRankings(Set<Node<M>> changed) {
+		PriorityQueue<Node<M>> queue = new PriorityQueue<>(Math.max(changed.size(), 1), new Comparator<Node<M>>() {
+			@Override
+			public int compare(Node<M> o1, Node<M> o2) {
+				return Integer.compare(o2.ord, o1.ord);
+			}
+		});
+		int mark = ++epoch;
+		for (Node<M> node : changed) {
+			node.mark = mark;
+			queue.add(node);
+		}
+
+		while (!queue.isEmpty()) {
+			Node<M> node = queue.poll();
+			int ranking = node.priority;
+			if (!node.successors.isEmpty()) {
+				int max = 0;
+				for (Node<M> successor : node.successors.keySet()) {
+					max = Math.max(max, successor.ranking + 1);
+				}
+				ranking += max;
+				if (ranking < max) {
+					throw new IllegalStateException("Range overflow: " + ranking);
+				}
+			}
+
+			if (ranking != node.ranking) {
+				node.ranking = ranking;
+				for (Node<M> predecessor : node.predecessors.keySet()) {
+					if (predecessor.mark != mark) {
+						predecessor.mark = mark;
+						queue.add(predecessor);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The dependencies of a module change only when a dependency upstream has changed,
+	 * the dependants of a module change only when a dependant downstream has changed.
+	 * @param downstream whether the successors of the changed node are affected or the predecessors
+	 */
+	private void invalidate(Node<M> changed, ConcurrentMap<M, Set<M>> cache, boolean downstream) {
+		if (cache.isEmpty()) {
+			return;
+		}
+
+		int mark = ++epoch;
+		Deque<Node<M>> stack = new ArrayDeque<>();
+		changed.mark = mark;
+		stack.push(changed);
+		while (!stack.isEmpty()) {
+			Node<M> node = stack.pop();
+			cache.remove(node.module);
+			for (Node<M> next : downstream ? node.successors.keySet() : node.predecessors.keySet()) {
+				if (next.mark != mark) {
+					next.mark = mark;
+					stack.push(next);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param upstream whether the predecessors of the nodes are collected or the successors
+	 * @return all nodes reachable from the nodes, the nodes are included only when reachable
+	 */
+	private ImmutableSet<M> collect(Iterable<Node<M>> nodes, boolean upstream) {
+		ImmutableSet.Builder<M> builder = ImmutableSet.builder();
+		Set<Node<M>> visited = Sets.newHashSet();
+		Deque<Node<M>> stack = new ArrayDeque<>();
+		for (Node<M> node : nodes) {
+			stack.push(node);
+		}
+		while (!stack.isEmpty()) {
+			Node<M> node = stack.pop();
+			for (Node<M> next : upstream ? node.predecessors.keySet() : node.successors.keySet()) {
+				if (visited.add(next)) {
+					builder.add(next.module);
+					stack.push(next);
+				}
+			}
+		}
+		return builder.build();
+	}
+
+	private void compactOrder() {
+		int ord = 0;
+		for (int i = 0; i < order.size(); i++) {
+			Node<M> node = order.get(i);
+			if (node != null) {
+				node.ord = ord;
+				order.set(ord++, node);
+			}
+		}
+		order.subList(ord, order.size()).clear();
+		removedCount = 0;
+	}
+
+	private Node<M> getNode(M module) {
+		Node<M> node = nodes.get(module);
+		if (node == null) {
+			throw new IllegalArgumentException("Unknown module: " + module);
+		}
+		return node;
+	}
+
+	private CyclicGraphException newCyclicGraphException(GraphEdge<M> edge) {
+		Set<GraphEdge<M>> edges = Sets.newLinkedHashSet();
+		for (Node<M> node : nodes.values()) {
+			edges.addAll(node.successors.values());
+		}
+		edges.add(edge);
+
+		DirectedGraph<M, GraphEdge<M>> graph = DefaultDirectedGraph.<M, GraphEdge<M>>builder()
+				.nodes(nodes.keySet())
+				.edges(edges)
+				.build();
+		return new CyclicGraphException(graph,
+				String.format("The edge %s -> %s closes a cycle", edge.source(), edge.target()));
+	}
+
+	@Override
+	public DirectedGraph<M, GraphEdge<M>> getGraph() {
+		return snapshot().getGraph();
+	}
+
+	@Override
+	public Set<M> getModules() {
+		return getModuleRankings().keySet();
+	}
+
+	@Override
+	public Set<M> getDirectDependencies(M module) {
+		try {
+			lock.readLock().lock();
+			ImmutableSet.Builder<M> builder = ImmutableSet.builder();
+			for (Node<M> predecessor : getNode(module).predecessors.keySet()) {
+				builder.add(predecessor.module);
+			}
+			return builder.build();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Set<M> getAllDependencies(M module) {
+		Set<M> closure = closures.get(module);
+		if (closure != null) {
+			return closure;
+		}
+
+		try {
+			lock.readLock().lock();
+			closure = collect(Collections.singleton(getNode(module)), true);
+			// the writers are excluded, the closure is up to date
+			closures.put(module, closure);
+			return closure;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Set<M> getDirectDependants(M module) {
+		try {
+			lock.readLock().lock();
+			ImmutableSet.Builder<M> builder = ImmutableSet.builder();
+			for (Node<M> successor : getNode(module).successors.keySet()) {
+				builder.add(successor.module);
+			}
+			return builder.build();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Set<M> getAllDependants(M module) {
+		Set<M> dependants = dependantClosures.get(module);
+		if (dependants != null) {
+			return dependants;
+		}
+
+		try {
+			lock.readLock().lock();
+			dependants = collect(Collections.singleton(getNode(module)), false);
+			dependantClosures.put(module, dependants);
+			return dependants;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Set<M> getAllDependants(Set<M> modules) {
+		try {
+			lock.readLock().lock();
+			List<Node<M>> nodes = Lists.newArrayListWithCapacity(modules.size());
+			for (M module : modules) {
+				nodes.add(getNode(module));
+			}
+			return collect(nodes, false);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * The search is pruned by the maintained topological order, 
+	 * the dependencies of a module precede the module.
+	 */
+	@Override
+	public boolean dependsOn(M module, M dependency) {
+		Set<M> closure = closures.get(module);
+		if (closure != null) {
+			return closure.contains(dependency);
+		}
+
+		try {
+			lock.readLock().lock();
+			Node<M> target = nodes.get(module);
+			Node<M> source = nodes.get(dependency);
+			if (target == null || source == null || source.ord >= target.ord) {
+				return false;
+			}
+
+			Set<Node<M>> visited = Sets.newHashSet();
+			Deque<Node<M>> stack = new ArrayDeque<>();
+			stack.push(source);
+			while (!stack.isEmpty()) {
+				for (Node<M> successor : stack.pop().successors.keySet()) {
+					if (successor == target) {
+						return true;
+					} else if (successor.ord < target.ord && visited.add(successor)) {
+						stack.push(successor);
+					}
+				}
+			}
+			return false;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<M> getTopologicalOrder() {
+		return getModuleRankings().keySet().asList();
+	}
+
+	/**
+	 * The rankings are iterated in the topological order.
+	 */
+	@Override
+	public ImmutableMap<M, Integer> getModuleRankings() {
+		ImmutableMap<M, Integer> result = rankings;
+		if (result == null) {
+			try {
+				lock.writeLock().lock();
+				result = currentRankings();
+			} finally {
+				lock.writeLock().unlock();
+			}
+		}
+		return result;
+	}
+
+	@Override
+	public void walkGraph(ExecutorService executor, IConsumer<M> moduleConsumer) throws ExecutionException {
+		snapshot().walkGraph(executor, moduleConsumer);
+	}
+
+	@Override
+	public void walkGraph(ExecutorService executor, IConsumer<M> moduleConsumer, int parallelism)
+			throws ExecutionException {
+		snapshot().walkGraph(executor, moduleConsumer, parallelism);
+	}
+
+	@Override
+	public WalkResult<M> walkGraph(ExecutorService executor, IConsumer<M> moduleConsumer, WalkOptions<M> options)
+			throws ExecutionException {
+		return snapshot().walkGraph(executor, moduleConsumer, options);
+	}
+
+	@Override
+	public void walkGraph(ForkJoinPool pool, IConsumer<M> moduleConsumer) throws ExecutionException {
+		snapshot().walkGraph(pool, moduleConsumer);
+	}
+
+	@Override
+	public void walkGraph(ThreadFactory threadFactory, IConsumer<M> moduleConsumer, int permits)
+			throws ExecutionException {
+		snapshot().walkGraph(threadFactory, moduleConsumer, permits);
+	}
+
+	@Override
+	public IAsyncWalk<M> walkGraphAsync(Executor executor, IAsyncConsumer<M> moduleConsumer) {
+		return snapshot().walkGraphAsync(executor, moduleConsumer);
+	}
+
+	@Override
+	public void walkAffected(Set<M> changed, ExecutorService executor, IConsumer<M> moduleConsumer, int parallelism)
+			throws ExecutionException {
+		snapshot().walkAffected(changed, executor, moduleConsumer, parallelism);
+	}
+
+	@Override
+	public void walkAffected(Set<M> changed, ForkJoinPool pool, IConsumer<M> moduleConsumer) throws ExecutionException {
+		snapshot().walkAffected(changed, pool, moduleConsumer);
+	}
+
+	@Override
+	public IDependencyGraph<M> subgraphFor(Set<M> roots) {
+		return snapshot().subgraphFor(roots);
+	}
+
+	@Override
+	public void iterateTopoOrder(IConsumer<M> moduleConsumer) throws ExecutionException {
+		snapshot().iterateTopoOrder(moduleConsumer);
+	}
+
+	private static final class Node<M> {
+		private final M module;
+		private final int priority;
+		private final Map<Node<M>, GraphEdge<M>> successors = new LinkedHashMap<>();
+		private final Map<Node<M>, GraphEdge<M>> predecessors = new LinkedHashMap<>();
+		private int ord;
+		private int ranking;
+		private int mark;
+
+		public Node(M module, int priority, int ord) {
+			this.module = module;
+			this.priority = priority;
+			this.ord = ord;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s %d %d", module, ord, ranking);
+		}
+	}
+}
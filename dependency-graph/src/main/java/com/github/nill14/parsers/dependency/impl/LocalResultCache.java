@@ -0,0 +1,184 @@
+package com.github.nill14.parsers.dependency.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.nill14.parsers.dependency.IResultCache;
+
+/**
+ * The module outputs stored as files of a local directory, a file per key.
+ * When the total size exceeds the limit, the least recently used entries are evicted.
+ * The last access is tracked by the file modification time, so the order survives the restarts.
+ *
+ * A single cache instance is supposed to manage the directory.
+ */
+public final class LocalResultCache implements IResultCache {
+
+	private static final Logger log = LoggerFactory.getLogger(LocalResultCache.class);
+
+	private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]+");
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private final File directory;
+	private final long maxBytes;
+
+	private final Lock lock = new ReentrantLock();
+	/**
+	 * The entry sizes in access order, the eldest entry is evicted first
+	 */
+	private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long totalBytes = 0;
+
+	/**
+	 *
+	 * @param directory The cache directory, it does not need to exist
+	 * @param maxBytes The maximum total size of the cached outputs
+	 * @throws IOException when the directory cannot be created
+	 */
+	public LocalResultCache(File directory, long maxBytes) throws IOException {
+		if (maxBytes < 0) {
+			throw new IllegalArgumentException("Negative size: " + maxBytes);
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Cannot create the cache directory " + directory);
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		load();
+	}
+
+	private void load() {
+		File[] files = directory.listFiles();
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File a, File b) {
+				return Long.compare(a.lastModified(), b.lastModified());
+			}
+		});
+
+		try {
+			lock.lock();
+			for (File file : files) {
+				String name = file.getName();
+				if (name.endsWith(TEMP_SUFFIX)) {
+					// an interrupted write
+					file.delete();
+				} else if (KEY_PATTERN.matcher(name).matches()) {
+					entries.put(name, file.length());
+					totalBytes += file.length();
+				}
+			}
+			evict();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public byte[] get(String key) throws IOException {
+		File file = file(key);
+		try {
+			lock.lock();
+			if (entries.get(key) == null) {
+				return null;
+			}
+		} finally {
+			lock.unlock();
+		}
+
+		try {
+			byte[] output = Files.readAllBytes(file.toPath());
+			file.setLastModified(System.currentTimeMillis());
+			return output;
+		} catch (NoSuchFileException e) {
+			// evicted concurrently
+			return null;
+		}
+	}
+
+	@Override
+	public void put(String key, byte[] output) throws IOException {
+		File file = file(key);
+		File tempFile = File.createTempFile("result-", TEMP_SUFFIX, directory);
+		try (OutputStream stream = new FileOutputStream(tempFile)) {
+			stream.write(output);
+		}
+
+		// the file and the index change at once, so a concurrent eviction of the key deletes either both or none
+		try {
+			lock.lock();
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				tempFile.delete();
+				throw e;
+			}
+			Long previous = entries.put(key, (long) output.length);
+			totalBytes += output.length - (previous != null ? previous : 0);
+			evict();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Requires the lock held
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+		while (totalBytes > maxBytes && iterator.hasNext()) {
+			Map.Entry<String, Long> eldest = iterator.next();
+			iterator.remove();
+			totalBytes -= eldest.getValue();
+			if (!new File(directory, eldest.getKey()).delete()) {
+				log.warn("Cannot delete the evicted entry {} in {}", eldest.getKey(), directory);
+			}
+		}
+	}
+
+	private File file(String key) {
+		if (!KEY_PATTERN.matcher(key).matches()) {
+			throw new IllegalArgumentException("Not a hex digest: " + key);
+		}
+		return new File(directory, key);
+	}
+
+	/**
+	 *
+	 * @return The total size of the cached outputs
+	 */
+	public long getTotalBytes() {
+		try {
+			lock.lock();
+			return totalBytes;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public String toString() {
+		try {
+			lock.lock();
+			return String.format("LocalResultCache [directory=%s, entries=%d, bytes=%d]", directory, entries.size(), totalBytes);
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,314 @@
+package com.github.nill14.parsers.dependency.impl;
+
+import java.util.Arrays;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import com.github.nill14.parsers.dependency.IDependencyDescriptor;
+import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.IndexedDirectedGraph;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.github.nill14.parsers.graph.impl.EvaluatedGraphEdge;
+import com.google.common.base.Function;
+
+/**
+ * Builds the graph of modules in parallel.
+ *
+ * Each module is adapted exactly once and its keys are encoded to ints (dictionary encoding).
+ * The modules are then indexed by keys in buckets (providers, required and optional consumers)
+ * and the edges of each key are generated independently into the arrays
+ * the {@link CompactDirectedGraph} is assembled from.
+ *
+ * The modules of a bucket are ordered by the module position and the keys are ordered as in the sequential build,
+ * so the order of edges, i.e. of the neighbours, is the same as of the sequential build.
+ *
+ * @param <K> The keys used to establish connection between modules.
+ * @param <M> The modules
+ */
+final class ParallelGraphBuilder<K, M> {
+
+	/**
+	 * The amount of modules or keys processed sequentially in a single task
+	 */
+	private static final int THRESHOLD = 1024;
+
+	private final ForkJoinPool pool;
+	private final Function<M, ? extends IDependencyDescriptor<K>> adapterFunction;
+	private final Object[] modules;
+	private final int[] priorities;
+	private final int[][] required;
+	private final int[][] optional;
+	private final int[][] provided;
+
+	private final ConcurrentMap<K, Integer> keyIds = new ConcurrentHashMap<>();
+	private final AtomicInteger keyCount = new AtomicInteger();
+
+	public ParallelGraphBuilder(Set<M> modules, Function<M, ? extends IDependencyDescriptor<K>> adapterFunction, ForkJoinPool pool) {
+		this.pool = pool;
+		this.adapterFunction = adapterFunction;
+		this.modules = modules.toArray();
+		int size = this.modules.length;
+		priorities = new int[size];
+		required = new int[size][];
+		optional = new int[size][];
+		provided = new int[size][];
+	}
+
+	/**
+	 * @return A new graph, possibly with cycles
+	 * @throws UnsatisfiedDependencyException when a mandatory dependency is missing
+	 */
+	public CompactDirectedGraph<M, GraphEdge<M>> build() throws UnsatisfiedDependencyException {
+		parallelFor(modules.length, new Body() {
+			@Override
+			public void apply(int i) {
+				@SuppressWarnings("unchecked")
+				M module = (M) modules[i];
+				IDependencyDescriptor<K> descriptor = adapterFunction.apply(module);
+				priorities[i] = descriptor.getExecutionPriority();
+				required[i] = encode(descriptor.getRequiredDependencies());
+				optional[i] = encode(descriptor.getOptionalDependencies());
+				provided[i] = encode(descriptor.getOptionalProviders());
+			}
+		});
+
+		int keys = keyCount.get();
+		final Object[] keyArray = new Object[keys];
+		for (Entry<K, Integer> entry : keyIds.entrySet()) {
+			keyArray[entry.getValue()] = entry.getKey();
+		}
+
+		final Buckets providers = newBuckets(provided, keys);
+		final Buckets consumers = newBuckets(required, keys);
+		final Buckets optionalConsumers = newBuckets(optional, keys);
+
+		final int[] edgeCounts = new int[keys];
+		parallelFor(keys, new Body() {
+			@Override
+			public void apply(int key) {
+				edgeCounts[key] = providers.countEdges(key, consumers) + providers.countEdges(key, optionalConsumers);
+			}
+		});
+
+		// the edges of a key follow the keys in the order of the sequential build
+		final int[] edgeOffsets = new int[keys];
+		long edgeCount = 0;
+		for (int key : orderKeys(keys)) {
+			if (providers.isEmpty(key) && !consumers.isEmpty(key)) {
+				int target = consumers.members[consumers.offsets[key]];
+				throw new UnsatisfiedDependencyException(modules[target], keyArray[key]);
+			}
+			edgeOffsets[key] = (int) edgeCount;
+			edgeCount += edgeCounts[key];
+			if (edgeCount > Integer.MAX_VALUE) {
+				throw new IllegalStateException("Too many edges: " + edgeCount);
+			}
+		}
+
+		final int[] sources = new int[(int) edgeCount];
+		final int[] targets = new int[(int) edgeCount];
+		final Object[] edges = new Object[(int) edgeCount];
+		parallelFor(keys, new Body() {
+			@Override
+			public void apply(int key) {
+				int position = edgeOffsets[key];
+				for (Buckets to : new Buckets[] {consumers, optionalConsumers}) {
+					for (int i = to.offsets[key]; i < to.offsets[key + 1]; i++) {
+						int target = to.members[i];
+						for (int j = providers.offsets[key]; j < providers.offsets[key + 1]; j++) {
+							int source = providers.members[j];
+							if (source == target) {
+								continue; //avoid self dependencies
+							}
+							sources[position] = source;
+							targets[position] = target;
+							edges[position] = EvaluatedGraphEdge.edge(modules[source], modules[target], keyArray[key]);
+							position++;
+						}
+					}
+				}
+			}
+		});
+
+		return CompactDirectedGraph.fromIds(modules, sources, targets, edges);
+	}
+
+	/**
+	 * The required keys by their first consumer, then the remaining optional keys by their first consumer,
+	 * as {@link DependencyGraphFactory#newGraph(Set, Function)} iterates them
+	 * @return The consumed keys
+	 */
+	private int[] orderKeys(int keys) {
+		int[] order = new int[keys];
+		int count = 0;
+		boolean[] seen = new boolean[keys];
+		for (int[][] moduleKeys : new int[][][] {required, optional}) {
+			for (int[] keyIds : moduleKeys) {
+				for (int key : keyIds) {
+					if (!seen[key]) {
+						seen[key] = true;
+						order[count++] = key;
+					}
+				}
+			}
+		}
+		return Arrays.copyOf(order, count);
+	}
+
+	/**
+	 * @param graph The graph created by {@link #build()}
+	 * @return The priorities of descriptors
+	 */
+	public Function<M, Integer> priorityFunction(final IndexedDirectedGraph<M, ?> graph) {
+		return new Function<M, Integer>() {
+			@Override
+			public Integer apply(M module) {
+				int id = graph.indexOf(module);
+				return id >= 0 ? priorities[id] : 0;
+			}
+		};
+	}
+
+	private int[] encode(Set<K> keys) {
+		int[] result = new int[keys.size()];
+		int i = 0;
+		for (K key : keys) {
+			Integer id = keyIds.get(key);
+			if (id == null) {
+				// a lost race leaves an unused id, i.e. an empty bucket
+				Integer newId = keyCount.getAndIncrement();
+				id = keyIds.putIfAbsent(key, newId);
+				if (id == null) {
+					id = newId;
+				}
+			}
+			result[i++] = id;
+		}
+		return result;
+	}
+
+	/**
+	 * Counting sort of the modules by keys, the modules of a key are sorted by the position.
+	 */
+	private Buckets newBuckets(final int[][] moduleKeys, int keys) throws UnsatisfiedDependencyException {
+		final AtomicIntegerArray counts = new AtomicIntegerArray(keys);
+		parallelFor(modules.length, new Body() {
+			@Override
+			public void apply(int i) {
+				for (int key : moduleKeys[i]) {
+					counts.incrementAndGet(key);
+				}
+			}
+		});
+
+		final int[] offsets = new int[keys + 1];
+		for (int key = 0; key < keys; key++) {
+			offsets[key + 1] = offsets[key] + counts.get(key);
+		}
+
+		final AtomicIntegerArray cursors = new AtomicIntegerArray(Arrays.copyOf(offsets, keys));
+		final int[] members = new int[offsets[keys]];
+		parallelFor(modules.length, new Body() {
+			@Override
+			public void apply(int i) {
+				for (int key : moduleKeys[i]) {
+					members[cursors.getAndIncrement(key)] = i;
+				}
+			}
+		});
+		parallelFor(keys, new Body() {
+			@Override
+			public void apply(int key) {
+				Arrays.sort(members, offsets[key], offsets[key + 1]);
+			}
+		});
+		return new Buckets(offsets, members);
+	}
+
+	private void parallelFor(int size, Body body) throws UnsatisfiedDependencyException {
+		try {
+			pool.invoke(new ForLoop(body, 0, size));
+		} catch (RuntimeException e) {
+			// the exception may be re-created by the pool with the original as the cause
+			for (Throwable t = e; t != null; t = t.getCause()) {
+				if (t instanceof UnsatisfiedDependencyException) {
+					throw (UnsatisfiedDependencyException) t;
+				}
+			}
+			throw e;
+		}
+	}
+
+	private static final class Buckets {
+
+		private final int[] offsets;
+		private final int[] members;
+
+		public Buckets(int[] offsets, int[] members) {
+			this.offsets = offsets;
+			this.members = members;
+		}
+
+		public boolean isEmpty(int key) {
+			return offsets[key] == offsets[key + 1];
+		}
+
+		/**
+		 * @return The count of edges from these providers to the consumers, self edges excluded
+		 */
+		public int countEdges(int key, Buckets consumers) {
+			int from = offsets[key];
+			int to = offsets[key + 1];
+			int count = 0;
+			for (int i = consumers.offsets[key]; i < consumers.offsets[key + 1]; i++) {
+				count += to - from;
+				if (Arrays.binarySearch(members, from, to, consumers.members[i]) >= 0) {
+					count--;
+				}
+			}
+			return count;
+		}
+	}
+
+	private interface Body {
+		void apply(int i) throws UnsatisfiedDependencyException;
+	}
+
+	private static final class ForLoop extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Body body;
+		private final int from;
+		private final int to;
+
+		public ForLoop(Body body, int from, int to) {
+			this.body = body;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					try {
+						body.apply(i);
+					} catch (UnsatisfiedDependencyException e) {
+						throw new IllegalStateException(e);
+					}
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new ForLoop(body, from, mid), new ForLoop(body, mid, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,131 @@
+package com.github.nill14.parsers.dependency.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.nill14.parsers.dependency.ICacheableConsumer;
+import com.github.nill14.parsers.dependency.IConsumer;
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.IResultCache;
+import com.google.common.base.Function;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * A processing closure skipping the modules whose output is already cached.
+ * The cache key of a module is the SHA-256 digest of the module fingerprint
+ * combined with the (sorted) pairs of the key and the output digest of its direct dependencies,
+ * so a changed output invalidates all dependants, while an unchanged output stops the invalidation.
+ *
+ * The closure can be used with any walk of the whole graph, e.g.
+ * {@link IDependencyGraph#walkGraph(java.util.concurrent.ForkJoinPool, IConsumer)}.
+ * The outputs of the walked modules are kept in memory for the dependants.
+ *
+ * @param <M> The modules
+ */
+public final class ResultCachingConsumer<M> implements IConsumer<M> {
+
+	private static final Logger log = LoggerFactory.getLogger(ResultCachingConsumer.class);
+
+	private final IDependencyGraph<M> dependencyGraph;
+	private final IResultCache cache;
+	private final ICacheableConsumer<M> consumer;
+
+	private final ConcurrentMap<M, byte[]> outputs = new ConcurrentHashMap<>();
+	private final Function<? super M, String> keyFunction;
+
+	private final ConcurrentMap<M, String> digests = new ConcurrentHashMap<>();
+	private final AtomicInteger hits = new AtomicInteger();
+	private final AtomicInteger misses = new AtomicInteger();
+
+	/**
+	 *
+	 * @param dependencyGraph The walked graph
+	 * @param cache The store of outputs, e.g. {@link LocalResultCache}
+	 * @param consumer The deterministic processing closure
+	 * @param keyFunction The function module -&gt; key identifying the module across the walks, it must be unique
+	 */
+	public ResultCachingConsumer(IDependencyGraph<M> dependencyGraph, IResultCache cache, ICacheableConsumer<M> consumer, 
+			Function<? super M, String> keyFunction) {
+		this.dependencyGraph = dependencyGraph;
+		this.cache = cache;
+		this.consumer = consumer;
+		this.keyFunction = keyFunction;
+	}
+
+	@Override
+	public void process(M module) throws Exception {
+		Map<M, byte[]> dependencyOutputs = new LinkedHashMap<>();
+		List<String> dependencyDigests = new ArrayList<>();
+		for (M dependency : dependencyGraph.getDirectDependencies(module)) {
+			byte[] output = outputs.get(dependency);
+			if (output == null) {
+				throw new IllegalStateException(String.format("The dependency %s of %s was not processed", dependency, module));
+			}
+			dependencyOutputs.put(dependency, output);
+			// the digest is of a fixed length, the pair is not ambiguous
+			dependencyDigests.add(digests.get(dependency) + keyFunction.apply(dependency));
+		}
+		Collections.sort(dependencyDigests);
+
+		String fingerprint = consumer.fingerprint(module);
+		Hasher hasher = Hashing.sha256().newHasher()
+				.putInt(fingerprint.length())
+				.putString(fingerprint, StandardCharsets.UTF_8);
+		for (String digest : dependencyDigests) {
+			hasher.putInt(digest.length()).putString(digest, StandardCharsets.UTF_8);
+		}
+		String key = hasher.hash().toString();
+
+		byte[] output = cache.get(key);
+		if (output != null) {
+			log.debug("Restoring cached output of {}", module);
+			consumer.restore(module, output);
+			hits.incrementAndGet();
+		} else {
+			output = consumer.process(module, Collections.unmodifiableMap(dependencyOutputs));
+			if (output == null) {
+				throw new IllegalStateException("No output of " + module);
+			}
+			cache.put(key, output);
+			misses.incrementAndGet();
+		}
+		digests.put(module, Hashing.sha256().hashBytes(output).toString());
+		outputs.put(module, output);
+	}
+
+	/**
+	 *
+	 * @param module The module
+	 * @return The output of the module, either processed or cached, null when the module was not walked
+	 */
+	public byte[] getOutput(M module) {
+		return outputs.get(module);
+	}
+
+	/**
+	 *
+	 * @return The count of modules restored from the cache
+	 */
+	public int getCacheHits() {
+		return hits.get();
+	}
+
+	/**
+	 *
+	 * @return The count of processed modules
+	 */
+	public int getCacheMisses() {
+		return misses.get();
+	}
+}
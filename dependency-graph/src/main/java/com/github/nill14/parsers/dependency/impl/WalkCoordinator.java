@@ -0,0 +1,414 @@
+package com.github.nill14.parsers.dependency.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.nill14.parsers.dependency.IConsumer;
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.RemoteExecutionException;
+import com.github.nill14.parsers.dependency.WalkOptions;
+import com.github.nill14.parsers.dependency.WalkResult;
+import com.github.nill14.parsers.graph.utils.GraphPartitioner;
+import com.google.common.base.Function;
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Walks a dependency graph by worker processes connected over a local socket.
+ * The coordinator owns the graph and schedules the ready modules
+ * by {@link IDependencyGraph#walkGraph(ExecutorService, IConsumer, WalkOptions)},
+ * so the rankings, the failure policy, the resource limits and the listeners apply as usual.
+ * The workers know the modules only by their keys, see {@link WalkWorker}.
+ *
+ * Each worker announces its amount of slots, a module is dispatched to a worker with a free slot.
+ * The parallelism of the walk is capped by the total amount of slots.
+ * The graph is partitioned by {@link GraphPartitioner}, a module is preferably dispatched
+ * to the worker owning its partition, so the related modules stay local.
+ * The modules dispatched to a worker at once are sent in a single batch,
+ * the completions are reported in batches as well.
+ *
+ * A module of a disconnected worker fails with an {@link IOException},
+ * a module failed in a worker fails with a {@link RemoteExecutionException}.
+ *
+ * @param <M> The modules
+ */
+public final class WalkCoordinator<M> {
+
+	private static final Logger log = LoggerFactory.getLogger(WalkCoordinator.class);
+
+	private final IDependencyGraph<M> dependencyGraph;
+	private final Function<? super M, String> keyFunction;
+	private final ConcurrentMap<M, Integer> assignments = new ConcurrentHashMap<>();
+	private volatile Map<M, Integer> partitions = ImmutableMap.of();
+
+	/**
+	 *
+	 * @param dependencyGraph The walked graph
+	 * @param keyFunction The function module -&gt; key identifying the module in the workers, it must be unique
+	 */
+	public WalkCoordinator(IDependencyGraph<M> dependencyGraph, Function<? super M, String> keyFunction) {
+		this.dependencyGraph = dependencyGraph;
+		this.keyFunction = keyFunction;
+
+		Map<String, M> keys = new HashMap<>();
+		for (M module : dependencyGraph.getModules()) {
+			M previous = keys.put(keyFunction.apply(module), module);
+			if (previous != null) {
+				throw new IllegalArgumentException(String.format("Modules %s and %s have the same key", previous, module));
+			}
+		}
+	}
+
+	/**
+	 * Accepts the workers, walks the graph and ends the workers.
+	 * The walk starts when all the workers are connected,
+	 * the accept timeout is given by {@link ServerSocket#setSoTimeout(int)}.
+	 *
+	 * @param serverSocket The socket the workers connect to, it is not closed
+	 * @param workerCount The amount of workers
+	 * @param options The walk options
+	 * @return The completed, failed and skipped modules
+	 * @throws IOException when a worker cannot be accepted
+	 * @throws ExecutionException when any execution has failed with {@link WalkOptions.FailurePolicy#FAIL_FAST}
+	 */
+	public WalkResult<M> walk(ServerSocket serverSocket, int workerCount, WalkOptions<M> options) throws IOException, ExecutionException {
+		if (workerCount < 1) {
+			throw new IllegalArgumentException("Worker count must be positive: " + workerCount);
+		}
+
+		assignments.clear();
+		partitions = new GraphPartitioner<>(dependencyGraph.getGraph(), dependencyGraph.getTopologicalOrder()).partition(workerCount);
+
+		Dispatcher dispatcher = new Dispatcher();
+		List<Connection> connections = dispatcher.connections;
+		ExecutorService executor = null;
+		try {
+			int slots = 0;
+			for (int i = 0; i < workerCount; i++) {
+				Connection connection = new Connection(dispatcher, i, serverSocket.accept());
+				connections.add(connection);
+				slots += connection.slots;
+			}
+			for (Connection connection : connections) {
+				connection.start();
+			}
+			log.info("Walking {} modules by {} workers with {} slots", dependencyGraph.getModules().size(), workerCount, slots);
+
+			// the threads are blocked while the modules are executed remotely
+			executor = Executors.newFixedThreadPool(slots);
+			return dependencyGraph.walkGraph(executor, dispatcher, 
+					options.withParallelism(Math.min(options.getParallelism(), slots)));
+		} finally {
+			for (Connection connection : connections) {
+				connection.end();
+			}
+			if (executor != null) {
+				executor.shutdown();
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return The partition of each module in the last walk
+	 */
+	public Map<M, Integer> getPartitions() {
+		return partitions;
+	}
+
+	/**
+	 *
+	 * @return The worker executing each module in the last walk
+	 */
+	public Map<M, Integer> getAssignments() {
+		return ImmutableMap.copyOf(assignments);
+	}
+
+	/**
+	 * @return The ratio of modules executed by the worker owning their partition in the last walk
+	 */
+	public double getLocality() {
+		Map<M, Integer> partitions = this.partitions;
+		int local = 0;
+		int total = 0;
+		for (Map.Entry<M, Integer> entry : assignments.entrySet()) {
+			total++;
+			if (entry.getValue().equals(partitions.get(entry.getKey()))) {
+				local++;
+			}
+		}
+		return total > 0 ? local / (double) total : 0;
+	}
+
+	private final class Dispatcher implements IConsumer<M> {
+
+		private final List<Connection> connections = new ArrayList<>();
+		private final Lock lock = new ReentrantLock();
+		private final Condition slotCondition = lock.newCondition();
+
+		@Override
+		public void process(M module) throws Exception {
+			String key = keyFunction.apply(module);
+			Connection connection = acquireSlot(partitions.get(module));
+			assignments.put(module, connection.index);
+			try {
+				SettableFuture<Void> future = SettableFuture.create();
+				connection.pending.put(key, future);
+				connection.run(key);
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					throw (Exception) e.getCause();
+				}
+			} finally {
+				releaseSlot(connection);
+			}
+		}
+
+		/**
+		 * The owner of the partition is preferred, otherwise the worker of most free slots
+		 */
+		private Connection acquireSlot(int partition) throws IOException, InterruptedException {
+			try {
+				lock.lock();
+				while (true) {
+					Connection owner = connections.get(partition);
+					Connection selected = null;
+					boolean alive = false;
+					if (owner.alive && owner.credit > 0) {
+						selected = owner;
+					} else {
+						for (Connection connection : connections) {
+							alive |= connection.alive;
+							if (connection.alive && connection.credit > 0 
+									&& (selected == null || connection.credit > selected.credit)) {
+								selected = connection;
+							}
+						}
+					}
+					if (selected != null) {
+						selected.credit--;
+						return selected;
+					}
+					if (!alive) {
+						throw new IOException("No worker is connected");
+					}
+					slotCondition.await();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void releaseSlot(Connection connection) {
+			try {
+				lock.lock();
+				connection.credit++;
+				slotCondition.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void disconnected(Connection connection) {
+			try {
+				lock.lock();
+				connection.alive = false;
+				slotCondition.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	private final class Connection {
+
+		private final Dispatcher dispatcher;
+		private final int index;
+		private final Socket socket;
+		private final DataInputStream in;
+		private final DataOutputStream out;
+		private final int slots;
+		private final ConcurrentMap<String, SettableFuture<Void>> pending = new ConcurrentHashMap<>();
+		/**
+		 * The keys to be sent, absent ends the worker
+		 */
+		private final BlockingQueue<Optional<String>> outgoing = new LinkedBlockingQueue<>();
+		/**
+		 * Guarded by the dispatcher lock
+		 */
+		private int credit;
+		private volatile boolean alive = true;
+		private boolean started = false;
+
+		public Connection(Dispatcher dispatcher, int index, Socket socket) throws IOException {
+			this.dispatcher = dispatcher;
+			this.index = index;
+			this.socket = socket;
+			socket.setTcpNoDelay(true);
+			in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+			if (in.readByte() != WalkProtocol.HELLO) {
+				socket.close();
+				throw new IOException("Unexpected worker message");
+			}
+			slots = in.readInt();
+			if (slots < 1) {
+				socket.close();
+				throw new IOException("Invalid worker slots: " + slots);
+			}
+			credit = slots;
+		}
+
+		public void start() {
+			Thread reader = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					read();
+				}
+			}, "walk-coordinator-reader-" + index);
+			Thread sender = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					send();
+				}
+			}, "walk-coordinator-sender-" + index);
+			reader.setDaemon(true);
+			sender.setDaemon(true);
+			reader.start();
+			sender.start();
+			started = true;
+		}
+
+		/**
+		 * The module fails when the worker is disconnected
+		 * @param key The pending module
+		 */
+		public void run(String key) {
+			outgoing.add(Optional.of(key));
+			if (!alive) {
+				fail(key, new IOException("Worker " + index + " is disconnected"));
+			}
+		}
+
+		public void end() {
+			if (started) {
+				outgoing.add(Optional.<String>absent());
+			} else {
+				close();
+			}
+		}
+
+		private void send() {
+			try {
+				List<Optional<String>> batch = new ArrayList<>();
+				while (true) {
+					batch.add(outgoing.take());
+					outgoing.drainTo(batch);
+
+					List<String> keys = new ArrayList<>(batch.size());
+					boolean end = false;
+					for (Optional<String> key : batch) {
+						if (key.isPresent()) {
+							keys.add(key.get());
+						} else {
+							end = true;
+						}
+					}
+					batch.clear();
+					if (!keys.isEmpty()) {
+						WalkProtocol.writeKeys(out, WalkProtocol.RUN, keys);
+					}
+					if (end) {
+						out.writeByte(WalkProtocol.END);
+						out.flush();
+						return;
+					}
+					out.flush();
+				}
+			} catch (IOException | InterruptedException e) {
+				if (alive) {
+					log.warn("Cannot send to worker {}", index, e);
+				}
+				disconnect();
+			}
+		}
+
+		private void read() {
+			try {
+				while (true) {
+					byte type = in.readByte();
+					if (type == WalkProtocol.DONE) {
+						for (String key : WalkProtocol.readKeys(in)) {
+							SettableFuture<Void> future = pending.remove(key);
+							if (future != null) {
+								future.set(null);
+							}
+						}
+					} else if (type == WalkProtocol.FAILED) {
+						String key = in.readUTF();
+						fail(key, new RemoteExecutionException(key, index, in.readUTF()));
+					} else {
+						throw new IOException("Unexpected worker message: " + type);
+					}
+				}
+			} catch (EOFException e) {
+				// the worker has closed the connection
+				disconnect();
+			} catch (IOException e) {
+				if (alive) {
+					log.warn("Cannot read from worker {}", index, e);
+				}
+				disconnect();
+			}
+		}
+
+		private void fail(String key, Exception e) {
+			SettableFuture<Void> future = pending.remove(key);
+			if (future != null) {
+				future.setException(e);
+			}
+		}
+
+		private void disconnect() {
+			dispatcher.disconnected(this);
+			for (String key : pending.keySet()) {
+				fail(key, new IOException("Worker " + index + " is disconnected"));
+			}
+			close();
+		}
+
+		private void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				log.debug("Cannot close the worker socket", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,648 @@
+package com.github.nill14.parsers.dependency.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+
+import com.github.nill14.parsers.dependency.IWalkListener;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Collects the scheduling events of a walk: the timestamps of each module,
+ * the histograms of waiting and execution times, the ready queue depth over time
+ * and the utilization of the workers.
+ *
+ * An instance observes a single walk at a time,
+ * {@link #walkStarted(int, int, long)} discards the metrics of the previous walk.
+ *
+ * The samples of the queue depth are bounded by the sample capacity,
+ * when it is reached every other sample is dropped and the later events are sampled half as often.
+ * The average queue depth is accumulated over all events, it does not depend on the samples.
+ *
+ * @param <M> The modules
+ */
+public final class WalkMetrics<M> implements IWalkListener<M> {
+
+	private static final int DEFAULT_SAMPLE_CAPACITY = 1024;
+
+	private final int sampleCapacity;
+	private final Lock lock = new ReentrantLock();
+	private volatile ConcurrentMap<M, ModuleTiming> timings = new ConcurrentHashMap<>();
+	private volatile Histogram waitTimes = new Histogram();
+	private volatile Histogram executionTimes = new Histogram();
+	private final List<Sample> samples = new ArrayList<>();
+	/**
+	 * Every n-th event is sampled
+	 */
+	private int sampleStride = 1;
+	private long eventCount = 0;
+	private boolean lastEventSampled = true;
+	private int parallelism = 1;
+	private long startNanos = 0;
+	private long finishNanos = -1;
+	private long lastEventNanos = 0;
+	/**
+	 * The integral of the ready queue depth over time until the last event
+	 */
+	private double readyDepthArea = 0;
+	private int readyDepth = 0;
+	private int running = 0;
+	private int maxReadyDepth = 0;
+
+	public WalkMetrics() {
+		this(DEFAULT_SAMPLE_CAPACITY);
+	}
+
+	/**
+	 * @param sampleCapacity The maximum amount of kept samples, at least 2
+	 */
+	public WalkMetrics(int sampleCapacity) {
+		if (sampleCapacity < 2) {
+			throw new IllegalArgumentException("Sample capacity must be at least 2: " + sampleCapacity);
+		}
+		this.sampleCapacity = sampleCapacity;
+	}
+
+	@Override
+	public void walkStarted(int moduleCount, int parallelism, long nanoTime) {
+		try {
+			lock.lock();
+			this.timings = new ConcurrentHashMap<>(moduleCount);
+			this.waitTimes = new Histogram();
+			this.executionTimes = new Histogram();
+			this.samples.clear();
+			this.sampleStride = 1;
+			this.eventCount = 0;
+			this.lastEventSampled = true;
+			this.parallelism = parallelism;
+			this.startNanos = nanoTime;
+			this.finishNanos = -1;
+			this.lastEventNanos = nanoTime;
+			this.readyDepthArea = 0;
+			this.readyDepth = 0;
+			this.running = 0;
+			this.maxReadyDepth = 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void ready(M module, long nanoTime) {
+		timings.put(module, new ModuleTiming(nanoTime));
+		try {
+			lock.lock();
+			advance(nanoTime);
+			readyDepth++;
+			maxReadyDepth = Math.max(maxReadyDepth, readyDepth);
+			sample(nanoTime);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void started(M module, long nanoTime) {
+		ModuleTiming timing = timing(module, nanoTime);
+		timing.startedNanos = nanoTime;
+		timing.threadName = Thread.currentThread().getName();
+		waitTimes.record(timing.getWaitNanos());
+		try {
+			lock.lock();
+			advance(nanoTime);
+			readyDepth--;
+			running++;
+			sample(nanoTime);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void completed(M module, long nanoTime) {
+		finished(module, nanoTime, false);
+	}
+
+	@Override
+	public void failed(M module, Exception exception, long nanoTime) {
+		finished(module, nanoTime, true);
+	}
+
+	@Override
+	public void walkFinished(long nanoTime) {
+		try {
+			lock.lock();
+			finishNanos = nanoTime;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private ModuleTiming timing(M module, long nanoTime) {
+		ModuleTiming timing = timings.get(module);
+		if (timing == null) {
+			// not expected, the walker reports each module ready first
+			timing = new ModuleTiming(nanoTime);
+			ModuleTiming previous = timings.putIfAbsent(module, timing);
+			if (previous != null) {
+				timing = previous;
+			}
+		}
+		return timing;
+	}
+
+	private void finished(M module, long nanoTime, boolean failed) {
+		ModuleTiming timing = timing(module, nanoTime);
+		boolean wasStarted = timing.isStarted();
+		if (!wasStarted) {
+			// the module could not be submitted
+			timing.startedNanos = nanoTime;
+		}
+		timing.finishedNanos = nanoTime;
+		timing.failed = failed;
+		executionTimes.record(timing.getExecutionNanos());
+		try {
+			lock.lock();
+			advance(nanoTime);
+			if (wasStarted) {
+				running--;
+			} else {
+				readyDepth--;
+			}
+			sample(nanoTime);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Requires the lock held, invoked before the queue depth is changed.
+	 * The timestamps are taken outside of the lock, so they may come slightly out of order.
+	 */
+	private void advance(long nanoTime) {
+		if (nanoTime > lastEventNanos) {
+			readyDepthArea += readyDepth * (double) (nanoTime - lastEventNanos);
+			lastEventNanos = nanoTime;
+		}
+	}
+
+	/**
+	 * Requires the lock held
+	 */
+	private void sample(long nanoTime) {
+		lastEventSampled = eventCount++ % sampleStride == 0;
+		if (lastEventSampled) {
+			samples.add(new Sample(nanoTime - startNanos, readyDepth, running));
+			if (samples.size() == sampleCapacity) {
+				downsample();
+			}
+		}
+	}
+
+	/**
+	 * Requires the lock held.
+	 * Keeps the samples of the events divisible by the doubled stride.
+	 */
+	private void downsample() {
+		int size = 0;
+		for (int i = 0; i < samples.size(); i += 2) {
+			samples.set(size++, samples.get(i));
+		}
+		samples.subList(size, samples.size()).clear();
+		sampleStride *= 2;
+	}
+
+	/**
+	 *
+	 * @return The timings of the modules in the order of start
+	 */
+	public Map<M, ModuleTiming> getTimings() {
+		List<Map.Entry<M, ModuleTiming>> entries = new ArrayList<>(timings.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<M, ModuleTiming>>() {
+			@Override
+			public int compare(Map.Entry<M, ModuleTiming> o1, Map.Entry<M, ModuleTiming> o2) {
+				return Long.compare(o1.getValue().startOrReadyNanos(), o2.getValue().startOrReadyNanos());
+			}
+		});
+		ImmutableMap.Builder<M, ModuleTiming> builder = ImmutableMap.builder();
+		for (Map.Entry<M, ModuleTiming> entry : entries) {
+			builder.put(entry);
+		}
+		return builder.build();
+	}
+
+	/**
+	 *
+	 * @return The histogram of times spent in the ready queue
+	 */
+	public Histogram getWaitTimes() {
+		return waitTimes;
+	}
+
+	/**
+	 *
+	 * @return The histogram of execution times
+	 */
+	public Histogram getExecutionTimes() {
+		return executionTimes;
+	}
+
+	/**
+	 *
+	 * @return The ready queue depth and the count of running modules after the sampled events,
+	 * the last event is always included
+	 */
+	public List<Sample> getSamples() {
+		try {
+			lock.lock();
+			if (lastEventSampled) {
+				return ImmutableList.copyOf(samples);
+			}
+			return ImmutableList.<Sample>builder()
+					.addAll(samples)
+					.add(new Sample(lastEventNanos - startNanos, readyDepth, running))
+					.build();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * @return The maximum amount of modules waiting for a permit
+	 */
+	public int getMaxReadyDepth() {
+		try {
+			lock.lock();
+			return maxReadyDepth;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * @return The time-weighted average amount of modules waiting for a permit
+	 */
+	public double getAverageReadyDepth() {
+		try {
+			lock.lock();
+			long makespan = makespanNanos();
+			if (makespan <= 0) {
+				return 0;
+			}
+			long end = startNanos + makespan;
+			double area = readyDepthArea + readyDepth * (double) Math.max(0, end - lastEventNanos);
+			return area / makespan;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * @return The maximum amount of concurrently scheduled modules of the walk
+	 */
+	public int getParallelism() {
+		try {
+			lock.lock();
+			return parallelism;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * @return The timestamp of the walk start given by {@link System#nanoTime()}
+	 */
+	public long getStartNanos() {
+		try {
+			lock.lock();
+			return startNanos;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * @return The duration of the walk so far, in nanoseconds
+	 */
+	public long getMakespanNanos() {
+		try {
+			lock.lock();
+			return makespanNanos();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Requires the lock held
+	 */
+	private long makespanNanos() {
+		return (finishNanos >= 0 ? finishNanos : System.nanoTime()) - startNanos;
+	}
+
+	/**
+	 * The utilization is the total execution time divided by the capacity (parallelism * makespan).
+	 * A low utilization with a deep ready queue means that the parallelism is too low
+	 * or that the executor is saturated by other tasks.
+	 *
+	 * @return The utilization of the permits in range 0..1
+	 */
+	public double getUtilization() {
+		long busyNanos = executionTimes.getTotalNanos();
+		try {
+			lock.lock();
+			long makespan = makespanNanos();
+			return makespan > 0 ? Math.min(1.0, busyNanos / ((double) parallelism * makespan)) : 0;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 *
+	 * @param limit The maximum amount of modules
+	 * @return The finished modules of the longest execution times, the longest first
+	 */
+	public List<M> getSlowestModules(int limit) {
+		return sortedModules(limit, new Comparator<ModuleTiming>() {
+			@Override
+			public int compare(ModuleTiming o1, ModuleTiming o2) {
+				return Long.compare(o2.getExecutionNanos(), o1.getExecutionNanos());
+			}
+		});
+	}
+
+	/**
+	 *
+	 * @param limit The maximum amount of modules
+	 * @return The started modules of the longest times spent in the ready queue, the longest first
+	 */
+	public List<M> getLongestWaitingModules(int limit) {
+		return sortedModules(limit, new Comparator<ModuleTiming>() {
+			@Override
+			public int compare(ModuleTiming o1, ModuleTiming o2) {
+				return Long.compare(o2.getWaitNanos(), o1.getWaitNanos());
+			}
+		});
+	}
+
+	private List<M> sortedModules(int limit, final Comparator<ModuleTiming> comparator) {
+		List<Map.Entry<M, ModuleTiming>> entries = new ArrayList<>();
+		for (Map.Entry<M, ModuleTiming> entry : timings.entrySet()) {
+			if (entry.getValue().isFinished()) {
+				entries.add(entry);
+			}
+		}
+		Collections.sort(entries, new Comparator<Map.Entry<M, ModuleTiming>>() {
+			@Override
+			public int compare(Map.Entry<M, ModuleTiming> o1, Map.Entry<M, ModuleTiming> o2) {
+				return comparator.compare(o1.getValue(), o2.getValue());
+			}
+		});
+		List<M> result = new ArrayList<>();
+		for (Map.Entry<M, ModuleTiming> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+			result.add(entry.getKey());
+		}
+		return result;
+	}
+
+	/**
+	 * Outputs a summary of the walk to {@link Logger#info(String)}
+	 * @param log The logger
+	 */
+	public void toInfoLog(Logger log) {
+		if (log.isInfoEnabled()) {
+			log.info("Walk of {} modules in {} ms, utilization {}%",
+					timings.size(), TimeUnit.NANOSECONDS.toMillis(getMakespanNanos()), Math.round(getUtilization() * 100));
+			log.info("Ready queue depth max {}, average {}", getMaxReadyDepth(), String.format("%.2f", getAverageReadyDepth()));
+			log.info("Wait times {}", waitTimes);
+			log.info("Execution times {}", executionTimes);
+			Map<M, ModuleTiming> timings = this.timings;
+			for (M module : getSlowestModules(10)) {
+				log.info("Slow module {}: {}", module, timings.get(module));
+			}
+		}
+	}
+
+	/**
+	 * The timestamps of a module given by {@link System#nanoTime()}, -1 when not reached yet
+	 */
+	public static final class ModuleTiming {
+
+		private final long readyNanos;
+		private volatile long startedNanos = -1;
+		private volatile long finishedNanos = -1;
+		private volatile boolean failed = false;
+		private volatile String threadName;
+
+		private ModuleTiming(long readyNanos) {
+			this.readyNanos = readyNanos;
+		}
+
+		public long getReadyNanos() {
+			return readyNanos;
+		}
+
+		public long getStartedNanos() {
+			return startedNanos;
+		}
+
+		public long getFinishedNanos() {
+			return finishedNanos;
+		}
+
+		public boolean isStarted() {
+			return startedNanos >= 0;
+		}
+
+		public boolean isFinished() {
+			return finishedNanos >= 0;
+		}
+
+		/**
+		 *
+		 * @return whether the module has failed
+		 */
+		public boolean isFailed() {
+			return failed;
+		}
+
+		/**
+		 *
+		 * @return The name of the thread executing the module or null when not started
+		 */
+		public String getThreadName() {
+			return threadName;
+		}
+
+		/**
+		 *
+		 * @return The time spent in the ready queue or 0 when not started
+		 */
+		public long getWaitNanos() {
+			long started = startedNanos;
+			return started >= 0 ? started - readyNanos : 0;
+		}
+
+		/**
+		 *
+		 * @return The execution time or 0 when not finished
+		 */
+		public long getExecutionNanos() {
+			long started = startedNanos;
+			long finished = finishedNanos;
+			return started >= 0 && finished >= 0 ? finished - started : 0;
+		}
+
+		private long startOrReadyNanos() {
+			long started = startedNanos;
+			return started >= 0 ? started : readyNanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("ModuleTiming [wait=%d us, execution=%d us, thread=%s%s]",
+					TimeUnit.NANOSECONDS.toMicros(getWaitNanos()), TimeUnit.NANOSECONDS.toMicros(getExecutionNanos()),
+					threadName, failed ? ", failed" : "");
+		}
+	}
+
+	/**
+	 * The ready queue depth and the count of running modules at a time since the walk started
+	 */
+	public static final class Sample {
+
+		private final long offsetNanos;
+		private final int readyDepth;
+		private final int running;
+
+		private Sample(long offsetNanos, int readyDepth, int running) {
+			this.offsetNanos = offsetNanos;
+			this.readyDepth = readyDepth;
+			this.running = running;
+		}
+
+		public long getOffsetNanos() {
+			return offsetNanos;
+		}
+
+		public int getReadyDepth() {
+			return readyDepth;
+		}
+
+		public int getRunning() {
+			return running;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Sample [offset=%d us, ready=%d, running=%d]",
+					TimeUnit.NANOSECONDS.toMicros(offsetNanos), readyDepth, running);
+		}
+	}
+
+	/**
+	 * A lock-free histogram of durations with logarithmic buckets,
+	 * the bucket i counts the durations of [2^(i-1), 2^i) microseconds.
+	 * The percentiles are approximated by the upper bounds of the buckets.
+	 */
+	public static final class Histogram {
+
+		private static final int BUCKETS = 40;
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+
+		private Histogram() {
+		}
+
+		void record(long nanos) {
+			long micros = TimeUnit.NANOSECONDS.toMicros(Math.max(0, nanos));
+			int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+			buckets.incrementAndGet(bucket);
+			count.incrementAndGet();
+			totalNanos.addAndGet(nanos);
+
+			long max;
+			do {
+				max = maxNanos.get();
+			} while (nanos > max && !maxNanos.compareAndSet(max, nanos));
+		}
+
+		public long getCount() {
+			return count.get();
+		}
+
+		public long getTotalNanos() {
+			return totalNanos.get();
+		}
+
+		public long getMaxNanos() {
+			return maxNanos.get();
+		}
+
+		public long getMeanNanos() {
+			long count = getCount();
+			return count > 0 ? getTotalNanos() / count : 0;
+		}
+
+		/**
+		 *
+		 * @param percentile The percentile in range (0..100]
+		 * @return The upper bound of the bucket containing the percentile, in microseconds
+		 */
+		public long getPercentileMicros(double percentile) {
+			if (percentile <= 0 || percentile > 100) {
+				throw new IllegalArgumentException("Percentile not in range (0..100]: " + percentile);
+			}
+			long threshold = (long) Math.ceil(getCount() * percentile / 100);
+			long cumulative = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				cumulative += buckets.get(i);
+				if (cumulative >= threshold && cumulative > 0) {
+					return 1L << i;
+				}
+			}
+			return 0;
+		}
+
+		/**
+		 *
+		 * @return The counts of the buckets
+		 */
+		public long[] getBuckets() {
+			long[] result = new long[BUCKETS];
+			for (int i = 0; i < BUCKETS; i++) {
+				result[i] = buckets.get(i);
+			}
+			return result;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("Histogram [count=%d, mean=%d us, p50<%d us, p90<%d us, p99<%d us, max=%d us]",
+					getCount(), TimeUnit.NANOSECONDS.toMicros(getMeanNanos()),
+					getPercentileMicros(50), getPercentileMicros(90), getPercentileMicros(99),
+					TimeUnit.NANOSECONDS.toMicros(getMaxNanos()));
+		}
+	}
+}
@@ -0,0 +1,60 @@
+package com.github.nill14.parsers.dependency.impl;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The messages between {@link WalkCoordinator} and {@link WalkWorker}.
+ * Each message starts with a type byte, the module keys are written by {@link DataOutputStream#writeUTF(String)}.
+ * The failure messages are truncated to fit the limit of the encoded length.
+ *
+ * <pre>
+ * worker -&gt; coordinator: HELLO slots | DONE count key* | FAILED key failure
+ * coordinator -&gt; worker: RUN count key* | END
+ * </pre>
+ */
+final class WalkProtocol {
+
+	static final byte HELLO = 1;
+	static final byte RUN = 2;
+	static final byte DONE = 3;
+	static final byte FAILED = 4;
+	static final byte END = 5;
+
+	/**
+	 * A char takes at most 3 bytes, the encoded length of writeUTF is limited by 65535 bytes
+	 */
+	private static final int MAX_FAILURE_LENGTH = 65535 / 3;
+
+	private WalkProtocol() {
+	}
+
+	static void writeKeys(DataOutputStream out, byte type, List<String> keys) throws IOException {
+		out.writeByte(type);
+		out.writeInt(keys.size());
+		for (String key : keys) {
+			out.writeUTF(key);
+		}
+	}
+
+	static void writeFailure(DataOutputStream out, String key, String failure) throws IOException {
+		out.writeByte(FAILED);
+		out.writeUTF(key);
+		out.writeUTF(failure.length() > MAX_FAILURE_LENGTH ? failure.substring(0, MAX_FAILURE_LENGTH) : failure);
+	}
+
+	static List<String> readKeys(DataInputStream in) throws IOException {
+		int count = in.readInt();
+		if (count < 0) {
+			throw new IOException("Invalid key count: " + count);
+		}
+		List<String> keys = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			keys.add(in.readUTF());
+		}
+		return keys;
+	}
+}
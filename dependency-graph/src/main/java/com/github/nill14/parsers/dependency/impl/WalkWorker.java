@@ -0,0 +1,195 @@
+package com.github.nill14.parsers.dependency.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.nill14.parsers.dependency.IConsumer;
+
+/**
+ * Processes the modules dispatched by a {@link WalkCoordinator}, typically in another process.
+ * The modules are identified by the keys of the coordinator.
+ * The worker executes at most parallelism modules at once, the completions are reported in batches.
+ * When the completions cannot be reported the connection is closed,
+ * so the coordinator fails the pending modules instead of waiting for them.
+ */
+public final class WalkWorker {
+
+	private static final Logger log = LoggerFactory.getLogger(WalkWorker.class);
+
+	private final IConsumer<String> consumer;
+	private final int parallelism;
+
+	/**
+	 *
+	 * @param consumer a processing closure of module keys
+	 * @param parallelism The amount of concurrently executed modules
+	 */
+	public WalkWorker(IConsumer<String> consumer, int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive: " + parallelism);
+		}
+		this.consumer = consumer;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Connects to the coordinator and processes the modules until the walk ends.
+	 *
+	 * @param coordinator The address of the coordinator
+	 * @return The amount of processed modules
+	 * @throws IOException when the connection fails
+	 * @throws InterruptedException when interrupted while waiting for the executed modules
+	 */
+	public int run(SocketAddress coordinator) throws IOException, InterruptedException {
+		try (Socket socket = new Socket()) {
+			socket.setTcpNoDelay(true);
+			socket.connect(coordinator);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeByte(WalkProtocol.HELLO);
+			out.writeInt(parallelism);
+			out.flush();
+
+			final Walk walk = new Walk(socket, out);
+			Thread sender = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					walk.send();
+				}
+			}, "walk-worker-sender");
+			sender.setDaemon(true);
+			sender.start();
+
+			try {
+				while (true) {
+					byte type = in.readByte();
+					if (type == WalkProtocol.RUN) {
+						for (String key : WalkProtocol.readKeys(in)) {
+							walk.execute(key);
+						}
+					} else if (type == WalkProtocol.END) {
+						break;
+					} else {
+						throw new IOException("Unexpected coordinator message: " + type);
+					}
+				}
+			} finally {
+				walk.finish();
+			}
+			sender.join();
+			return walk.processed.get();
+		}
+	}
+
+	private final class Walk {
+
+		private final Socket socket;
+		private final DataOutputStream out;
+		private final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+		/**
+		 * The completed keys and failures, {@link Completion#END} ends the sender
+		 */
+		private final BlockingQueue<Completion> completions = new LinkedBlockingQueue<>();
+		private final AtomicInteger processed = new AtomicInteger();
+
+		public Walk(Socket socket, DataOutputStream out) {
+			this.socket = socket;
+			this.out = out;
+		}
+
+		public void execute(final String key) {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						consumer.process(key);
+						completions.add(new Completion(key, null));
+					} catch (Exception e) {
+						completions.add(new Completion(key, e.toString()));
+					} catch (Error e) {
+						// the coordinator waits for each module to be reported
+						completions.add(new Completion(key, e.toString()));
+						throw e;
+					} finally {
+						processed.incrementAndGet();
+					}
+				}
+			});
+		}
+
+		public void finish() throws InterruptedException {
+			executor.shutdown();
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			completions.add(Completion.END);
+		}
+
+		private void send() {
+			try {
+				List<Completion> batch = new ArrayList<>();
+				while (true) {
+					batch.add(completions.take());
+					completions.drainTo(batch);
+
+					List<String> keys = new ArrayList<>(batch.size());
+					boolean end = false;
+					for (Completion completion : batch) {
+						if (completion == Completion.END) {
+							end = true;
+						} else if (completion.failure == null) {
+							keys.add(completion.key);
+						} else {
+							WalkProtocol.writeFailure(out, completion.key, completion.failure);
+						}
+					}
+					batch.clear();
+					if (!keys.isEmpty()) {
+						WalkProtocol.writeKeys(out, WalkProtocol.DONE, keys);
+					}
+					out.flush();
+					if (end) {
+						return;
+					}
+				}
+			} catch (IOException | InterruptedException e) {
+				log.warn("Cannot report to the coordinator", e);
+				try {
+					socket.close();
+				} catch (IOException closeException) {
+					log.debug("Cannot close the coordinator socket", closeException);
+				}
+			}
+		}
+	}
+
+	private static final class Completion {
+
+		private static final Completion END = new Completion(null, null);
+
+		private final String key;
+		/**
+		 * null when completed successfully
+		 */
+		private final String failure;
+
+		public Completion(String key, String failure) {
+			this.key = key;
+			this.failure = failure;
+		}
+	}
+}
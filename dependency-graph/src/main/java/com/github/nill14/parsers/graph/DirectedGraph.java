@@ -22,8 +22,8 @@ public interface DirectedGraph<V, E extends GraphEdge<V>> {
   <X> Set<X> predecessors(V vertex, Function<V, X> transform);
   
   /**
-   * @param excluded A (possibly mutable) set 
-   * @return a view of the graph
+   * @param excluded The excluded vertices, read once: later changes of the set are not reflected
+   * @return the graph without the excluded vertices and their edges
    */
   DirectedGraph<V, E> withoutExcluded(Set<V> excluded);
   
@@ -0,0 +1,70 @@
+package com.github.nill14.parsers.graph;
+
+/**
+ * A directed graph where each vertex is assigned a dense int id (0..vertexCount-1).
+ * The int accessors allow graph algorithms to work with primitive arrays
+ * instead of hashing the vertex objects.
+ *
+ * @param <V> Vertex
+ * @param <E> Edge
+ */
+public interface IndexedDirectedGraph<V, E extends GraphEdge<V>> extends DirectedGraph<V, E> {
+
+	/**
+	 * @return The count of graph vertices
+	 */
+	int vertexCount();
+
+	/**
+	 * @param vertex The vertex
+	 * @return the vertex id or -1 when the vertex is not part of the graph
+	 */
+	int indexOf(V vertex);
+
+	/**
+	 * @param id The vertex id
+	 * @return the vertex
+	 */
+	V vertex(int id);
+
+	/**
+	 * @param id The vertex id
+	 * @return a new array of successor ids
+	 */
+	int[] successorIds(int id);
+
+	/**
+	 * @param id The vertex id
+	 * @return a new array of predecessor ids
+	 */
+	int[] predecessorIds(int id);
+
+	/**
+	 * @param id The vertex id
+	 * @return the count of successors
+	 */
+	int successorCount(int id);
+
+	/**
+	 * @param id The vertex id
+	 * @return the count of predecessors
+	 */
+	int predecessorCount(int id);
+
+	/**
+	 * Allocation-free alternative to {@link #successorIds(int)}
+	 * @param id The vertex id
+	 * @param index The index in range 0..successorCount(id)-1
+	 * @return the successor id
+	 */
+	int successorId(int id, int index);
+
+	/**
+	 * Allocation-free alternative to {@link #predecessorIds(int)}
+	 * @param id The vertex id
+	 * @param index The index in range 0..predecessorCount(id)-1
+	 * @return the predecessor id
+	 */
+	int predecessorId(int id, int index);
+
+}
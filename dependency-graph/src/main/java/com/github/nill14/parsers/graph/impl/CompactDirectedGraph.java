@@ -0,0 +1,483 @@
+package com.github.nill14.parsers.graph.impl;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.DirectedGraphBuilder;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.IndexedDirectedGraph;
+import com.google.common.base.Function;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * An immutable graph storing the adjacency in compressed sparse row (CSR) format.
+ * Each vertex is given a dense int id according to the iteration order of the nodes.
+ * The order of successors and predecessors is the same as in {@link DefaultDirectedGraph}.
+ *
+ * @param <V> Vertex
+ * @param <E> Edge
+ */
+public class CompactDirectedGraph<V, E extends GraphEdge<V>> implements IndexedDirectedGraph<V, E> {
+
+	private final Object[] vertices;
+	private final VertexIndex index;
+
+	private final int[] successorOffsets;
+	private final int[] successorIds;
+	private final int[] predecessorOffsets;
+	private final int[] predecessorIds;
+
+	private final int[] successorEdgeOffsets;
+	private final Object[] successorEdges;
+	private final int[] predecessorEdgeOffsets;
+	private final Object[] predecessorEdges;
+
+	private final Set<V> nodes = new VertexSet();
+	private final Set<E> edges;
+
+	public CompactDirectedGraph(Builder<V, E> builder) {
+		this(builder.nodes, builder.edges);
+	}
+
+	private CompactDirectedGraph(Set<V> nodes, Set<E> edges) {
+		this(nodes.toArray(), edges.toArray());
+	}
+
+	private CompactDirectedGraph(Object[] vertices, Object[] edgeArray) {
+		this(vertices, new VertexIndex(vertices), edgeArray);
+	}
+
+	private CompactDirectedGraph(Object[] vertices, VertexIndex index, Object[] edgeArray) {
+		this(vertices, index, edgeIds(index, edgeArray, true), edgeIds(index, edgeArray, false), edgeArray);
+	}
+
+	private static int[] edgeIds(VertexIndex index, Object[] edgeArray, boolean source) {
+		int[] ids = new int[edgeArray.length];
+		int i = 0;
+		for (Object element : edgeArray) {
+			GraphEdge<?> edge = (GraphEdge<?>) element;
+			Object vertex = source ? edge.source() : edge.target();
+			int id = index.get(vertex);
+			if (id < 0) {
+				throw new IllegalStateException(String.format("Edge has invalid %s: %s", source ? "source" : "target", vertex));
+			}
+			ids[i++] = id;
+		}
+		return ids;
+	}
+
+	private CompactDirectedGraph(Object[] vertices, VertexIndex index, int[] sources, int[] targets, Object[] edgeArray) {
+		int n = vertices.length;
+		int m = edgeArray.length;
+		this.vertices = vertices;
+		this.index = index;
+
+		successorEdgeOffsets = new int[n + 1];
+		successorEdges = new Object[m];
+		int[] successorRows = groupBy(sources, edgeArray, successorEdgeOffsets, successorEdges);
+
+		predecessorEdgeOffsets = new int[n + 1];
+		predecessorEdges = new Object[m];
+		int[] predecessorRows = groupBy(targets, edgeArray, predecessorEdgeOffsets, predecessorEdges);
+
+		int[] marks = new int[n];
+		successorOffsets = new int[n + 1];
+		successorIds = distinctRows(successorEdgeOffsets, successorRows, targets, marks, successorOffsets);
+
+		Arrays.fill(marks, 0);
+		predecessorOffsets = new int[n + 1];
+		predecessorIds = distinctRows(predecessorEdgeOffsets, predecessorRows, sources, marks, predecessorOffsets);
+
+		this.edges = new EdgeArraySet<>(successorEdges, 0, m);
+	}
+
+	/**
+	 * Counting sort of edges by the row (source or target), the original edge order is kept within a row.
+	 * @return the original edge positions, grouped by rows
+	 */
+	private static int[] groupBy(int[] rows, Object[] edgeArray, int[] offsets, Object[] groupedEdges) {
+		int n = offsets.length - 1;
+		for (int row : rows) {
+			offsets[row + 1]++;
+		}
+		for (int i = 0; i < n; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+
+		int[] next = Arrays.copyOf(offsets, n);
+		int[] positions = new int[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			int pos = next[rows[i]]++;
+			positions[pos] = i;
+			groupedEdges[pos] = edgeArray[i];
+		}
+		return positions;
+	}
+
+	/**
+	 * Parallel edges connect the same pair of vertices, the neighbour ids must be distinct.
+	 */
+	private static int[] distinctRows(int[] edgeOffsets, int[] positions, int[] neighbours, int[] marks, int[] offsets) {
+		int n = offsets.length - 1;
+		int[] buffer = new int[positions.length];
+		int count = 0;
+		for (int row = 0; row < n; row++) {
+			offsets[row] = count;
+			for (int i = edgeOffsets[row]; i < edgeOffsets[row + 1]; i++) {
+				int neighbour = neighbours[positions[i]];
+				if (marks[neighbour] != row + 1) {
+					marks[neighbour] = row + 1;
+					buffer[count++] = neighbour;
+				}
+			}
+		}
+		offsets[n] = count;
+		return count == buffer.length ? buffer : Arrays.copyOf(buffer, count);
+	}
+
+	/**
+	 * Assembles the graph directly from the vertex ids of edges, the edges are not looked up.
+	 *
+	 * @param vertices The vertices, the position is the vertex id. The array is retained.
+	 * @param sources The source id of each edge
+	 * @param targets The target id of each edge
+	 * @param edges The edges
+	 * @return a new graph
+	 */
+	public static <V, E extends GraphEdge<V>> CompactDirectedGraph<V, E> fromIds(Object[] vertices, int[] sources, int[] targets, Object[] edges) {
+		if (sources.length != edges.length || targets.length != edges.length) {
+			throw new IllegalArgumentException("The edge arrays differ in length");
+		}
+		return new CompactDirectedGraph<>(vertices, new VertexIndex(vertices), sources, targets, edges);
+	}
+
+	/**
+	 * The induced subgraph contains the given vertices and all edges between them.
+	 * Only the edges of the given vertices are visited, the size of the graph does not matter.
+	 *
+	 * @param graph a graph
+	 * @param vertices The vertices of the subgraph, the order is kept
+	 * @return a new graph
+	 */
+	public static <V, E extends GraphEdge<V>> CompactDirectedGraph<V, E> subgraphOf(DirectedGraph<V, E> graph, Collection<V> vertices) {
+		Object[] vertexArray = vertices.toArray();
+		VertexIndex index = new VertexIndex(vertexArray);
+		List<Object> edgeList = new ArrayList<>();
+		for (Object vertex : vertexArray) {
+			@SuppressWarnings("unchecked")
+			Set<E> successorEdges = graph.successorEdges((V) vertex);
+			for (E edge : successorEdges) {
+				if (index.get(edge.target()) >= 0) {
+					edgeList.add(edge);
+				}
+			}
+		}
+		return new CompactDirectedGraph<>(vertexArray, index, edgeList.toArray());
+	}
+
+	/**
+	 * @param graph a graph
+	 * @return the same graph if it is already indexed, otherwise an indexed copy
+	 */
+	public static <V, E extends GraphEdge<V>> IndexedDirectedGraph<V, E> copyOf(DirectedGraph<V, E> graph) {
+		if (graph instanceof IndexedDirectedGraph) {
+			return (IndexedDirectedGraph<V, E>) graph;
+		}
+		return new CompactDirectedGraph<>(graph.nodes(), graph.edges());
+	}
+
+	@Override
+	public int vertexCount() {
+		return vertices.length;
+	}
+
+	@Override
+	public int indexOf(V vertex) {
+		return index.get(vertex);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public V vertex(int id) {
+		return (V) vertices[id];
+	}
+
+	@Override
+	public int[] successorIds(int id) {
+		return Arrays.copyOfRange(successorIds, successorOffsets[id], successorOffsets[id + 1]);
+	}
+
+	@Override
+	public int[] predecessorIds(int id) {
+		return Arrays.copyOfRange(predecessorIds, predecessorOffsets[id], predecessorOffsets[id + 1]);
+	}
+
+	@Override
+	public int successorCount(int id) {
+		return successorOffsets[id + 1] - successorOffsets[id];
+	}
+
+	@Override
+	public int predecessorCount(int id) {
+		return predecessorOffsets[id + 1] - predecessorOffsets[id];
+	}
+
+	@Override
+	public int successorId(int id, int index) {
+		return successorIds[successorOffsets[id] + index];
+	}
+
+	@Override
+	public int predecessorId(int id, int index) {
+		return predecessorIds[predecessorOffsets[id] + index];
+	}
+
+	@Override
+	public Set<V> nodes() {
+		return nodes;
+	}
+
+	@Override
+	public Set<E> edges() {
+		return edges;
+	}
+
+	@Override
+	public Set<E> successorEdges(V vertex) {
+		int id = index.get(vertex);
+		if (id < 0) {
+			return ImmutableSet.of();
+		}
+		return new EdgeArraySet<>(successorEdges, successorEdgeOffsets[id], successorEdgeOffsets[id + 1]);
+	}
+
+	@Override
+	public Set<E> predecessorEdges(V vertex) {
+		int id = index.get(vertex);
+		if (id < 0) {
+			return ImmutableSet.of();
+		}
+		return new EdgeArraySet<>(predecessorEdges, predecessorEdgeOffsets[id], predecessorEdgeOffsets[id + 1]);
+	}
+
+	@Override
+	public Set<V> successors(V vertex) {
+		int id = index.get(vertex);
+		if (id < 0) {
+			return ImmutableSet.of();
+		}
+		return new NeighbourSet(successorIds, successorOffsets[id], successorOffsets[id + 1]);
+	}
+
+	@Override
+	public Set<V> predecessors(V vertex) {
+		int id = index.get(vertex);
+		if (id < 0) {
+			return ImmutableSet.of();
+		}
+		return new NeighbourSet(predecessorIds, predecessorOffsets[id], predecessorOffsets[id + 1]);
+	}
+
+	@Override
+	public boolean hasPredecessors(V vertex) {
+		int id = index.get(vertex);
+		return id >= 0 && predecessorCount(id) > 0;
+	}
+
+	@Override
+	public boolean hasSucccessors(V vertex) {
+		int id = index.get(vertex);
+		return id >= 0 && successorCount(id) > 0;
+	}
+
+	@Override
+	public <X> Set<X> predecessors(V vertex, Function<V, X> transform) {
+		return FluentIterable.from(predecessors(vertex)).transform(transform).toSet();
+	}
+
+	@Override
+	public <X> Set<X> successors(V vertex, Function<V, X> transform) {
+		return FluentIterable.from(successors(vertex)).transform(transform).toSet();
+	}
+
+	@Override
+	public DirectedGraph<V, E> withoutExcluded(Set<V> excluded) {
+		return new ExcludedVertexView<V, E>(this, excluded);
+	}
+
+	public static final <V, E extends GraphEdge<V>> DirectedGraphBuilder<V, E> builder() {
+		return new Builder<>();
+	}
+
+	public static class Builder<V, E extends GraphEdge<V>> implements DirectedGraphBuilder<V, E> {
+
+		private Set<V> nodes;
+		private Set<E> edges;
+
+		@Override
+		public DirectedGraphBuilder<V, E> nodes(Set<V> nodes) {
+			this.nodes = nodes;
+			return this;
+		}
+
+		@Override
+		public DirectedGraphBuilder<V, E> edges(Set<E> edges) {
+			this.edges = edges;
+			return this;
+		}
+
+		@Override
+		public CompactDirectedGraph<V, E> build() {
+			return new CompactDirectedGraph<>(this);
+		}
+	}
+
+	private final class VertexSet extends AbstractSet<V> {
+
+		@Override
+		public Iterator<V> iterator() {
+			return new IdIterator(null, 0, vertices.length);
+		}
+
+		@Override
+		public int size() {
+			return vertices.length;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return index.get(o) >= 0;
+		}
+	}
+
+	private final class NeighbourSet extends AbstractSet<V> {
+
+		private final int[] ids;
+		private final int from;
+		private final int to;
+
+		public NeighbourSet(int[] ids, int from, int to) {
+			this.ids = ids;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Iterator<V> iterator() {
+			return new IdIterator(ids, from, to);
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			int id = index.get(o);
+			if (id >= 0) {
+				for (int i = from; i < to; i++) {
+					if (ids[i] == id) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+	private final class IdIterator implements Iterator<V> {
+
+		private final int[] ids;
+		private final int to;
+		private int position;
+
+		/**
+		 * @param ids the ids or null when iterating over all vertices
+		 */
+		public IdIterator(int[] ids, int from, int to) {
+			this.ids = ids;
+			this.position = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return position < to;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V next() {
+			if (position >= to) {
+				throw new NoSuchElementException();
+			}
+			int id = ids == null ? position : ids[position];
+			position++;
+			return (V) vertices[id];
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Open addressing hash table vertex -&gt; id, avoiding boxed integers.
+	 */
+	private static final class VertexIndex {
+
+		private final Object[] keys;
+		private final int[] ids;
+		private final int mask;
+
+		public VertexIndex(Object[] vertices) {
+			int capacity = Integer.highestOneBit(Math.max(vertices.length, 2) * 2 - 1) << 1;
+			keys = new Object[capacity];
+			ids = new int[capacity];
+			mask = capacity - 1;
+
+			for (int id = 0; id < vertices.length; id++) {
+				Object vertex = vertices[id];
+				int slot = smear(vertex.hashCode()) & mask;
+				while (keys[slot] != null) {
+					if (keys[slot].equals(vertex)) {
+						throw new IllegalArgumentException("Duplicate vertex: " + vertex);
+					}
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = vertex;
+				ids[slot] = id;
+			}
+		}
+
+		public int get(Object vertex) {
+			if (vertex == null) {
+				return -1;
+			}
+			int slot = smear(vertex.hashCode()) & mask;
+			Object key;
+			while ((key = keys[slot]) != null) {
+				if (key == vertex || key.equals(vertex)) {
+					return ids[slot];
+				}
+				slot = (slot + 1) & mask;
+			}
+			return -1;
+		}
+
+		private static int smear(int hashCode) {
+			return 0x1b873593 * Integer.rotateLeft(hashCode * 0xcc9e2d51, 15);
+		}
+	}
+
+}
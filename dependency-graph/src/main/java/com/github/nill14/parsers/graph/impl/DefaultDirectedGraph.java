@@ -9,6 +9,7 @@ import com.google.common.base.Function;
 import com.google.common.collect.FluentIterable;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.Sets;
 
 public class DefaultDirectedGraph<V, E extends GraphEdge<V>> implements DirectedGraph<V, E> {
 
@@ -104,7 +105,8 @@ public class DefaultDirectedGraph<V, E extends GraphEdge<V>> implements Directed
 	
 	@Override
 	public DirectedGraph<V, E> withoutExcluded(Set<V> excluded) {
-		return new DirectedGraphView<V, E>(this, excluded);
+		// only the remaining part is indexed, a view would need an indexed copy of the whole graph
+		return CompactDirectedGraph.subgraphOf(this, Sets.difference(nodes, excluded));
 	}
 	
 	public static final <V, E extends GraphEdge<V>> DirectedGraphBuilder<V, E> builder() {
@@ -0,0 +1,82 @@
+package com.github.nill14.parsers.graph.impl;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * An immutable set of edges backed by a range of an array, the edges are distinct.
+ * The small ranges are searched linearly, a larger range builds a hashed set
+ * on the first lookup and keeps it for the following ones.
+ *
+ * @param <E> Edge
+ */
+final class EdgeArraySet<E> extends AbstractSet<E> {
+
+	private static final int LINEAR_SEARCH_LIMIT = 8;
+
+	private final Object[] edges;
+	private final int from;
+	private final int to;
+	private volatile Set<Object> hashed;
+
+	public EdgeArraySet(Object[] edges, int from, int to) {
+		this.edges = edges;
+		this.from = from;
+		this.to = to;
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			private int position = from;
+
+			@Override
+			public boolean hasNext() {
+				return position < to;
+			}
+
+			@SuppressWarnings("unchecked")
+			@Override
+			public E next() {
+				if (position >= to) {
+					throw new NoSuchElementException();
+				}
+				return (E) edges[position++];
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	@Override
+	public int size() {
+		return to - from;
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		if (to - from <= LINEAR_SEARCH_LIMIT) {
+			for (int i = from; i < to; i++) {
+				if (edges[i].equals(o)) {
+					return true;
+				}
+			}
+			return false;
+		}
+		Set<Object> result = hashed;
+		if (result == null) {
+			// a race builds an equal set
+			result = ImmutableSet.copyOf(Arrays.asList(edges).subList(from, to));
+			hashed = result;
+		}
+		return result.contains(o);
+	}
+}
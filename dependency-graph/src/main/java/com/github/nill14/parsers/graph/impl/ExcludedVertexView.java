@@ -0,0 +1,394 @@
+package com.github.nill14.parsers.graph.impl;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.IndexedDirectedGraph;
+import com.google.common.base.Function;
+import com.google.common.collect.FluentIterable;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * A view of an indexed graph without the excluded vertices and their edges.
+ * The excluded set is read once into a bitmask of the vertex ids of the underlying graph,
+ * later changes of the set are not reflected.
+ * The filtered adjacency is computed once in compressed sparse row (CSR) format,
+ * so the queries neither copy nor filter the neighbours, as in {@link CompactDirectedGraph}.
+ *
+ * The view is indexed by dense ids of the remaining vertices in the order of the underlying graph,
+ * so the walkers use it without another copy.
+ *
+ * The neighbour sets are created on the first query of a vertex and cached,
+ * iterating them allocates just the iterator.
+ * {@link #successorCount(int)} with {@link #successorId(int, int)} (and the predecessor counterparts)
+ * iterate the neighbours without any allocation, the id arrays are copied as {@link IndexedDirectedGraph} requires.
+ *
+ * @param <V> Vertex
+ * @param <E> Edge
+ */
+public final class ExcludedVertexView<V, E extends GraphEdge<V>> implements IndexedDirectedGraph<V, E> {
+
+	private final IndexedDirectedGraph<V, E> graph;
+	private final long[] excludedMask;
+	/**
+	 * view id -&gt; graph id
+	 */
+	private final int[] graphIds;
+	/**
+	 * graph id -&gt; view id or -1 when excluded
+	 */
+	private final int[] viewIds;
+
+	private final int[] successorOffsets;
+	private final int[] successorIds;
+	private final int[] predecessorOffsets;
+	private final int[] predecessorIds;
+
+	private final int[] successorEdgeOffsets;
+	private final Object[] successorEdges;
+	private final int[] predecessorEdgeOffsets;
+	private final Object[] predecessorEdges;
+
+	private final Set<V> nodes = new VertexSet();
+	private final Set<E> edges;
+	/**
+	 * The cached neighbour sets by view id, null until queried
+	 */
+	private final Object[] successorSets;
+	private final Object[] predecessorSets;
+	private final Object[] successorEdgeSets;
+	private final Object[] predecessorEdgeSets;
+
+	/**
+	 *
+	 * @param graph an indexed graph
+	 * @param excluded The excluded vertices, the vertices not in the graph are ignored,
+	 *        the set is not retained
+	 */
+	public ExcludedVertexView(IndexedDirectedGraph<V, E> graph, Set<V> excluded) {
+		this.graph = graph;
+		int size = graph.vertexCount();
+
+		excludedMask = new long[(size >>> 6) + 1];
+		for (V vertex : excluded) {
+			int id = graph.indexOf(vertex);
+			if (id >= 0) {
+				excludedMask[id >>> 6] |= 1L << id;
+			}
+		}
+
+		viewIds = new int[size];
+		int count = 0;
+		for (int id = 0; id < size; id++) {
+			viewIds[id] = isExcluded(id) ? -1 : count++;
+		}
+		graphIds = new int[count];
+		for (int id = 0; id < size; id++) {
+			if (viewIds[id] >= 0) {
+				graphIds[viewIds[id]] = id;
+			}
+		}
+
+		successorOffsets = new int[count + 1];
+		successorIds = filterIds(true, successorOffsets);
+		predecessorOffsets = new int[count + 1];
+		predecessorIds = filterIds(false, predecessorOffsets);
+
+		successorEdgeOffsets = new int[count + 1];
+		successorEdges = filterEdges(true, successorEdgeOffsets);
+		predecessorEdgeOffsets = new int[count + 1];
+		predecessorEdges = filterEdges(false, predecessorEdgeOffsets);
+
+		edges = new EdgeArraySet<>(successorEdges, 0, successorEdges.length);
+		successorSets = new Object[count];
+		predecessorSets = new Object[count];
+		successorEdgeSets = new Object[count];
+		predecessorEdgeSets = new Object[count];
+	}
+
+	private boolean isExcluded(int graphId) {
+		return (excludedMask[graphId >>> 6] & (1L << graphId)) != 0;
+	}
+
+	private int[] filterIds(boolean successors, int[] offsets) {
+		int total = 0;
+		for (int id : graphIds) {
+			total += successors ? graph.successorCount(id) : graph.predecessorCount(id);
+		}
+
+		int[] ids = new int[total];
+		int count = 0;
+		for (int viewId = 0; viewId < graphIds.length; viewId++) {
+			offsets[viewId] = count;
+			int id = graphIds[viewId];
+			int neighbours = successors ? graph.successorCount(id) : graph.predecessorCount(id);
+			for (int i = 0; i < neighbours; i++) {
+				int neighbour = successors ? graph.successorId(id, i) : graph.predecessorId(id, i);
+				if (!isExcluded(neighbour)) {
+					ids[count++] = viewIds[neighbour];
+				}
+			}
+		}
+		offsets[graphIds.length] = count;
+		return count == total ? ids : Arrays.copyOf(ids, count);
+	}
+
+	private Object[] filterEdges(boolean successors, int[] offsets) {
+		List<Object> result = new ArrayList<>();
+		for (int viewId = 0; viewId < graphIds.length; viewId++) {
+			offsets[viewId] = result.size();
+			V vertex = graph.vertex(graphIds[viewId]);
+			for (E edge : successors ? graph.successorEdges(vertex) : graph.predecessorEdges(vertex)) {
+				int neighbour = graph.indexOf(successors ? edge.target() : edge.source());
+				if (neighbour >= 0 && !isExcluded(neighbour)) {
+					result.add(edge);
+				}
+			}
+		}
+		offsets[graphIds.length] = result.size();
+		return result.toArray();
+	}
+
+	@Override
+	public int vertexCount() {
+		return graphIds.length;
+	}
+
+	@Override
+	public int indexOf(V vertex) {
+		int id = graph.indexOf(vertex);
+		return id >= 0 ? viewIds[id] : -1;
+	}
+
+	@Override
+	public V vertex(int id) {
+		return graph.vertex(graphIds[id]);
+	}
+
+	@Override
+	public int[] successorIds(int id) {
+		return Arrays.copyOfRange(successorIds, successorOffsets[id], successorOffsets[id + 1]);
+	}
+
+	@Override
+	public int[] predecessorIds(int id) {
+		return Arrays.copyOfRange(predecessorIds, predecessorOffsets[id], predecessorOffsets[id + 1]);
+	}
+
+	@Override
+	public int successorCount(int id) {
+		return successorOffsets[id + 1] - successorOffsets[id];
+	}
+
+	@Override
+	public int predecessorCount(int id) {
+		return predecessorOffsets[id + 1] - predecessorOffsets[id];
+	}
+
+	@Override
+	public int successorId(int id, int index) {
+		return successorIds[successorOffsets[id] + index];
+	}
+
+	@Override
+	public int predecessorId(int id, int index) {
+		return predecessorIds[predecessorOffsets[id] + index];
+	}
+
+	@Override
+	public Set<V> nodes() {
+		return nodes;
+	}
+
+	@Override
+	public Set<E> edges() {
+		return edges;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Set<E> successorEdges(V vertex) {
+		int id = indexOf(vertex);
+		if (id < 0) {
+			return ImmutableSet.of();
+		}
+		Set<E> result = (Set<E>) successorEdgeSets[id];
+		if (result == null) {
+			// a race creates an equal set
+			result = new EdgeArraySet<>(successorEdges, successorEdgeOffsets[id], successorEdgeOffsets[id + 1]);
+			successorEdgeSets[id] = result;
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Set<E> predecessorEdges(V vertex) {
+		int id = indexOf(vertex);
+		if (id < 0) {
+			return ImmutableSet.of();
+		}
+		Set<E> result = (Set<E>) predecessorEdgeSets[id];
+		if (result == null) {
+			result = new EdgeArraySet<>(predecessorEdges, predecessorEdgeOffsets[id], predecessorEdgeOffsets[id + 1]);
+			predecessorEdgeSets[id] = result;
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Set<V> successors(V vertex) {
+		int id = indexOf(vertex);
+		if (id < 0) {
+			return ImmutableSet.of();
+		}
+		Set<V> result = (Set<V>) successorSets[id];
+		if (result == null) {
+			result = new NeighbourSet(successorIds, successorOffsets[id], successorOffsets[id + 1]);
+			successorSets[id] = result;
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Set<V> predecessors(V vertex) {
+		int id = indexOf(vertex);
+		if (id < 0) {
+			return ImmutableSet.of();
+		}
+		Set<V> result = (Set<V>) predecessorSets[id];
+		if (result == null) {
+			result = new NeighbourSet(predecessorIds, predecessorOffsets[id], predecessorOffsets[id + 1]);
+			predecessorSets[id] = result;
+		}
+		return result;
+	}
+
+	@Override
+	public boolean hasPredecessors(V vertex) {
+		int id = indexOf(vertex);
+		return id >= 0 && predecessorCount(id) > 0;
+	}
+
+	@Override
+	public boolean hasSucccessors(V vertex) {
+		int id = indexOf(vertex);
+		return id >= 0 && successorCount(id) > 0;
+	}
+
+	@Override
+	public <X> Set<X> predecessors(V vertex, Function<V, X> transform) {
+		return FluentIterable.from(predecessors(vertex)).transform(transform).toSet();
+	}
+
+	@Override
+	public <X> Set<X> successors(V vertex, Function<V, X> transform) {
+		return FluentIterable.from(successors(vertex)).transform(transform).toSet();
+	}
+
+	@Override
+	public DirectedGraph<V, E> withoutExcluded(Set<V> excluded) {
+		return new ExcludedVertexView<>(this, excluded);
+	}
+
+	private final class VertexSet extends AbstractSet<V> {
+
+		@Override
+		public Iterator<V> iterator() {
+			return new IdIterator(null, 0, graphIds.length);
+		}
+
+		@Override
+		public int size() {
+			return graphIds.length;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public boolean contains(Object o) {
+			return indexOf((V) o) >= 0;
+		}
+	}
+
+	private final class NeighbourSet extends AbstractSet<V> {
+
+		private final int[] ids;
+		private final int from;
+		private final int to;
+
+		public NeighbourSet(int[] ids, int from, int to) {
+			this.ids = ids;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public Iterator<V> iterator() {
+			return new IdIterator(ids, from, to);
+		}
+
+		@Override
+		public int size() {
+			return to - from;
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public boolean contains(Object o) {
+			int id = indexOf((V) o);
+			if (id >= 0) {
+				for (int i = from; i < to; i++) {
+					if (ids[i] == id) {
+						return true;
+					}
+				}
+			}
+			return false;
+		}
+	}
+
+	private final class IdIterator implements Iterator<V> {
+
+		private final int[] ids;
+		private final int to;
+		private int position;
+
+		/**
+		 * @param ids the view ids or null when iterating over all vertices
+		 */
+		public IdIterator(int[] ids, int from, int to) {
+			this.ids = ids;
+			this.position = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return position < to;
+		}
+
+		@Override
+		public V next() {
+			if (position >= to) {
+				throw new NoSuchElementException();
+			}
+			int id = ids == null ? position : ids[position];
+			position++;
+			return vertex(id);
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
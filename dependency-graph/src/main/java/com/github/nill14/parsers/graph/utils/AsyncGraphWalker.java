@@ -0,0 +1,142 @@
+package com.github.nill14.parsers.graph.utils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+
+import com.github.nill14.parsers.dependency.IAsyncConsumer;
+import com.github.nill14.parsers.dependency.IAsyncWalk;
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.IndexedDirectedGraph;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * A non-blocking walker composing the vertices as a graph of futures.
+ * A vertex is started when the futures of all its predecessors are completed.
+ * No thread is waiting for the predecessors, so any amount of asynchronous
+ * vertices can be in progress on a few threads.
+ *
+ * @param <V> Vertex
+ */
+public class AsyncGraphWalker<V> {
+
+	private final IndexedDirectedGraph<V, ?> graph;
+	private final int[] topoOrder;
+
+	public <E extends GraphEdge<V>> AsyncGraphWalker(DirectedGraph<V, E> graph, List<V> topoList) {
+		IndexedDirectedGraph<V, E> indexedGraph = CompactDirectedGraph.copyOf(graph);
+		this.graph = indexedGraph;
+		topoOrder = new int[topoList.size()];
+		for (int i = 0; i < topoOrder.length; i++) {
+			topoOrder[i] = indexedGraph.indexOf(topoList.get(i));
+		}
+	}
+
+	/**
+	 * Starts the walk, the method does not block.
+	 *
+	 * @param executor an executor to be used for invoking the closure
+	 * @param consumer an asynchronous processing closure
+	 * @return the running walk
+	 */
+	public IAsyncWalk<V> walk(Executor executor, IAsyncConsumer<V> consumer) {
+		return new AsyncWalk(executor, consumer);
+	}
+
+	private final class AsyncWalk implements IAsyncWalk<V> {
+
+		private final SettableFuture<Void> completion = SettableFuture.create();
+		private final ImmutableMap<V, ListenableFuture<Void>> moduleFutures;
+
+		private final FutureCallback<Object> failureCallback = new FutureCallback<Object>() {
+			@Override
+			public void onSuccess(Object result) {
+			}
+
+			@Override
+			public void onFailure(Throwable t) {
+				// only the first failure is recorded
+				completion.setException(t);
+			}
+		};
+
+		public AsyncWalk(Executor executor, IAsyncConsumer<V> consumer) {
+			@SuppressWarnings("unchecked")
+			ListenableFuture<Void>[] futures = (ListenableFuture<Void>[]) new ListenableFuture<?>[graph.vertexCount()];
+			ImmutableMap.Builder<V, ListenableFuture<Void>> builder = ImmutableMap.builder();
+			VertexFunction function = new VertexFunction(consumer);
+
+			for (int id : topoOrder) {
+				int count = graph.predecessorCount(id);
+				List<ListenableFuture<Void>> dependencies = Lists.newArrayListWithCapacity(count);
+				for (int i = 0; i < count; i++) {
+					dependencies.add(futures[graph.predecessorId(id, i)]);
+				}
+
+				ListenableFuture<V> ready = Futures.transform(Futures.allAsList(dependencies),
+						Functions.constant(graph.vertex(id)));
+				ListenableFuture<Void> future = Futures.transform(ready, function, executor);
+				Futures.addCallback(future, failureCallback);
+
+				futures[id] = future;
+				builder.put(graph.vertex(id), future);
+			}
+			moduleFutures = builder.build();
+
+			Futures.addCallback(Futures.allAsList(moduleFutures.values()), new FutureCallback<Object>() {
+				@Override
+				public void onSuccess(Object result) {
+					completion.set(null);
+				}
+
+				@Override
+				public void onFailure(Throwable t) {
+					completion.setException(t);
+				}
+			});
+		}
+
+		@Override
+		public ListenableFuture<Void> getCompletion() {
+			return completion;
+		}
+
+		@Override
+		public Map<V, ListenableFuture<Void>> getModuleFutures() {
+			return moduleFutures;
+		}
+
+		private final class VertexFunction implements AsyncFunction<V, Void> {
+
+			private final IAsyncConsumer<V> consumer;
+
+			public VertexFunction(IAsyncConsumer<V> consumer) {
+				this.consumer = consumer;
+			}
+
+			@Override
+			public ListenableFuture<Void> apply(V vertex) throws Exception {
+				if (completion.isDone()) {
+					throw new CancellationException("Skipped due to a failure of another module: " + vertex);
+				}
+
+				ListenableFuture<?> future = consumer.process(vertex);
+				if (future == null) {
+					return Futures.immediateFuture(null);
+				}
+				return Futures.transform(future, Functions.<Void>constant(null));
+			}
+		}
+	}
+
+}
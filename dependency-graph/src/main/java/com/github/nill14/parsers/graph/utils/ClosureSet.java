@@ -0,0 +1,103 @@
+package com.github.nill14.parsers.graph.utils;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * An immutable set view of a {@link CompressedBitmap} over the vertices of a {@link TransitiveClosureIndex}.
+ * The set is iterated in the topological order.
+ * The bulk operations between the sets of the same index work word by word.
+ *
+ * @param <V> Vertex
+ */
+public final class ClosureSet<V> extends AbstractSet<V> {
+
+	private final TransitiveClosureIndex<V> index;
+	private final CompressedBitmap bitmap;
+
+	ClosureSet(TransitiveClosureIndex<V> index, CompressedBitmap bitmap) {
+		this.index = index;
+		this.bitmap = bitmap;
+	}
+
+	public CompressedBitmap getBitmap() {
+		return bitmap;
+	}
+
+	@Override
+	public int size() {
+		return bitmap.cardinality();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return bitmap.isEmpty();
+	}
+
+	@Override
+	public boolean contains(Object o) {
+		int topoId = index.topoId(o);
+		return topoId >= 0 && bitmap.contains(topoId);
+	}
+
+	@Override
+	public boolean containsAll(Collection<?> c) {
+		if (c instanceof ClosureSet && ((ClosureSet<?>) c).index == index) {
+			return bitmap.containsAll(((ClosureSet<?>) c).bitmap);
+		}
+		return super.containsAll(c);
+	}
+
+	/**
+	 * @param other The other set
+	 * @return whether any element is present in both sets
+	 */
+	public boolean intersects(Set<?> other) {
+		return bitmap.intersects(sameIndex(other).bitmap);
+	}
+
+	/**
+	 * @param other The other set
+	 * @return The elements present in both sets
+	 */
+	public ClosureSet<V> intersection(Set<?> other) {
+		return new ClosureSet<>(index, bitmap.and(sameIndex(other).bitmap));
+	}
+
+	private ClosureSet<?> sameIndex(Set<?> other) {
+		if (other instanceof ClosureSet && ((ClosureSet<?>) other).index == index) {
+			return (ClosureSet<?>) other;
+		}
+		return index.toClosureSet(other);
+	}
+
+	@Override
+	public Iterator<V> iterator() {
+		return new Iterator<V>() {
+			private int next = bitmap.nextSetBit(0);
+
+			@Override
+			public boolean hasNext() {
+				return next >= 0;
+			}
+
+			@Override
+			public V next() {
+				if (next < 0) {
+					throw new NoSuchElementException();
+				}
+				V vertex = index.vertex(next);
+				next = bitmap.nextSetBit(next + 1);
+				return vertex;
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -0,0 +1,453 @@
+package com.github.nill14.parsers.graph.utils;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of non-negative integers.
+ * Similarly to Roaring bitmaps, the representation is chosen by the content:
+ * a sorted array of values for sparse sets, runs of consecutive values for chains
+ * and plain words trimmed to the populated range otherwise.
+ *
+ * The bulk operations work word by word regardless of the representation.
+ */
+public abstract class CompressedBitmap {
+
+	public static final CompressedBitmap EMPTY = new SparseBitmap(new int[0]);
+
+	private CompressedBitmap() {
+	}
+
+	/**
+	 * Creates a bitmap of the given words, the word i holds the values i*64 .. i*64+63.
+	 * @param words The words, the array is not retained
+	 * @param fromWord The first word (inclusive)
+	 * @param toWord The last word (exclusive)
+	 * @return The most compact bitmap containing the bits of the word range
+	 */
+	public static CompressedBitmap copyOf(long[] words, int fromWord, int toWord) {
+		while (fromWord < toWord && words[fromWord] == 0) {
+			fromWord++;
+		}
+		while (toWord > fromWord && words[toWord - 1] == 0) {
+			toWord--;
+		}
+		if (fromWord == toWord) {
+			return EMPTY;
+		}
+
+		int cardinality = 0;
+		int runCount = 0;
+		long carry = 0;
+		for (int i = fromWord; i < toWord; i++) {
+			long word = words[i];
+			cardinality += Long.bitCount(word);
+			// a run starts where a bit is set and the preceding bit is clear
+			runCount += Long.bitCount(word & ~((word << 1) | carry));
+			carry = word >>> 63;
+		}
+
+		long sparseBytes = 4L * cardinality;
+		long runBytes = 8L * runCount;
+		long denseBytes = 8L * (toWord - fromWord);
+		if (runBytes <= sparseBytes && runBytes <= denseBytes) {
+			return new RunBitmap(toRuns(words, fromWord, toWord, runCount), cardinality);
+		} else if (sparseBytes <= denseBytes) {
+			return new SparseBitmap(toValues(words, fromWord, toWord, cardinality));
+		} else {
+			return new WordBitmap(Arrays.copyOfRange(words, fromWord, toWord), fromWord, cardinality);
+		}
+	}
+
+	/**
+	 * @param values The values, possibly unsorted
+	 * @return The most compact bitmap containing the values
+	 */
+	public static CompressedBitmap of(int... values) {
+		int max = -1;
+		for (int value : values) {
+			if (value < 0) {
+				throw new IllegalArgumentException("Negative value: " + value);
+			}
+			max = Math.max(max, value);
+		}
+		long[] words = new long[(max >>> 6) + 1];
+		for (int value : values) {
+			words[value >>> 6] |= 1L << value;
+		}
+		return copyOf(words, 0, words.length);
+	}
+
+	private static int[] toValues(long[] words, int fromWord, int toWord, int cardinality) {
+		int[] values = new int[cardinality];
+		int k = 0;
+		for (int i = fromWord; i < toWord; i++) {
+			long word = words[i];
+			while (word != 0) {
+				values[k++] = (i << 6) + Long.numberOfTrailingZeros(word);
+				word &= word - 1;
+			}
+		}
+		return values;
+	}
+
+	private static int[] toRuns(long[] words, int fromWord, int toWord, int runCount) {
+		int[] runs = new int[2 * runCount];
+		int k = 0;
+		boolean inRun = false;
+		for (int i = fromWord; i < toWord; i++) {
+			int bit = 0;
+			while (bit < 64) {
+				long word = (inRun ? ~words[i] : words[i]) & (-1L << bit);
+				if (word == 0) {
+					break;
+				}
+				bit = Long.numberOfTrailingZeros(word);
+				runs[k++] = (i << 6) + bit;
+				inRun = !inRun;
+			}
+		}
+		if (inRun) {
+			runs[k++] = toWord << 6;
+		}
+		return runs;
+	}
+
+	/**
+	 * Sets the bits fromIndex (inclusive) .. toIndex (exclusive)
+	 */
+	static void setRange(long[] words, int fromIndex, int toIndex) {
+		if (fromIndex >= toIndex) {
+			return;
+		}
+		int firstWord = fromIndex >>> 6;
+		int lastWord = (toIndex - 1) >>> 6;
+		long firstMask = -1L << fromIndex;
+		long lastMask = -1L >>> -toIndex;
+		if (firstWord == lastWord) {
+			words[firstWord] |= firstMask & lastMask;
+		} else {
+			words[firstWord] |= firstMask;
+			for (int i = firstWord + 1; i < lastWord; i++) {
+				words[i] = -1L;
+			}
+			words[lastWord] |= lastMask;
+		}
+	}
+
+	public abstract boolean contains(int value);
+
+	public abstract int cardinality();
+
+	/**
+	 * @param fromIndex The index to start with (inclusive)
+	 * @return The next set bit or -1 when there is none
+	 */
+	public abstract int nextSetBit(int fromIndex);
+
+	/**
+	 * @return The first word containing a set bit
+	 */
+	abstract int firstWord();
+
+	/**
+	 * @return The word following the last word containing a set bit
+	 */
+	abstract int endWord();
+
+	abstract long word(int index);
+
+	/**
+	 * Sets the bits of the bitmap in the words
+	 * @param words The words covering at least {@link #endWord()}
+	 */
+	abstract void orInto(long[] words);
+
+	public boolean isEmpty() {
+		return cardinality() == 0;
+	}
+
+	/**
+	 * @param other The other bitmap
+	 * @return whether all bits of the other bitmap are set in this bitmap
+	 */
+	public boolean containsAll(CompressedBitmap other) {
+		if (other.isEmpty()) {
+			return true;
+		} else if (other.cardinality() > cardinality()
+				|| other.firstWord() < firstWord() || other.endWord() > endWord()) {
+			return false;
+		}
+
+		for (int i = other.firstWord(); i < other.endWord(); i++) {
+			if ((other.word(i) & ~word(i)) != 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param other The other bitmap
+	 * @return whether any bit is set in both bitmaps
+	 */
+	public boolean intersects(CompressedBitmap other) {
+		int from = Math.max(firstWord(), other.firstWord());
+		int to = Math.min(endWord(), other.endWord());
+		for (int i = from; i < to; i++) {
+			if ((word(i) & other.word(i)) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param other The other bitmap
+	 * @return The intersection of the bitmaps
+	 */
+	public CompressedBitmap and(CompressedBitmap other) {
+		int from = Math.max(firstWord(), other.firstWord());
+		int to = Math.min(endWord(), other.endWord());
+		if (from >= to) {
+			return EMPTY;
+		}
+
+		long[] words = new long[to];
+		for (int i = from; i < to; i++) {
+			words[i] = word(i) & other.word(i);
+		}
+		return copyOf(words, from, to);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (!(obj instanceof CompressedBitmap)) {
+			return false;
+		}
+		CompressedBitmap other = (CompressedBitmap) obj;
+		return cardinality() == other.cardinality() && containsAll(other);
+	}
+
+	@Override
+	public int hashCode() {
+		long hash = 1234;
+		for (int i = endWord(); --i >= firstWord(); ) {
+			hash ^= word(i) * (i + 1);
+		}
+		return (int) ((hash >> 32) ^ hash);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder b = new StringBuilder("{");
+		for (int i = nextSetBit(0); i >= 0; i = nextSetBit(i + 1)) {
+			if (b.length() > 1) {
+				b.append(", ");
+			}
+			b.append(i);
+		}
+		return b.append('}').toString();
+	}
+
+	private static final class WordBitmap extends CompressedBitmap {
+
+		private final long[] words;
+		private final int offset;
+		private final int cardinality;
+
+		public WordBitmap(long[] words, int offset, int cardinality) {
+			this.words = words;
+			this.offset = offset;
+			this.cardinality = cardinality;
+		}
+
+		@Override
+		public boolean contains(int value) {
+			return (word(value >>> 6) & (1L << value)) != 0;
+		}
+
+		@Override
+		public int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		public int nextSetBit(int fromIndex) {
+			fromIndex = Math.max(fromIndex, offset << 6);
+			int i = fromIndex >>> 6;
+			if (i >= endWord()) {
+				return -1;
+			}
+			long word = words[i - offset] & (-1L << fromIndex);
+			while (word == 0) {
+				if (++i == endWord()) {
+					return -1;
+				}
+				word = words[i - offset];
+			}
+			return (i << 6) + Long.numberOfTrailingZeros(word);
+		}
+
+		@Override
+		int firstWord() {
+			return offset;
+		}
+
+		@Override
+		int endWord() {
+			return offset + words.length;
+		}
+
+		@Override
+		long word(int index) {
+			index -= offset;
+			return index >= 0 && index < words.length ? words[index] : 0;
+		}
+
+		@Override
+		void orInto(long[] target) {
+			for (int i = 0; i < words.length; i++) {
+				target[offset + i] |= words[i];
+			}
+		}
+	}
+
+	private static final class SparseBitmap extends CompressedBitmap {
+
+		private final int[] values;
+
+		public SparseBitmap(int[] values) {
+			this.values = values;
+		}
+
+		@Override
+		public boolean contains(int value) {
+			return Arrays.binarySearch(values, value) >= 0;
+		}
+
+		@Override
+		public int cardinality() {
+			return values.length;
+		}
+
+		@Override
+		public int nextSetBit(int fromIndex) {
+			int i = lowerBound(fromIndex);
+			return i < values.length ? values[i] : -1;
+		}
+
+		private int lowerBound(int value) {
+			int i = Arrays.binarySearch(values, value);
+			return i >= 0 ? i : -i - 1;
+		}
+
+		@Override
+		int firstWord() {
+			return values.length > 0 ? values[0] >>> 6 : 0;
+		}
+
+		@Override
+		int endWord() {
+			return values.length > 0 ? (values[values.length - 1] >>> 6) + 1 : 0;
+		}
+
+		@Override
+		long word(int index) {
+			long word = 0;
+			for (int i = lowerBound(index << 6); i < values.length && values[i] >>> 6 == index; i++) {
+				word |= 1L << values[i];
+			}
+			return word;
+		}
+
+		@Override
+		void orInto(long[] words) {
+			for (int value : values) {
+				words[value >>> 6] |= 1L << value;
+			}
+		}
+	}
+
+	/**
+	 * The runs are stored as pairs start (inclusive), end (exclusive)
+	 */
+	private static final class RunBitmap extends CompressedBitmap {
+
+		private final int[] runs;
+		private final int cardinality;
+
+		public RunBitmap(int[] runs, int cardinality) {
+			this.runs = runs;
+			this.cardinality = cardinality;
+		}
+
+		/**
+		 * @return The last run starting at or before the value or -1
+		 */
+		private int findRun(int value) {
+			int low = 0;
+			int high = runs.length / 2 - 1;
+			while (low <= high) {
+				int mid = (low + high) >>> 1;
+				if (runs[2 * mid] <= value) {
+					low = mid + 1;
+				} else {
+					high = mid - 1;
+				}
+			}
+			return high;
+		}
+
+		@Override
+		public boolean contains(int value) {
+			int run = findRun(value);
+			return run >= 0 && value < runs[2 * run + 1];
+		}
+
+		@Override
+		public int cardinality() {
+			return cardinality;
+		}
+
+		@Override
+		public int nextSetBit(int fromIndex) {
+			fromIndex = Math.max(fromIndex, 0);
+			int run = findRun(fromIndex);
+			if (run >= 0 && fromIndex < runs[2 * run + 1]) {
+				return fromIndex;
+			}
+			return 2 * (run + 1) < runs.length ? runs[2 * (run + 1)] : -1;
+		}
+
+		@Override
+		int firstWord() {
+			return runs[0] >>> 6;
+		}
+
+		@Override
+		int endWord() {
+			return ((runs[runs.length - 1] - 1) >>> 6) + 1;
+		}
+
+		@Override
+		long word(int index) {
+			int base = index << 6;
+			long word = 0;
+			for (int run = findRun(base + 63); run >= 0 && runs[2 * run + 1] > base; run--) {
+				int from = Math.max(runs[2 * run], base);
+				int to = Math.min(runs[2 * run + 1], base + 64);
+				word |= (-1L << from) & (-1L >>> -to);
+			}
+			return word;
+		}
+
+		@Override
+		void orInto(long[] words) {
+			for (int i = 0; i < runs.length; i += 2) {
+				setRange(words, runs[i], runs[i + 1]);
+			}
+		}
+	}
+}
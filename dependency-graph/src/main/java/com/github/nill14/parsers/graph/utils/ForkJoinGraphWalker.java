@@ -0,0 +1,197 @@
+package com.github.nill14.parsers.graph.utils;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.github.nill14.parsers.dependency.IConsumer;
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.IndexedDirectedGraph;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+
+/**
+ * A lock-free walker executing the vertices in a {@link ForkJoinPool}.
+ * Each vertex has an atomic counter of remaining predecessors.
+ * A completing task forks the successors which became ready
+ * and continues with the highest ranked one itself.
+ * There is no central scheduling, the load is balanced by work stealing.
+ *
+ * Unlike the other walkers the rankings are respected only approximately,
+ * the ready vertices are forked in ranking order.
+ *
+ * @param <V> Vertex
+ */
+public class ForkJoinGraphWalker<V> {
+
+	private final IndexedDirectedGraph<V, ?> graph;
+	private final int[] rankings;
+	private final Integer[] roots;
+
+	public <E extends GraphEdge<V>> ForkJoinGraphWalker(DirectedGraph<V, E> graph, Map<V, Integer> rankings) {
+		IndexedDirectedGraph<V, E> indexedGraph = CompactDirectedGraph.copyOf(graph);
+		this.graph = indexedGraph;
+
+		int size = indexedGraph.vertexCount();
+		this.rankings = new int[size];
+		int rootCount = 0;
+		for (int id = 0; id < size; id++) {
+			this.rankings[id] = rankings.get(indexedGraph.vertex(id));
+			if (indexedGraph.predecessorCount(id) == 0) {
+				rootCount++;
+			}
+		}
+
+		roots = new Integer[rootCount];
+		for (int id = 0, i = 0; id < size; id++) {
+			if (indexedGraph.predecessorCount(id) == 0) {
+				roots[i++] = id;
+			}
+		}
+		Arrays.sort(roots, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Integer.compare(ForkJoinGraphWalker.this.rankings[o2], ForkJoinGraphWalker.this.rankings[o1]);
+			}
+		});
+	}
+
+	/**
+	 *
+	 * @return The count of graph vertices
+	 */
+	public int size() {
+		return graph.vertexCount();
+	}
+
+	/**
+	 * Executes all vertices and blocks until all executions are completed.
+	 * Uncaught exception means the remaining vertices are skipped.
+	 *
+	 * @param pool The pool, its parallelism determines the amount of concurrently executed vertices
+	 * @param consumer a processing closure
+	 * @throws ExecutionException when any execution has failed.
+	 */
+	public void walk(ForkJoinPool pool, IConsumer<V> consumer) throws ExecutionException {
+		Walk walk = new Walk(consumer);
+		if (size() == 0) {
+			return;
+		}
+
+		pool.execute(walk.new RootTask());
+		try {
+			walk.done.await();
+		} catch (InterruptedException e) {
+			throw new ExecutionException(e);
+		}
+
+		ExecutionException exception = walk.exception.get();
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	private final class Walk {
+
+		private final IConsumer<V> consumer;
+		private final AtomicIntegerArray remaining;
+		private final AtomicInteger pending;
+		private final AtomicReference<ExecutionException> exception = new AtomicReference<>();
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		public Walk(IConsumer<V> consumer) {
+			this.consumer = consumer;
+			int size = graph.vertexCount();
+			remaining = new AtomicIntegerArray(size);
+			for (int id = 0; id < size; id++) {
+				remaining.set(id, graph.predecessorCount(id));
+			}
+			pending = new AtomicInteger(size);
+		}
+
+		/**
+		 * @param id the vertex id
+		 * @return the id of vertex to continue with or -1
+		 */
+		private int process(int id) {
+			if (exception.get() != null) {
+				return -1;
+			}
+
+			try {
+				consumer.process(graph.vertex(id));
+			} catch (Exception e) {
+				onFailure(e);
+				return -1;
+			}
+
+			int next = -1;
+			int count = graph.successorCount(id);
+			for (int i = 0; i < count; i++) {
+				int successor = graph.successorId(id, i);
+				if (remaining.decrementAndGet(successor) == 0) {
+					if (next < 0) {
+						next = successor;
+					} else if (rankings[successor] > rankings[next]) {
+						new VertexTask(next).fork();
+						next = successor;
+					} else {
+						new VertexTask(successor).fork();
+					}
+				}
+			}
+
+			if (pending.decrementAndGet() == 0) {
+				done.countDown();
+			}
+			return next;
+		}
+
+		private void onFailure(Exception e) {
+			if (!exception.compareAndSet(null, new ExecutionException(e))) {
+				exception.get().addSuppressed(e);
+			}
+			done.countDown();
+		}
+
+		private final class RootTask extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				// the work is stolen from the base of the queue, i.e. highest ranked first
+				for (int i = 1; i < roots.length; i++) {
+					new VertexTask(roots[i]).fork();
+				}
+				new VertexTask(roots[0]).compute();
+			}
+		}
+
+		private final class VertexTask extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+			private final int id;
+
+			public VertexTask(int id) {
+				this.id = id;
+			}
+
+			@Override
+			protected void compute() {
+				int next = id;
+				while (next >= 0) {
+					next = process(next);
+				}
+			}
+		}
+	}
+
+}
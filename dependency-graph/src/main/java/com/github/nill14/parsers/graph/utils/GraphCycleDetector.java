@@ -4,125 +4,119 @@ import static java.lang.Math.*;
 
 import java.util.Collection;
 import java.util.Deque;
-import java.util.List;
-import java.util.Set;
 
 import com.github.nill14.parsers.graph.DirectedGraph;
-import com.google.common.base.Function;
-import com.google.common.collect.ImmutableMap;
+import com.github.nill14.parsers.graph.IndexedDirectedGraph;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
 /**
- * 
+ *
  * http://en.wikipedia.org/wiki/Tarjan's_strongly_connected_components_algorithm
  *
+ * The algorithm is iterative with an explicit stack,
+ * so the depth of the graph is not limited by the thread stack.
+ *
  * @param <V> Vertex
  */
 public class GraphCycleDetector<V> {
 
-	private final DirectedGraph<V, ?> graph;
-	private int index = 1;
+	private final IndexedDirectedGraph<V, ?> graph;
 	private final Collection<Deque<V>> cycles = Lists.newArrayList();
-	private final Deque<Vertex<V>> stack = Lists.newLinkedList();
-	private final ImmutableMap<V, Vertex<V>> nodeIndex;
-	
-	
+
+	/**
+	 * The vertex state by vertex id, the index zero means not visited yet
+	 */
+	private final int[] index;
+	private final int[] lowLink;
+	private final boolean[] onStack;
+	private final int[] stack;
+	private int stackSize = 0;
+	private int nextIndex = 1;
+
 	public GraphCycleDetector(DirectedGraph<V, ?> graph) {
-		this.graph = graph;
-		List<Vertex<V>> vertices = Lists.newArrayList();
-		for (V node : graph.nodes()) {
-		  vertices.add(new Vertex<V>(node));
-		}
-		
-		nodeIndex = Maps.uniqueIndex(vertices, new Function<Vertex<V>, V>() {
-			@Override
-			public V apply(Vertex<V> input) {
-				return input.node;
-			}
-		});
-		
-		for (Vertex<V> v : vertices) {
-			if (v.index == 0) {
-				strongConnect(v);
+		this.graph = CompactDirectedGraph.copyOf(graph);
+		int size = this.graph.vertexCount();
+		index = new int[size];
+		lowLink = new int[size];
+		onStack = new boolean[size];
+		stack = new int[size];
+
+		int[] callStack = new int[size];
+		int[] positions = new int[size];
+		for (int v = 0; v < size; v++) {
+			if (index[v] == 0) {
+				strongConnect(v, callStack, positions);
 			}
 		}
 	}
 
 	/***
-	 * 
+	 *
 	 * @return Collection of all cycles in the graph. The trivial (self) cycles are NOT included.
 	 */
 	public Collection<Deque<V>> getNontrivialCycles() {
 		return cycles;
 	}
-	
-	private void strongConnect(Vertex<V> v) {
-		// Set the depth index for v to the smallest unused index
-		v.index = index;
-		v.lowLink = index;
-		index += 1;
-
-		stack.push(v);
-
-		// Consider successors of v
-		Collection<GraphCycleDetector.Vertex<V>> next = getNext(v);
-		for (Vertex<V> w : next) {
-			if (w.index == 0) {
-				// Successor w has not yet been visited; recurse on it
-				strongConnect(w);
-				v.lowLink = min(v.lowLink, w.lowLink);
-
-			} else if (stack.contains(w)) {
-				// Successor w is in stack S and hence in the current SCC
-				v.lowLink = min(v.lowLink, w.lowLink);
-			}
-		}
 
-		// If v is a root node, pop the stack and generate an SCC
-		if (v.lowLink == v.index) {
-			Deque<V> scc = Lists.newLinkedList();
-			Vertex<V> w;
-			do {
-				w = stack.pop();
-				scc.push(w.node);
-			} while (w != v);
-			
-			
-			if (scc.size() > 1) {
-				cycles.add(scc);
+	private void strongConnect(int root, int[] callStack, int[] positions) {
+		int depth = 0;
+		visit(root);
+		callStack[depth] = root;
+		positions[depth++] = 0;
+
+		while (depth > 0) {
+			int v = callStack[depth - 1];
+			if (positions[depth - 1] < graph.successorCount(v)) {
+				// Consider successors of v
+				int w = graph.successorId(v, positions[depth - 1]++);
+				if (index[w] == 0) {
+					// Successor w has not yet been visited; descend to it
+					visit(w);
+					callStack[depth] = w;
+					positions[depth++] = 0;
+
+				} else if (onStack[w]) {
+					// Successor w is in stack S and hence in the current SCC
+					lowLink[v] = min(lowLink[v], lowLink[w]);
+				}
+
+			} else {
+				// If v is a root node, pop the stack and generate an SCC
+				if (lowLink[v] == index[v]) {
+					popComponent(v);
+				}
+
+				// return to the parent
+				if (--depth > 0) {
+					int parent = callStack[depth - 1];
+					lowLink[parent] = min(lowLink[parent], lowLink[v]);
+				}
 			}
 		}
 	}
-	  
-	private Set<Vertex<V>> getNext(Vertex<V> v) {
-		return graph.successors(v.node, new Function<V, Vertex<V>>() {
-			@Override
-			public Vertex<V> apply(V input) {
-				return getVertex(input);
-			}
-		});
-	}
-		  
-	
-	private <T> Vertex<V> getVertex(V node) {
-		return nodeIndex.get(node);
+
+	private void visit(int v) {
+		// Set the depth index for v to the smallest unused index
+		index[v] = nextIndex;
+		lowLink[v] = nextIndex;
+		nextIndex += 1;
+
+		stack[stackSize++] = v;
+		onStack[v] = true;
 	}
-	  
-	private static class Vertex<V> {
-		public int index;
-		public int lowLink;
-		private final V node;
-
-		public Vertex(V node) {
-			this.node = node;
-			this.index = 0;
-			this.lowLink = 0;
-		}
 
-		@Override
-		public String toString() {
-			return String.format("%s %d.%d", node, index, lowLink);
+	private void popComponent(int v) {
+		Deque<V> scc = Lists.newLinkedList();
+		int w;
+		do {
+			w = stack[--stackSize];
+			onStack[w] = false;
+			scc.push(graph.vertex(w));
+		} while (w != v);
+
+		if (scc.size() > 1) {
+			cycles.add(scc);
 		}
 	}
-	
+
 }
@@ -0,0 +1,104 @@
+package com.github.nill14.parsers.graph.utils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.DirectedGraphBuilder;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.impl.EvaluatedGraphEdge;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Reduces the edges of a graph while keeping the same topological constraints.
+ *
+ * The parallel edges (of the same source and target) are merged into a single edge,
+ * the transitive reduction removes an edge u -&gt; v whenever v is reachable from u by another path.
+ * Neither changes the reachability, the topological orders nor the longest paths of an acyclic graph.
+ */
+public final class GraphNormalizer {
+
+	private GraphNormalizer() {
+	}
+
+	/**
+	 * The merged edge is an {@link EvaluatedGraphEdge} of the set of values of the parallel edges,
+	 * e.g. the keys establishing the dependency. The null values are omitted.
+	 * The graph may contain cycles.
+	 *
+	 * @param graph The graph
+	 * @param builder The builder of the new graph
+	 * @return A new graph with at most one edge between two vertices
+	 */
+	public static <V> DirectedGraph<V, GraphEdge<V>> mergeParallelEdges(
+			DirectedGraph<V, ? extends GraphEdge<V>> graph, DirectedGraphBuilder<V, GraphEdge<V>> builder) {
+
+		ImmutableSet.Builder<GraphEdge<V>> edges = ImmutableSet.builder();
+		for (V vertex : graph.nodes()) {
+			Map<V, ImmutableSet.Builder<Object>> targets = new LinkedHashMap<>();
+			for (GraphEdge<V> edge : graph.successorEdges(vertex)) {
+				ImmutableSet.Builder<Object> values = targets.get(edge.target());
+				if (values == null) {
+					values = ImmutableSet.builder();
+					targets.put(edge.target(), values);
+				}
+				if (edge instanceof EvaluatedGraphEdge && ((EvaluatedGraphEdge<?, ?>) edge).value() != null) {
+					values.add(((EvaluatedGraphEdge<?, ?>) edge).value());
+				}
+			}
+
+			for (Map.Entry<V, ImmutableSet.Builder<Object>> entry : targets.entrySet()) {
+				edges.add(EvaluatedGraphEdge.<V, Set<Object>>edge(vertex, entry.getKey(), entry.getValue().build()));
+			}
+		}
+
+		return builder
+			.nodes(graph.nodes())
+			.edges(edges.build())
+			.build();
+	}
+
+	/**
+	 * The parallel edges are kept, see {@link #mergeParallelEdges(DirectedGraph, DirectedGraphBuilder)}.
+	 *
+	 * @param graph The acyclic graph
+	 * @param topoOrder The topological order of the graph vertices
+	 * @param builder The builder of the new graph
+	 * @return A new graph without the edges implied by other paths
+	 */
+	public static <V, E extends GraphEdge<V>> DirectedGraph<V, E> transitiveReduction(
+			DirectedGraph<V, E> graph, List<V> topoOrder, DirectedGraphBuilder<V, E> builder) {
+
+		TransitiveClosureIndex<V> closureIndex = new TransitiveClosureIndex<>(graph, topoOrder);
+		ImmutableSet.Builder<E> edges = ImmutableSet.builder();
+		for (V vertex : graph.nodes()) {
+			Set<V> predecessors = graph.predecessors(vertex);
+			for (E edge : graph.predecessorEdges(vertex)) {
+				if (!isImplied(edge.source(), predecessors, closureIndex)) {
+					edges.add(edge);
+				}
+			}
+		}
+
+		return builder
+			.nodes(graph.nodes())
+			.edges(edges.build())
+			.build();
+	}
+
+	/**
+	 * @return whether the source is a transitive predecessor of any other direct predecessor
+	 */
+	private static <V> boolean isImplied(V source, Set<V> predecessors, TransitiveClosureIndex<V> closureIndex) {
+		int topoId = closureIndex.topoId(source);
+		for (V predecessor : predecessors) {
+			// a transitive predecessor precedes in the topological order
+			if (closureIndex.topoId(predecessor) > topoId && closureIndex.getBitmap(predecessor).contains(topoId)) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
@@ -0,0 +1,125 @@
+package com.github.nill14.parsers.graph.utils;
+
+import java.util.List;
+import java.util.Map;
+
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.IndexedDirectedGraph;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.google.common.collect.ImmutableMap;
+
+/**
+ * Splits the vertices into balanced partitions with few edges between the partitions.
+ *
+ * The partitioning is a single greedy pass in topological order (linear deterministic greedy),
+ * so all predecessors of a vertex are already placed: the vertex joins the partition
+ * holding most of its predecessors, penalized by the fill of the partition.
+ * No partition exceeds the average size by more than the imbalance.
+ *
+ * @param <V> Vertex
+ */
+public class GraphPartitioner<V> {
+
+	private final IndexedDirectedGraph<V, ?> graph;
+	private final int[] topoIds;
+
+	/**
+	 * @param graph The acyclic graph
+	 * @param topoOrder The topological order of the graph vertices
+	 */
+	public <E extends GraphEdge<V>> GraphPartitioner(DirectedGraph<V, E> graph, List<V> topoOrder) {
+		IndexedDirectedGraph<V, E> indexedGraph = CompactDirectedGraph.copyOf(graph);
+		this.graph = indexedGraph;
+		int size = indexedGraph.vertexCount();
+		if (topoOrder.size() != size) {
+			throw new IllegalArgumentException("The topological order does not match the graph");
+		}
+
+		topoIds = new int[size];
+		for (int i = 0; i < size; i++) {
+			topoIds[i] = indexedGraph.indexOf(topoOrder.get(i));
+		}
+	}
+
+	/**
+	 * The partitions are balanced within 5%.
+	 * @param parts The amount of partitions
+	 * @return The partition (0..parts-1) of each vertex
+	 */
+	public Map<V, Integer> partition(int parts) {
+		return partition(parts, 0.05);
+	}
+
+	/**
+	 *
+	 * @param parts The amount of partitions
+	 * @param imbalance The allowed excess of a partition over the average size, e.g. 0.05
+	 * @return The partition (0..parts-1) of each vertex
+	 */
+	public Map<V, Integer> partition(int parts, double imbalance) {
+		if (parts < 1) {
+			throw new IllegalArgumentException("Parts must be positive: " + parts);
+		}
+		if (imbalance < 0) {
+			throw new IllegalArgumentException("Imbalance must not be negative: " + imbalance);
+		}
+
+		int size = topoIds.length;
+		int capacity = Math.max(1, (int) Math.ceil(size / (double) parts * (1 + imbalance)));
+		int[] partitions = new int[size];
+		int[] loads = new int[parts];
+		int[] neighbours = new int[parts];
+
+		for (int id : topoIds) {
+			int count = graph.predecessorCount(id);
+			for (int i = 0; i < count; i++) {
+				neighbours[partitions[graph.predecessorId(id, i)]]++;
+			}
+
+			int best = -1;
+			double bestScore = 0;
+			for (int p = 0; p < parts; p++) {
+				if (loads[p] >= capacity) {
+					continue;
+				}
+				double score = neighbours[p] * (1 - loads[p] / (double) capacity);
+				if (best < 0 || score > bestScore || score == bestScore && loads[p] < loads[best]) {
+					best = p;
+					bestScore = score;
+				}
+			}
+			partitions[id] = best;
+			loads[best]++;
+
+			for (int i = 0; i < count; i++) {
+				neighbours[partitions[graph.predecessorId(id, i)]] = 0;
+			}
+		}
+
+		ImmutableMap.Builder<V, Integer> builder = ImmutableMap.builder();
+		for (int id : topoIds) {
+			builder.put(graph.vertex(id), partitions[id]);
+		}
+		return builder.build();
+	}
+
+	/**
+	 *
+	 * @param partitions The partition of each vertex
+	 * @return The amount of edges between different partitions
+	 */
+	public int getCrossEdgeCount(Map<V, Integer> partitions) {
+		int result = 0;
+		for (int id = 0; id < graph.vertexCount(); id++) {
+			int partition = partitions.get(graph.vertex(id));
+			int count = graph.successorCount(id);
+			for (int i = 0; i < count; i++) {
+				if (partitions.get(graph.vertex(graph.successorId(id, i))) != partition) {
+					result++;
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -1,59 +1,50 @@
 package com.github.nill14.parsers.graph.utils;
 
-import static java.lang.Math.*;
-
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Deque;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 import com.github.nill14.parsers.graph.CyclicGraphException;
 import com.github.nill14.parsers.graph.DirectedGraph;
 import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.IndexedDirectedGraph;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
 import com.google.common.base.Function;
-import com.google.common.collect.FluentIterable;
-import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
-import com.google.common.collect.Maps;
-import com.google.common.collect.Sets;
 /**
- * 
+ * The depth-first search is iterative with an explicit stack and an array based vertex state,
+ * so the depth of the graph is not limited by the thread stack.
  */
 public class LongestPathTopoSorter<V, E extends GraphEdge<V>> {
 
+	private static final byte NEW = 0;
+	private static final byte IN_PROGRESS = 1;
+	private static final byte VISITED = 2;
+	private static final int THRESHOLD = 256;
+	private static final int SORT_THRESHOLD = 8192;
+
 	private final DirectedGraph<V, E> graph;
-	private final ImmutableMap<V, Vertex<V>> nodeIndex;
+	private final IndexedDirectedGraph<V, E> indexedGraph;
+	/**
+	 * null when all edges cost 1
+	 */
 	private final Function<E, Integer> edgeEval;
-	private final List<Vertex<V>> vertices;
 	
 	
 	public LongestPathTopoSorter(DirectedGraph<V, E> acyclicDirectedGraph) {
-		this(acyclicDirectedGraph, new Function<E, Integer>() {
-			@Override
-			public Integer apply(E input) {
-				return 1;
-			}
-		});
+		this.graph = acyclicDirectedGraph;
+		this.indexedGraph = CompactDirectedGraph.copyOf(acyclicDirectedGraph);
+		this.edgeEval = null;
 	}
 	
 	public LongestPathTopoSorter(DirectedGraph<V, E> acyclicDirectedGraph, Function<E, Integer> edgeEval) {
 		this.graph = acyclicDirectedGraph;
+		this.indexedGraph = CompactDirectedGraph.copyOf(acyclicDirectedGraph);
 		this.edgeEval = edgeEval;
-		vertices = Lists.newArrayList();
-		for (V node : graph.nodes()) {
-		  vertices.add(new Vertex<V>(node));
-		}
-		
-		nodeIndex = Maps.uniqueIndex(vertices, new Function<Vertex<V>, V>() {
-			@Override
-			public V apply(Vertex<V> input) {
-				return input.node;
-			}
-		});
 	}
 	
 	/**
@@ -77,42 +68,119 @@ public class LongestPathTopoSorter<V, E extends GraphEdge<V>> {
 	 * @throws CyclicGraphException when the graph contains cycles
 	 */
 	public LinkedHashMap<V, Integer> getLongestPathMap(Function<V, Integer> priorityFunction) throws CyclicGraphException {
-		LinkedList<Vertex<V>> vertices = topologicalOrdering();
-		Collections.reverse(vertices);
-		for (Vertex<V> v : vertices) {
-			visitCount(v, priorityFunction);
+		int[] vertices = topologicalOrdering();
+		int size = vertices.length;
+		int[] depths = new int[size];
+		for (int i = size - 1; i >= 0; i--) {
+			int n = vertices[i];
+			visitCount(n, depths, evalDuration(indexedGraph.vertex(n), priorityFunction));
 		}
 		
-		Collections.sort(vertices, new Comparator<Vertex<V>>() {
-            @Override
-            public int compare(Vertex<V> o1, Vertex<V> o2) {
-              return o2.depth - o1.depth;
-            }
-		});
+		long[] keys = sortKeys(vertices, depths);
+		Arrays.sort(keys);
+		return toMap(vertices, depths, keys);
+	}
+
+	/**
+	 * The depths are evaluated by levels of Kahn's algorithm starting with the sinks,
+	 * the vertices of a level are evaluated concurrently.
+	 * The depth-first order breaking the ties is computed in the pool meanwhile,
+	 * so the result is the same as of {@link #getLongestPathMap(Function)}.
+	 * 
+	 * @param priorityFunction an optional function for increasing priority returning positive number (or zero as default value), 
+	 * it is called concurrently, once per vertex
+	 * @param pool The pool evaluating the levels and sorting the result
+	 * @return A set of (Vertex, count) pairs
+	 * @throws CyclicGraphException when the graph contains cycles
+	 */
+	public LinkedHashMap<V, Integer> getLongestPathMap(Function<V, Integer> priorityFunction, ForkJoinPool pool) throws CyclicGraphException {
+		OrderTask order = new OrderTask();
+		pool.execute(order);
 		
+		int size = indexedGraph.vertexCount();
+		int[] depths = new int[size];
+		AtomicIntegerArray remaining = new AtomicIntegerArray(size);
+		int[] level = new int[size];
+		int levelSize = 0;
+		for (int id = 0; id < size; id++) {
+			int count = indexedGraph.successorCount(id);
+			remaining.set(id, count);
+			if (count == 0) {
+				level[levelSize++] = id;
+			}
+		}
+		
+		// the vertices of a cycle never join a level, the cycle is reported by the depth-first order
+		int[] next = new int[size];
+		AtomicInteger nextSize = new AtomicInteger();
+		while (levelSize > 0) {
+			LevelTask task = new LevelTask(level, 0, levelSize, next, nextSize, remaining, depths, priorityFunction);
+			if (levelSize <= THRESHOLD) {
+				task.evaluate();
+			} else {
+				pool.invoke(task);
+			}
+			int[] swap = level;
+			level = next;
+			next = swap;
+			levelSize = nextSize.getAndSet(0);
+		}
+		
+		int[] vertices = order.getVertices();
+		long[] keys = sortKeys(vertices, depths);
+		if (size <= SORT_THRESHOLD) {
+			Arrays.sort(keys);
+		} else {
+			pool.invoke(new SortTask(keys, new long[size], 0, size));
+		}
+		return toMap(vertices, depths, keys);
+	}
+	
+	/**
+	 * The keys of a stable sort of the reversed topological order by depth descendingly
+	 */
+	private long[] sortKeys(int[] vertices, int[] depths) {
+		int size = vertices.length;
+		long[] keys = new long[size];
+		for (int i = 0; i < size; i++) {
+			int position = size - 1 - i;
+			keys[i] = ((long) (Integer.MAX_VALUE - depths[vertices[position]]) << 32) | i;
+		}
+		return keys;
+	}
+	
+	private LinkedHashMap<V, Integer> toMap(int[] vertices, int[] depths, long[] sortedKeys) {
+		int size = vertices.length;
 		LinkedHashMap<V, Integer> result = new LinkedHashMap<>();
-		for (Vertex<V> v : vertices) {
-			result.put(v.node, v.depth);
+		for (long key : sortedKeys) {
+			int id = vertices[size - 1 - (int) key];
+			result.put(indexedGraph.vertex(id), depths[id]);
 		}
 		return result;
 	}
 	
-	private void visitCount(Vertex<V> n, Function<V, Integer> nodePriority) {
-		int nodeValue = evalDuration(n, nodePriority);
-		Collection<E> next = getNextEdges(n);
-		if (next.isEmpty()) {
-			n.depth = nodeValue;
+	private void visitCount(int n, int[] depths, int nodeValue) {
+		int count = indexedGraph.successorCount(n);
+		if (count == 0) {
+			depths[n] = nodeValue;
 		} else {
 			int max = 0;
-			for (E edge : next) {
-				Vertex<V> m = getVertex(edge.target());
-				//Vertex m was already evaluated
-				int count = evalTransition(edge) + m.depth;
-				max = max(max, count);
+			if (edgeEval == null) {
+				for (int i = 0; i < count; i++) {
+					//Vertex m was already evaluated
+					max = Math.max(max, 1 + depths[indexedGraph.successorId(n, i)]);
+				}
+			} else {
+				for (E edge : indexedGraph.successorEdges(indexedGraph.vertex(n))) {
+					int m = indexedGraph.indexOf(edge.target());
+					//Vertex m was already evaluated
+					int value = evalTransition(edge) + depths[m];
+					max = Math.max(max, value);
+				}
 			}
-			n.depth = max + nodeValue;
-			if (n.depth < max) {
-				throw new IllegalStateException("Range overflow: " + n.depth);
+			depths[n] = max + nodeValue;
+			if (depths[n] < max) {
+				throw new IllegalStateException("Range overflow: " + depths[n]);
 			}
 		}
 	}
@@ -131,13 +199,13 @@ public class LongestPathTopoSorter<V, E extends GraphEdge<V>> {
 	}
 	
 	/**
-	 * @param n The vertex
+	 * @param node The vertex
 	 * @return default is 0
 	 */
-	private int evalDuration(Vertex<V> n, Function<V, Integer> nodePriority) {
-		int val = nodePriority.apply(n.node);
+	private int evalDuration(V node, Function<V, Integer> nodePriority) {
+		int val = nodePriority.apply(node);
 		if (val < 0) {
-			throw new IllegalArgumentException(String.format("Node %s priority must be bigger or equal to zero: %s", n.node, val));
+			throw new IllegalArgumentException(String.format("Node %s priority must be bigger or equal to zero: %s", node, val));
 		}
 		return val;
 	}
@@ -157,14 +225,12 @@ public class LongestPathTopoSorter<V, E extends GraphEdge<V>> {
 	 * @throws CyclicGraphException when the graph contains cycles
 	 */
 	public List<V> getTopologicalOrdering() throws CyclicGraphException {
-		return FluentIterable.from(topologicalOrdering())
-			.transform(new Function<Vertex<V>, V>() {
-
-				@Override
-				public V apply(Vertex<V> input) {
-					return input.node;
-				}
-			}).toList();
+		int[] vertices = topologicalOrdering();
+		List<V> result = Lists.newArrayListWithCapacity(vertices.length);
+		for (int id : vertices) {
+			result.add(indexedGraph.vertex(id));
+		}
+		return result;
 	}
 	
 	
@@ -182,66 +248,172 @@ public class LongestPathTopoSorter<V, E extends GraphEdge<V>> {
 //	        unmark n temporarily
 //	        add n to head of L
 	
-	private LinkedList<Vertex<V>> topologicalOrdering() throws CyclicGraphException {
-		LinkedList<Vertex<V>> list = Lists.newLinkedList();
-		Set<Vertex<V>> visited = Sets.newHashSet();
+	/**
+	 * @return the vertex ids in topological order
+	 */
+	private int[] topologicalOrdering() throws CyclicGraphException {
+		int size = indexedGraph.vertexCount();
+		int[] list = new int[size];
+		int head = size;
+		byte[] marks = new byte[size];
+		int[] stack = new int[size];
+		int[] positions = new int[size];
 		
-		for (Vertex<V> v : vertices) {
-			visitUnsorted(v, visited, list);
+		for (int v = 0; v < size; v++) {
+			if (marks[v] != NEW) {
+				continue;
+			}
+			int depth = 0;
+			marks[v] = IN_PROGRESS;
+			stack[depth] = v;
+			positions[depth++] = 0;
+			
+			while (depth > 0) {
+				int n = stack[depth - 1];
+				if (positions[depth - 1] < indexedGraph.successorCount(n)) {
+					int m = indexedGraph.successorId(n, positions[depth - 1]++);
+					if (marks[m] == IN_PROGRESS) {
+						throw new CyclicGraphException(graph,
+								"is not DAG - directed acyclic graph - contains cycles");
+					} else if (marks[m] == NEW) {
+						marks[m] = IN_PROGRESS;
+						stack[depth] = m;
+						positions[depth++] = 0;
+					}
+				} else {
+					marks[n] = VISITED;
+					list[--head] = n;
+					depth--;
+				}
+			}
 		}
 		
 		return list;
 	}
-	
-	private void visitUnsorted(Vertex<V> n, Set<Vertex<V>> visited, Deque<Vertex<V>> list) throws CyclicGraphException {
-		if (n.tempMark) {
-			throw new CyclicGraphException(graph,
-					"is not DAG - directed acyclic graph - contains cycles");
-		} else if (visited.contains(n)) {
-			return;
-		} else {
-			n.tempMark = true;
-			Collection<Vertex<V>> next = getNext(n);
-			for (Vertex<V> m : next) {
-				visitUnsorted(m, visited, list);
+
+	/**
+	 * The depth-first topological order, computed concurrently with the levels
+	 */
+	private final class OrderTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private int[] vertices;
+		private CyclicGraphException failure;
+
+		@Override
+		protected void compute() {
+			try {
+				vertices = topologicalOrdering();
+			} catch (CyclicGraphException e) {
+				failure = e;
 			}
-			visited.add(n);
-			n.tempMark = false;
-			list.push(n);
 		}
-	}
-	  
-	private Set<Vertex<V>> getNext(Vertex<V> v) {
-		return graph.successors(v.node, new Function<V, Vertex<V>>() {
-			@Override
-			public Vertex<V> apply(V input) {
-				return getVertex(input);
+
+		/**
+		 * Waits for the order
+		 */
+		public int[] getVertices() throws CyclicGraphException {
+			join();
+			if (failure != null) {
+				throw failure;
 			}
-		});
-	}
-	
-	private Collection<E> getNextEdges(Vertex<V> v) {
-		return graph.successorEdges(v.node);
+			return vertices;
+		}
 	}
-	
-	private <T> Vertex<V> getVertex(V node) {
-		return nodeIndex.get(node);
+
+	private final class LevelTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] level;
+		private final int from;
+		private final int to;
+		private final int[] next;
+		private final AtomicInteger nextSize;
+		private final AtomicIntegerArray remaining;
+		private final int[] depths;
+		private final Function<V, Integer> priorityFunction;
+
+		public LevelTask(int[] level, int from, int to, int[] next, AtomicInteger nextSize,
+				AtomicIntegerArray remaining, int[] depths, Function<V, Integer> priorityFunction) {
+			this.level = level;
+			this.from = from;
+			this.to = to;
+			this.next = next;
+			this.nextSize = nextSize;
+			this.remaining = remaining;
+			this.depths = depths;
+			this.priorityFunction = priorityFunction;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				evaluate();
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new LevelTask(level, from, mid, next, nextSize, remaining, depths, priorityFunction), 
+						new LevelTask(level, mid, to, next, nextSize, remaining, depths, priorityFunction));
+			}
+		}
+
+		/**
+		 * Evaluates the vertices of the range, 
+		 * a predecessor joins the next level once all its successors are evaluated
+		 */
+		public void evaluate() {
+			for (int i = from; i < to; i++) {
+				int n = level[i];
+				visitCount(n, depths, evalDuration(indexedGraph.vertex(n), priorityFunction));
+				for (int k = 0; k < indexedGraph.predecessorCount(n); k++) {
+					int m = indexedGraph.predecessorId(n, k);
+					if (remaining.decrementAndGet(m) == 0) {
+						next[nextSize.getAndIncrement()] = m;
+					}
+				}
+			}
+		}
 	}
-	  
-	private static class Vertex<V> {
-		public int depth;
-		public boolean tempMark;
-		private final V node;
 
-		public Vertex(V node) {
-			this.node = node;
-			this.depth = 0;
-			this.tempMark = false;
+	/**
+	 * A merge sort of the keys, the parts below the threshold are sorted sequentially
+	 */
+	private static final class SortTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long[] keys;
+		private final long[] buffer;
+		private final int from;
+		private final int to;
+
+		public SortTask(long[] keys, long[] buffer, int from, int to) {
+			this.keys = keys;
+			this.buffer = buffer;
+			this.from = from;
+			this.to = to;
 		}
-		
+
 		@Override
-		public String toString() {
-			return String.format("%s %d %b", node, depth, tempMark);
+		protected void compute() {
+			if (to - from <= SORT_THRESHOLD) {
+				Arrays.sort(keys, from, to);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new SortTask(keys, buffer, from, mid), new SortTask(keys, buffer, mid, to));
+			
+			int i = from;
+			int j = mid;
+			int k = from;
+			while (i < mid && j < to) {
+				buffer[k++] = keys[i] <= keys[j] ? keys[i++] : keys[j++];
+			}
+			System.arraycopy(keys, i, buffer, k, mid - i);
+			k += mid - i;
+			System.arraycopy(keys, j, buffer, k, to - j);
+			System.arraycopy(buffer, from, keys, from, to - from);
 		}
 	}
 	
@@ -0,0 +1,601 @@
+package com.github.nill14.parsers.graph.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.nill14.parsers.dependency.IConsumer;
+import com.github.nill14.parsers.dependency.IDependencyDescriptor;
+import com.github.nill14.parsers.dependency.IResourceDescriptor;
+import com.github.nill14.parsers.dependency.IWalkListener;
+import com.github.nill14.parsers.dependency.WalkOptions;
+import com.github.nill14.parsers.dependency.WalkOptions.FailurePolicy;
+import com.github.nill14.parsers.dependency.WalkResult;
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.IndexedDirectedGraph;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+
+/**
+ * A push-based walker executing the vertices in an {@link Executor}.
+ * Each vertex has a counter of remaining predecessors, a completed vertex
+ * pushes the successors which became ready into a queue ordered by the rankings.
+ * The highest ranked ready vertices are started while the parallelism permits.
+ *
+ * Unlike {@link GraphWalker3} the scheduling does not scan the topological order,
+ * a completion costs O(successors * log(ready)).
+ *
+ * With {@link FailurePolicy#CONTINUE} a failure skips only the transitive successors
+ * of the failed vertex, the independent vertices keep running.
+ *
+ * The chained and cheap vertices (see {@link WalkOptions}) are not queued,
+ * the task of the completed predecessor continues with them on the same thread,
+ * so a chain is executed as a single task.
+ *
+ * With the resource limits a module is started only when the permits of its resource classes
+ * are available. The ready modules are scanned in the order of rankings, a module lacking permits
+ * does not block the modules of other classes, but the lower ranked modules 
+ * do not take the permits of a class the module is waiting for.
+ *
+ * The optional {@link IWalkListener} is notified of the scheduling events,
+ * without a listener no timestamps are taken.
+ * An exception thrown by the listener is logged and it does not affect the walk.
+ *
+ * @param <V> Vertex
+ */
+public class RankedGraphWalker<V> {
+
+	private static final Logger log = LoggerFactory.getLogger(RankedGraphWalker.class);
+
+	private static final byte PENDING = 0;
+	private static final byte RUNNING = 1;
+	private static final byte COMPLETED = 2;
+	private static final byte FAILED = 3;
+	private static final byte SKIPPED = 4;
+
+	private final IndexedDirectedGraph<V, ?> graph;
+	private final int[] rankings;
+
+	public <E extends GraphEdge<V>> RankedGraphWalker(DirectedGraph<V, E> graph, Map<V, Integer> rankings) {
+		IndexedDirectedGraph<V, E> indexedGraph = CompactDirectedGraph.copyOf(graph);
+		this.graph = indexedGraph;
+
+		int size = indexedGraph.vertexCount();
+		this.rankings = new int[size];
+		for (int id = 0; id < size; id++) {
+			this.rankings[id] = rankings.get(indexedGraph.vertex(id));
+		}
+	}
+
+	/**
+	 *
+	 * @return The count of graph vertices
+	 */
+	public int size() {
+		return graph.vertexCount();
+	}
+
+	/**
+	 * Executes the vertices and blocks until all executions are completed or skipped.
+	 *
+	 * @param executor The executor
+	 * @param consumer a processing closure
+	 * @param options The parallelism and the failure policy
+	 * @return The completed, failed and skipped vertices
+	 * @throws ExecutionException when any execution has failed with {@link FailurePolicy#FAIL_FAST}
+	 * or when the walk is interrupted
+	 */
+	public WalkResult<V> walk(Executor executor, IConsumer<V> consumer, WalkOptions<V> options) throws ExecutionException {
+		Walk walk = new Walk(executor, consumer, options);
+		walk.start();
+		walk.await();
+		walk.finish();
+
+		if (options.getFailurePolicy() == FailurePolicy.FAIL_FAST) {
+			walk.result().checkFailures();
+		}
+		return walk.result();
+	}
+
+	private final class Walk {
+
+		private final Executor executor;
+		private final IConsumer<V> consumer;
+		private final int parallelism;
+		private final FailurePolicy failurePolicy;
+		private final IWalkListener<? super V> listener;
+
+		private final Lock lock = new ReentrantLock();
+		private final Condition finishedCondition = lock.newCondition();
+		private final int[] remaining;
+		private final byte[] states;
+		/**
+		 * Whether the vertex is executed by the task of its last completed predecessor
+		 */
+		private final boolean[] continuable;
+		/**
+		 * The available permits of the limited resource classes, null when not limited
+		 */
+		private final int[] available;
+		/**
+		 * The limited resource classes and weights of each vertex, null when the vertex has none
+		 */
+		private final int[][] demandClasses;
+		private final int[][] demandWeights;
+		private final PriorityQueue<Integer> ready;
+		private final Set<V> completed = new LinkedHashSet<>();
+		private final Map<V, Exception> failed = new LinkedHashMap<>();
+		private final Set<V> skipped = new LinkedHashSet<>();
+		private int running = 0;
+		private int finished = 0;
+		private boolean stopped = false;
+
+		public Walk(Executor executor, IConsumer<V> consumer, WalkOptions<V> options) {
+			this.executor = executor;
+			this.consumer = consumer;
+			this.parallelism = options.getParallelism();
+			this.failurePolicy = options.getFailurePolicy();
+			IWalkListener<? super V> listener = options.getListener();
+			this.listener = listener != null ? new GuardedListener<V>(listener) : null;
+
+			int size = graph.vertexCount();
+			remaining = new int[size];
+			states = new byte[size];
+			continuable = new boolean[size];
+			Predicate<? super V> cheapModules = options.getCheapModules();
+			for (int id = 0; id < size; id++) {
+				boolean chained = options.isContractChains() && graph.predecessorCount(id) == 1
+						&& graph.successorCount(graph.predecessorId(id, 0)) == 1;
+				continuable[id] = chained || cheapModules.apply(graph.vertex(id));
+			}
+			
+			Map<String, Integer> limits = options.getResourceLimits();
+			if (limits.isEmpty()) {
+				available = null;
+				demandClasses = null;
+				demandWeights = null;
+			} else {
+				List<String> classes = new ArrayList<>(limits.keySet());
+				available = new int[classes.size()];
+				for (int c = 0; c < available.length; c++) {
+					available[c] = limits.get(classes.get(c));
+				}
+				demandClasses = new int[size][];
+				demandWeights = new int[size][];
+				Function<? super V, ? extends IDependencyDescriptor<?>> descriptors = options.getDescriptorFunction();
+				for (int id = 0; id < size; id++) {
+					IDependencyDescriptor<?> descriptor = descriptors.apply(graph.vertex(id));
+					if (!(descriptor instanceof IResourceDescriptor)) {
+						continue;
+					}
+					Map<String, Integer> resources = ((IResourceDescriptor) descriptor).getResources();
+					List<Integer> demands = new ArrayList<>();
+					for (int c = 0; c < available.length; c++) {
+						Integer weight = resources.get(classes.get(c));
+						if (weight != null) {
+							if (weight > available[c]) {
+								throw new IllegalArgumentException(String.format(
+										"Module %s requires %d permits of %s, the capacity is %d", 
+										graph.vertex(id), weight, classes.get(c), available[c]));
+							}
+							demands.add(c);
+						}
+					}
+					if (!demands.isEmpty()) {
+						demandClasses[id] = new int[demands.size()];
+						demandWeights[id] = new int[demands.size()];
+						for (int i = 0; i < demands.size(); i++) {
+							demandClasses[id][i] = demands.get(i);
+							demandWeights[id][i] = resources.get(classes.get(demands.get(i)));
+						}
+					}
+				}
+			}
+			ready = new PriorityQueue<>(11, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					int result = Integer.compare(rankings[o2], rankings[o1]);
+					return result != 0 ? result : Integer.compare(o1, o2);
+				}
+			});
+			for (int id = 0; id < size; id++) {
+				remaining[id] = graph.predecessorCount(id);
+				if (remaining[id] == 0) {
+					ready.add(id);
+				}
+			}
+		}
+
+		public void start() {
+			List<Integer> started;
+			try {
+				lock.lock();
+				if (listener != null) {
+					long nanoTime = System.nanoTime();
+					listener.walkStarted(states.length, parallelism, nanoTime);
+					for (int id : ready) {
+						listener.ready(graph.vertex(id), nanoTime);
+					}
+				}
+				started = dequeue();
+			} finally {
+				lock.unlock();
+			}
+			execute(started);
+		}
+
+		public void await() throws ExecutionException {
+			try {
+				lock.lock();
+				while (!isFinished()) {
+					finishedCondition.await();
+				}
+			} catch (InterruptedException e) {
+				throw new ExecutionException(e);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		public void finish() {
+			if (listener != null) {
+				listener.walkFinished(System.nanoTime());
+			}
+		}
+
+		public WalkResult<V> result() {
+			try {
+				lock.lock();
+				return new WalkResult<>(completed, failed, skipped);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Requires the lock held
+		 */
+		private boolean isFinished() {
+			return finished == states.length || stopped && running == 0;
+		}
+
+		/**
+		 * Requires the lock held
+		 * @return the vertices to be started outside of the lock
+		 */
+		private List<Integer> dequeue() {
+			List<Integer> started = new ArrayList<>();
+			if (available == null) {
+				while (!stopped && running < parallelism && !ready.isEmpty()) {
+					int id = ready.poll();
+					states[id] = RUNNING;
+					running++;
+					started.add(id);
+				}
+			} else {
+				List<Integer> waiting = new ArrayList<>();
+				boolean[] reserved = new boolean[available.length];
+				while (!stopped && running < parallelism && !ready.isEmpty()) {
+					int id = ready.poll();
+					if (acquire(id, reserved)) {
+						states[id] = RUNNING;
+						running++;
+						started.add(id);
+					} else {
+						waiting.add(id);
+					}
+				}
+				ready.addAll(waiting);
+			}
+			if (isFinished()) {
+				finishedCondition.signalAll();
+			}
+			return started;
+		}
+
+		/**
+		 * Requires the lock held.
+		 * When the permits are not available, the lacking classes are reserved for the vertex.
+		 * @param reserved the classes reserved for the higher ranked vertices
+		 * @return whether the permits of the vertex were acquired
+		 */
+		private boolean acquire(int id, boolean[] reserved) {
+			int[] classes = demandClasses[id];
+			if (classes == null) {
+				return true;
+			}
+			boolean acquirable = true;
+			for (int i = 0; i < classes.length; i++) {
+				int c = classes[i];
+				if (reserved[c] || available[c] < demandWeights[id][i]) {
+					reserved[c] = true;
+					acquirable = false;
+				}
+			}
+			if (acquirable) {
+				for (int i = 0; i < classes.length; i++) {
+					available[classes[i]] -= demandWeights[id][i];
+				}
+			}
+			return acquirable;
+		}
+
+		/**
+		 * Requires the lock held.
+		 * The higher ranked ready vertices are acquired first as {@link #dequeue()} would do,
+		 * so the vertex does not take the permits of a class they are waiting for.
+		 * @return whether the permits of the continued vertex were acquired
+		 */
+		private boolean acquireContinuation(int id) {
+			List<Integer> higherRanked = new ArrayList<>();
+			for (int waiting : ready) {
+				if (ready.comparator().compare(waiting, id) < 0) {
+					higherRanked.add(waiting);
+				}
+			}
+			Collections.sort(higherRanked, ready.comparator());
+
+			boolean[] reserved = new boolean[available.length];
+			List<Integer> acquired = new ArrayList<>();
+			for (int waiting : higherRanked) {
+				if (acquire(waiting, reserved)) {
+					acquired.add(waiting);
+				}
+			}
+			boolean result = acquire(id, reserved);
+			for (int waiting : acquired) {
+				release(waiting);
+			}
+			return result;
+		}
+
+		/**
+		 * Requires the lock held
+		 */
+		private void release(int id) {
+			if (available != null && demandClasses[id] != null) {
+				int[] classes = demandClasses[id];
+				for (int i = 0; i < classes.length; i++) {
+					available[classes[i]] += demandWeights[id][i];
+				}
+			}
+		}
+
+		/**
+		 * A rejected vertex fails, the vertices started instead are executed by the same loop
+		 */
+		private void execute(List<Integer> started) {
+			Deque<Integer> pending = new ArrayDeque<>(started);
+			while (!pending.isEmpty()) {
+				final int id = pending.poll();
+				try {
+					executor.execute(new Runnable() {
+						@Override
+						public void run() {
+							int next = id;
+							while (next >= 0) {
+								V vertex = graph.vertex(next);
+								if (listener != null) {
+									listener.started(vertex, System.nanoTime());
+								}
+								try {
+									consumer.process(vertex);
+								} catch (Exception e) {
+									if (listener != null) {
+										listener.failed(vertex, e, System.nanoTime());
+									}
+									onFailure(next, e);
+									return;
+								} catch (Error e) {
+									// the walk must not wait for the vertex
+									ExecutionException failure = new ExecutionException(e);
+									if (listener != null) {
+										listener.failed(vertex, failure, System.nanoTime());
+									}
+									onFailure(next, failure);
+									throw e;
+								}
+								if (listener != null) {
+									listener.completed(vertex, System.nanoTime());
+								}
+								next = onComplete(next);
+							}
+						}
+					});
+				} catch (RuntimeException e) {
+					// e.g. the executor is shut down
+					if (listener != null) {
+						listener.failed(graph.vertex(id), e, System.nanoTime());
+					}
+					pending.addAll(fail(id, e));
+				}
+			}
+		}
+
+		/**
+		 * @return the vertex to continue with on the same thread or -1
+		 */
+		private int onComplete(int id) {
+			int next = -1;
+			List<Integer> started;
+			try {
+				lock.lock();
+				states[id] = COMPLETED;
+				completed.add(graph.vertex(id));
+				running--;
+				finished++;
+				release(id);
+
+				long nanoTime = listener != null ? System.nanoTime() : 0;
+				int count = graph.successorCount(id);
+				for (int i = 0; i < count; i++) {
+					int successor = graph.successorId(id, i);
+					if (--remaining[successor] == 0 && states[successor] == PENDING) {
+						if (listener != null) {
+							listener.ready(graph.vertex(successor), nanoTime);
+						}
+						if (!continuable[successor] || stopped) {
+							ready.add(successor);
+						} else if (next < 0) {
+							next = successor;
+						} else if (rankings[successor] > rankings[next]) {
+							ready.add(next);
+							next = successor;
+						} else {
+							ready.add(successor);
+						}
+					}
+				}
+				if (next >= 0 && available != null && !acquireContinuation(next)) {
+					ready.add(next);
+					next = -1;
+				}
+				if (next >= 0) {
+					// the permit is kept by the continuing task
+					states[next] = RUNNING;
+					running++;
+				}
+				started = dequeue();
+			} finally {
+				lock.unlock();
+			}
+			execute(started);
+			return next;
+		}
+
+		private void onFailure(int id, Exception e) {
+			execute(fail(id, e));
+		}
+
+		/**
+		 * @return the vertices to be started outside of the lock
+		 */
+		private List<Integer> fail(int id, Exception e) {
+			try {
+				lock.lock();
+				states[id] = FAILED;
+				failed.put(graph.vertex(id), e);
+				running--;
+				finished++;
+				release(id);
+
+				if (failurePolicy == FailurePolicy.CONTINUE) {
+					skipSuccessors(id);
+				} else {
+					stopped = true;
+				}
+				return dequeue();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Requires the lock held.
+		 * The successors of a failed vertex are never ready, so none of them is running.
+		 */
+		private void skipSuccessors(int id) {
+			int[] stack = new int[states.length];
+			int depth = 0;
+			stack[depth++] = id;
+			while (depth > 0) {
+				int vertex = stack[--depth];
+				int count = graph.successorCount(vertex);
+				for (int i = 0; i < count; i++) {
+					int successor = graph.successorId(vertex, i);
+					if (states[successor] == PENDING) {
+						states[successor] = SKIPPED;
+						skipped.add(graph.vertex(successor));
+						finished++;
+						stack[depth++] = successor;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * The listener events are invoked outside of the try blocks handling the consumer failures,
+	 * an exception of the listener would leave the vertex running forever.
+	 */
+	private static final class GuardedListener<V> implements IWalkListener<V> {
+
+		private final IWalkListener<? super V> delegate;
+
+		public GuardedListener(IWalkListener<? super V> delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		public void walkStarted(int moduleCount, int parallelism, long nanoTime) {
+			try {
+				delegate.walkStarted(moduleCount, parallelism, nanoTime);
+			} catch (RuntimeException e) {
+				log.warn("The listener failed on the walk start", e);
+			}
+		}
+
+		@Override
+		public void ready(V module, long nanoTime) {
+			try {
+				delegate.ready(module, nanoTime);
+			} catch (RuntimeException e) {
+				log.warn("The listener failed on the ready module {}", module, e);
+			}
+		}
+
+		@Override
+		public void started(V module, long nanoTime) {
+			try {
+				delegate.started(module, nanoTime);
+			} catch (RuntimeException e) {
+				log.warn("The listener failed on the started module {}", module, e);
+			}
+		}
+
+		@Override
+		public void completed(V module, long nanoTime) {
+			try {
+				delegate.completed(module, nanoTime);
+			} catch (RuntimeException e) {
+				log.warn("The listener failed on the completed module {}", module, e);
+			}
+		}
+
+		@Override
+		public void failed(V module, Exception exception, long nanoTime) {
+			try {
+				delegate.failed(module, exception, nanoTime);
+			} catch (RuntimeException e) {
+				log.warn("The listener failed on the failed module {}", module, e);
+			}
+		}
+
+		@Override
+		public void walkFinished(long nanoTime) {
+			try {
+				delegate.walkFinished(nanoTime);
+			} catch (RuntimeException e) {
+				log.warn("The listener failed on the walk finish", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,249 @@
+package com.github.nill14.parsers.graph.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.IndexedDirectedGraph;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+
+/**
+ * Answers whether a vertex is reachable from another vertex
+ * using GRAIL labels (Yildirim, Chaoji, Zaki: Scalable Reachability Indexing for Very Large Graphs).
+ *
+ * Each of a few randomized depth-first traversals assigns a vertex an interval [low, post-order rank].
+ * When a vertex reaches another one, its intervals contain the intervals of the other one,
+ * so the most negative queries are answered by comparing the labels.
+ * The remaining queries are answered by a depth-first search pruned by the labels
+ * and by the positions in the topological order.
+ *
+ * The index takes O(n) memory and it is safe to be queried concurrently.
+ * A search allocates its state per query, proportional to the visited part of the graph.
+ *
+ * @param <V> Vertex
+ */
+public class ReachabilityIndex<V> {
+
+	private static final int DEFAULT_TRAVERSALS = 3;
+
+	private final IndexedDirectedGraph<V, ?> graph;
+	private final int traversals;
+	private final int[] topoIds;
+	/**
+	 * The labels of the vertex v of the traversal t are at (v * traversals + t)
+	 */
+	private final int[] lows;
+	private final int[] ranks;
+
+	/**
+	 * @param graph The acyclic graph
+	 * @param topoOrder The topological order of the graph vertices
+	 */
+	public <E extends GraphEdge<V>> ReachabilityIndex(DirectedGraph<V, E> graph, List<V> topoOrder) {
+		this(graph, topoOrder, DEFAULT_TRAVERSALS, new Random());
+	}
+
+	/**
+	 * @param graph The acyclic graph
+	 * @param topoOrder The topological order of the graph vertices
+	 * @param traversals The amount of randomized traversals, i.e. the amount of labels per vertex
+	 * @param random The randomness of the traversals
+	 */
+	public <E extends GraphEdge<V>> ReachabilityIndex(DirectedGraph<V, E> graph, List<V> topoOrder, int traversals, Random random) {
+		if (traversals < 1) {
+			throw new IllegalArgumentException("Traversals must be positive: " + traversals);
+		}
+		IndexedDirectedGraph<V, E> indexedGraph = CompactDirectedGraph.copyOf(graph);
+		this.graph = indexedGraph;
+		this.traversals = traversals;
+		int size = indexedGraph.vertexCount();
+		if (topoOrder.size() != size) {
+			throw new IllegalArgumentException("The topological order does not match the graph");
+		}
+
+		topoIds = new int[size];
+		int[] roots = new int[size];
+		int rootCount = 0;
+		for (int topoId = 0; topoId < size; topoId++) {
+			int id = indexedGraph.indexOf(topoOrder.get(topoId));
+			topoIds[id] = topoId;
+			if (indexedGraph.predecessorCount(id) == 0) {
+				roots[rootCount++] = id;
+			}
+		}
+
+		lows = new int[size * traversals];
+		ranks = new int[size * traversals];
+		int[] stack = new int[size];
+		int[] positions = new int[size];
+		int[] offsets = new int[size];
+		for (int t = 0; t < traversals; t++) {
+			shuffle(roots, rootCount, random);
+			label(t, roots, rootCount, stack, positions, offsets, random);
+		}
+	}
+
+	private static void shuffle(int[] array, int length, Random random) {
+		for (int i = length - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int tmp = array[i];
+			array[i] = array[j];
+			array[j] = tmp;
+		}
+	}
+
+	/**
+	 * An iterative post-order traversal, the successors of a vertex are visited
+	 * cyclically from a random offset. The rank zero marks an unvisited vertex.
+	 */
+	private void label(int t, int[] roots, int rootCount, int[] stack, int[] positions, int[] offsets, Random random) {
+		int rank = 0;
+		for (int r = 0; r < rootCount; r++) {
+			int depth = 0;
+			stack[depth] = roots[r];
+			positions[depth] = 0;
+			offsets[depth] = random.nextInt(Math.max(graph.successorCount(roots[r]), 1));
+			lows[roots[r] * traversals + t] = Integer.MAX_VALUE;
+
+			while (depth >= 0) {
+				int id = stack[depth];
+				int count = graph.successorCount(id);
+				if (positions[depth] < count) {
+					int successor = graph.successorId(id, (offsets[depth] + positions[depth]++) % count);
+					int label = successor * traversals + t;
+					if (ranks[label] == 0) {
+						lows[label] = Integer.MAX_VALUE;
+						stack[++depth] = successor;
+						positions[depth] = 0;
+						offsets[depth] = random.nextInt(Math.max(graph.successorCount(successor), 1));
+					} else {
+						lows[id * traversals + t] = Math.min(lows[id * traversals + t], lows[label]);
+					}
+				} else {
+					int label = id * traversals + t;
+					ranks[label] = ++rank;
+					lows[label] = Math.min(lows[label], rank);
+					if (--depth >= 0) {
+						int parent = stack[depth] * traversals + t;
+						lows[parent] = Math.min(lows[parent], lows[label]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return The count of graph vertices
+	 */
+	public int size() {
+		return topoIds.length;
+	}
+
+	/**
+	 * A vertex is not reachable from itself unless there is a cycle, i.e. never.
+	 * @param source The source vertex
+	 * @param target The target vertex
+	 * @return whether there is a path from the source to the target, false when a vertex is not present
+	 */
+	public boolean reaches(V source, V target) {
+		int from = graph.indexOf(source);
+		int to = graph.indexOf(target);
+		if (from < 0 || to < 0 || !mayReach(from, to)) {
+			return false;
+		}
+		return new Search().search(from, to);
+	}
+
+	/**
+	 * @return false when the target is surely not reachable
+	 */
+	private boolean mayReach(int from, int to) {
+		if (topoIds[from] >= topoIds[to]) {
+			return false;
+		}
+		int source = from * traversals;
+		int target = to * traversals;
+		for (int t = 0; t < traversals; t++) {
+			if (lows[target + t] < lows[source + t] || ranks[target + t] > ranks[source + t]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * The state of a single depth-first search.
+	 * The visited vertices are kept in a small open addressing set, it grows with the search.
+	 */
+	private final class Search {
+
+		private static final int FREE = -1;
+
+		private int[] visited = newTable(16);
+		private int visitedCount = 0;
+		private int[] stack = new int[16];
+
+		public boolean search(int from, int to) {
+			int depth = 0;
+			stack[depth++] = from;
+			visit(from);
+			while (depth > 0) {
+				int id = stack[--depth];
+				int count = graph.successorCount(id);
+				for (int i = 0; i < count; i++) {
+					int successor = graph.successorId(id, i);
+					if (successor == to) {
+						return true;
+					} else if (mayReach(successor, to) && visit(successor)) {
+						if (depth == stack.length) {
+							stack = Arrays.copyOf(stack, depth * 2);
+						}
+						stack[depth++] = successor;
+					}
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * @return false when the vertex was already visited
+		 */
+		private boolean visit(int id) {
+			if (!insert(visited, id)) {
+				return false;
+			}
+			if (++visitedCount * 2 > visited.length) {
+				int[] table = newTable(visited.length * 2);
+				for (int element : visited) {
+					if (element != FREE) {
+						insert(table, element);
+					}
+				}
+				visited = table;
+			}
+			return true;
+		}
+
+		private int[] newTable(int capacity) {
+			int[] table = new int[capacity];
+			Arrays.fill(table, FREE);
+			return table;
+		}
+
+		private boolean insert(int[] table, int id) {
+			int mask = table.length - 1;
+			int slot = (id * 0x9e3779b9) >>> 1 & mask;
+			while (table[slot] != FREE) {
+				if (table[slot] == id) {
+					return false;
+				}
+				slot = (slot + 1) & mask;
+			}
+			table[slot] = id;
+			return true;
+		}
+	}
+}
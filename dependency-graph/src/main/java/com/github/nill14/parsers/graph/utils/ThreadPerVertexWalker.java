@@ -0,0 +1,337 @@
+package com.github.nill14.parsers.graph.utils;
+
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.nill14.parsers.dependency.IConsumer;
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.IndexedDirectedGraph;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A walker starting a new thread for each ready vertex.
+ * It is intended for IO-bound vertices executed on virtual threads,
+ * see {@link #newVirtualThreadFactory()}.
+ * The concurrency is bounded by permits instead of a pool size.
+ *
+ * The cancellation is structured: a failure interrupts the running threads
+ * and the walk returns only after all started threads have terminated.
+ *
+ * @param <V> Vertex
+ */
+public class ThreadPerVertexWalker<V> {
+
+	private static final Logger log = LoggerFactory.getLogger(ThreadPerVertexWalker.class);
+
+	private final IndexedDirectedGraph<V, ?> graph;
+	private final int[] rankings;
+
+	public <E extends GraphEdge<V>> ThreadPerVertexWalker(DirectedGraph<V, E> graph, Map<V, Integer> rankings) {
+		IndexedDirectedGraph<V, E> indexedGraph = CompactDirectedGraph.copyOf(graph);
+		this.graph = indexedGraph;
+		this.rankings = new int[indexedGraph.vertexCount()];
+		for (int id = 0; id < this.rankings.length; id++) {
+			this.rankings[id] = rankings.get(indexedGraph.vertex(id));
+		}
+	}
+
+	/**
+	 * The virtual threads are available since Java 21,
+	 * the library is compiled for older versions hence the reflection.
+	 *
+	 * @return a factory of virtual threads or a factory of platform daemon threads
+	 * when the virtual threads are not supported by the JVM
+	 */
+	public static ThreadFactory newVirtualThreadFactory() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Method factory = builderClass.getMethod("factory");
+			return (ThreadFactory) factory.invoke(builder);
+		} catch (ReflectiveOperationException e) {
+			log.debug("Virtual threads are not supported, using platform threads", e);
+			return new ThreadFactoryBuilder()
+				.setDaemon(true)
+				.setNameFormat("module-%d")
+				.build();
+		}
+	}
+
+	/**
+	 *
+	 * @return The count of graph vertices
+	 */
+	public int size() {
+		return graph.vertexCount();
+	}
+
+	/**
+	 * Executes all vertices and blocks until all executions are completed.
+	 *
+	 * @param threadFactory a factory of threads executing the vertices
+	 * @param consumer a processing closure
+	 * @param permits the maximum amount of concurrently running vertices
+	 * @throws ExecutionException when any execution has failed.
+	 */
+	public void walk(ThreadFactory threadFactory, IConsumer<V> consumer, int permits) throws ExecutionException {
+		if (permits < 1) {
+			throw new IllegalArgumentException("Permits must be positive: " + permits);
+		}
+		new Walk(threadFactory, consumer, permits).run();
+	}
+
+	private final class Walk {
+
+		private final ThreadFactory threadFactory;
+		private final IConsumer<V> consumer;
+		private final Semaphore permits;
+
+		private final Lock lock = new ReentrantLock();
+		private final Condition changed = lock.newCondition();
+		private final PriorityQueue<Integer> ready;
+		private final int[] remaining;
+		private final Set<Thread> running = Sets.newHashSet();
+		private int completed = 0;
+		private ExecutionException exception;
+
+		public Walk(ThreadFactory threadFactory, IConsumer<V> consumer, int permits) {
+			this.threadFactory = threadFactory;
+			this.consumer = consumer;
+			this.permits = new Semaphore(permits);
+
+			int size = graph.vertexCount();
+			remaining = new int[size];
+			ready = new PriorityQueue<>(Math.max(size, 1), new Comparator<Integer>() {
+				@Override
+				public int compare(Integer o1, Integer o2) {
+					return Integer.compare(rankings[o2], rankings[o1]);
+				}
+			});
+			for (int id = 0; id < size; id++) {
+				remaining[id] = graph.predecessorCount(id);
+				if (remaining[id] == 0) {
+					ready.add(id);
+				}
+			}
+		}
+
+		public void run() throws ExecutionException {
+			boolean interrupted = false;
+			try {
+				for (int i = 0; i < size(); i++) {
+					permits.acquire();
+					if (!start()) {
+						break;
+					}
+				}
+				awaitCompletion();
+
+			} catch (InterruptedException e) {
+				interrupted = true;
+				cancel(e);
+			}
+
+			try {
+				lock.lock();
+				if (exception != null) {
+					awaitTermination();
+					throw exception;
+				}
+			} finally {
+				lock.unlock();
+				if (interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		/**
+		 * The thread is created and started outside the lock,
+		 * a failure to create or start it fails the walk.
+		 * @return false when the walk failed
+		 */
+		private boolean start() throws InterruptedException {
+			int id;
+			try {
+				lock.lock();
+				while (ready.isEmpty() && exception == null) {
+					changed.await();
+				}
+				if (exception != null) {
+					return false;
+				}
+				id = ready.poll();
+			} finally {
+				lock.unlock();
+			}
+
+			Thread thread;
+			try {
+				thread = threadFactory.newThread(new VertexTask(id));
+				if (thread == null) {
+					throw new IllegalStateException("The thread factory has not created a thread");
+				}
+			} catch (RuntimeException e) {
+				permits.release();
+				cancel(e);
+				return false;
+			}
+
+			try {
+				lock.lock();
+				running.add(thread);
+			} finally {
+				lock.unlock();
+			}
+			try {
+				thread.start();
+				return true;
+			} catch (RuntimeException | Error e) {
+				finished(thread);
+				cancel(e);
+				return false;
+			}
+		}
+
+		/**
+		 * A thread started after the cancellation might miss the interruption
+		 */
+		private boolean isCancelled() {
+			try {
+				lock.lock();
+				return exception != null;
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void awaitCompletion() throws InterruptedException {
+			try {
+				lock.lock();
+				while (completed < size() && exception == null) {
+					changed.await();
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Structured cancellation - we must not return until all threads are finished
+		 */
+		private void awaitTermination() {
+			boolean interrupted = false;
+			while (!running.isEmpty()) {
+				try {
+					changed.await();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private void onComplete(int id) {
+			try {
+				lock.lock();
+				completed++;
+				int count = graph.successorCount(id);
+				for (int i = 0; i < count; i++) {
+					int successor = graph.successorId(id, i);
+					if (--remaining[successor] == 0) {
+						ready.add(successor);
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void onFailure(Exception e) {
+			try {
+				lock.lock();
+				// interruption is caused by the cancellation
+				if (exception == null || !(e instanceof InterruptedException)) {
+					cancel(e);
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * The first exception fails the walk, the later ones are suppressed
+		 */
+		private void cancel(Throwable e) {
+			try {
+				lock.lock();
+				if (exception != null) {
+					exception.addSuppressed(e);
+					return;
+				}
+				exception = new ExecutionException(e);
+				for (Thread thread : running) {
+					thread.interrupt();
+				}
+				changed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		private void finished(Thread thread) {
+			try {
+				lock.lock();
+				running.remove(thread);
+				changed.signalAll();
+			} finally {
+				lock.unlock();
+			}
+			permits.release();
+		}
+
+		private final class VertexTask implements Runnable {
+
+			private final int id;
+
+			public VertexTask(int id) {
+				this.id = id;
+			}
+
+			@Override
+			public void run() {
+				try {
+					if (!isCancelled()) {
+						consumer.process(graph.vertex(id));
+						onComplete(id);
+					}
+				} catch (Exception e) {
+					onFailure(e);
+				} catch (Error e) {
+					cancel(e);
+					throw e;
+				} finally {
+					finished(Thread.currentThread());
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,250 @@
+package com.github.nill14.parsers.graph.utils;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import com.github.nill14.parsers.graph.DirectedGraph;
+import com.github.nill14.parsers.graph.GraphEdge;
+import com.github.nill14.parsers.graph.IndexedDirectedGraph;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+
+/**
+ * The transitive closure of predecessors of all vertices.
+ * The vertices are identified by their position in the topological order,
+ * so the predecessors of a vertex occupy only the ids below the vertex.
+ * The closure of each vertex is stored as a {@link CompressedBitmap},
+ * e.g. the closure of a vertex in a chain takes a single run regardless of the chain length.
+ *
+ * The index is computed in a single pass in topological order,
+ * the closure of a vertex is the union of the closures of its direct predecessors.
+ *
+ * @param <V> Vertex
+ */
+public class TransitiveClosureIndex<V> {
+
+	/**
+	 * The amount of vertices of the same level processed sequentially in a single task
+	 */
+	private static final int THRESHOLD = 256;
+
+	private final IndexedDirectedGraph<V, ?> graph;
+	private final int[] topoIds;
+	private final int[] vertexIds;
+	private final CompressedBitmap[] closures;
+
+	/**
+	 * @param graph The acyclic graph
+	 * @param topoOrder The topological order of the graph vertices
+	 */
+	public <E extends GraphEdge<V>> TransitiveClosureIndex(DirectedGraph<V, E> graph, List<V> topoOrder) {
+		this(graph, topoOrder, null);
+	}
+
+	/**
+	 * The vertices of the same level (the longest path from a source) are processed in parallel.
+	 *
+	 * @param graph The acyclic graph
+	 * @param topoOrder The topological order of the graph vertices
+	 * @param pool The pool computing the closures or null for a sequential computation
+	 */
+	public <E extends GraphEdge<V>> TransitiveClosureIndex(DirectedGraph<V, E> graph, List<V> topoOrder, ForkJoinPool pool) {
+		IndexedDirectedGraph<V, E> indexedGraph = CompactDirectedGraph.copyOf(graph);
+		this.graph = indexedGraph;
+		int size = indexedGraph.vertexCount();
+		if (topoOrder.size() != size) {
+			throw new IllegalArgumentException("The topological order does not match the graph");
+		}
+
+		topoIds = new int[size];
+		vertexIds = new int[size];
+		closures = new CompressedBitmap[size];
+		for (int topoId = 0; topoId < size; topoId++) {
+			int id = indexedGraph.indexOf(topoOrder.get(topoId));
+			vertexIds[topoId] = id;
+			topoIds[id] = topoId;
+		}
+
+		if (pool == null) {
+			long[] words = newWords();
+			for (int topoId = 0; topoId < size; topoId++) {
+				computeClosure(topoId, words);
+			}
+		} else {
+			computeByLevels(pool);
+		}
+	}
+
+	private long[] newWords() {
+		return new long[(vertexIds.length >>> 6) + 1];
+	}
+
+	private void computeClosure(int topoId, long[] words) {
+		int id = vertexIds[topoId];
+		int count = graph.predecessorCount(id);
+		if (count == 0) {
+			closures[topoId] = CompressedBitmap.EMPTY;
+			return;
+		}
+
+		int fromWord = topoId >>> 6;
+		int toWord = ((topoId - 1) >>> 6) + 1;
+		for (int i = 0; i < count; i++) {
+			int predecessor = topoIds[graph.predecessorId(id, i)];
+			if (predecessor >= topoId) {
+				throw new IllegalArgumentException(String.format("The order is not topological: %s <- %s",
+						graph.vertex(id), graph.vertex(vertexIds[predecessor])));
+			}
+			fromWord = Math.min(fromWord, predecessor >>> 6);
+			if (!closures[predecessor].isEmpty()) {
+				fromWord = Math.min(fromWord, closures[predecessor].firstWord());
+			}
+		}
+
+		for (int i = fromWord; i < toWord; i++) {
+			words[i] = 0;
+		}
+		for (int i = 0; i < count; i++) {
+			int predecessor = topoIds[graph.predecessorId(id, i)];
+			words[predecessor >>> 6] |= 1L << predecessor;
+			closures[predecessor].orInto(words);
+		}
+		closures[topoId] = CompressedBitmap.copyOf(words, fromWord, toWord);
+	}
+
+	/**
+	 * The vertices of a level depend only on the vertices of the lower levels.
+	 */
+	private void computeByLevels(ForkJoinPool pool) {
+		int size = vertexIds.length;
+		int[] levels = new int[size];
+		int levelCount = 0;
+		for (int topoId = 0; topoId < size; topoId++) {
+			int id = vertexIds[topoId];
+			int level = 0;
+			for (int i = 0; i < graph.predecessorCount(id); i++) {
+				level = Math.max(level, levels[topoIds[graph.predecessorId(id, i)]] + 1);
+			}
+			levels[topoId] = level;
+			levelCount = Math.max(levelCount, level + 1);
+		}
+
+		// counting sort of vertices by levels
+		int[] offsets = new int[levelCount + 1];
+		for (int level : levels) {
+			offsets[level + 1]++;
+		}
+		for (int i = 0; i < levelCount; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		int[] sorted = new int[size];
+		int[] positions = offsets.clone();
+		for (int topoId = 0; topoId < size; topoId++) {
+			sorted[positions[levels[topoId]]++] = topoId;
+		}
+
+		long[] words = newWords();
+		for (int level = 0; level < levelCount; level++) {
+			int from = offsets[level];
+			int to = offsets[level + 1];
+			if (to - from <= THRESHOLD) {
+				for (int i = from; i < to; i++) {
+					computeClosure(sorted[i], words);
+				}
+			} else {
+				pool.invoke(new LevelTask(sorted, from, to));
+			}
+		}
+	}
+
+	/**
+	 *
+	 * @return The count of graph vertices
+	 */
+	public int size() {
+		return vertexIds.length;
+	}
+
+	/**
+	 * @param vertex The vertex
+	 * @return The position of the vertex in the topological order or -1 when the vertex is not present
+	 */
+	@SuppressWarnings("unchecked")
+	public int topoId(Object vertex) {
+		// the lookup relies on equals only
+		int id = graph.indexOf((V) vertex);
+		return id >= 0 ? topoIds[id] : -1;
+	}
+
+	/**
+	 * @param topoId The position in the topological order
+	 * @return The vertex
+	 */
+	public V vertex(int topoId) {
+		return graph.vertex(vertexIds[topoId]);
+	}
+
+	/**
+	 * @param vertex The vertex
+	 * @return The topological ids of all predecessors of the vertex, including transitive
+	 */
+	public CompressedBitmap getBitmap(V vertex) {
+		int topoId = topoId(vertex);
+		return topoId >= 0 ? closures[topoId] : CompressedBitmap.EMPTY;
+	}
+
+	/**
+	 * The set is iterated in the topological order.
+	 *
+	 * @param vertex The vertex
+	 * @return All predecessors of the vertex, including transitive, empty when the vertex is not present
+	 */
+	public ClosureSet<V> getAllPredecessors(V vertex) {
+		return new ClosureSet<>(this, getBitmap(vertex));
+	}
+
+	/**
+	 * @param vertices The vertices
+	 * @return The set of the vertices backed by a bitmap
+	 */
+	public ClosureSet<V> toClosureSet(Set<?> vertices) {
+		long[] words = newWords();
+		for (Object vertex : vertices) {
+			int topoId = topoId(vertex);
+			if (topoId >= 0) {
+				words[topoId >>> 6] |= 1L << topoId;
+			}
+		}
+		return new ClosureSet<>(this, CompressedBitmap.copyOf(words, 0, words.length));
+	}
+
+	private final class LevelTask extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final int[] sorted;
+		private final int from;
+		private final int to;
+
+		public LevelTask(int[] sorted, int from, int to) {
+			this.sorted = sorted;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= THRESHOLD) {
+				long[] words = newWords();
+				for (int i = from; i < to; i++) {
+					computeClosure(sorted[i], words);
+				}
+			} else {
+				int mid = (from + to) >>> 1;
+				invokeAll(new LevelTask(sorted, from, mid), new LevelTask(sorted, mid, to));
+			}
+		}
+	}
+
+}
@@ -0,0 +1,221 @@
+package com.github.nill14.parsers.graph;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.nill14.parsers.dependency.IAsyncConsumer;
+import com.github.nill14.parsers.dependency.IAsyncWalk;
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class AsyncGraphWalkTest {
+
+	private static final Logger log = LoggerFactory.getLogger(AsyncGraphWalkTest.class);
+	private final ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(2));
+	private final ListeningScheduledExecutorService timer = MoreExecutors.listeningDecorator(Executors.newScheduledThreadPool(1));
+	private DirectedGraph<Module, GraphEdge<Module>> graph;
+	private Set<Module> modules;
+	private IDependencyGraph<Module> dependencyGraph;
+	private ImmutableMap<String, Module> moduleIndex;
+
+	@BeforeMethod
+	public void init() throws CyclicGraphException, UnsatisfiedDependencyException {
+		modules = ImmutableSet.of(
+			Module.builder("A")
+				.provides("A")
+				.uses("M")
+				.buildModule(),
+			Module.builder("B")
+				.uses("A")
+				.buildModule(),
+			Module.builder("C")
+				.uses("A")
+				.uses("B")
+				.buildModule(),
+
+			//not connected
+			Module.builder("D")
+				.buildModule(),
+
+			Module.builder("E")
+				.buildModule(),
+			Module.builder("F")
+				.uses("E")
+				.buildModule(),
+			Module.builder("G")
+				.uses("F")
+				.buildModule(),
+
+			Module.builder("H")
+				.uses("C")
+				.buildModule(),
+			Module.builder("I")
+				.uses("C")
+				.buildModule(),
+			Module.builder("J")
+				.provides("A")
+				.buildModule(),
+
+			Module.builder("K")
+				.buildModule(),
+			Module.builder("L")
+				.uses("K")
+				.buildModule(),
+
+			Module.builder("M")
+				.buildModule()
+		);
+
+		dependencyGraph = DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
+		graph = dependencyGraph.getGraph();
+
+		moduleIndex = Maps.uniqueIndex(modules, new Function<Module, String>() {
+
+			@Override
+			public String apply(Module input) {
+				return input.toString();
+			}
+		});
+	}
+
+	public Module findModule(String fqn) {
+		return moduleIndex.get(fqn);
+	}
+
+	private void assertTopoOrder(List<Module> topologicalOrdering) {
+		log.info("{}", topologicalOrdering);
+		assertEquals(modules.size(), topologicalOrdering.size());
+		for (int i = 0; i < topologicalOrdering.size() - 1; i++) {
+			Module n = topologicalOrdering.get(i);
+			for (int j = i; j < topologicalOrdering.size(); j++) {
+				Module m = topologicalOrdering.get(j);
+
+				assertFalse(graph.predecessors(n).contains(m), n + "<-" + m);
+			}
+		}
+	}
+
+	private ListenableFuture<?> completeLater(final Runnable runnable, long delay) {
+		return timer.schedule(new Callable<Object>() {
+			@Override
+			public Object call() throws Exception {
+				runnable.run();
+				return null;
+			}
+		}, delay, TimeUnit.MILLISECONDS);
+	}
+
+	@Test(timeOut=2000)
+	public void testWalkAsync() throws InterruptedException, ExecutionException {
+		final Queue<Module> executionOrder = new ConcurrentLinkedQueue<>();
+
+		IAsyncWalk<Module> walk = dependencyGraph.walkGraphAsync(executor, new IAsyncConsumer<Module>() {
+
+			@Override
+			public ListenableFuture<?> process(final Module module) throws Exception {
+				return completeLater(new Runnable() {
+					@Override
+					public void run() {
+						executionOrder.add(module);
+					}
+				}, 10);
+			}
+		});
+
+		walk.getCompletion().get();
+		assertEquals(walk.getModuleFutures().keySet(), modules);
+		for (ListenableFuture<Void> future : walk.getModuleFutures().values()) {
+			assertTrue(future.isDone());
+		}
+		assertTopoOrder(Lists.newArrayList(executionOrder));
+	}
+
+	@Test(timeOut=2000)
+	public void testWalkAsyncFailure() throws InterruptedException {
+		IAsyncWalk<Module> walk = dependencyGraph.walkGraphAsync(executor, new IAsyncConsumer<Module>() {
+
+			@Override
+			public ListenableFuture<?> process(Module module) throws Exception {
+				if (module == findModule("E")) {
+					return Futures.immediateFailedFuture(new IOException("test checked exception"));
+				}
+				return null;
+			}
+		});
+
+		try {
+			walk.getCompletion().get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+
+		try {
+			walk.getModuleFutures().get(findModule("G")).get();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+
+	@Test(timeOut=5000)
+	public void testManyInFlight() throws InterruptedException, ExecutionException, UnsatisfiedDependencyException, CyclicGraphException {
+		Set<Module> modules = Sets.newHashSet();
+		Module root = Module.builder("root", 0).buildModule();
+		modules.add(root);
+		for (int i = 1; i <= 2000; i++) {
+			modules.add(Module.builder("leaf", i).uses(root.getName()).buildModule());
+		}
+		IDependencyGraph<Module> dependencyGraph = DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
+		final AtomicInteger inFlight = new AtomicInteger();
+		final AtomicInteger maxInFlight = new AtomicInteger();
+
+		IAsyncWalk<Module> walk = dependencyGraph.walkGraphAsync(executor, new IAsyncConsumer<Module>() {
+
+			@Override
+			public ListenableFuture<?> process(Module module) throws Exception {
+				int count = inFlight.incrementAndGet();
+				if (count > maxInFlight.get()) {
+					maxInFlight.set(count);
+				}
+				return completeLater(new Runnable() {
+					@Override
+					public void run() {
+						inFlight.decrementAndGet();
+					}
+				}, 200);
+			}
+		});
+
+		walk.getCompletion().get();
+		log.info("Max in-flight modules on 2 threads: {}", maxInFlight.get());
+		assertTrue(maxInFlight.get() > 100);
+	}
+}
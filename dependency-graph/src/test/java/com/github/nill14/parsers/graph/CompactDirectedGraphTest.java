@@ -0,0 +1,237 @@
+package com.github.nill14.parsers.graph;
+
+import static org.testng.Assert.*;
+
+import java.util.Set;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class CompactDirectedGraphTest {
+
+	private DirectedGraph<Module, GraphEdge<Module>> defaultGraph;
+	private IndexedDirectedGraph<Module, GraphEdge<Module>> graph;
+	private Set<Module> modules;
+	private ImmutableMap<String, Module> moduleIndex;
+
+
+	@BeforeMethod
+	public void init() throws UnsatisfiedDependencyException, CyclicGraphException {
+		modules = ImmutableSet.of(
+			Module.builder("A")
+				.usesOptionally("M")
+				.buildModule(),
+			Module.builder("B")
+				.uses("A")
+				.buildModule(),
+			Module.builder("C")
+				.uses("A")
+				.uses("B")
+				.uses("X")
+				.buildModule(),
+
+			//not connected
+			Module.builder("D")
+				.buildModule(),
+
+			//parallel edges J -> C
+			Module.builder("X")
+				.buildModule(),
+			Module.builder("J")
+				.provides("A")
+				.provides("B")
+				.buildModule(),
+
+			Module.builder("M")
+				.buildModule()
+		);
+
+		defaultGraph = DependencyGraphFactory.newGraph(modules, Module.adapterFunction);
+		graph = CompactDirectedGraph.copyOf(defaultGraph);
+
+		moduleIndex = Maps.uniqueIndex(modules, new Function<Module, String>() {
+
+			@Override
+			public String apply(Module input) {
+				return input.toString();
+			}
+		});
+	}
+
+	public Module findModule(String fqn) {
+		return moduleIndex.get(fqn);
+	}
+
+	@Test
+	public void testSameAsDefault() {
+		assertEquals(ImmutableList.copyOf(graph.nodes()), ImmutableList.copyOf(defaultGraph.nodes()));
+		assertEquals(graph.edges(), defaultGraph.edges());
+		assertEquals(graph.edges().size(), defaultGraph.edges().size());
+
+		for (Module module : modules) {
+			assertEquals(ImmutableList.copyOf(graph.successors(module)), ImmutableList.copyOf(defaultGraph.successors(module)));
+			assertEquals(ImmutableList.copyOf(graph.predecessors(module)), ImmutableList.copyOf(defaultGraph.predecessors(module)));
+			assertEquals(graph.successorEdges(module), defaultGraph.successorEdges(module));
+			assertEquals(graph.predecessorEdges(module), defaultGraph.predecessorEdges(module));
+			assertEquals(graph.hasPredecessors(module), defaultGraph.hasPredecessors(module));
+			assertEquals(graph.hasSucccessors(module), defaultGraph.hasSucccessors(module));
+		}
+	}
+
+	@Test
+	public void testParallelEdges() {
+		Module moduleJ = findModule("J");
+		Module moduleC = findModule("C");
+
+		assertEquals(graph.successorEdges(moduleJ).size(), 3);
+		assertEquals(graph.successors(moduleJ), ImmutableSet.of(findModule("B"), moduleC));
+		assertEquals(graph.predecessors(moduleC).size(), 4);
+	}
+
+	@Test
+	public void testIds() {
+		assertEquals(graph.vertexCount(), modules.size());
+		assertEquals(graph.indexOf(null), -1);
+
+		for (Module module : modules) {
+			int id = graph.indexOf(module);
+			assertSame(graph.vertex(id), module);
+
+			int[] successors = graph.successorIds(id);
+			assertEquals(successors.length, graph.successorCount(id));
+			for (int i = 0; i < successors.length; i++) {
+				assertEquals(successors[i], graph.successorId(id, i));
+				assertTrue(graph.successors(module).contains(graph.vertex(successors[i])));
+			}
+
+			int[] predecessors = graph.predecessorIds(id);
+			assertEquals(predecessors.length, graph.predecessorCount(id));
+			for (int i = 0; i < predecessors.length; i++) {
+				assertEquals(predecessors[i], graph.predecessorId(id, i));
+				assertTrue(graph.predecessors(module).contains(graph.vertex(predecessors[i])));
+			}
+		}
+	}
+
+	@Test
+	public void testSameRankings() throws UnsatisfiedDependencyException, CyclicGraphException {
+		IDependencyGraph<Module> expected = DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
+		IDependencyGraph<Module> actual = DependencyGraphFactory.newInstance(modules, Module.adapterFunction,
+				CompactDirectedGraph.<Module, GraphEdge<Module>>builder());
+
+		assertEquals(actual.getTopologicalOrder(), expected.getTopologicalOrder());
+		assertEquals(ImmutableList.copyOf(actual.getModuleRankings().entrySet()),
+				ImmutableList.copyOf(expected.getModuleRankings().entrySet()));
+	}
+
+	@Test
+	public void testEdgeLookup() throws UnsatisfiedDependencyException {
+		Set<Module> chain = Sets.newLinkedHashSet();
+		for (int i = 0; i < 100; i++) {
+			Module.Builder builder = Module.builder("M", i);
+			if (i > 0) {
+				builder.uses("M-" + (i - 1));
+			}
+			chain.add(builder.buildModule());
+		}
+		DirectedGraph<Module, GraphEdge<Module>> expected = DependencyGraphFactory.newGraph(chain, Module.adapterFunction);
+		DirectedGraph<Module, GraphEdge<Module>> compact = CompactDirectedGraph.copyOf(expected);
+
+		assertEquals(compact.edges().size(), 99);
+		for (GraphEdge<Module> edge : expected.edges()) {
+			assertTrue(compact.edges().contains(edge), edge.toString());
+			assertTrue(compact.successorEdges(edge.source()).contains(edge), edge.toString());
+		}
+		for (GraphEdge<Module> edge : graph.edges()) {
+			assertFalse(compact.edges().contains(edge), edge.toString());
+		}
+		assertEquals(compact.edges(), expected.edges());
+	}
+
+	@Test
+	public void testWithoutExcluded() {
+		Set<Module> excluded = ImmutableSet.of(findModule("B"), findModule("M"));
+		DirectedGraph<Module, GraphEdge<Module>> view = graph.withoutExcluded(excluded);
+		IndexedDirectedGraph<Module, GraphEdge<Module>> expected = CompactDirectedGraph.subgraphOf(graph,
+				Sets.difference(modules, excluded));
+
+		assertTrue(view instanceof IndexedDirectedGraph);
+		assertSame(CompactDirectedGraph.copyOf(view), view);
+		assertEquals(ImmutableList.copyOf(view.nodes()), ImmutableList.copyOf(expected.nodes()));
+		assertEquals(view.edges(), expected.edges());
+		assertFalse(view.nodes().contains(findModule("B")));
+
+		IndexedDirectedGraph<Module, GraphEdge<Module>> indexed = CompactDirectedGraph.copyOf(view);
+		for (Module module : modules) {
+			assertEquals(indexed.indexOf(module), expected.indexOf(module));
+			if (!excluded.contains(module)) {
+				assertEquals(ImmutableList.copyOf(view.successors(module)),
+						ImmutableList.copyOf(Sets.difference(graph.successors(module), excluded)));
+				assertEquals(ImmutableList.copyOf(view.predecessors(module)),
+						ImmutableList.copyOf(Sets.difference(graph.predecessors(module), excluded)));
+			}
+			assertEquals(view.successors(module), expected.successors(module));
+			assertEquals(view.predecessors(module), expected.predecessors(module));
+			assertEquals(view.successorEdges(module), expected.successorEdges(module));
+			assertEquals(view.predecessorEdges(module), expected.predecessorEdges(module));
+			assertEquals(view.hasPredecessors(module), expected.hasPredecessors(module));
+			assertEquals(view.hasSucccessors(module), expected.hasSucccessors(module));
+
+			int id = indexed.indexOf(module);
+			if (id >= 0) {
+				assertSame(indexed.vertex(id), module);
+				assertEquals(indexed.successorCount(id), view.successors(module).size());
+				for (int i = 0; i < indexed.successorCount(id); i++) {
+					assertEquals(indexed.successorId(id, i), expected.indexOf(indexed.vertex(indexed.successorIds(id)[i])));
+				}
+				assertEquals(indexed.predecessorCount(id), view.predecessors(module).size());
+				for (int i = 0; i < indexed.predecessorCount(id); i++) {
+					assertTrue(expected.predecessors(module).contains(indexed.vertex(indexed.predecessorId(id, i))));
+				}
+			}
+		}
+
+		DirectedGraph<Module, GraphEdge<Module>> nested = view.withoutExcluded(ImmutableSet.of(findModule("A")));
+		assertEquals(nested.nodes(), ImmutableSet.of(findModule("C"), findModule("D"), findModule("X"), findModule("J")));
+		assertEquals(nested.predecessors(findModule("C")), ImmutableSet.of(findModule("X"), findModule("J")));
+		assertEquals(defaultGraph.withoutExcluded(excluded).edges(), view.edges());
+	}
+
+	@Test
+	public void testWithoutExcludedSnapshot() {
+		Set<Module> excluded = Sets.newHashSet(findModule("B"));
+		DirectedGraph<Module, GraphEdge<Module>> view = graph.withoutExcluded(excluded);
+		DirectedGraph<Module, GraphEdge<Module>> defaultView = defaultGraph.withoutExcluded(excluded);
+		Set<Module> nodes = ImmutableSet.copyOf(view.nodes());
+
+		// the graphs are not affected by a later change of the set
+		excluded.add(findModule("A"));
+		excluded.remove(findModule("B"));
+		assertEquals(view.nodes(), nodes);
+		assertEquals(defaultView.nodes(), nodes);
+		assertTrue(view.nodes().contains(findModule("A")));
+		assertFalse(defaultView.nodes().contains(findModule("B")));
+	}
+
+	@Test
+	public void testFactory() throws UnsatisfiedDependencyException {
+		DirectedGraph<Module, GraphEdge<Module>> compact = DependencyGraphFactory.newGraph(
+				modules, Module.adapterFunction, CompactDirectedGraph.<Module, GraphEdge<Module>>builder());
+		
+		assertTrue(compact instanceof IndexedDirectedGraph);
+		assertSame(CompactDirectedGraph.copyOf(compact), compact);
+		assertEquals(ImmutableList.copyOf(compact.nodes()), ImmutableList.copyOf(defaultGraph.nodes()));
+		assertEquals(compact.edges().size(), defaultGraph.edges().size());
+	}
+}
@@ -0,0 +1,252 @@
+package com.github.nill14.parsers.graph;
+
+import static com.github.nill14.parsers.graph.RandomModules.*;
+import static org.testng.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import com.github.nill14.parsers.dependency.IDependencyDescriptor;
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.github.nill14.parsers.graph.impl.EvaluatedGraphEdge;
+import com.github.nill14.parsers.graph.utils.LongestPathTopoSorter;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Sets;
+
+public class DependencyGraphFactoryTest {
+
+	private static final Logger log = LoggerFactory.getLogger(DependencyGraphFactoryTest.class);
+
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+
+	@AfterClass
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testSameAsSequential() throws UnsatisfiedDependencyException, CyclicGraphException {
+		Set<Module> modules = randomModules(5000, false, 3);
+
+		long start = System.nanoTime();
+		IDependencyGraph<Module> expected = DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
+		long sequential = System.nanoTime();
+		IDependencyGraph<Module> actual = DependencyGraphFactory.newInstance(modules, Module.adapterFunction, pool);
+		long parallel = System.nanoTime();
+		log.info("Graph of {} modules built sequentially in {} ms, in parallel in {} ms", modules.size(),
+				(sequential - start) / 1000000, (parallel - sequential) / 1000000);
+
+		assertEquals(actual.getGraph().nodes(), expected.getGraph().nodes());
+		assertEquals(edges(actual.getGraph()), edges(expected.getGraph()));
+		for (Module module : modules) {
+			assertEquals(ImmutableList.copyOf(actual.getGraph().successors(module)), 
+					ImmutableList.copyOf(expected.getGraph().successors(module)));
+		}
+		assertEquals(ImmutableList.copyOf(actual.getModuleRankings().entrySet()), 
+				ImmutableList.copyOf(expected.getModuleRankings().entrySet()));
+	}
+
+	@Test
+	public void testParallelRankings() throws UnsatisfiedDependencyException, CyclicGraphException {
+		Set<Module> modules = randomModules(20000, false, 13);
+		DirectedGraph<Module, GraphEdge<Module>> graph = DependencyGraphFactory.newGraph(modules, Module.adapterFunction,
+				CompactDirectedGraph.<Module, GraphEdge<Module>>builder());
+		Function<Module, Integer> priorityFunction = new Function<Module, Integer>() {
+			@Override
+			public Integer apply(Module module) {
+				return module.getCollector().getExecutionPriority();
+			}
+		};
+		LongestPathTopoSorter<Module, GraphEdge<Module>> sorter = new LongestPathTopoSorter<>(graph);
+
+		long start = System.nanoTime();
+		Map<Module, Integer> expected = sorter.getLongestPathMap(priorityFunction);
+		long sequential = System.nanoTime();
+		Map<Module, Integer> actual = sorter.getLongestPathMap(priorityFunction, pool);
+		long parallel = System.nanoTime();
+		log.info("Rankings of {} modules evaluated sequentially in {} ms, in parallel in {} ms", modules.size(),
+				(sequential - start) / 1000000, (parallel - sequential) / 1000000);
+
+		assertEquals(ImmutableList.copyOf(actual.entrySet()), ImmutableList.copyOf(expected.entrySet()));
+	}
+
+	@Test(expectedExceptions = CyclicGraphException.class)
+	public void testParallelCycle() throws UnsatisfiedDependencyException, CyclicGraphException {
+		DependencyGraphFactory.newInstance(randomModules(3000, true, 5), Module.adapterFunction, pool);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class, expectedExceptionsMessageRegExp = ".*Node negative priority must be .*")
+	public void testParallelNegativePriority() throws UnsatisfiedDependencyException, CyclicGraphException {
+		Set<Module> modules = Sets.newLinkedHashSet(randomModules(3000, false, 7));
+		modules.add(Module.builder("negative").uses("M-1").buildModule());
+		// the descriptor builder rejects a negative priority, the adapter does not
+		Function<Module, IDependencyDescriptor<String>> adapter = new Function<Module, IDependencyDescriptor<String>>() {
+
+			@Override
+			public IDependencyDescriptor<String> apply(Module input) {
+				final IDependencyDescriptor<String> descriptor = Module.adapterFunction.apply(input);
+				if (!input.getName().equals("negative")) {
+					return descriptor;
+				}
+				return new IDependencyDescriptor<String>() {
+
+					@Override
+					public Set<String> getRequiredDependencies() {
+						return descriptor.getRequiredDependencies();
+					}
+
+					@Override
+					public Set<String> getOptionalDependencies() {
+						return descriptor.getOptionalDependencies();
+					}
+
+					@Override
+					public Set<String> getOptionalProviders() {
+						return descriptor.getOptionalProviders();
+					}
+
+					@Override
+					public int getExecutionPriority() {
+						return -1;
+					}
+				};
+			}
+		};
+		DependencyGraphFactory.newInstance(modules, adapter, pool);
+	}
+
+	@Test
+	public void testCyclicGraph() throws UnsatisfiedDependencyException {
+		Set<Module> modules = randomModules(3000, true, 5);
+		DirectedGraph<Module, GraphEdge<Module>> expected = DependencyGraphFactory.newGraph(modules, Module.adapterFunction);
+		DirectedGraph<Module, GraphEdge<Module>> actual = DependencyGraphFactory.newGraph(modules, Module.adapterFunction, pool);
+
+		assertEquals(actual.nodes(), expected.nodes());
+		assertEquals(edges(actual), edges(expected));
+		for (Module module : modules) {
+			assertEquals(actual.predecessors(module), expected.predecessors(module));
+			assertEquals(actual.successors(module), expected.successors(module));
+		}
+	}
+
+	@Test
+	public void testUnsatisfiedDependency() throws CyclicGraphException {
+		Set<Module> modules = Sets.newLinkedHashSet(randomModules(3000, false, 7));
+		Module broken = Module.builder("broken").uses("M-1").uses("missing").buildModule();
+		modules.add(broken);
+
+		try {
+			DependencyGraphFactory.newInstance(modules, Module.adapterFunction, pool);
+			fail("The missing dependency is not detected");
+		} catch (UnsatisfiedDependencyException e) {
+			assertSame(e.getModule(), broken);
+			assertEquals(e.getDependency(), "missing");
+		}
+	}
+
+	@Test
+	public void testNormalizedGraph() throws UnsatisfiedDependencyException, CyclicGraphException {
+		Set<Module> modules = Sets.newLinkedHashSet(randomModules(2000, false, 11));
+		Module.Builder producer = Module.builder("producer");
+		Module.Builder consumer = Module.builder("consumer");
+		Set<String> keys = Sets.newHashSet();
+		for (int i = 0; i < 20; i++) {
+			producer.provides("K-" + i);
+			consumer.uses("K-" + i);
+			keys.add("K-" + i);
+		}
+		Module consumerModule = consumer.buildModule();
+		modules.add(producer.buildModule());
+		modules.add(consumerModule);
+
+		IDependencyGraph<Module> expected = DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
+		IDependencyGraph<Module> merged = DependencyGraphFactory.newNormalizedInstance(modules, Module.adapterFunction,
+				CompactDirectedGraph.<Module, GraphEdge<Module>>builder(), false);
+		IDependencyGraph<Module> reduced = DependencyGraphFactory.newNormalizedInstance(modules, Module.adapterFunction,
+				CompactDirectedGraph.<Module, GraphEdge<Module>>builder(), true);
+		log.info("Edges {}, merged {}, reduced {}", expected.getGraph().edges().size(),
+				merged.getGraph().edges().size(), reduced.getGraph().edges().size());
+
+		GraphEdge<Module> edge = Iterables.getOnlyElement(merged.getGraph().predecessorEdges(consumerModule));
+		assertEquals(((EvaluatedGraphEdge<?, ?>) edge).value(), keys);
+
+		assertTrue(merged.getGraph().edges().size() < expected.getGraph().edges().size());
+		assertTrue(reduced.getGraph().edges().size() < merged.getGraph().edges().size());
+		assertEquals(Maps.newHashMap(merged.getModuleRankings()), Maps.newHashMap(expected.getModuleRankings()));
+		assertEquals(Maps.newHashMap(reduced.getModuleRankings()), Maps.newHashMap(expected.getModuleRankings()));
+		for (Module module : modules) {
+			assertEquals(merged.getDirectDependencies(module), expected.getDirectDependencies(module));
+			assertEquals(reduced.getAllDependencies(module), expected.getAllDependencies(module));
+			for (Module dependency : reduced.getDirectDependencies(module)) {
+				Set<Module> others = Sets.difference(reduced.getDirectDependencies(module), ImmutableSet.of(dependency));
+				for (Module other : others) {
+					assertFalse(reduced.dependsOn(other, dependency), other + " -> " + dependency);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testSubgraphFor() throws UnsatisfiedDependencyException, CyclicGraphException {
+		Set<Module> modules = randomModules(5000, false, 17);
+		final SetMultimap<String, Module> providers = HashMultimap.create();
+		for (Module module : modules) {
+			for (String key : module.getCollector().getOptionalProviders()) {
+				providers.put(key, module);
+			}
+		}
+		Set<Module> roots = ImmutableSet.copyOf(Iterables.limit(Iterables.skip(modules, 1000), 3));
+
+		IDependencyGraph<Module> dependencyGraph = DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
+		IDependencyGraph<Module> subgraph = dependencyGraph.subgraphFor(roots);
+		Set<Module> required = Sets.newHashSet(roots);
+		for (Module root : roots) {
+			required.addAll(dependencyGraph.getAllDependencies(root));
+		}
+		assertEquals(subgraph.getModules(), required);
+		assertTrue(required.size() < modules.size());
+		assertEquals(subgraph.getModuleRankings(),
+				DependencyGraphFactory.newInstance(required, Module.adapterFunction).getModuleRankings());
+
+		final Multiset<Module> adapted = HashMultiset.create();
+		IDependencyGraph<Module> lazy = DependencyGraphFactory.newInstanceFor(roots, new Function<Module, IDependencyDescriptor<String>>() {
+			@Override
+			public IDependencyDescriptor<String> apply(Module module) {
+				adapted.add(module);
+				return module.getCollector();
+			}
+		}, Functions.forMap(providers.asMap(), ImmutableSet.<Module>of()));
+		log.info("Adapted {} required modules of {}", adapted.size(), modules.size());
+
+		assertEquals(adapted.elementSet(), required);
+		assertEquals(adapted.size(), required.size());
+		assertEquals(lazy.getModules(), required);
+		assertEquals(edges(lazy.getGraph()), edges(subgraph.getGraph()));
+		assertEquals(lazy.getModuleRankings(), subgraph.getModuleRankings());
+	}
+
+	@Test
+	public void testEmpty() throws UnsatisfiedDependencyException, CyclicGraphException {
+		IDependencyGraph<Module> graph = DependencyGraphFactory.newInstance(ImmutableSet.<Module>of(), Module.adapterFunction, pool);
+		assertTrue(graph.getTopologicalOrder().isEmpty());
+	}
+}
@@ -0,0 +1,240 @@
+package com.github.nill14.parsers.graph;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.github.nill14.parsers.dependency.IConsumer;
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.RemoteExecutionException;
+import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.WalkOptions;
+import com.github.nill14.parsers.dependency.WalkOptions.FailurePolicy;
+import com.github.nill14.parsers.dependency.WalkResult;
+import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.github.nill14.parsers.dependency.impl.WalkCoordinator;
+import com.github.nill14.parsers.dependency.impl.WalkMetrics;
+import com.github.nill14.parsers.dependency.impl.WalkWorker;
+import com.github.nill14.parsers.graph.utils.GraphPartitioner;
+import com.google.common.base.Functions;
+import com.google.common.base.Strings;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
+
+public class DistributedWalkTest {
+
+	private static final Logger log = LoggerFactory.getLogger(DistributedWalkTest.class);
+
+	/**
+	 * The chains of modules, each module uses its predecessor in the chain
+	 * and every 10th module uses the module of the same position in the previous chain
+	 */
+	private IDependencyGraph<Module> newGraph(int chains, int length) throws UnsatisfiedDependencyException, CyclicGraphException {
+		Set<Module> modules = Sets.newHashSet();
+		for (int c = 0; c < chains; c++) {
+			for (int i = 0; i < length; i++) {
+				Module.Builder builder = Module.builder("chain" + c, i);
+				if (i > 0) {
+					builder.uses("chain" + c + "-" + (i - 1));
+				}
+				if (c > 0 && i % 10 == 0) {
+					builder.uses("chain" + (c - 1) + "-" + i);
+				}
+				modules.add(builder.buildModule());
+			}
+		}
+		return DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
+	}
+
+	@Test
+	public void testPartitioner() throws UnsatisfiedDependencyException, CyclicGraphException {
+		IDependencyGraph<Module> dependencyGraph = newGraph(4, 100);
+		GraphPartitioner<Module> partitioner = new GraphPartitioner<>(dependencyGraph.getGraph(), dependencyGraph.getTopologicalOrder());
+		Map<Module, Integer> partitions = partitioner.partition(4);
+
+		Multiset<Integer> sizes = HashMultiset.create(partitions.values());
+		assertEquals(sizes.elementSet().size(), 4);
+		for (int partition : sizes.elementSet()) {
+			assertTrue(sizes.count(partition) <= 105);
+		}
+		// 396 chain edges and 30 edges between chains
+		int crossEdges = partitioner.getCrossEdgeCount(partitions);
+		log.info("Cross edges {} of {}", crossEdges, dependencyGraph.getGraph().edges().size());
+		assertTrue(crossEdges < 60, "cross edges " + crossEdges);
+		assertEquals(partitioner.getCrossEdgeCount(partitioner.partition(1)), 0);
+	}
+
+	@Test(timeOut=20000)
+	public void testWorkerThreads() throws Exception {
+		IDependencyGraph<Module> dependencyGraph = newGraph(3, 20);
+		final Queue<String> processed = new ConcurrentLinkedQueue<>();
+		IConsumer<String> consumer = new IConsumer<String>() {
+
+			@Override
+			public void process(String key) throws Exception {
+				Thread.sleep(1);
+				if (key.equals("chain1-10")) {
+					throw new IOException("test checked exception");
+				}
+				processed.add(key);
+			}
+		};
+
+		WalkCoordinator<Module> coordinator = new WalkCoordinator<>(dependencyGraph, Functions.toStringFunction());
+		ExecutorService workers = Executors.newCachedThreadPool();
+		try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			List<Future<Integer>> counts = Lists.newArrayList();
+			for (int i = 0; i < 2; i++) {
+				counts.add(workers.submit(new WorkerTask(new WalkWorker(consumer, 2), serverSocket.getLocalPort())));
+			}
+			WalkResult<Module> result = coordinator.walk(serverSocket, 2,
+					WalkOptions.<Module>builder().failurePolicy(FailurePolicy.CONTINUE).build());
+
+			assertEquals(result.getFailed().size(), 1);
+			Exception failure = result.getFailed().values().iterator().next();
+			assertTrue(failure instanceof RemoteExecutionException);
+			assertEquals(((RemoteExecutionException) failure).getModuleKey(), "chain1-10");
+			// chain1-11..19 and chain2-10..19
+			assertEquals(result.getSkipped().size(), 19);
+			assertEquals(result.getCompleted().size(), 40);
+			assertEquals(processed.size(), 40);
+			assertEquals(counts.get(0).get() + counts.get(1).get(), 41);
+			assertEquals(coordinator.getAssignments().size(), 41);
+		} finally {
+			workers.shutdown();
+		}
+	}
+
+	@Test(timeOut=20000)
+	public void testWorkerFailures() throws Exception {
+		IDependencyGraph<Module> dependencyGraph = newGraph(8, 5);
+		final String longMessage = Strings.repeat("\u20ac", 100000);
+		IConsumer<String> consumer = new IConsumer<String>() {
+
+			@Override
+			public void process(String key) throws Exception {
+				Thread.sleep(1);
+				if (key.equals("chain1-2")) {
+					throw new IOException(longMessage);
+				} else if (key.equals("chain2-2")) {
+					throw new AssertionError("test error");
+				}
+			}
+		};
+
+		WalkCoordinator<Module> coordinator = new WalkCoordinator<>(dependencyGraph, Functions.toStringFunction());
+		WalkMetrics<Module> metrics = new WalkMetrics<>();
+		ExecutorService workers = Executors.newCachedThreadPool();
+		try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			for (int i = 0; i < 2; i++) {
+				workers.submit(new WorkerTask(new WalkWorker(consumer, 2), serverSocket.getLocalPort()));
+			}
+			WalkResult<Module> result = coordinator.walk(serverSocket, 2, WalkOptions.<Module>builder()
+					.parallelism(100)
+					.failurePolicy(FailurePolicy.CONTINUE)
+					.listener(metrics)
+					.build());
+
+			assertEquals(result.getFailed().size(), 2);
+			for (Exception failure : result.getFailed().values()) {
+				assertTrue(failure instanceof RemoteExecutionException);
+			}
+			// chain1-3..4 and chain2-3..4
+			assertEquals(result.getSkipped().size(), 4);
+			assertEquals(result.getCompleted().size(), 34);
+			// the parallelism is capped by the 4 slots of the workers
+			assertEquals(metrics.getParallelism(), 4);
+		} finally {
+			workers.shutdown();
+		}
+	}
+
+	@Test(timeOut=60000)
+	public void testWorkerProcesses() throws Exception {
+		IDependencyGraph<Module> dependencyGraph = newGraph(3, 100);
+		WalkCoordinator<Module> coordinator = new WalkCoordinator<>(dependencyGraph, Functions.toStringFunction());
+
+		List<Process> processes = Lists.newArrayList();
+		try (ServerSocket serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+			serverSocket.setSoTimeout(30000);
+			String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+			for (int i = 0; i < 3; i++) {
+				processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						DistributedWalkTest.class.getName(), Integer.toString(serverSocket.getLocalPort()))
+						.inheritIO()
+						.start());
+			}
+
+			WalkResult<Module> result = coordinator.walk(serverSocket, 3, WalkOptions.<Module>builder().build());
+			assertTrue(result.isSuccessful());
+			assertEquals(result.getCompleted(), dependencyGraph.getModules());
+			for (Process process : processes) {
+				assertEquals(process.waitFor(), 0);
+			}
+
+			Multiset<Integer> workers = HashMultiset.create(coordinator.getAssignments().values());
+			assertEquals(workers.elementSet().size(), 3);
+			log.info("Modules per worker {}, locality {}", workers, coordinator.getLocality());
+			assertTrue(coordinator.getLocality() > 0.5);
+		} finally {
+			for (Process process : processes) {
+				process.destroy();
+			}
+		}
+	}
+
+	/**
+	 * The worker process of {@link #testWorkerProcesses()}
+	 * @param args The coordinator port
+	 */
+	public static void main(String[] args) throws IOException, InterruptedException {
+		WalkWorker worker = new WalkWorker(new IConsumer<String>() {
+
+			@Override
+			public void process(String key) throws Exception {
+				Thread.sleep(1);
+			}
+		}, 2);
+		worker.run(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0])));
+	}
+
+	private static final class WorkerTask implements Callable<Integer> {
+
+		private final WalkWorker worker;
+		private final int port;
+
+		public WorkerTask(WalkWorker worker, int port) {
+			this.worker = worker;
+			this.port = port;
+		}
+
+		@Override
+		public Integer call() throws Exception {
+			return worker.run(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+		}
+	}
+
+	@Test(expectedExceptions=IllegalArgumentException.class)
+	public void testDuplicateKeys() throws UnsatisfiedDependencyException, CyclicGraphException {
+		new WalkCoordinator<>(newGraph(2, 2), Functions.constant("key"));
+	}
+}
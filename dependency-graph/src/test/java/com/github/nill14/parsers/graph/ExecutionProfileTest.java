@@ -0,0 +1,139 @@
+package com.github.nill14.parsers.graph;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.nill14.parsers.dependency.IConsumer;
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.github.nill14.parsers.dependency.impl.ExecutionProfile;
+import com.github.nill14.parsers.dependency.impl.ModuleRankingsPrinter;
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+
+public class ExecutionProfileTest {
+
+	private static final Logger log = LoggerFactory.getLogger(ExecutionProfileTest.class);
+	private final ExecutorService executor = Executors.newFixedThreadPool(2);
+	private Set<Module> modules;
+	private File file;
+
+	@BeforeMethod
+	public void init() throws IOException {
+		modules = ImmutableSet.of(
+			Module.builder("S-1")
+				.buildModule(),
+
+			Module.builder("F-1")
+				.buildModule(),
+			Module.builder("F-2")
+				.uses("F-1")
+				.buildModule(),
+			Module.builder("F-3")
+				.uses("F-2")
+				.buildModule(),
+			Module.builder("F-4")
+				.uses("F-3")
+				.buildModule()
+		);
+
+		file = File.createTempFile("profile", ".properties");
+		file.delete();
+	}
+
+	@AfterMethod
+	public void cleanup() {
+		file.delete();
+	}
+
+	@Test
+	public void testRankingsFollowProfile() throws UnsatisfiedDependencyException, CyclicGraphException, ExecutionException, IOException {
+		IDependencyGraph<Module> dependencyGraph = DependencyGraphFactory.newInstance(
+				modules, Module.adapterFunction, new ExecutionProfile<Module>(file));
+		assertEquals(Iterables.getFirst(dependencyGraph.getTopologicalOrder(), null).getName(), "F-1");
+
+		dependencyGraph.walkGraph(executor, new IConsumer<Module>() {
+			@Override
+			public void process(Module module) throws Exception {
+				if (module.getName().equals("S-1")) {
+					Thread.sleep(100);
+				}
+			}
+		});
+		assertTrue(file.exists());
+
+		ExecutionProfile<Module> profile = new ExecutionProfile<>(file);
+		assertTrue(profile.getDurationMillis(Iterables.get(modules, 0)) >= 100);
+
+		dependencyGraph = DependencyGraphFactory.newInstance(modules, Module.adapterFunction, profile);
+		new ModuleRankingsPrinter<>(dependencyGraph).toInfoLog(log);
+		assertEquals(Iterables.getFirst(dependencyGraph.getTopologicalOrder(), null).getName(), "S-1");
+	}
+
+	@Test
+	public void testMovingAverage() throws IOException {
+		Module module = Iterables.get(modules, 0);
+		ExecutionProfile<Module> profile = new ExecutionProfile<>(file, Functions.toStringFunction(), 0.5);
+		assertEquals(profile.getDurationMillis(module), -1.0);
+		assertEquals(profile.getWeight(module), 0);
+
+		profile.record(module, 100, TimeUnit.MILLISECONDS);
+		profile.record(module, 200, TimeUnit.MILLISECONDS);
+		assertEquals(profile.getDurationMillis(module), 150.0);
+
+		profile.save();
+		profile = new ExecutionProfile<>(file, Functions.toStringFunction(), 0.5);
+		assertEquals(profile.getWeight(module), 150);
+
+		profile.record(module, 1, TimeUnit.SECONDS);
+		assertEquals(profile.getWeight(module), 575);
+	}
+
+	@Test
+	public void testConcurrentSave() throws IOException, InterruptedException, ExecutionException {
+		final ExecutionProfile<Module> profile = new ExecutionProfile<>(file);
+		List<Future<Void>> futures = Lists.newArrayList();
+		for (int i = 0; i < 20; i++) {
+			final Module module = Module.builder("P", i).buildModule();
+			futures.add(executor.submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					profile.record(module, 10, TimeUnit.MILLISECONDS);
+					profile.save();
+					return null;
+				}
+			}));
+		}
+		for (Future<Void> future : futures) {
+			future.get();
+		}
+		profile.save();
+
+		ExecutionProfile<Module> loaded = new ExecutionProfile<>(file);
+		for (int i = 0; i < 20; i++) {
+			assertEquals(loaded.getWeight(Module.builder("P", i).buildModule()), 10);
+		}
+		for (File sibling : file.getAbsoluteFile().getParentFile().listFiles()) {
+			assertFalse(sibling.getName().startsWith(file.getName()) && sibling.getName().endsWith(".tmp"), sibling.toString());
+		}
+	}
+}
@@ -13,12 +13,19 @@ import org.testng.annotations.Test;
 
 import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
 import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.github.nill14.parsers.graph.impl.EvaluatedGraphEdge;
 import com.github.nill14.parsers.graph.utils.GraphCycleDetector;
+import com.github.nill14.parsers.graph.utils.LongestPathTopoSorter;
 import com.google.common.base.Function;
 import com.google.common.base.Functions;
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
 
 public class GraphCycleTest {
 	
@@ -125,6 +132,31 @@ public class GraphCycleTest {
 		assertEquals(3, cycles.size());
 	}
 
+	@Test
+	public void testDeepCycle() {
+		int size = 1000000;
+		Set<GraphEdge<Integer>> edges = Sets.newHashSet();
+		for (int i = 1; i < size; i++) {
+			edges.add(EvaluatedGraphEdge.<Integer, Object>edge(i - 1, i));
+		}
+		edges.add(EvaluatedGraphEdge.<Integer, Object>edge(size - 1, 0));
+		DirectedGraph<Integer, GraphEdge<Integer>> graph = CompactDirectedGraph.<Integer, GraphEdge<Integer>>builder()
+				.nodes(ContiguousSet.create(Range.closedOpen(0, size), DiscreteDomain.integers()))
+				.edges(edges)
+				.build();
+		
+		Collection<Deque<Integer>> cycles = new GraphCycleDetector<>(graph).getNontrivialCycles();
+		assertEquals(cycles.size(), 1);
+		assertEquals(cycles.iterator().next().size(), size);
+		
+		try {
+			new LongestPathTopoSorter<>(graph).getTopologicalOrdering();
+			fail();
+		} catch (CyclicGraphException e) {
+			log.info("{}", e.getMessage());
+		}
+	}
+	
 	@Test
 	public void testCyclicException() {
 		try {
@@ -2,10 +2,13 @@ package com.github.nill14.parsers.graph;
 
 import static org.testng.Assert.*;
 
+import java.util.AbstractSet;
 import java.util.Collection;
 import java.util.Deque;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -16,9 +19,12 @@ import org.testng.annotations.Test;
 import com.github.nill14.parsers.dependency.IDependencyGraph;
 import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
 import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.github.nill14.parsers.graph.impl.EvaluatedGraphEdge;
 import com.github.nill14.parsers.graph.utils.GraphCycleDetector;
 import com.github.nill14.parsers.graph.utils.LongestPathTopoSorter;
 import com.google.common.base.Function;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
@@ -136,6 +142,73 @@ public class GraphOrderTest {
 		assertTopoOrder(Lists.newArrayList(topologicalOrdering.keySet()));
 	}
 
+	/**
+	 * A chain of a million vertices and random forward edges, ten million edges in total. 
+	 * The edges are created lazily to save the memory of the test.
+	 */
+	@Test
+	public void testMillionNodes() throws CyclicGraphException {
+		final int size = 1000000;
+		final int degree = 10;
+		final Integer[] nodes = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			nodes[i] = i;
+		}
+		final int[] sources = new int[size * degree];
+		Random random = new Random(17);
+		for (int i = 1; i < size; i++) {
+			sources[i * degree] = i - 1;
+			for (int j = 1; j < degree; j++) {
+				sources[i * degree + j] = random.nextInt(i);
+			}
+		}
+		
+		Set<GraphEdge<Integer>> edges = new AbstractSet<GraphEdge<Integer>>() {
+			@Override
+			public Iterator<GraphEdge<Integer>> iterator() {
+				return new AbstractIterator<GraphEdge<Integer>>() {
+					private int i = degree - 1;
+					
+					@Override
+					protected GraphEdge<Integer> computeNext() {
+						if (++i == sources.length) {
+							return endOfData();
+						}
+						return EvaluatedGraphEdge.edge(nodes[sources[i]], nodes[i / degree]);
+					}
+				};
+			}
+			
+			@Override
+			public int size() {
+				return sources.length - degree;
+			}
+		};
+		
+		long start = System.nanoTime();
+		DirectedGraph<Integer, GraphEdge<Integer>> graph = CompactDirectedGraph.<Integer, GraphEdge<Integer>>builder()
+				.nodes(ImmutableSet.copyOf(nodes))
+				.edges(edges)
+				.build();
+		long built = System.nanoTime();
+		LinkedHashMap<Integer, Integer> rankings = new LongestPathTopoSorter<>(graph).getLongestPathMap();
+		long sorted = System.nanoTime();
+		assertEquals(new GraphCycleDetector<>(graph).getNontrivialCycles().size(), 0);
+		long detected = System.nanoTime();
+		log.info("Graph of {} edges built in {} ms, sorted in {} ms, cycles detected in {} ms", edges.size(),
+				(built - start) / 1000000, (sorted - built) / 1000000, (detected - sorted) / 1000000);
+		
+		int[] positions = new int[size];
+		int position = 0;
+		for (Integer node : rankings.keySet()) {
+			positions[node] = position++;
+		}
+		for (int i = degree; i < sources.length; i++) {
+			assertTrue(positions[sources[i]] < positions[i / degree]);
+		}
+		assertEquals(rankings.get(0).intValue(), size - 1);
+	}
+
 	private void assertTopoOrder(List<Module> topologicalOrdering) {
 		log.info("{}", topologicalOrdering);
 		assertEquals(modules.size(), topologicalOrdering.size());
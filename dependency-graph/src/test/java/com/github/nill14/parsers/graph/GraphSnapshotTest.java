@@ -0,0 +1,164 @@
+package com.github.nill14.parsers.graph;
+
+import static com.github.nill14.parsers.graph.RandomModules.*;
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.IGraphCodec;
+import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.github.nill14.parsers.dependency.impl.GraphSnapshot;
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class GraphSnapshotTest {
+
+	private static final Logger log = LoggerFactory.getLogger(GraphSnapshotTest.class);
+
+	private File file;
+	private Set<Module> modules;
+	private Codec codec;
+
+	@BeforeMethod
+	public void init() throws IOException {
+		file = File.createTempFile("graph", ".snapshot");
+		modules = randomModules(3000, false, 13);
+		codec = new Codec(modules);
+	}
+
+	@AfterMethod
+	public void cleanup() {
+		file.delete();
+	}
+
+	@Test
+	public void testReadWrite() throws UnsatisfiedDependencyException, CyclicGraphException, IOException {
+		IDependencyGraph<Module> expected = DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
+		String fingerprint = GraphSnapshot.fingerprint(modules, Module.adapterFunction, codec);
+		GraphSnapshot.write(expected, fingerprint, codec, file);
+
+		long start = System.nanoTime();
+		IDependencyGraph<Module> actual = GraphSnapshot.read(file, fingerprint, codec);
+		log.info("Snapshot of {} bytes read in {} ms", file.length(), (System.nanoTime() - start) / 1000000);
+
+		assertEquals(actual.getModules(), expected.getModules());
+		assertEquals(actual.getTopologicalOrder(), expected.getTopologicalOrder());
+		assertEquals(actual.getModuleRankings(), expected.getModuleRankings());
+		assertEquals(edges(actual.getGraph()), edges(expected.getGraph()));
+		for (Module module : modules) {
+			assertEquals(actual.getAllDependencies(module), expected.getAllDependencies(module));
+		}
+	}
+
+	@Test
+	public void testMergedEdges() throws UnsatisfiedDependencyException, CyclicGraphException, IOException {
+		IDependencyGraph<Module> expected = DependencyGraphFactory.newNormalizedInstance(modules, Module.adapterFunction,
+				CompactDirectedGraph.<Module, GraphEdge<Module>>builder(), true);
+		GraphSnapshot.write(expected, "merged", codec, file);
+		IDependencyGraph<Module> actual = GraphSnapshot.read(file, "merged", codec);
+
+		assertEquals(actual.getModuleRankings(), expected.getModuleRankings());
+		assertEquals(edges(actual.getGraph()), edges(expected.getGraph()));
+	}
+
+	@Test
+	public void testFingerprint() throws UnsatisfiedDependencyException, CyclicGraphException, IOException {
+		String fingerprint = GraphSnapshot.fingerprint(modules, Module.adapterFunction, codec);
+		assertEquals(GraphSnapshot.fingerprint(Sets.newHashSet(modules), Module.adapterFunction, codec), fingerprint);
+
+		Set<Module> changed = Sets.newLinkedHashSet(modules);
+		Module module = Module.builder("M", 3000).uses("M-1").buildModule();
+		changed.add(module);
+		String changedFingerprint = GraphSnapshot.fingerprint(changed, Module.adapterFunction, new Codec(changed));
+		assertNotEquals(changedFingerprint, fingerprint);
+
+		GraphSnapshot.write(DependencyGraphFactory.newInstance(modules, Module.adapterFunction), fingerprint, codec, file);
+		assertNull(GraphSnapshot.read(file, changedFingerprint, codec));
+		assertNull(GraphSnapshot.read(new File(file.getPath() + ".missing"), fingerprint, codec));
+	}
+
+	@Test(expectedExceptions = IOException.class)
+	public void testCorrupted() throws UnsatisfiedDependencyException, CyclicGraphException, IOException {
+		String fingerprint = GraphSnapshot.fingerprint(modules, Module.adapterFunction, codec);
+		GraphSnapshot.write(DependencyGraphFactory.newInstance(modules, Module.adapterFunction), fingerprint, codec, file);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.seek(raf.length() / 2);
+			int value = raf.read();
+			raf.seek(raf.length() / 2);
+			raf.write(value ^ 1);
+		}
+		GraphSnapshot.read(file, fingerprint, codec);
+	}
+
+	@Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Invalid string length.*")
+	public void testCorruptedLength() throws UnsatisfiedDependencyException, CyclicGraphException, IOException {
+		String fingerprint = GraphSnapshot.fingerprint(modules, Module.adapterFunction, codec);
+		GraphSnapshot.write(DependencyGraphFactory.newInstance(modules, Module.adapterFunction), fingerprint, codec, file);
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			// the end offset of the fingerprint
+			raf.seek(12);
+			raf.writeInt(Integer.MAX_VALUE);
+		}
+		GraphSnapshot.read(file, fingerprint, codec);
+	}
+
+	@Test
+	public void testFactory() throws UnsatisfiedDependencyException, CyclicGraphException {
+		file.delete();
+		IDependencyGraph<Module> built = DependencyGraphFactory.newInstance(modules, Module.adapterFunction, file, codec);
+		assertTrue(file.exists());
+		assertEquals(codec.decoded.get(), 0);
+
+		IDependencyGraph<Module> loaded = DependencyGraphFactory.newInstance(modules, Module.adapterFunction, file, codec);
+		assertEquals(codec.decoded.get(), modules.size());
+		assertEquals(loaded.getModuleRankings(), built.getModuleRankings());
+		assertEquals(loaded.getTopologicalOrder(), built.getTopologicalOrder());
+	}
+
+	private static final class Codec implements IGraphCodec<Module, String> {
+
+		private final Map<String, Module> modules = Maps.newHashMap();
+		private final AtomicInteger decoded = new AtomicInteger();
+
+		public Codec(Set<Module> modules) {
+			for (Module module : modules) {
+				this.modules.put(module.getName(), module);
+			}
+		}
+
+		@Override
+		public String encodeModule(Module module) {
+			return module.getName();
+		}
+
+		@Override
+		public Module decodeModule(String code) {
+			decoded.incrementAndGet();
+			return modules.get(code);
+		}
+
+		@Override
+		public String encodeKey(String key) {
+			return key;
+		}
+
+		@Override
+		public String decodeKey(String code) {
+			return code;
+		}
+	}
+}
@@ -2,37 +2,59 @@ package com.github.nill14.parsers.graph;
 import static org.testng.Assert.*;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 import com.github.nill14.parsers.dependency.IConsumer;
+import com.github.nill14.parsers.dependency.IDependencyDescriptor;
 import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.IWalkListener;
 import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.WalkOptions;
+import com.github.nill14.parsers.dependency.WalkOptions.FailurePolicy;
+import com.github.nill14.parsers.dependency.WalkResult;
+import com.github.nill14.parsers.dependency.impl.DependencyDescriptor;
 import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
 import com.github.nill14.parsers.dependency.impl.DependencyTreePrinter;
 import com.github.nill14.parsers.dependency.impl.ModuleRankingsPrinter;
+import com.github.nill14.parsers.dependency.impl.WalkMetrics;
+import com.github.nill14.parsers.dependency.impl.WalkMetrics.ModuleTiming;
+import com.github.nill14.parsers.dependency.impl.WalkMetrics.Sample;
 import com.github.nill14.parsers.graph.utils.GraphWalker3;
+import com.github.nill14.parsers.graph.utils.ThreadPerVertexWalker;
 import com.google.common.base.Function;
+import com.google.common.base.Predicates;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 public class GraphWalkerTest {
 	
 	private static final Logger log = LoggerFactory.getLogger(GraphWalkerTest.class);
 	private final ExecutorService executor = Executors.newFixedThreadPool(8);
+	private final ForkJoinPool forkJoinPool = new ForkJoinPool(8);
 	private DirectedGraph<Module, GraphEdge<Module>> graph;
 	private Set<Module> modules;
 	private IDependencyGraph<Module> dependencyGraph;
@@ -101,6 +123,12 @@ public class GraphWalkerTest {
 			}
 		});
 	}
+
+	@AfterClass
+	public void shutdown() {
+		executor.shutdown();
+		forkJoinPool.shutdown();
+	}
 	
 	public Module findModule(String fqn) {
 		return moduleIndex.get(fqn);
@@ -302,6 +330,622 @@ public class GraphWalkerTest {
 	}
 	
 	
+	@Test(timeOut=1000)
+	public void testForkJoinWalk() throws InterruptedException, ExecutionException {
+		final AtomicInteger count = new AtomicInteger();
+		final Queue<Module> executionOrder = new ConcurrentLinkedQueue<>();
+		
+		dependencyGraph.walkGraph(forkJoinPool, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+				log.info("Starting module {}", module);
+				Thread.sleep(10);
+				log.info("Completing module {}", module);
+				count.incrementAndGet();
+				executionOrder.add(module);
+			}
+		});
+		
+		assertEquals(modules.size(), count.get());
+		assertTopoOrder(Lists.newArrayList(executionOrder));
+	}
+	
+	@Test(timeOut=1000, expectedExceptions=IOException.class, expectedExceptionsMessageRegExp="test checked exception")
+	public void testForkJoinException() throws InterruptedException, IOException {
+		final AtomicInteger count = new AtomicInteger();
+		
+		try {
+			dependencyGraph.walkGraph(forkJoinPool, new IConsumer<Module>() {
+				
+				@Override
+				public void process(Module module) throws Exception {
+					Thread.sleep(10);
+					if (count.incrementAndGet() == 5) {
+						throw new IOException("test checked exception");
+					};
+				}
+			});
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else {
+				throw new RuntimeException("Unexpected", e);
+			}
+		}
+	}
+	
+	@Test(timeOut=1000)
+	public void testWalkAffected() throws InterruptedException, ExecutionException {
+		final Queue<Module> executionOrder = new ConcurrentLinkedQueue<>();
+		IConsumer<Module> consumer = new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+				Thread.sleep(10);
+				executionOrder.add(module);
+			}
+		};
+		Set<Module> changed = ImmutableSet.of(findModule("B"), findModule("F"));
+		Set<Module> affected = ImmutableSet.of(findModule("B"), findModule("C"), findModule("H"), 
+				findModule("I"), findModule("F"), findModule("G"));
+		
+		dependencyGraph.walkAffected(changed, executor, consumer, 4);
+		assertAffectedOrder(Lists.newArrayList(executionOrder), affected);
+		
+		executionOrder.clear();
+		dependencyGraph.walkAffected(changed, forkJoinPool, consumer);
+		assertAffectedOrder(Lists.newArrayList(executionOrder), affected);
+		
+		executionOrder.clear();
+		dependencyGraph.walkAffected(ImmutableSet.of(findModule("D")), forkJoinPool, consumer);
+		assertEquals(Lists.newArrayList(executionOrder), ImmutableList.of(findModule("D")));
+	}
+	
+	private void assertAffectedOrder(List<Module> executionOrder, Set<Module> affected) {
+		assertEquals(executionOrder.size(), affected.size());
+		assertEquals(ImmutableSet.copyOf(executionOrder), affected);
+		for (int i = 0; i < executionOrder.size(); i++) {
+			for (int j = i; j < executionOrder.size(); j++) {
+				assertFalse(dependencyGraph.dependsOn(executionOrder.get(i), executionOrder.get(j)), 
+						executionOrder.get(i) + "<-" + executionOrder.get(j));
+			}
+		}
+	}
+	
+	@Test(expectedExceptions=IllegalArgumentException.class)
+	public void testWalkAffectedUnknown() throws ExecutionException {
+		Module unknown = Module.builder("X").buildModule();
+		dependencyGraph.walkAffected(ImmutableSet.of(unknown), forkJoinPool, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+			}
+		});
+	}
+	
+	@Test(timeOut=2000)
+	public void testRankedWalk() throws InterruptedException, ExecutionException {
+		final Queue<Module> executionOrder = new ConcurrentLinkedQueue<>();
+		WalkResult<Module> result = dependencyGraph.walkGraph(executor, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+				Thread.sleep(10);
+				executionOrder.add(module);
+			}
+		}, WalkOptions.<Module>builder().parallelism(3).build());
+		
+		assertTrue(result.isSuccessful());
+		assertEquals(result.getCompleted(), modules);
+		assertTrue(result.getSkipped().isEmpty());
+		assertTopoOrder(Lists.newArrayList(executionOrder));
+	}
+	
+	@Test(timeOut=2000)
+	public void testWalkMetrics() throws InterruptedException, ExecutionException {
+		WalkMetrics<Module> metrics = new WalkMetrics<>();
+		WalkResult<Module> result = dependencyGraph.walkGraph(executor, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+				Thread.sleep(10);
+			}
+		}, WalkOptions.<Module>builder().parallelism(3).listener(metrics).build());
+		
+		assertTrue(result.isSuccessful());
+		Map<Module, ModuleTiming> timings = metrics.getTimings();
+		assertEquals(timings.keySet(), modules);
+		for (Module module : modules) {
+			ModuleTiming timing = timings.get(module);
+			assertTrue(timing.isFinished());
+			assertFalse(timing.isFailed());
+			assertTrue(timing.getStartedNanos() >= timing.getReadyNanos());
+			assertTrue(timing.getExecutionNanos() >= TimeUnit.MILLISECONDS.toNanos(10));
+			for (Module dependency : dependencyGraph.getDirectDependencies(module)) {
+				assertTrue(timing.getReadyNanos() >= timings.get(dependency).getFinishedNanos());
+			}
+		}
+		
+		assertEquals(metrics.getExecutionTimes().getCount(), modules.size());
+		assertEquals(metrics.getWaitTimes().getCount(), modules.size());
+		assertTrue(metrics.getExecutionTimes().getPercentileMicros(50) >= 10000);
+		assertEquals(metrics.getSlowestModules(3).size(), 3);
+		
+		List<Sample> samples = metrics.getSamples();
+		assertEquals(samples.size(), 3 * modules.size());
+		for (Sample sample : samples) {
+			assertTrue(sample.getRunning() <= 3);
+			assertTrue(sample.getReadyDepth() >= 0);
+		}
+		Sample last = samples.get(samples.size() - 1);
+		assertEquals(last.getRunning(), 0);
+		assertEquals(last.getReadyDepth(), 0);
+		assertTrue(metrics.getMaxReadyDepth() > 0);
+		assertTrue(metrics.getUtilization() > 0 && metrics.getUtilization() <= 1);
+		metrics.toInfoLog(log);
+	}
+	
+	@Test(timeOut=2000)
+	public void testBoundedWalkMetrics() throws InterruptedException, ExecutionException {
+		WalkMetrics<Module> metrics = new WalkMetrics<>(4);
+		WalkResult<Module> result = dependencyGraph.walkGraph(executor, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+				Thread.sleep(1);
+			}
+		}, WalkOptions.<Module>builder().parallelism(3).listener(metrics).build());
+		
+		assertTrue(result.isSuccessful());
+		List<Sample> samples = metrics.getSamples();
+		assertTrue(samples.size() <= 5, samples.toString());
+		for (int i = 1; i < samples.size(); i++) {
+			assertTrue(samples.get(i).getOffsetNanos() >= samples.get(i - 1).getOffsetNanos());
+		}
+		Sample last = samples.get(samples.size() - 1);
+		assertEquals(last.getRunning(), 0);
+		assertEquals(last.getReadyDepth(), 0);
+		assertTrue(metrics.getAverageReadyDepth() >= 0);
+		assertTrue(metrics.getAverageReadyDepth() <= metrics.getMaxReadyDepth());
+	}
+	
+	@Test(timeOut=2000)
+	public void testFailingListener() throws InterruptedException, ExecutionException {
+		IWalkListener<Module> listener = new IWalkListener<Module>() {
+			
+			@Override
+			public void walkStarted(int moduleCount, int parallelism, long nanoTime) {
+				throw new IllegalStateException();
+			}
+			
+			@Override
+			public void ready(Module module, long nanoTime) {
+				throw new IllegalStateException();
+			}
+			
+			@Override
+			public void started(Module module, long nanoTime) {
+				throw new IllegalStateException();
+			}
+			
+			@Override
+			public void completed(Module module, long nanoTime) {
+				throw new IllegalStateException();
+			}
+			
+			@Override
+			public void failed(Module module, Exception exception, long nanoTime) {
+				throw new IllegalStateException();
+			}
+			
+			@Override
+			public void walkFinished(long nanoTime) {
+				throw new IllegalStateException();
+			}
+		};
+		final Module failing = findModule("C");
+		WalkResult<Module> result = dependencyGraph.walkGraph(executor, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+				if (module == failing) {
+					throw new IOException();
+				}
+			}
+		}, WalkOptions.<Module>builder().parallelism(3).failurePolicy(FailurePolicy.CONTINUE).listener(listener).build());
+		
+		assertEquals(result.getFailed().keySet(), ImmutableSet.of(failing));
+		assertEquals(result.getCompleted().size() + result.getSkipped().size() + 1, modules.size());
+	}
+	
+	@Test(timeOut=2000)
+	public void testContinueOnFailure() throws InterruptedException, ExecutionException {
+		final Module failing = findModule("C");
+		final Queue<Module> executionOrder = new ConcurrentLinkedQueue<>();
+		WalkResult<Module> result = dependencyGraph.walkGraph(executor, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+				Thread.sleep(10);
+				if (module == failing) {
+					throw new IOException("test checked exception");
+				}
+				executionOrder.add(module);
+			}
+		}, WalkOptions.<Module>builder().failurePolicy(FailurePolicy.CONTINUE).build());
+		
+		assertFalse(result.isSuccessful());
+		assertEquals(result.getFailed().keySet(), ImmutableSet.of(failing));
+		assertEquals(result.getSkipped(), ImmutableSet.of(findModule("H"), findModule("I")));
+		assertEquals(result.getCompleted(), Sets.difference(modules, Sets.union(result.getSkipped(), result.getFailed().keySet())));
+		assertEquals(ImmutableSet.copyOf(executionOrder), result.getCompleted());
+		try {
+			result.checkFailures();
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+	}
+	
+	@Test(timeOut=2000)
+	public void testErrorOnContinue() throws InterruptedException, ExecutionException {
+		final Module failing = findModule("C");
+		WalkResult<Module> result = dependencyGraph.walkGraph(executor, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+				if (module == failing) {
+					throw new AssertionError("test error");
+				}
+			}
+		}, WalkOptions.<Module>builder().failurePolicy(FailurePolicy.CONTINUE).build());
+		
+		assertEquals(result.getFailed().keySet(), ImmutableSet.of(failing));
+		assertTrue(result.getFailed().get(failing).getCause() instanceof AssertionError);
+		assertEquals(result.getSkipped(), ImmutableSet.of(findModule("H"), findModule("I")));
+	}
+	
+	@Test(timeOut=10000)
+	public void testRejectedOnContinue() throws InterruptedException, ExecutionException, CyclicGraphException, UnsatisfiedDependencyException {
+		Set<Module> independent = Sets.newLinkedHashSet();
+		for (int i = 0; i < 100000; i++) {
+			independent.add(Module.builder("R", i).buildModule());
+		}
+		IDependencyGraph<Module> independentGraph = DependencyGraphFactory.newInstance(independent, Module.adapterFunction);
+		ExecutorService shutdownExecutor = Executors.newSingleThreadExecutor();
+		shutdownExecutor.shutdown();
+		
+		// each rejected module starts the next one
+		WalkResult<Module> result = independentGraph.walkGraph(shutdownExecutor, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+			}
+		}, WalkOptions.<Module>builder().failurePolicy(FailurePolicy.CONTINUE).build());
+		
+		assertEquals(result.getFailed().size(), independent.size());
+	}
+	
+	@Test(timeOut=2000)
+	public void testContractedWalk() throws InterruptedException, ExecutionException {
+		final Queue<Module> executionOrder = new ConcurrentLinkedQueue<>();
+		final Map<Module, Thread> threads = new ConcurrentHashMap<>();
+		WalkResult<Module> result = dependencyGraph.walkGraph(executor, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+				Thread.sleep(10);
+				threads.put(module, Thread.currentThread());
+				executionOrder.add(module);
+			}
+		}, WalkOptions.<Module>builder()
+			.contractChains(true)
+			.cheapModules(Predicates.equalTo(findModule("L")))
+			.build());
+		
+		assertEquals(result.getCompleted(), modules);
+		assertTopoOrder(Lists.newArrayList(executionOrder));
+		// the chain E <- F <- G and the cheap L <- K are executed on a single thread 
+		assertSame(threads.get(findModule("F")), threads.get(findModule("E")));
+		assertSame(threads.get(findModule("G")), threads.get(findModule("E")));
+		assertSame(threads.get(findModule("L")), threads.get(findModule("K")));
+	}
+	
+	@Test(timeOut=2000)
+	public void testResourceLimits() throws CyclicGraphException, UnsatisfiedDependencyException, ExecutionException {
+		Set<Module> resourceModules = Sets.newHashSet();
+		for (int i = 1; i <= 4; i++) {
+			Module.Builder db = Module.builder("db", i);
+			db.executionPriority(i);
+			resourceModules.add(db.buildModule());
+			resourceModules.add(Module.builder("cpu", i).buildModule());
+		}
+		IDependencyGraph<Module> resourceGraph = DependencyGraphFactory.newInstance(resourceModules, Module.adapterFunction);
+		
+		final Queue<Module> dbOrder = new ConcurrentLinkedQueue<>();
+		final Map<String, AtomicInteger> active = ImmutableMap.of("db", new AtomicInteger(), "cpu", new AtomicInteger());
+		final Map<String, AtomicInteger> maxActive = ImmutableMap.of("db", new AtomicInteger(), "cpu", new AtomicInteger());
+		final AtomicBoolean overlapping = new AtomicBoolean();
+		WalkResult<Module> result = resourceGraph.walkGraph(executor, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+				String resourceClass = module.getPrefix();
+				int count = active.get(resourceClass).incrementAndGet();
+				maxActive.get(resourceClass).set(Math.max(maxActive.get(resourceClass).get(), count));
+				if (active.get("db").get() > 0 && active.get("cpu").get() > 0) {
+					overlapping.set(true);
+				}
+				if (resourceClass.equals("db")) {
+					dbOrder.add(module);
+				}
+				Thread.sleep(20);
+				active.get(resourceClass).decrementAndGet();
+			}
+		}, WalkOptions.<Module>builder()
+			.parallelism(4)
+			.resourceLimit("db", 1)
+			.resourceLimit("cpu", 4)
+			.descriptors(new Function<Module, IDependencyDescriptor<String>>() {
+				
+				@Override
+				public IDependencyDescriptor<String> apply(Module input) {
+					String resourceClass = input.getPrefix();
+					return new DependencyDescriptor.Builder<>(input.getName())
+						.resource(resourceClass, resourceClass.equals("db") ? 1 : 2)
+						.build();
+				}
+			})
+			.build());
+		
+		assertTrue(result.isSuccessful());
+		assertEquals(result.getCompleted().size(), 8);
+		assertEquals(maxActive.get("db").get(), 1);
+		assertEquals(maxActive.get("cpu").get(), 2);
+		// a db module waiting for the permit does not block the cpu modules
+		assertTrue(overlapping.get());
+		// the db modules follow the rankings
+		List<Integer> counters = Lists.newArrayList();
+		for (Module module : dbOrder) {
+			counters.add(module.getCounter());
+		}
+		assertEquals(counters, ImmutableList.of(4, 3, 2, 1));
+	}
+	
+	@Test(timeOut=2000)
+	public void testContinuationRespectsReservations() throws CyclicGraphException, UnsatisfiedDependencyException, ExecutionException {
+		// X holds a db permit, H waits for both permits, the cheap C must not take the remaining one
+		Module.Builder xBuilder = Module.builder("X");
+		xBuilder.executionPriority(30);
+		final Module x = xBuilder.buildModule();
+		Module.Builder hBuilder = Module.builder("H");
+		hBuilder.executionPriority(20);
+		final Module h = hBuilder.buildModule();
+		final Module p = Module.builder("P").buildModule();
+		final Module c = Module.builder("C").uses("P").buildModule();
+		final Map<String, Integer> dbWeights = ImmutableMap.of("X", 1, "H", 2, "C", 1);
+		IDependencyGraph<Module> resourceGraph = DependencyGraphFactory.newInstance(
+				ImmutableSet.of(x, h, p, c), Module.adapterFunction);
+		
+		final Queue<Module> startOrder = new ConcurrentLinkedQueue<>();
+		WalkResult<Module> result = resourceGraph.walkGraph(executor, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+				startOrder.add(module);
+				if (module == x) {
+					Thread.sleep(50);
+				}
+			}
+		}, WalkOptions.<Module>builder()
+			.parallelism(4)
+			.resourceLimit("db", 2)
+			.descriptors(new Function<Module, IDependencyDescriptor<String>>() {
+				
+				@Override
+				public IDependencyDescriptor<String> apply(Module input) {
+					DependencyDescriptor.Builder<String> builder = new DependencyDescriptor.Builder<>(input.getName());
+					if (dbWeights.containsKey(input.getName())) {
+						builder.resource("db", dbWeights.get(input.getName()));
+					}
+					return builder.build();
+				}
+			})
+			.cheapModules(Predicates.equalTo(c))
+			.build());
+		
+		assertTrue(result.isSuccessful());
+		List<Module> order = ImmutableList.copyOf(startOrder);
+		assertTrue(order.indexOf(h) < order.indexOf(c), order.toString());
+	}
+	
+	@Test(expectedExceptions=IllegalArgumentException.class)
+	public void testResourceOverCapacity() throws ExecutionException {
+		dependencyGraph.walkGraph(executor, new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+			}
+		}, WalkOptions.<Module>builder()
+			.resourceLimit("db", 1)
+			.descriptors(new Function<Module, IDependencyDescriptor<String>>() {
+				
+				@Override
+				public IDependencyDescriptor<String> apply(Module input) {
+					return new DependencyDescriptor.Builder<>(input.getName()).resource("db", 2).build();
+				}
+			})
+			.build());
+	}
+	
+	@Test(expectedExceptions=IllegalArgumentException.class, expectedExceptionsMessageRegExp="Resource class is already declared: db")
+	public void testDuplicateResource() {
+		new DependencyDescriptor.Builder<>("M").resource("db", 1).resource("db", 2);
+	}
+	
+	@Test(timeOut=2000, expectedExceptions=IOException.class, expectedExceptionsMessageRegExp="test checked exception")
+	public void testRankedWalkFailFast() throws InterruptedException, IOException {
+		final AtomicInteger count = new AtomicInteger();
+		try {
+			dependencyGraph.walkGraph(executor, new IConsumer<Module>() {
+				
+				@Override
+				public void process(Module module) throws Exception {
+					Thread.sleep(10);
+					if (count.incrementAndGet() == 3) {
+						throw new IOException("test checked exception");
+					}
+				}
+			}, WalkOptions.<Module>builder().parallelism(2).build());
+		} catch (ExecutionException e) {
+			assertTrue(count.get() < modules.size());
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			} else {
+				throw new RuntimeException("Unexpected", e);
+			}
+		}
+	}
+	
+	@Test(timeOut=1000)
+	public void testThreadPerModuleWalk() throws InterruptedException, ExecutionException {
+		final AtomicInteger count = new AtomicInteger();
+		final Queue<Module> executionOrder = new ConcurrentLinkedQueue<>();
+		
+		dependencyGraph.walkGraph(ThreadPerVertexWalker.newVirtualThreadFactory(), new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+				log.info("Starting module {}", module);
+				Thread.sleep(10);
+				log.info("Completing module {}", module);
+				count.incrementAndGet();
+				executionOrder.add(module);
+			}
+		}, 100);
+		
+		assertEquals(modules.size(), count.get());
+		assertTopoOrder(Lists.newArrayList(executionOrder));
+	}
+	
+	@Test(timeOut=1000)
+	public void testThreadPerModuleCancellation() throws InterruptedException {
+		final AtomicBoolean interrupted = new AtomicBoolean();
+		final AtomicBoolean terminated = new AtomicBoolean();
+		
+		try {
+			dependencyGraph.walkGraph(ThreadPerVertexWalker.newVirtualThreadFactory(), new IConsumer<Module>() {
+				
+				@Override
+				public void process(Module module) throws Exception {
+					if (module == findModule("D")) {
+						try {
+							Thread.sleep(10000);
+						} catch (InterruptedException e) {
+							interrupted.set(true);
+							Thread.sleep(50);
+							terminated.set(true);
+							throw e;
+						}
+					} else if (module == findModule("E")) {
+						Thread.sleep(50);
+						throw new IOException("test checked exception");
+					}
+				}
+			}, 100);
+			fail();
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		
+		assertTrue(interrupted.get());
+		assertTrue(terminated.get());
+	}
+	
+	@Test(timeOut=2000)
+	public void testThreadFactoryFailures() {
+		final AtomicInteger created = new AtomicInteger();
+		ThreadFactory nullFactory = new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				return created.incrementAndGet() < 3 ? new Thread(r) : null;
+			}
+		};
+		ThreadFactory failingFactory = new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				if (created.incrementAndGet() < 3) {
+					return new Thread(r);
+				}
+				return new Thread(r) {
+					@Override
+					public synchronized void start() {
+						throw new IllegalThreadStateException("test failure");
+					}
+				};
+			}
+		};
+		IConsumer<Module> consumer = new IConsumer<Module>() {
+			
+			@Override
+			public void process(Module module) throws Exception {
+			}
+		};
+		
+		for (ThreadFactory threadFactory : ImmutableList.of(nullFactory, failingFactory)) {
+			created.set(0);
+			try {
+				dependencyGraph.walkGraph(threadFactory, consumer, 1);
+				fail("The failed thread is not reported");
+			} catch (ExecutionException e) {
+				assertTrue(e.getCause() instanceof IllegalStateException 
+						|| e.getCause() instanceof IllegalThreadStateException, e.toString());
+			}
+		}
+	}
+	
+	@Test(timeOut=2000)
+	public void testThreadPerModuleInterrupted() throws InterruptedException {
+		final CountDownLatch started = new CountDownLatch(1);
+		final AtomicReference<ExecutionException> failure = new AtomicReference<>();
+		final AtomicBoolean interrupted = new AtomicBoolean();
+		
+		Thread walker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					dependencyGraph.walkGraph(ThreadPerVertexWalker.newVirtualThreadFactory(), new IConsumer<Module>() {
+						
+						@Override
+						public void process(Module module) throws Exception {
+							if (module == findModule("D")) {
+								started.countDown();
+								try {
+									Thread.sleep(10000);
+								} catch (InterruptedException e) {
+									throw new IOException("test checked exception");
+								}
+							}
+						}
+					}, 1);
+				} catch (ExecutionException e) {
+					failure.set(e);
+				}
+				interrupted.set(Thread.currentThread().isInterrupted());
+			}
+		});
+		walker.start();
+		started.await();
+		walker.interrupt();
+		walker.join();
+		
+		assertTrue(failure.get().getCause() instanceof InterruptedException);
+		assertEquals(failure.get().getSuppressed().length, 1);
+		assertTrue(failure.get().getSuppressed()[0] instanceof IOException);
+		assertTrue(interrupted.get());
+	}
+	
 	@Test
 	public void testDependencies() {
 		Module moduleM = findModule("M");
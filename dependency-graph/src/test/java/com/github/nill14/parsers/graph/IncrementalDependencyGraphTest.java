@@ -0,0 +1,278 @@
+package com.github.nill14.parsers.graph;
+
+import static org.testng.Assert.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.github.nill14.parsers.dependency.impl.IncrementalDependencyGraph;
+import com.github.nill14.parsers.graph.utils.LongestPathTopoSorter;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+
+public class IncrementalDependencyGraphTest {
+
+	private static final Logger log = LoggerFactory.getLogger(IncrementalDependencyGraphTest.class);
+	private Set<Module> modules;
+	private IDependencyGraph<Module> dependencyGraph;
+	private IncrementalDependencyGraph<Module> incrementalGraph;
+	private ImmutableMap<String, Module> moduleIndex;
+
+	@BeforeMethod
+	public void init() throws CyclicGraphException, UnsatisfiedDependencyException {
+		modules = ImmutableSet.of(
+			Module.builder("A")
+				.provides("A")
+				.uses("M")
+				.buildModule(),
+			Module.builder("B")
+				.uses("A")
+				.buildModule(),
+			Module.builder("C")
+				.uses("A")
+				.uses("B")
+				.buildModule(),
+
+			//not connected
+			Module.builder("D")
+				.buildModule(),
+
+			Module.builder("E")
+				.buildModule(),
+			Module.builder("F")
+				.uses("E")
+				.buildModule(),
+			Module.builder("G")
+				.uses("F")
+				.buildModule(),
+
+			Module.builder("H")
+				.uses("C")
+				.buildModule(),
+			Module.builder("I")
+				.uses("C")
+				.buildModule(),
+			Module.builder("J")
+				.provides("A")
+				.buildModule(),
+
+			Module.builder("K")
+				.buildModule(),
+			Module.builder("L")
+				.uses("K")
+				.buildModule(),
+
+			Module.builder("M")
+				.buildModule()
+		);
+
+		dependencyGraph = DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
+		incrementalGraph = IncrementalDependencyGraph.copyOf(dependencyGraph);
+
+		moduleIndex = Maps.uniqueIndex(modules, new Function<Module, String>() {
+
+			@Override
+			public String apply(Module input) {
+				return input.toString();
+			}
+		});
+	}
+
+	public Module findModule(String fqn) {
+		return moduleIndex.get(fqn);
+	}
+
+	private static <M> void assertTopoOrder(IDependencyGraph<M> dependencyGraph) {
+		List<M> topologicalOrdering = dependencyGraph.getTopologicalOrder();
+		DirectedGraph<M, GraphEdge<M>> graph = dependencyGraph.getGraph();
+		assertEquals(topologicalOrdering.size(), graph.nodes().size());
+		for (int i = 0; i < topologicalOrdering.size() - 1; i++) {
+			M n = topologicalOrdering.get(i);
+			for (int j = i; j < topologicalOrdering.size(); j++) {
+				M m = topologicalOrdering.get(j);
+
+				assertFalse(graph.predecessors(n).contains(m), n + "<-" + m);
+			}
+		}
+	}
+
+	@Test
+	public void testCopy() {
+		assertEquals(incrementalGraph.getModuleRankings(), dependencyGraph.getModuleRankings());
+		assertEquals(incrementalGraph.getModules(), modules);
+		assertEquals(incrementalGraph.getGraph().edges().size(), 11);
+		assertEquals(incrementalGraph.getAllDependencies(findModule("H")),
+				dependencyGraph.getAllDependencies(findModule("H")));
+		assertTopoOrder(incrementalGraph);
+	}
+
+	@Test
+	public void testReorder() throws CyclicGraphException {
+		Module g = findModule("G");
+		Module k = findModule("K");
+		assertTrue(incrementalGraph.addEdge(g, k));
+		assertFalse(incrementalGraph.addEdge(g, k));
+		assertTopoOrder(incrementalGraph);
+
+		Map<Module, Integer> rankings = incrementalGraph.getModuleRankings();
+		assertEquals(rankings.get(findModule("E")).intValue(), 4);
+		assertEquals(rankings.get(k).intValue(), 1);
+
+		assertTrue(incrementalGraph.removeEdge(g, k));
+		assertFalse(incrementalGraph.removeEdge(g, k));
+		assertEquals(incrementalGraph.getModuleRankings(), dependencyGraph.getModuleRankings());
+	}
+
+	@Test
+	public void testCachedRankings() throws CyclicGraphException {
+		Map<Module, Integer> rankings = incrementalGraph.getModuleRankings();
+		assertSame(incrementalGraph.getModuleRankings(), rankings);
+		assertEquals(incrementalGraph.getTopologicalOrder(), ImmutableList.copyOf(rankings.keySet()));
+		assertEquals(incrementalGraph.snapshot().getTopologicalOrder(), incrementalGraph.getTopologicalOrder());
+		assertEquals(incrementalGraph.snapshot().getModuleRankings(), rankings);
+
+		assertTrue(incrementalGraph.addEdge(findModule("G"), findModule("K")));
+		assertNotSame(incrementalGraph.getModuleRankings(), rankings);
+		assertTopoOrder(incrementalGraph);
+		assertEquals(incrementalGraph.snapshot().getTopologicalOrder(), incrementalGraph.getTopologicalOrder());
+		assertEquals(incrementalGraph.snapshot().getModuleRankings(), incrementalGraph.getModuleRankings());
+	}
+
+	@Test
+	public void testCycle() {
+		Map<Module, Integer> rankings = incrementalGraph.getModuleRankings();
+		try {
+			incrementalGraph.addEdge(findModule("H"), findModule("M"));
+			fail();
+		} catch (CyclicGraphException e) {
+			log.info("{}", e.getMessage());
+			assertEquals(e.getGraphCycles().size(), 1);
+		}
+		assertEquals(incrementalGraph.getModuleRankings(), rankings);
+		assertTopoOrder(incrementalGraph);
+	}
+
+	@Test
+	public void testClosureInvalidation() throws CyclicGraphException {
+		Module c = findModule("C");
+		Module h = findModule("H");
+		Set<Module> closureL = incrementalGraph.getAllDependencies(findModule("L"));
+		Set<Module> closureC = incrementalGraph.getAllDependencies(c);
+		assertEquals(incrementalGraph.getAllDependencies(h).size(), 5);
+
+		incrementalGraph.addEdge(findModule("D"), c);
+		assertEquals(incrementalGraph.getAllDependencies(h).size(), 6);
+		assertTrue(incrementalGraph.getAllDependencies(c).contains(findModule("D")));
+		assertFalse(closureC.contains(findModule("D")));
+		assertSame(incrementalGraph.getAllDependencies(findModule("L")), closureL);
+
+		incrementalGraph.removeModule(findModule("A"));
+		assertEquals(incrementalGraph.getAllDependencies(h), ImmutableSet.of(c, findModule("B"), findModule("J"), findModule("D")));
+		assertEquals(incrementalGraph.getModules().size(), modules.size() - 1);
+		assertTopoOrder(incrementalGraph);
+	}
+
+	@Test
+	public void testDependsOn() throws CyclicGraphException, UnsatisfiedDependencyException {
+		incrementalGraph.addEdge(findModule("D"), findModule("C"));
+		IDependencyGraph<Module> snapshot = DependencyGraphFactory.fromGraph(incrementalGraph.getGraph(), ImmutableMap.<Module, Integer>of());
+		for (Module module : modules) {
+			for (Module dependency : modules) {
+				boolean expected = snapshot.getAllDependencies(module).contains(dependency);
+				assertEquals(incrementalGraph.dependsOn(module, dependency), expected, module + "->" + dependency);
+				assertEquals(snapshot.dependsOn(module, dependency), expected, module + "->" + dependency);
+			}
+		}
+		assertTrue(incrementalGraph.dependsOn(findModule("H"), findModule("M")));
+		assertFalse(incrementalGraph.dependsOn(findModule("H"), findModule("H")));
+	}
+
+	@Test
+	public void testDependants() throws CyclicGraphException {
+		Module a = findModule("A");
+		Module c = findModule("C");
+		Set<Module> expected = ImmutableSet.of(findModule("B"), c, findModule("H"), findModule("I"));
+		assertEquals(dependencyGraph.getDirectDependants(a), ImmutableSet.of(findModule("B"), c));
+		assertEquals(dependencyGraph.getAllDependants(a), expected);
+		assertSame(dependencyGraph.getAllDependants(a), dependencyGraph.getAllDependants(a));
+		assertEquals(ImmutableList.copyOf(dependencyGraph.getAllDependants(a)),
+				ImmutableList.copyOf(Iterables.filter(dependencyGraph.getTopologicalOrder(), Predicates.in(expected))));
+		assertEquals(dependencyGraph.getAllDependants(ImmutableSet.of(a, findModule("M"), findModule("K"))),
+				ImmutableSet.builder().addAll(expected).add(a, findModule("L")).build());
+
+		assertEquals(incrementalGraph.getAllDependants(a), expected);
+		Set<Module> dependantsE = incrementalGraph.getAllDependants(findModule("E"));
+		incrementalGraph.addEdge(findModule("I"), findModule("D"));
+		assertTrue(incrementalGraph.getAllDependants(a).contains(findModule("D")));
+		assertTrue(incrementalGraph.getAllDependants(findModule("M")).contains(findModule("D")));
+		assertSame(incrementalGraph.getAllDependants(findModule("E")), dependantsE);
+		assertEquals(incrementalGraph.getDirectDependants(findModule("I")), ImmutableSet.of(findModule("D")));
+		assertEquals(incrementalGraph.getAllDependants(ImmutableSet.of(c, findModule("E"))),
+				ImmutableSet.of(findModule("H"), findModule("I"), findModule("D"), findModule("F"), findModule("G")));
+
+		incrementalGraph.removeModule(c);
+		assertEquals(incrementalGraph.getAllDependants(a), ImmutableSet.of(findModule("B")));
+	}
+
+	@Test
+	public void testRandomChanges() throws CyclicGraphException {
+		Random random = new Random(42);
+		IncrementalDependencyGraph<Integer> graph = new IncrementalDependencyGraph<>();
+		Map<Integer, Integer> priorities = Maps.newHashMap();
+		int size = 300;
+		for (int i = 0; i < size; i++) {
+			int priority = random.nextInt(3);
+			priorities.put(i, priority);
+			graph.addModule(i, priority);
+		}
+
+		int cycles = 0;
+		for (int round = 0; round < 20; round++) {
+			for (int i = 0; i < 100; i++) {
+				int source = random.nextInt(size);
+				int target = random.nextInt(size);
+				if (!priorities.containsKey(source) || !priorities.containsKey(target)) {
+					continue;
+				}
+				try {
+					graph.addEdge(source, target);
+				} catch (CyclicGraphException e) {
+					cycles++;
+				}
+			}
+			for (int i = 0; i < 20; i++) {
+				int source = random.nextInt(size);
+				int target = random.nextInt(size);
+				if (priorities.containsKey(source) && priorities.containsKey(target)) {
+					graph.removeEdge(source, target);
+				}
+			}
+			int removed = random.nextInt(size);
+			if (priorities.remove(removed) != null) {
+				graph.removeModule(removed);
+			}
+
+			assertTopoOrder(graph);
+			LongestPathTopoSorter<Integer, GraphEdge<Integer>> sorter = new LongestPathTopoSorter<>(graph.getGraph());
+			assertEquals(graph.getModuleRankings(), sorter.getLongestPathMap(Functions.forMap(priorities, 0)));
+		}
+		log.info("Rejected {} edges closing a cycle", cycles);
+		assertTrue(cycles > 0);
+	}
+}
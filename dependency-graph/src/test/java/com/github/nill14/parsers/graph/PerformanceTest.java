@@ -5,6 +5,7 @@ import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Semaphore;
 
 
@@ -12,18 +13,21 @@ import static org.testng.Assert.*;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
 import com.github.nill14.parsers.dependency.IConsumer;
 import com.github.nill14.parsers.dependency.IDependencyGraph;
 import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.WalkOptions;
 import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
 import com.github.nill14.parsers.dependency.impl.ModuleRankingsPrinter;
 import com.github.nill14.parsers.graph.utils.GraphWalker1;
 import com.github.nill14.parsers.graph.utils.GraphWalker2;
 import com.github.nill14.parsers.graph.utils.GraphWalker3;
 import com.github.nill14.parsers.graph.utils.GraphWalker4;
+import com.github.nill14.parsers.graph.utils.ThreadPerVertexWalker;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -41,6 +45,8 @@ public class PerformanceTest {
 //	private static final int parallelism = Runtime.getRuntime().availableProcessors();
 	private static final int parallelism = 20;
 	private static final ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+	private static final ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+	private static final ForkJoinPool forkJoinPool64 = new ForkJoinPool(64);
 
 	private static Set<Module> buildChain(String prefix, int count, int padding) {
 		Set<Module> set = Sets.newHashSet();
@@ -80,6 +86,13 @@ public class PerformanceTest {
 			}
 		}
 	};
+	private static final IConsumer<Module> ioConsumer = new IConsumer<Module>() {
+		@Override
+		public void process(Module module) throws Exception {
+			// simulates a blocking IO call, e.g. JDBC
+			Thread.sleep(2);
+		}
+	};
 	private static ImmutableMap<String,Module> index;
 
 
@@ -113,11 +126,23 @@ public class PerformanceTest {
 		});
 	}
 	
+	@AfterClass
+	public static void shutdown() {
+		executor.shutdown();
+		forkJoinPool.shutdown();
+		forkJoinPool64.shutdown();
+	}
+	
 	@Test
 	public void createDependencyGraph() throws UnsatisfiedDependencyException, CyclicGraphException {
 		DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
 	}
 
+	@Test
+	public void createDependencyGraphInParallel() throws UnsatisfiedDependencyException, CyclicGraphException {
+		DependencyGraphFactory.newInstance(modules, Module.adapterFunction, forkJoinPool);
+	}
+
 	@Test
 	public void createGraph() throws UnsatisfiedDependencyException {
 		DependencyGraphFactory.newGraph(modules, Module.adapterFunction);
@@ -167,6 +192,7 @@ public class PerformanceTest {
 		 * For 4 threads the execution time is equal with walker's
 		 * For 20 threads the walker takes double time (1.8x)
 		 */
+		long start = System.nanoTime();
 		final Semaphore parallelism = new Semaphore(PerformanceTest.parallelism);
 		for (final Module module : topologicalOrder) {
 			parallelism.acquire();
@@ -182,6 +208,67 @@ public class PerformanceTest {
 				}
 			});
 		}
+		parallelism.acquire(PerformanceTest.parallelism);
+		log.info("Raw parallel execution: {} ms", (System.nanoTime() - start) / 1000000);
+	}
+	
+	@Test
+	public void testRankedWalker() throws ExecutionException {
+		long start = System.nanoTime();
+		dependencyGraph.walkGraph(executor, consumer, WalkOptions.<Module>builder().parallelism(parallelism).build());
+		log.info("Ranked walk: {} ms", (System.nanoTime() - start) / 1000000);
+	}
+	
+	@Test
+	public void testContractedRankedWalker() throws ExecutionException {
+		/*
+		 * The chains are executed as single tasks, 
+		 * compare with rawParallelExecution without any scheduling.
+		 */
+		long start = System.nanoTime();
+		dependencyGraph.walkGraph(executor, consumer, WalkOptions.<Module>builder()
+				.parallelism(parallelism)
+				.contractChains(true)
+				.build());
+		log.info("Ranked walk with contracted chains: {} ms", (System.nanoTime() - start) / 1000000);
+	}
+	
+	@Test
+	public void testForkJoinWalker() throws ExecutionException {
+		dependencyGraph.walkGraph(forkJoinPool, consumer);
+	}
+	
+	@Test
+	public void testForkJoinWalker64() throws ExecutionException {
+		/*
+		 * There is no central scheduling, 
+		 * the overhead should not increase with the thread count.
+		 */
+		dependencyGraph.walkGraph(forkJoinPool64, consumer);
+	}
+	
+	@Test
+	public void ioBoundFixedPoolWalk() throws ExecutionException {
+		/*
+		 * The IO-bound modules keep the threads blocked,
+		 * the pool sized for CPU-bound work cannot saturate the graph.
+		 */
+		long start = System.nanoTime();
+		int threads = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			dependencyGraph.walkGraph(executor, ioConsumer, threads);
+		} finally {
+			executor.shutdown();
+		}
+		log.info("IO-bound walk on {} pool threads: {} ms", threads, (System.nanoTime() - start) / 1000000);
+	}
+	
+	@Test
+	public void ioBoundThreadPerModuleWalk() throws ExecutionException {
+		long start = System.nanoTime();
+		dependencyGraph.walkGraph(ThreadPerVertexWalker.newVirtualThreadFactory(), ioConsumer, 256);
+		log.info("IO-bound walk on thread per module: {} ms", (System.nanoTime() - start) / 1000000);
 	}
 	
 	@Test
@@ -0,0 +1,64 @@
+package com.github.nill14.parsers.graph;
+
+import java.util.Random;
+import java.util.Set;
+
+import com.github.nill14.parsers.graph.impl.EvaluatedGraphEdge;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableSortedMultiset;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
+
+public final class RandomModules {
+
+	private RandomModules() {
+	}
+
+	/**
+	 * The module M-i requires a few preceding modules and uses optionally the services of lower groups.
+	 * A service S-g is provided by some modules of the group g (i / 100).
+	 * With cycles, a module uses optionally also the service of its own group.
+	 */
+	public static Set<Module> randomModules(int size, boolean cycles, long seed) {
+		Random random = new Random(seed);
+		Set<Module> modules = Sets.newLinkedHashSet();
+		for (int i = 0; i < size; i++) {
+			Module.Builder builder = Module.builder("M", i);
+			int group = i / 100;
+			for (int k = random.nextInt(4); k > 0 && i > 0; k--) {
+				builder.uses("M-" + random.nextInt(i));
+			}
+			if (group > 0 && random.nextInt(3) == 0) {
+				String service = "S-" + random.nextInt(group);
+				builder.usesOptionally(service);
+				if (random.nextBoolean()) {
+					builder.uses(service);
+				}
+			}
+			if (i % 7 == 0) {
+				builder.provides("S-" + group);
+			}
+			if (cycles && random.nextInt(5) == 0) {
+				builder.usesOptionally("S-" + group);
+			}
+			if (random.nextInt(10) == 0) {
+				builder.usesOptionally("missing");
+			}
+			builder.executionPriority(random.nextInt(3) * 10);
+			modules.add(builder.buildModule());
+		}
+		return modules;
+	}
+
+	/**
+	 * The edges are compared as strings, the graph implementations use different edge classes
+	 */
+	public static ImmutableSortedMultiset<String> edges(DirectedGraph<Module, GraphEdge<Module>> graph) {
+		Multiset<String> result = HashMultiset.create();
+		for (GraphEdge<Module> edge : graph.edges()) {
+			Object key = ((EvaluatedGraphEdge<?, ?>) edge).value();
+			result.add(edge.source() + " -> " + edge.target() + " (" + key + ")");
+		}
+		return ImmutableSortedMultiset.copyOf(result);
+	}
+}
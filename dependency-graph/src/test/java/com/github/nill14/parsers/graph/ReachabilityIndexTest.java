@@ -0,0 +1,90 @@
+package com.github.nill14.parsers.graph;
+
+import static org.testng.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.github.nill14.parsers.graph.impl.EvaluatedGraphEdge;
+import com.github.nill14.parsers.graph.utils.ReachabilityIndex;
+import com.github.nill14.parsers.graph.utils.TransitiveClosureIndex;
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
+
+public class ReachabilityIndexTest {
+
+	private static final Logger log = LoggerFactory.getLogger(ReachabilityIndexTest.class);
+
+	/**
+	 * The vertices are numbered topologically, the predecessors are chosen randomly
+	 * either from the close vertices or from all preceding vertices
+	 */
+	private static DirectedGraph<Integer, GraphEdge<Integer>> randomGraph(int size, int degree, int window, long seed) {
+		Random random = new Random(seed);
+		Set<GraphEdge<Integer>> edges = Sets.newLinkedHashSet();
+		for (int target = 1; target < size; target++) {
+			for (int i = random.nextInt(degree + 1); i > 0; i--) {
+				int source = target - 1 - random.nextInt(Math.min(target, window));
+				edges.add(EvaluatedGraphEdge.<Integer, Object>edge(source, target));
+			}
+		}
+		return CompactDirectedGraph.<Integer, GraphEdge<Integer>>builder()
+				.nodes(ContiguousSet.create(Range.closedOpen(0, size), DiscreteDomain.integers()))
+				.edges(edges)
+				.build();
+	}
+
+	private static List<Integer> range(int size) {
+		return ContiguousSet.create(Range.closedOpen(0, size), DiscreteDomain.integers()).asList();
+	}
+
+	@Test
+	public void testAllPairs() {
+		int size = 400;
+		for (int window : new int[] {10, size}) {
+			DirectedGraph<Integer, GraphEdge<Integer>> graph = randomGraph(size, 2, window, window);
+			TransitiveClosureIndex<Integer> closures = new TransitiveClosureIndex<>(graph, range(size));
+			ReachabilityIndex<Integer> index = new ReachabilityIndex<>(graph, range(size), 2, new Random(1));
+
+			for (int target = 0; target < size; target++) {
+				Set<Integer> predecessors = closures.getAllPredecessors(target);
+				for (int source = 0; source < size; source++) {
+					assertEquals(index.reaches(source, target), predecessors.contains(source), source + "->" + target);
+				}
+			}
+			assertFalse(index.reaches(0, size));
+		}
+	}
+
+	@Test
+	public void benchmarkRandomQueries() {
+		int size = 100000;
+		int queries = 1000000;
+		DirectedGraph<Integer, GraphEdge<Integer>> graph = randomGraph(size, 3, size, 5);
+
+		long start = System.nanoTime();
+		ReachabilityIndex<Integer> index = new ReachabilityIndex<>(graph, range(size));
+		long built = System.nanoTime();
+
+		Random random = new Random(13);
+		int positive = 0;
+		for (int i = 0; i < queries; i++) {
+			if (index.reaches(random.nextInt(size), random.nextInt(size))) {
+				positive++;
+			}
+		}
+		long finished = System.nanoTime();
+
+		log.info("Reachability index of {} vertices and {} edges built in {} ms", size, graph.edges().size(), (built - start) / 1000000);
+		log.info("{} random queries ({} positive) answered in {} ms", queries, positive, (finished - built) / 1000000);
+		assertTrue(positive > 0);
+	}
+}
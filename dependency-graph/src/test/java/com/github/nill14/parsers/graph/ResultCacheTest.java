@@ -0,0 +1,209 @@
+package com.github.nill14.parsers.graph;
+
+import static org.testng.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.github.nill14.parsers.dependency.ICacheableConsumer;
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.github.nill14.parsers.dependency.impl.LocalResultCache;
+import com.github.nill14.parsers.dependency.impl.ResultCachingConsumer;
+import com.google.common.base.Function;
+import com.google.common.base.Functions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+public class ResultCacheTest {
+
+	private final ForkJoinPool pool = new ForkJoinPool(4);
+	private IDependencyGraph<Module> dependencyGraph;
+	private ImmutableMap<String, Module> moduleIndex;
+	private File directory;
+
+	/**
+	 * The inputs of modules, the output of a module is its input (up to the first space)
+	 * concatenated with the outputs of its dependencies
+	 */
+	private final ConcurrentMap<Module, String> inputs = new ConcurrentHashMap<>();
+	private final Queue<Module> processed = new ConcurrentLinkedQueue<>();
+	private final Queue<Module> restored = new ConcurrentLinkedQueue<>();
+
+	private final ICacheableConsumer<Module> consumer = new ICacheableConsumer<Module>() {
+
+		@Override
+		public String fingerprint(Module module) {
+			return inputs.get(module);
+		}
+
+		@Override
+		public byte[] process(Module module, Map<Module, byte[]> dependencyOutputs) {
+			processed.add(module);
+			StringBuilder builder = new StringBuilder(inputs.get(module).split(" ")[0]);
+			for (Module dependency : dependencyOutputs.keySet()) {
+				builder.append('(').append(new String(dependencyOutputs.get(dependency), StandardCharsets.UTF_8)).append(')');
+			}
+			return builder.toString().getBytes(StandardCharsets.UTF_8);
+		}
+
+		@Override
+		public void restore(Module module, byte[] output) {
+			restored.add(module);
+		}
+	};
+
+	@BeforeMethod
+	public void init() throws CyclicGraphException, UnsatisfiedDependencyException, IOException {
+		Set<Module> modules = ImmutableSet.of(
+			Module.builder("A")
+				.buildModule(),
+			Module.builder("B")
+				.uses("A")
+				.buildModule(),
+			Module.builder("C")
+				.uses("B")
+				.buildModule(),
+			Module.builder("D")
+				.buildModule()
+		);
+		dependencyGraph = DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
+		moduleIndex = Maps.uniqueIndex(modules, new Function<Module, String>() {
+
+			@Override
+			public String apply(Module input) {
+				return input.toString();
+			}
+		});
+		for (Module module : modules) {
+			inputs.put(module, module.toString().toLowerCase());
+		}
+		directory = Files.createTempDirectory("results").toFile();
+	}
+
+	@AfterClass
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private Module findModule(String fqn) {
+		return moduleIndex.get(fqn);
+	}
+
+	private ResultCachingConsumer<Module> walk(LocalResultCache cache) throws ExecutionException {
+		processed.clear();
+		restored.clear();
+		ResultCachingConsumer<Module> cachingConsumer = new ResultCachingConsumer<>(dependencyGraph, cache, consumer, Functions.toStringFunction());
+		dependencyGraph.walkGraph(pool, cachingConsumer);
+		return cachingConsumer;
+	}
+
+	private Set<Module> modules(String... names) {
+		Set<Module> result = Sets.newHashSet();
+		for (String name : names) {
+			result.add(findModule(name));
+		}
+		return result;
+	}
+
+	@Test
+	public void testSkipUnchanged() throws ExecutionException, IOException {
+		LocalResultCache cache = new LocalResultCache(directory, 1 << 20);
+		ResultCachingConsumer<Module> first = walk(cache);
+		assertEquals(Sets.newHashSet(processed), dependencyGraph.getModules());
+		assertEquals(first.getCacheMisses(), 4);
+		assertEquals(new String(first.getOutput(findModule("C")), StandardCharsets.UTF_8), "c(b(a))");
+
+		// a new cache instance reads the same directory
+		ResultCachingConsumer<Module> second = walk(new LocalResultCache(directory, 1 << 20));
+		assertTrue(processed.isEmpty());
+		assertEquals(second.getCacheHits(), 4);
+		assertEquals(second.getOutput(findModule("C")), first.getOutput(findModule("C")));
+
+		// the changed output of B invalidates C
+		inputs.put(findModule("B"), "x");
+		walk(cache);
+		assertEquals(Sets.newHashSet(processed), modules("B", "C"));
+		assertEquals(Sets.newHashSet(restored), modules("A", "D"));
+
+		// the same output of B does not invalidate C
+		inputs.put(findModule("B"), "x comment");
+		walk(cache);
+		assertEquals(Sets.newHashSet(processed), modules("B"));
+		assertEquals(Sets.newHashSet(restored), modules("A", "C", "D"));
+	}
+
+	@Test
+	public void testSwappedOutputs() throws ExecutionException, IOException, CyclicGraphException, UnsatisfiedDependencyException {
+		Set<Module> modules = ImmutableSet.of(
+			Module.builder("X")
+				.buildModule(),
+			Module.builder("Y")
+				.buildModule(),
+			Module.builder("Z")
+				.uses("X")
+				.uses("Y")
+				.buildModule()
+		);
+		dependencyGraph = DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
+		moduleIndex = Maps.uniqueIndex(modules, Functions.toStringFunction());
+		inputs.put(findModule("X"), "p");
+		inputs.put(findModule("Y"), "q");
+		inputs.put(findModule("Z"), "z");
+		LocalResultCache cache = new LocalResultCache(directory, 1 << 20);
+		walk(cache);
+
+		// the outputs of the dependencies are swapped, the set of their digests is not
+		inputs.put(findModule("X"), "q");
+		inputs.put(findModule("Y"), "p");
+		ResultCachingConsumer<Module> swapped = walk(cache);
+		assertEquals(Sets.newHashSet(processed), modules("Z"));
+		assertEquals(Sets.newHashSet(restored), modules("X", "Y"));
+		assertEquals(new String(swapped.getOutput(findModule("Z")), StandardCharsets.UTF_8), "z(q)(p)");
+	}
+
+	@Test
+	public void testEviction() throws IOException {
+		LocalResultCache cache = new LocalResultCache(directory, 100);
+		byte[] value = new byte[40];
+		cache.put("01", value);
+		cache.put("02", value);
+		assertNotNull(cache.get("01"));
+		cache.put("03", value);
+
+		assertNotNull(cache.get("01"));
+		assertNull(cache.get("02"));
+		assertNotNull(cache.get("03"));
+		assertEquals(cache.getTotalBytes(), 80);
+		assertFalse(new File(directory, "02").exists());
+
+		cache.put("03", new byte[10]);
+		assertEquals(cache.getTotalBytes(), 50);
+		assertEquals(new LocalResultCache(directory, 100).getTotalBytes(), 50);
+		// the least recently used entry is evicted on start
+		assertTrue(new File(directory, "01").setLastModified(1000));
+		assertEquals(new LocalResultCache(directory, 20).getTotalBytes(), 10);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void testInvalidKey() throws IOException {
+		new LocalResultCache(directory, 100).get("../secret");
+	}
+}
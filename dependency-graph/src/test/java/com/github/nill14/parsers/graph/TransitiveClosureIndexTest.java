@@ -0,0 +1,166 @@
+package com.github.nill14.parsers.graph;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.Test;
+
+import com.github.nill14.parsers.graph.impl.CompactDirectedGraph;
+import com.github.nill14.parsers.graph.impl.EvaluatedGraphEdge;
+import com.github.nill14.parsers.graph.utils.ClosureSet;
+import com.github.nill14.parsers.graph.utils.CompressedBitmap;
+import com.github.nill14.parsers.graph.utils.TransitiveClosureIndex;
+import com.google.common.collect.ContiguousSet;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Range;
+import com.google.common.collect.Sets;
+
+public class TransitiveClosureIndexTest {
+
+	private static final Logger log = LoggerFactory.getLogger(TransitiveClosureIndexTest.class);
+
+	/**
+	 * The vertices are numbered topologically, each vertex has a few random predecessors
+	 */
+	private static DirectedGraph<Integer, GraphEdge<Integer>> randomGraph(int size, int degree, long seed) {
+		Random random = new Random(seed);
+		Set<GraphEdge<Integer>> edges = Sets.newLinkedHashSet();
+		for (int target = 1; target < size; target++) {
+			for (int i = random.nextInt(degree + 1); i > 0; i--) {
+				int source = Math.max(0, target - 1 - random.nextInt(Math.min(target, 50)));
+				edges.add(EvaluatedGraphEdge.<Integer, Object>edge(source, target));
+			}
+		}
+		return CompactDirectedGraph.<Integer, GraphEdge<Integer>>builder()
+				.nodes(ContiguousSet.create(Range.closedOpen(0, size), DiscreteDomain.integers()))
+				.edges(edges)
+				.build();
+	}
+
+	private static Set<Integer> naiveClosure(DirectedGraph<Integer, GraphEdge<Integer>> graph, Integer vertex) {
+		Set<Integer> result = Sets.newHashSet();
+		Deque<Integer> stack = new ArrayDeque<>();
+		stack.push(vertex);
+		while (!stack.isEmpty()) {
+			for (Integer predecessor : graph.predecessors(stack.pop())) {
+				if (result.add(predecessor)) {
+					stack.push(predecessor);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static List<Integer> range(int size) {
+		return ContiguousSet.create(Range.closedOpen(0, size), DiscreteDomain.integers()).asList();
+	}
+
+	@Test
+	public void testRandomGraph() {
+		int size = 2000;
+		DirectedGraph<Integer, GraphEdge<Integer>> graph = randomGraph(size, 3, 7);
+		TransitiveClosureIndex<Integer> index = new TransitiveClosureIndex<>(graph, range(size));
+		ForkJoinPool pool = new ForkJoinPool(4);
+		TransitiveClosureIndex<Integer> parallelIndex;
+		try {
+			parallelIndex = new TransitiveClosureIndex<>(graph, range(size), pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		for (int vertex = 0; vertex < size; vertex++) {
+			Set<Integer> expected = naiveClosure(graph, vertex);
+			ClosureSet<Integer> closure = index.getAllPredecessors(vertex);
+			assertEquals(closure, expected);
+			assertEquals(ImmutableList.copyOf(closure), ImmutableList.copyOf(Sets.newTreeSet(expected)));
+			assertEquals(parallelIndex.getBitmap(vertex), closure.getBitmap());
+		}
+	}
+
+	@Test
+	public void testBulkOperations() {
+		int size = 500;
+		DirectedGraph<Integer, GraphEdge<Integer>> graph = randomGraph(size, 2, 11);
+		TransitiveClosureIndex<Integer> index = new TransitiveClosureIndex<>(graph, range(size));
+
+		for (int a = 0; a < size; a += 7) {
+			for (int b = 0; b < size; b += 13) {
+				ClosureSet<Integer> closureA = index.getAllPredecessors(a);
+				ClosureSet<Integer> closureB = index.getAllPredecessors(b);
+				Set<Integer> setA = ImmutableSet.copyOf(closureA);
+				Set<Integer> setB = ImmutableSet.copyOf(closureB);
+
+				assertEquals(closureA.containsAll(closureB), setA.containsAll(setB));
+				assertEquals(closureA.intersection(closureB), Sets.intersection(setA, setB));
+				assertEquals(closureA.intersection(setB), Sets.intersection(setA, setB));
+				assertEquals(closureA.intersects(closureB), !Sets.intersection(setA, setB).isEmpty());
+			}
+		}
+		assertFalse(index.getAllPredecessors(0).contains("foreign"));
+		assertTrue(index.getAllPredecessors(-1).isEmpty());
+	}
+
+	@Test
+	public void testLongChain() {
+		int size = 100000;
+		Set<GraphEdge<Integer>> edges = Sets.newLinkedHashSet();
+		for (int i = 1; i < size; i++) {
+			edges.add(EvaluatedGraphEdge.<Integer, Object>edge(i - 1, i));
+		}
+		DirectedGraph<Integer, GraphEdge<Integer>> graph = CompactDirectedGraph.<Integer, GraphEdge<Integer>>builder()
+				.nodes(ImmutableSet.copyOf(range(size)))
+				.edges(edges)
+				.build();
+
+		long start = System.nanoTime();
+		TransitiveClosureIndex<Integer> index = new TransitiveClosureIndex<>(graph, range(size));
+		log.info("Closure of a chain of {} computed in {} ms", size, (System.nanoTime() - start) / 1000000);
+
+		ClosureSet<Integer> closure = index.getAllPredecessors(size - 1);
+		assertEquals(closure.size(), size - 1);
+		assertTrue(closure.contains(0));
+		assertFalse(closure.contains(size - 1));
+		assertTrue(closure.containsAll(index.getAllPredecessors(size / 2)));
+		assertEquals(closure.getBitmap().toString().length(), closure.toString().length());
+	}
+
+	@Test
+	public void testBitmapRepresentations() {
+		Random random = new Random(3);
+		for (int density : new int[] {1, 10, 50, 90, 100}) {
+			BitSet expected = new BitSet();
+			int from = random.nextInt(500);
+			for (int i = from; i < from + 1000; i++) {
+				if (random.nextInt(100) < density) {
+					expected.set(i);
+				}
+			}
+			int[] values = new int[expected.cardinality()];
+			for (int i = expected.nextSetBit(0), k = 0; i >= 0; i = expected.nextSetBit(i + 1)) {
+				values[k++] = i;
+			}
+			CompressedBitmap bitmap = CompressedBitmap.of(values);
+
+			assertEquals(bitmap.cardinality(), expected.cardinality());
+			for (int i = 0; i < 2000; i++) {
+				assertEquals(bitmap.contains(i), expected.get(i), "" + i);
+				assertEquals(bitmap.nextSetBit(i), expected.nextSetBit(i), "" + i);
+			}
+			assertTrue(bitmap.containsAll(bitmap.and(CompressedBitmap.of(from, from + 1, 1900))));
+			assertEquals(bitmap, CompressedBitmap.of(values));
+		}
+		assertTrue(CompressedBitmap.EMPTY.isEmpty());
+		assertEquals(CompressedBitmap.EMPTY.nextSetBit(0), -1);
+	}
+}
@@ -0,0 +1,132 @@
+package com.github.nill14.parsers.graph;
+
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.github.nill14.parsers.dependency.IConsumer;
+import com.github.nill14.parsers.dependency.IDependencyGraph;
+import com.github.nill14.parsers.dependency.UnsatisfiedDependencyException;
+import com.github.nill14.parsers.dependency.WalkOptions;
+import com.github.nill14.parsers.dependency.impl.ChromeTraceExporter;
+import com.github.nill14.parsers.dependency.impl.CriticalPathReport;
+import com.github.nill14.parsers.dependency.impl.DependencyGraphFactory;
+import com.github.nill14.parsers.dependency.impl.WalkMetrics;
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+
+public class WalkTraceTest {
+
+	private static final Logger log = LoggerFactory.getLogger(WalkTraceTest.class);
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+	private IDependencyGraph<Module> dependencyGraph;
+	private ImmutableMap<String, Module> moduleIndex;
+	private WalkMetrics<Module> metrics;
+
+	/**
+	 * The durations of the modules in milliseconds
+	 */
+	private final Map<String, Integer> durations = ImmutableMap.of("A", 200, "B", 20, "C", 20, "D", 20, "E", 20);
+
+	@BeforeClass
+	public void init() throws CyclicGraphException, UnsatisfiedDependencyException, ExecutionException {
+		Set<Module> modules = ImmutableSet.of(
+			Module.builder("A")
+				.buildModule(),
+			Module.builder("B")
+				.buildModule(),
+			Module.builder("C")
+				.uses("A")
+				.uses("B")
+				.buildModule(),
+			Module.builder("D")
+				.uses("C")
+				.buildModule(),
+			Module.builder("E")
+				.uses("B")
+				.buildModule()
+		);
+		dependencyGraph = DependencyGraphFactory.newInstance(modules, Module.adapterFunction);
+		moduleIndex = Maps.uniqueIndex(modules, new Function<Module, String>() {
+
+			@Override
+			public String apply(Module input) {
+				return input.toString();
+			}
+		});
+
+		metrics = new WalkMetrics<>();
+		dependencyGraph.walkGraph(executor, new IConsumer<Module>() {
+
+			@Override
+			public void process(Module module) throws Exception {
+				Thread.sleep(durations.get(module.toString()));
+			}
+		}, WalkOptions.<Module>builder().parallelism(4).listener(metrics).build());
+	}
+
+	private Module findModule(String fqn) {
+		return moduleIndex.get(fqn);
+	}
+
+	@Test
+	public void testCriticalPath() throws CyclicGraphException {
+		CriticalPathReport<Module> report = new CriticalPathReport<>(dependencyGraph, metrics);
+		report.toInfoLog(log);
+
+		assertEquals(report.getCriticalPath(), ImmutableList.of(findModule("A"), findModule("C"), findModule("D")));
+		assertTrue(report.getIdealMakespanNanos() >= TimeUnit.MILLISECONDS.toNanos(240));
+		assertTrue(report.getIdealMakespanNanos() <= report.getMakespanNanos());
+		assertTrue(report.getIdealRankings().get(findModule("A")) > report.getIdealRankings().get(findModule("B")));
+		assertEquals(report.getSlacks().size(), 5);
+
+		// B and E could have been delayed by the duration of A (less B) without delaying the walk
+		long slackB = report.getSlackNanos(findModule("B"));
+		long slackE = report.getSlackNanos(findModule("E"));
+		assertTrue(slackB >= TimeUnit.MILLISECONDS.toNanos(150), "slack " + slackB);
+		assertTrue(slackE >= TimeUnit.MILLISECONDS.toNanos(150), "slack " + slackE);
+		for (Module module : report.getCriticalPath()) {
+			assertTrue(report.getSlackNanos(module) < TimeUnit.MILLISECONDS.toNanos(50));
+		}
+	}
+
+	@Test
+	public void testChromeTrace() throws CyclicGraphException, IOException {
+		CriticalPathReport<Module> report = new CriticalPathReport<>(dependencyGraph, metrics);
+		StringWriter writer = new StringWriter();
+		new ChromeTraceExporter<>(metrics, report).write(writer);
+		String trace = writer.toString();
+
+		assertTrue(trace.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+		assertTrue(trace.trim().endsWith("]}"));
+		assertEquals(count(trace, "\"ph\":\"X\""), 5);
+		assertEquals(count(trace, "\"critical\":true"), 3);
+		assertEquals(count(trace, "\"ph\":\"C\""), metrics.getSamples().size());
+		assertTrue(trace.contains("{\"name\":\"A\",\"cat\":\"module\",\"ph\":\"X\""));
+		assertTrue(count(trace, "\"name\":\"thread_name\"") >= 3);
+	}
+
+	private static int count(String text, String pattern) {
+		int count = 0;
+		for (int i = text.indexOf(pattern); i >= 0; i = text.indexOf(pattern, i + 1)) {
+			count++;
+		}
+		return count;
+	}
+}